@@ -0,0 +1,8 @@
+package com.fee.fee.Util;
+
+/**
+ * Generates correlation IDs for requests that arrive without an {@code X-Correlation-ID} header.
+ */
+public interface CorrelationIdGenerator {
+    String nextId();
+}
@@ -0,0 +1,99 @@
+package com.fee.fee.Util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded, lock-free multi-producer / single-consumer ring buffer.
+ * <p>
+ * Producers claim a slot with a CAS on the producer index and publish the element with an
+ * ordered store; the single consumer clears the slot before advancing its index. A slot that
+ * has been claimed but not yet published reads as empty, so the consumer simply retries later.
+ */
+public class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> buffer;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    public MpscRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("Ring buffer capacity must be at least 2");
+        }
+        this.capacity = Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Attempts to enqueue the element without blocking.
+     *
+     * @return {@code false} if the buffer is full
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException("Ring buffer does not accept null elements");
+        }
+        while (true) {
+            long producer = producerIndex.get();
+            if (producer - consumerIndex.get() >= capacity) {
+                return false;
+            }
+            if (producerIndex.compareAndSet(producer, producer + 1)) {
+                buffer.lazySet((int) producer & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes the next element. Must only be called from the consumer thread.
+     *
+     * @return the next element, or {@code null} if none is available yet
+     */
+    public E poll() {
+        long consumer = consumerIndex.get();
+        int index = (int) consumer & mask;
+        E element = buffer.get(index);
+        if (element == null) {
+            return null;
+        }
+        buffer.lazySet(index, null);
+        consumerIndex.lazySet(consumer + 1);
+        return element;
+    }
+
+    /**
+     * Drains up to {@code limit} elements into the consumer. Must only be called from the consumer thread.
+     *
+     * @return the number of elements drained
+     */
+    public int drain(Consumer<? super E> consumer, int limit) {
+        int drained = 0;
+        while (drained < limit) {
+            E element = poll();
+            if (element == null) {
+                break;
+            }
+            consumer.accept(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    public int size() {
+        long size = producerIndex.get() - consumerIndex.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,91 @@
+package com.fee.fee.Util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the loader on its own thread and
+ * every caller arriving while it runs waits for that result instead of loading again.
+ * <p>
+ * A loader failure is rethrown to the leader and to every waiter. Waiters give up after the timeout
+ * with a {@link LoadTimeoutException}; the leader's load carries on and still completes the key.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    public V load(K key, Supplier<V> loader, long timeoutMillis) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+        if (leader == null) {
+            loads.increment();
+            try {
+                V value = loader.get();
+                flight.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, flight);
+            }
+        }
+
+        coalesced.increment();
+        try {
+            return leader.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new LoadTimeoutException(key, timeoutMillis);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for load of " + key, e);
+        }
+    }
+
+    /**
+     * Stops later callers from joining the key's current load, so they start a fresh one. Used when the
+     * data being loaded is known to have changed after that load began.
+     */
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    public void forgetAll() {
+        inFlight.clear();
+    }
+
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    public static class LoadTimeoutException extends RuntimeException {
+        public LoadTimeoutException(Object key, long timeoutMillis) {
+            super("Timed out after " + timeoutMillis + " ms waiting for the in-flight load of " + key);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.fee.fee.Util;
+
+import java.util.function.Supplier;
+
+/**
+ * Shard selected for the current thread. Read by the routing DataSource when a transaction first
+ * touches the database; unset means the default shard.
+ */
+public class TenantShardContext {
+    private static final ThreadLocal<String> SHARD = new ThreadLocal<>();
+
+    public static void setShard(String shard) {
+        SHARD.set(shard);
+    }
+
+    public static String getShard() {
+        return SHARD.get();
+    }
+
+    public static void clear() {
+        SHARD.remove();
+    }
+
+    public static <T> T callWithShard(String shard, Supplier<T> action) {
+        String previous = SHARD.get();
+        SHARD.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                SHARD.set(previous);
+            } else {
+                SHARD.remove();
+            }
+        }
+    }
+
+    public static void runWithShard(String shard, Runnable action) {
+        callWithShard(shard, () -> {
+            action.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,48 @@
+package com.fee.fee.Util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, kept as a single theoretical arrival time (the generic cell rate
+ * algorithm) so that refill and take are one CAS on one {@link AtomicLong}.
+ * <p>
+ * Every admitted request pushes the arrival time one emission interval further; a request is
+ * admitted while that time stays within {@code burst} intervals of now, which is the same as a
+ * bucket of {@code burst} tokens refilled at {@code permitsPerSecond}.
+ */
+public class TokenBucket {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrivalNanos;
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Token bucket needs a positive rate and a burst of at least 1");
+        }
+        this.emissionIntervalNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * burst;
+        this.theoreticalArrivalNanos = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Takes one permit if available.
+     *
+     * @return 0 when admitted, otherwise the nanoseconds until a permit will be available
+     */
+    public long tryAcquire() {
+        long now = System.nanoTime();
+        while (true) {
+            long arrival = theoreticalArrivalNanos.get();
+            // An idle bucket starts from now instead of banking more than the burst
+            long next = (arrival - now < 0 ? now : arrival) + emissionIntervalNanos;
+            long ahead = next - now;
+            if (ahead > burstToleranceNanos) {
+                return ahead - burstToleranceNanos;
+            }
+            if (theoreticalArrivalNanos.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.fee.fee.Util;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Random UUID correlation IDs. Kept for deployments that depend on the UUID format; every call
+ * goes through the shared {@code SecureRandom}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.correlation-id", name = "generator", havingValue = "uuid")
+public class UuidCorrelationIdGenerator implements CorrelationIdGenerator {
+
+    @Override
+    public String nextId() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -1,18 +1,204 @@
 package com.fee.fee.config;
 
+import com.fee.fee.enumeration.AuditBackpressurePolicy;
+import com.fee.fee.enumeration.LogEventType;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Configuration
 @ConfigurationProperties(prefix = "app")
 @Data
 public class ApplicationProperties {
     private TenantConfig tenant = new TenantConfig();
+    private LoggingConfig logging = new LoggingConfig();
+    private CorrelationIdConfig correlationId = new CorrelationIdConfig();
+    private CalculationConfig calculation = new CalculationConfig();
+    private LedgerConfig ledger = new LedgerConfig();
+    private AuditConfig audit = new AuditConfig();
+    private CacheConfig cache = new CacheConfig();
+    private WarmupConfig warmup = new WarmupConfig();
+    private ShardingConfig sharding = new ShardingConfig();
+    private AnalyticsConfig analytics = new AnalyticsConfig();
+    private SimulationConfig simulation = new SimulationConfig();
+    private RuleStoreConfig ruleStore = new RuleStoreConfig();
+    private SnapshotConfig snapshot = new SnapshotConfig();
+    private AdmissionConfig admission = new AdmissionConfig();
+    private BatchingConfig batching = new BatchingConfig();
 
     @Data
     public static class TenantConfig {
         private String defaultTenantId = "default-tenant";
         private String defaultTenantName = "Default Tenant";
     }
-}
\ No newline at end of file
+
+    @Data
+    public static class LoggingConfig {
+        private int bufferSize = 8192;
+        private int drainBatchSize = 256;
+        private long idleParkMillis = 5;
+        // Fraction of events written per type (0.0 - 1.0); unlisted types use the enum default
+        private Map<LogEventType, Double> sampling = new EnumMap<>(LogEventType.class);
+    }
+
+    @Data
+    public static class CorrelationIdConfig {
+        // "ulid" (time-ordered, default) or "uuid"
+        private String generator = "ulid";
+        // 0 - 65535; derived from host name and pid when not set
+        private Integer nodeId;
+    }
+
+    @Data
+    public static class CalculationConfig {
+        // Decimal places of the settlement currency's minor unit
+        private int minorUnitScale = 2;
+    }
+
+    @Data
+    public static class LedgerConfig {
+        private boolean enabled = true;
+        private long flushIntervalMillis = 1000;
+        private int batchSize = 500;
+        // Fixed-point decimals kept in memory; must not exceed the sharer_earnings.amount column scale (6)
+        private int scale = 6;
+        // Zone that defines the day boundary of a ledger entry
+        private String zone = "UTC";
+    }
+
+    @Data
+    public static class AuditConfig {
+        private boolean enabled = true;
+        private int bufferSize = 65536;
+        private int batchSize = 500;
+        private long lingerMillis = 50;
+        private AuditBackpressurePolicy backpressure = AuditBackpressurePolicy.SPILL;
+        // Longest a caller waits for buffer space under the BLOCK policy before the record is dropped
+        private long blockTimeoutMillis = 100;
+        private String spillFile = "audit-spill.jsonl";
+        // Records waiting for the writer thread to spill them under SPILL; beyond this they are dropped
+        private int spillBufferSize = 8192;
+        private long spillReplayIntervalMillis = 30000;
+    }
+
+    @Data
+    public static class CacheConfig {
+        // Upper bound on how stale a tenant catalogue can be after a write made through another node
+        private long catalogueTtlMillis = 60000;
+        private long referenceTtlMillis = 60000;
+        // How long a miss waits for another request's load of the same data before giving up
+        private long loadTimeoutMillis = 5000;
+        // Heap budget, in estimated bytes, for CLIENT fees of all tenants; 0 keeps them in the tenant catalogues
+        private long clientFeeBudgetBytes = 67108864;
+        // Bloom filter bits per key of the clients with CLIENT fees or a template, used with a budget; 0 disables
+        private int clientFilterBitsPerKey = 16;
+    }
+
+    @Data
+    public static class WarmupConfig {
+        private boolean enabled = true;
+        // Concurrent tenant loads; 0 uses the connection pool size
+        private int preloadParallelism = 0;
+        private int syntheticCalculations = 10000;
+    }
+
+    @Data
+    public static class ShardingConfig {
+        private boolean enabled = false;
+        // Shard name under which spring.datasource is registered; also holds the shard directory
+        private String defaultShard = "primary";
+        // How quickly other nodes observe a shard move; moves also wait this long between phases
+        private long directoryRefreshMillis = 5000;
+        // Additional shards; a shard can be a separate database or a schema selected through its URL
+        private Map<String, ShardDataSourceConfig> shards = new LinkedHashMap<>();
+        // Static tenant -> shard placement; moves made at run time take precedence
+        private Map<String, String> tenants = new HashMap<>();
+    }
+
+    @Data
+    public static class ShardDataSourceConfig {
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+        private int maximumPoolSize = 10;
+    }
+
+    @Data
+    public static class AnalyticsConfig {
+        private boolean enabled = true;
+        // Closed minutes are persisted on this interval; the open minute stays in memory
+        private long flushIntervalMillis = 15000;
+        private int batchSize = 500;
+        // Fixed-point decimals of the amount and revenue sums; must not exceed the rollup column scale (6)
+        private int scale = 6;
+        // Precision of the amount histograms, 1-5 significant decimal digits
+        private int histogramSignificantDigits = 3;
+    }
+
+    @Data
+    public static class SimulationConfig {
+        // Fork-join pool size; 0 uses the number of available processors
+        private int parallelism = 0;
+        // Transactions parsed and evaluated per fork-join task
+        private int chunkSize = 10000;
+        private long progressIntervalMillis = 1000;
+    }
+
+    @Data
+    public static class RuleStoreConfig {
+        // Serve compiled fees from memory-mapped files shared by the instances on a host
+        private boolean enabled = false;
+        // Exactly one instance per host publishes; the others only map what it wrote
+        private boolean writer = false;
+        // Must be the same directory for every instance on the host
+        private String directory = "rule-store";
+    }
+
+    @Data
+    public static class SnapshotConfig {
+        // Restore catalogues from the last snapshot on boot, then reconcile with the database in the background
+        private boolean enabled = true;
+        private String file = "rule-snapshot.bin";
+        // Also written on shutdown; skipped while no tenant's rule version has changed
+        private long writeIntervalMillis = 60000;
+    }
+
+    @Data
+    public static class AdmissionConfig {
+        // Per-tenant rate limits on fee calculations; requests over the limit get 429 with Retry-After
+        private boolean enabled = false;
+        // Unlimited unless set; tenants to protect against are limited through their own entries
+        private TenantLimit defaultLimit = new TenantLimit();
+        // Limits by tenant id, replacing the default
+        private Map<String, TenantLimit> tenants = new HashMap<>();
+        // Further tenants share one bucket at the default limit
+        private int maxTrackedTenants = 10000;
+    }
+
+    @Data
+    public static class TenantLimit {
+        // Sustained rate; 0 or less means unlimited
+        private double requestsPerSecond = 0;
+        // Requests admitted back to back after an idle spell; 0 or less allows one second's worth
+        private int burst = 0;
+    }
+
+    @Data
+    public static class BatchingConfig {
+        // Calculate concurrent requests in shared transactions instead of one each
+        private boolean enabled = false;
+        private int maxBatchSize = 64;
+        // Upper bound on the adaptive batch window; a quiet node uses none
+        private long maxWindowMicros = 500;
+        // Requests beyond this many waiting are calculated on the caller's thread
+        private int queueCapacity = 8192;
+        // Batch workers; 0 uses the number of available processors
+        private int parallelism = 0;
+    }
+}
@@ -0,0 +1,90 @@
+package com.fee.fee.config;
+
+import com.fee.fee.domain.CalculationAudit;
+import com.fee.fee.domain.Channel;
+import com.fee.fee.domain.ClientTemplateAssignment;
+import com.fee.fee.domain.Fee;
+import com.fee.fee.domain.FeeAmountRollup;
+import com.fee.fee.domain.FeeRange;
+import com.fee.fee.domain.FeeSharer;
+import com.fee.fee.domain.FeeUsageRollup;
+import com.fee.fee.domain.SharerEarning;
+import com.fee.fee.domain.Tenant;
+import com.fee.fee.domain.TenantShardAssignment;
+import com.fee.fee.domain.TransactionType;
+import com.fee.fee.dto.*;
+import com.fee.fee.enumeration.AuditBackpressurePolicy;
+import com.fee.fee.enumeration.BulkFeeOperation;
+import com.fee.fee.enumeration.FeeCalculationType;
+import com.fee.fee.enumeration.FeeType;
+import com.fee.fee.enumeration.LogEventType;
+import com.fee.fee.enumeration.SimulationStatus;
+import com.fee.fee.enumeration.TenantShardMovePhase;
+import com.fee.fee.enumeration.TenantShardStatus;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import java.util.List;
+
+/**
+ * Reflection and resource hints for the native image build ({@code mvn -Pnative native:compile}).
+ * <p>
+ * Spring AOT covers controller signatures and repositories on its own; these hints add the
+ * Lombok-generated constructors, accessors and builders that Hibernate and Jackson reach
+ * reflectively outside of those signatures, plus the springdoc UI assets. Lazy associations need
+ * no proxy hints because the native profile enhances the entities at build time, so Hibernate
+ * never generates proxy classes at run time.
+ */
+@Configuration
+@ImportRuntimeHints(NativeHintsConfig.FeeRuntimeHints.class)
+public class NativeHintsConfig {
+
+    static class FeeRuntimeHints implements RuntimeHintsRegistrar {
+
+        private static final List<Class<?>> ENTITIES = List.of(
+                Fee.class, FeeRange.class, FeeSharer.class, Channel.class, TransactionType.class, Tenant.class,
+                SharerEarning.class, CalculationAudit.class, TenantShardAssignment.class, FeeAmountRollup.class,
+                FeeUsageRollup.class, ClientTemplateAssignment.class);
+
+        private static final List<Class<?>> DTOS = List.of(
+                ApiResponse.class, CalculateFeeRequest.class, CalculationAuditRecord.class, CreateFeeRequest.class,
+                FeeCalculationRequest.class, FeeCalculationResponse.class, FeeCalculationResult.class,
+                FeeRangeRequest.class, FeeRangeResponse.class, FeeResponse.class, FeeSharerCalculation.class,
+                FeeSharerRequest.class, FeeSharerResponse.class, SharerDistribution.class,
+                SharerEarningResponse.class, UpdateFeeRequest.class, TenantShardMoveStatus.class,
+                AmountDistributionResponse.class, FeeUsageResponse.class, FeeAnalyticsResponse.class,
+                SimulationRequest.class, SimulationDelta.class, SimulationReport.class, BulkFeeUpdateRequest.class,
+                BulkFeeUpdateResponse.class, TemplateAssignmentRequest.class, TemplateAssignmentResponse.class);
+
+        private static final List<Class<?>> ENUMS = List.of(
+                FeeType.class, FeeCalculationType.class, LogEventType.class, AuditBackpressurePolicy.class,
+                TenantShardStatus.class, TenantShardMovePhase.class, SimulationStatus.class, BulkFeeOperation.class);
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (Class<?> type : ENTITIES) {
+                registerWithBuilders(hints, type);
+            }
+            for (Class<?> type : DTOS) {
+                registerWithBuilders(hints, type);
+            }
+            for (Class<?> type : ENUMS) {
+                hints.reflection().registerType(type, MemberCategory.values());
+            }
+
+            hints.resources().registerPattern("META-INF/resources/webjars/swagger-ui/*");
+            hints.resources().registerPattern("META-INF/maven/org.webjars/swagger-ui/pom.properties");
+        }
+
+        // Lombok builders are nested classes that AOT does not discover through the owning type
+        private void registerWithBuilders(RuntimeHints hints, Class<?> type) {
+            hints.reflection().registerType(type, MemberCategory.values());
+            for (Class<?> nested : type.getDeclaredClasses()) {
+                hints.reflection().registerType(nested, MemberCategory.values());
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.fee.fee.config;
+
+import com.fee.fee.Util.TenantShardContext;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Routes each connection to the shard selected by {@link TenantShardContext}; threads without a
+ * shard get the default one. Unknown shard names fail instead of silently using the default.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    public ShardRoutingDataSource() {
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TenantShardContext.getShard();
+    }
+}
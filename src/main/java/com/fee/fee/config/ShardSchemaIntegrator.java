@@ -0,0 +1,62 @@
+package com.fee.fee.config;
+
+import com.fee.fee.Util.TenantShardContext;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.DelayedDropRegistryNotAvailableImpl;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the mapping metadata Hibernate built at startup so the same schema management action
+ * ({@code spring.jpa.hibernate.ddl-auto}) can be applied to every additional shard. Hibernate only
+ * runs it against the connection it sees at startup, which is the default shard.
+ */
+@Slf4j
+public class ShardSchemaIntegrator implements Integrator {
+
+    private volatile Metadata metadata;
+    private volatile SessionFactoryImplementor sessionFactory;
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+                          SessionFactoryImplementor sessionFactory) {
+        this.metadata = metadata;
+        this.sessionFactory = sessionFactory;
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        this.metadata = null;
+        this.sessionFactory = null;
+    }
+
+    public void applySchema(String shard) {
+        if (metadata == null || sessionFactory == null) {
+            throw new IllegalStateException("Hibernate metadata is not available");
+        }
+
+        Map<String, Object> settings = new HashMap<>(sessionFactory.getProperties());
+        Object action = settings.get(AvailableSettings.HBM2DDL_AUTO);
+        if (action == null || "none".equals(action.toString())) {
+            log.info("Schema management disabled; shard {} must be migrated externally", shard);
+            return;
+        }
+        // Shards hold live tenant data, so anything more destructive than update is not repeated there
+        if (!"validate".equals(action.toString())) {
+            settings.put(AvailableSettings.HBM2DDL_AUTO, "update");
+        }
+        settings.remove(AvailableSettings.JAKARTA_HBM2DDL_DATABASE_ACTION);
+
+        TenantShardContext.runWithShard(shard, () -> SchemaManagementToolCoordinator.process(
+                metadata, sessionFactory.getServiceRegistry(), settings, DelayedDropRegistryNotAvailableImpl.INSTANCE));
+        log.info("Applied schema action {} to shard: {}", settings.get(AvailableSettings.HBM2DDL_AUTO), shard);
+    }
+}
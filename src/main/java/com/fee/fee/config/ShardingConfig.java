@@ -0,0 +1,139 @@
+package com.fee.fee.config;
+
+import com.fee.fee.service.ShardReferenceDataReplicator;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.jpa.boot.spi.JpaSettings;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tenant-sharded persistence, enabled with {@code app.sharding.enabled}.
+ * <p>
+ * {@code spring.datasource} becomes the default shard and each {@code app.sharding.shards} entry
+ * another one. Every shard carries the full schema and a replica of the reference data (transaction
+ * types and channels); a tenant's own rows live only on its shard. The routing DataSource is wrapped
+ * in a lazy proxy so the physical connection is only chosen at the first statement, after
+ * {@code FeeService} has resolved the effective tenant, rather than when the transaction begins.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+@Slf4j
+public class ShardingConfig {
+
+    @Bean
+    public ShardDataSources shardDataSources(DataSourceProperties dataSourceProperties,
+                                             ApplicationProperties applicationProperties,
+                                             Environment environment) {
+        ApplicationProperties.ShardingConfig config = applicationProperties.getSharding();
+
+        Map<String, HikariDataSource> dataSources = new LinkedHashMap<>();
+        HikariDataSource defaultDataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(defaultDataSource));
+        defaultDataSource.setPoolName(config.getDefaultShard());
+        dataSources.put(config.getDefaultShard(), defaultDataSource);
+
+        config.getShards().forEach((name, shard) -> {
+            if (dataSources.containsKey(name)) {
+                throw new IllegalArgumentException("Duplicate shard name: " + name);
+            }
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName(name);
+            dataSource.setJdbcUrl(shard.getUrl());
+            dataSource.setUsername(shard.getUsername());
+            dataSource.setPassword(shard.getPassword());
+            if (shard.getDriverClassName() != null) {
+                dataSource.setDriverClassName(shard.getDriverClassName());
+            }
+            dataSource.setMaximumPoolSize(shard.getMaximumPoolSize());
+            dataSources.put(name, dataSource);
+        });
+
+        log.info("Tenant sharding enabled - Shards: {}, Default: {}", dataSources.keySet(), config.getDefaultShard());
+        return new ShardDataSources(config.getDefaultShard(), dataSources);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardDataSources shardDataSources) {
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource();
+        routingDataSource.setTargetDataSources(new LinkedHashMap<>(shardDataSources.getDataSources()));
+        routingDataSource.setDefaultTargetDataSource(shardDataSources.getDefaultDataSource());
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public ShardSchemaIntegrator shardSchemaIntegrator() {
+        return new ShardSchemaIntegrator();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardSchemaIntegratorCustomizer(ShardSchemaIntegrator shardSchemaIntegrator) {
+        return properties -> properties.put(JpaSettings.INTEGRATOR_PROVIDER,
+                (IntegratorProvider) () -> List.of(shardSchemaIntegrator));
+    }
+
+    // Runs before the catalogue preload so every shard has its tables and reference data
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public ApplicationRunner shardInitializer(ShardDataSources shardDataSources,
+                                              ShardSchemaIntegrator shardSchemaIntegrator,
+                                              ShardReferenceDataReplicator shardReferenceDataReplicator) {
+        return args -> {
+            for (String shard : shardDataSources.getDataSources().keySet()) {
+                if (!shard.equals(shardDataSources.getDefaultShard())) {
+                    shardSchemaIntegrator.applySchema(shard);
+                }
+            }
+            shardReferenceDataReplicator.replicate();
+        };
+    }
+
+    public static class ShardDataSources implements AutoCloseable {
+        private final String defaultShard;
+        private final Map<String, HikariDataSource> dataSources;
+
+        ShardDataSources(String defaultShard, Map<String, HikariDataSource> dataSources) {
+            this.defaultShard = defaultShard;
+            this.dataSources = Collections.unmodifiableMap(new LinkedHashMap<>(dataSources));
+        }
+
+        public String getDefaultShard() {
+            return defaultShard;
+        }
+
+        public HikariDataSource getDefaultDataSource() {
+            return dataSources.get(defaultShard);
+        }
+
+        public Map<String, HikariDataSource> getDataSources() {
+            return dataSources;
+        }
+
+        @Override
+        public void close() {
+            dataSources.values().forEach(HikariDataSource::close);
+        }
+    }
+}
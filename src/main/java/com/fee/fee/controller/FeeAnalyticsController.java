@@ -0,0 +1,64 @@
+package com.fee.fee.controller;
+
+import com.fee.fee.Util.CorrelationIdContext;
+import com.fee.fee.dto.ApiResponse;
+import com.fee.fee.dto.FeeAnalyticsResponse;
+import com.fee.fee.service.FeeAnalyticsCollector;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/v1/analytics")
+@Slf4j
+public class FeeAnalyticsController {
+
+    private final FeeAnalyticsCollector feeAnalyticsCollector;
+
+    public FeeAnalyticsController(FeeAnalyticsCollector feeAnalyticsCollector) {
+        this.feeAnalyticsCollector = feeAnalyticsCollector;
+    }
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<FeeAnalyticsResponse>> getAnalytics(
+            @RequestParam(required = false) String tenantId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String transactionType,
+            @RequestParam(required = false) String channel,
+            @RequestParam(defaultValue = "false") boolean perMinute) {
+
+        String correlationId = CorrelationIdContext.getCorrelationId();
+
+        try {
+            log.info("Fetching fee analytics - Tenant: {}, From: {}, To: {}, Transaction type: {}, Channel: {} - Correlation ID: {}",
+                    tenantId != null ? tenantId : "default", from, to, transactionType, channel, correlationId);
+
+            FeeAnalyticsResponse analytics = feeAnalyticsCollector.getAnalytics(
+                    tenantId, from, to, transactionType, channel, perMinute);
+
+            ApiResponse<FeeAnalyticsResponse> apiResponse = ApiResponse.success(
+                    "Fee analytics retrieved successfully",
+                    analytics
+            );
+
+            return ResponseEntity.ok(apiResponse);
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Fee analytics retrieval failed: {} - Correlation ID: {}", e.getMessage(), correlationId);
+            ApiResponse<FeeAnalyticsResponse> apiResponse = ApiResponse.error(e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(apiResponse);
+        } catch (Exception e) {
+            log.error("Unexpected error during fee analytics retrieval - Correlation ID: {}", correlationId, e);
+            ApiResponse<FeeAnalyticsResponse> apiResponse = ApiResponse.error("Internal server error");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(apiResponse);
+        }
+    }
+}
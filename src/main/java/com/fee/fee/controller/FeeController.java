@@ -6,9 +6,13 @@ import com.fee.fee.domain.FeeSharer;
 import com.fee.fee.dto.*;
 import com.fee.fee.enumeration.FeeCalculationType;
 import com.fee.fee.enumeration.FeeType;
+import com.fee.fee.enumeration.LogEventType;
+import com.fee.fee.logging.StructuredEventLogger;
+import com.fee.fee.service.CalculationBatcher;
 import com.fee.fee.service.FeeService;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
@@ -28,9 +32,14 @@ import java.util.stream.Collectors;
 public class FeeController {
 
     private final FeeService feeService;
+    private final CalculationBatcher calculationBatcher;
+    private final StructuredEventLogger eventLogger;
 
-    public FeeController(FeeService feeService) {
+    public FeeController(FeeService feeService, CalculationBatcher calculationBatcher,
+                         StructuredEventLogger eventLogger) {
         this.feeService = feeService;
+        this.calculationBatcher = calculationBatcher;
+        this.eventLogger = eventLogger;
     }
 
     @PostMapping
@@ -171,6 +180,10 @@ public class FeeController {
             log.warn("Fee activation failed: {} - Correlation ID: {}", e.getMessage(), correlationId);
             ApiResponse<FeeResponse> apiResponse = ApiResponse.error(e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(apiResponse);
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Fee activation failed: fee {} was modified concurrently - Correlation ID: {}", id, correlationId);
+            ApiResponse<FeeResponse> apiResponse = ApiResponse.error("Fee was modified by another update; reload it and retry");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(apiResponse);
         } catch (Exception e) {
             log.error("Unexpected error during fee activation - Correlation ID: {}", correlationId, e);
             ApiResponse<FeeResponse> apiResponse = ApiResponse.error("Internal server error");
@@ -205,6 +218,10 @@ public class FeeController {
             log.warn("Fee deactivation failed: {} - Correlation ID: {}", e.getMessage(), correlationId);
             ApiResponse<FeeResponse> apiResponse = ApiResponse.error(e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(apiResponse);
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Fee deactivation failed: fee {} was modified concurrently - Correlation ID: {}", id, correlationId);
+            ApiResponse<FeeResponse> apiResponse = ApiResponse.error("Fee was modified by another update; reload it and retry");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(apiResponse);
         } catch (Exception e) {
             log.error("Unexpected error during fee deactivation - Correlation ID: {}", correlationId, e);
             ApiResponse<FeeResponse> apiResponse = ApiResponse.error("Internal server error");
@@ -240,6 +257,10 @@ public class FeeController {
             log.warn("Fee update failed: {} - Correlation ID: {}", e.getMessage(), correlationId);
             ApiResponse<FeeResponse> apiResponse = ApiResponse.error(e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(apiResponse);
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Fee update failed: fee {} was modified concurrently - Correlation ID: {}", id, correlationId);
+            ApiResponse<FeeResponse> apiResponse = ApiResponse.error("Fee was modified by another update; reload it and retry");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(apiResponse);
         } catch (Exception e) {
             log.error("Unexpected error during fee update - Correlation ID: {}", correlationId, e);
             ApiResponse<FeeResponse> apiResponse = ApiResponse.error("Internal server error");
@@ -275,6 +296,10 @@ public class FeeController {
             log.warn("Fee partial update failed: {} - Correlation ID: {}", e.getMessage(), correlationId);
             ApiResponse<FeeResponse> apiResponse = ApiResponse.error(e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(apiResponse);
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Fee partial update failed: fee {} was modified concurrently - Correlation ID: {}", id, correlationId);
+            ApiResponse<FeeResponse> apiResponse = ApiResponse.error("Fee was modified by another update; reload it and retry");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(apiResponse);
         } catch (Exception e) {
             log.error("Unexpected error during fee partial update - Correlation ID: {}", correlationId, e);
             ApiResponse<FeeResponse> apiResponse = ApiResponse.error("Internal server error");
@@ -282,6 +307,125 @@ public class FeeController {
         }
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<ApiResponse<BulkFeeUpdateResponse>> bulkUpdateFees(
+            @RequestParam(required = false) String tenantId,
+            @Valid @RequestBody BulkFeeUpdateRequest request) {
+
+        String correlationId = CorrelationIdContext.getCorrelationId();
+
+        try {
+            log.info("Bulk {} for tenant: {} - Correlation ID: {}",
+                    request.getOperation(), tenantId != null ? tenantId : "default", correlationId);
+
+            BulkFeeUpdateResponse response = feeService.bulkUpdateFees(tenantId, request);
+
+            ApiResponse<BulkFeeUpdateResponse> apiResponse = ApiResponse.success(
+                    "Bulk fee update completed successfully",
+                    response
+            );
+
+            return ResponseEntity.ok(apiResponse);
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Bulk fee update failed: {} - Correlation ID: {}", e.getMessage(), correlationId);
+            ApiResponse<BulkFeeUpdateResponse> apiResponse = ApiResponse.error(e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(apiResponse);
+        } catch (Exception e) {
+            log.error("Unexpected error during bulk fee update - Correlation ID: {}", correlationId, e);
+            ApiResponse<BulkFeeUpdateResponse> apiResponse = ApiResponse.error("Internal server error");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(apiResponse);
+        }
+    }
+
+    @PutMapping("/templates/{templateCode}/clients")
+    public ResponseEntity<ApiResponse<TemplateAssignmentResponse>> assignTemplate(
+            @PathVariable String templateCode,
+            @RequestParam(required = false) String tenantId,
+            @Valid @RequestBody TemplateAssignmentRequest request) {
+
+        String correlationId = CorrelationIdContext.getCorrelationId();
+
+        try {
+            log.info("Assigning {} clients to fee template: {} - Correlation ID: {}",
+                    request.getClientIds().size(), templateCode, correlationId);
+
+            TemplateAssignmentResponse response = feeService.assignTemplate(tenantId, templateCode, request);
+
+            ApiResponse<TemplateAssignmentResponse> apiResponse = ApiResponse.success(
+                    "Fee template assigned successfully",
+                    response
+            );
+
+            return ResponseEntity.ok(apiResponse);
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Fee template assignment failed: {} - Correlation ID: {}", e.getMessage(), correlationId);
+            ApiResponse<TemplateAssignmentResponse> apiResponse = ApiResponse.error(e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(apiResponse);
+        } catch (Exception e) {
+            log.error("Unexpected error during fee template assignment - Correlation ID: {}", correlationId, e);
+            ApiResponse<TemplateAssignmentResponse> apiResponse = ApiResponse.error("Internal server error");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(apiResponse);
+        }
+    }
+
+    @PostMapping("/templates/{templateCode}/clients/unassign")
+    public ResponseEntity<ApiResponse<TemplateAssignmentResponse>> unassignTemplate(
+            @PathVariable String templateCode,
+            @RequestParam(required = false) String tenantId,
+            @Valid @RequestBody TemplateAssignmentRequest request) {
+
+        String correlationId = CorrelationIdContext.getCorrelationId();
+
+        try {
+            log.info("Unassigning {} clients from fee template: {} - Correlation ID: {}",
+                    request.getClientIds().size(), templateCode, correlationId);
+
+            TemplateAssignmentResponse response = feeService.unassignTemplate(tenantId, templateCode, request);
+
+            ApiResponse<TemplateAssignmentResponse> apiResponse = ApiResponse.success(
+                    "Fee template unassigned successfully",
+                    response
+            );
+
+            return ResponseEntity.ok(apiResponse);
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Fee template unassignment failed: {} - Correlation ID: {}", e.getMessage(), correlationId);
+            ApiResponse<TemplateAssignmentResponse> apiResponse = ApiResponse.error(e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(apiResponse);
+        } catch (Exception e) {
+            log.error("Unexpected error during fee template unassignment - Correlation ID: {}", correlationId, e);
+            ApiResponse<TemplateAssignmentResponse> apiResponse = ApiResponse.error("Internal server error");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(apiResponse);
+        }
+    }
+
+    @GetMapping("/templates/{templateCode}/clients")
+    public ResponseEntity<ApiResponse<List<String>>> getTemplateClients(
+            @PathVariable String templateCode,
+            @RequestParam(required = false) String tenantId) {
+
+        String correlationId = CorrelationIdContext.getCorrelationId();
+
+        try {
+            List<String> clientIds = feeService.getTemplateClients(tenantId, templateCode);
+
+            ApiResponse<List<String>> apiResponse = ApiResponse.success(
+                    "Fee template clients retrieved successfully",
+                    clientIds
+            );
+
+            return ResponseEntity.ok(apiResponse);
+
+        } catch (Exception e) {
+            log.error("Unexpected error retrieving fee template clients - Correlation ID: {}", correlationId, e);
+            ApiResponse<List<String>> apiResponse = ApiResponse.error("Internal server error");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(apiResponse);
+        }
+    }
+
     @PutMapping("/{id}/sharers")
     public ResponseEntity<ApiResponse<FeeResponse>> updateFeeSharers(
             @PathVariable Long id,
@@ -310,6 +454,10 @@ public class FeeController {
             log.warn("Fee sharers update failed: {} - Correlation ID: {}", e.getMessage(), correlationId);
             ApiResponse<FeeResponse> apiResponse = ApiResponse.error(e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(apiResponse);
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Fee sharers update failed: fee {} was modified concurrently - Correlation ID: {}", id, correlationId);
+            ApiResponse<FeeResponse> apiResponse = ApiResponse.error("Fee was modified by another update; reload it and retry");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(apiResponse);
         } catch (Exception e) {
             log.error("Unexpected error during fee sharers update - Correlation ID: {}", correlationId, e);
             ApiResponse<FeeResponse> apiResponse = ApiResponse.error("Internal server error");
@@ -411,11 +559,7 @@ public class FeeController {
         String correlationId = CorrelationIdContext.getCorrelationId();
 
         try {
-            log.info("Calculating fee - Tenant: {}, Transaction: {}, Channel: {}, Amount: {} - Correlation ID: {}",
-                    request.getTenantId() != null ? request.getTenantId() : "default",
-                    request.getTransactionType(), request.getChannel(), request.getAmount(), correlationId);
-
-            FeeCalculationResult result = feeService.calculateFee(request);
+            FeeCalculationResult result = calculationBatcher.calculate(request);
 
             FeeCalculationResponse response = buildCalculationResponse(result, request.getAmount());
 
@@ -424,13 +568,17 @@ public class FeeController {
                     response
             );
 
-            log.info("Fee calculation completed successfully - Applied Fee: {} - Correlation ID: {}",
-                    result.getFee().getFeeType(), correlationId);
-
             return ResponseEntity.ok(apiResponse);
 
         } catch (IllegalArgumentException e) {
-            log.warn("Fee calculation failed: {} - Correlation ID: {}", e.getMessage(), correlationId);
+            if (eventLogger.isSampled(LogEventType.CALCULATION_REJECTED)) {
+                eventLogger.publish(LogEventType.CALCULATION_REJECTED,
+                        "tenant", request.getTenantId() != null ? request.getTenantId() : "default",
+                        "transactionType", request.getTransactionType(),
+                        "channel", request.getChannel(),
+                        "amount", request.getAmount(),
+                        "reason", e.getMessage());
+            }
 
             FeeCalculationResponse errorResponse = FeeCalculationResponse.builder()
                     .success(false)
@@ -485,6 +633,9 @@ public class FeeController {
         if (result.getFee().getClientId() != null) {
             calculationDetails.put("clientId", result.getFee().getClientId());
         }
+        if (result.getFee().getTemplateCode() != null) {
+            calculationDetails.put("templateCode", result.getFee().getTemplateCode());
+        }
 
         return FeeCalculationResponse.builder()
                 .success(true)
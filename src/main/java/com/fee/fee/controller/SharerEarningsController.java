@@ -0,0 +1,62 @@
+package com.fee.fee.controller;
+
+import com.fee.fee.Util.CorrelationIdContext;
+import com.fee.fee.dto.ApiResponse;
+import com.fee.fee.dto.SharerEarningResponse;
+import com.fee.fee.service.SharerEarningsLedger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/sharer-earnings")
+@Slf4j
+public class SharerEarningsController {
+
+    private final SharerEarningsLedger sharerEarningsLedger;
+
+    public SharerEarningsController(SharerEarningsLedger sharerEarningsLedger) {
+        this.sharerEarningsLedger = sharerEarningsLedger;
+    }
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<SharerEarningResponse>>> getEarnings(
+            @RequestParam(required = false) String tenantId,
+            @RequestParam(required = false) String sharerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        String correlationId = CorrelationIdContext.getCorrelationId();
+
+        try {
+            log.info("Fetching sharer earnings - Tenant: {}, Sharer: {}, From: {}, To: {} - Correlation ID: {}",
+                    tenantId != null ? tenantId : "default", sharerId, from, to, correlationId);
+
+            List<SharerEarningResponse> balances = sharerEarningsLedger.getBalances(tenantId, sharerId, from, to);
+
+            ApiResponse<List<SharerEarningResponse>> apiResponse = ApiResponse.success(
+                    "Sharer earnings retrieved successfully",
+                    balances
+            );
+
+            return ResponseEntity.ok(apiResponse);
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Sharer earnings retrieval failed: {} - Correlation ID: {}", e.getMessage(), correlationId);
+            ApiResponse<List<SharerEarningResponse>> apiResponse = ApiResponse.error(e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(apiResponse);
+        } catch (Exception e) {
+            log.error("Unexpected error during sharer earnings retrieval - Correlation ID: {}", correlationId, e);
+            ApiResponse<List<SharerEarningResponse>> apiResponse = ApiResponse.error("Internal server error");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(apiResponse);
+        }
+    }
+}
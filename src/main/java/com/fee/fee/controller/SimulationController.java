@@ -0,0 +1,94 @@
+package com.fee.fee.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fee.fee.Util.CorrelationIdContext;
+import com.fee.fee.dto.ApiResponse;
+import com.fee.fee.dto.SimulationReport;
+import com.fee.fee.dto.SimulationRequest;
+import com.fee.fee.service.WhatIfSimulator;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+@RestController
+@RequestMapping("/api/v1/simulations")
+@Slf4j
+public class SimulationController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final WhatIfSimulator whatIfSimulator;
+    private final ObjectMapper objectMapper;
+
+    public SimulationController(WhatIfSimulator whatIfSimulator, ObjectMapper objectMapper) {
+        this.whatIfSimulator = whatIfSimulator;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Runs a what-if simulation. Takes a multipart request with a JSON {@code draft} part and a CSV
+     * {@code transactions} part, and streams newline-delimited {@link SimulationReport}s: RUNNING
+     * progress reports while the file is processed, then one COMPLETED or FAILED report.
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<StreamingResponseBody> simulate(
+            @Valid @RequestPart("draft") SimulationRequest request,
+            @RequestPart("transactions") MultipartFile transactions) {
+
+        String correlationId = CorrelationIdContext.getCorrelationId();
+
+        try {
+            log.info("Starting simulation - Tenant: {}, File size: {} bytes - Correlation ID: {}",
+                    request.getTenantId() != null ? request.getTenantId() : "default", transactions.getSize(), correlationId);
+
+            WhatIfSimulator.Plan plan = whatIfSimulator.prepare(request);
+            InputStream input = transactions.getInputStream();
+
+            StreamingResponseBody body = output -> {
+                try (input) {
+                    SimulationReport report = whatIfSimulator.run(plan, input, progress -> writeLine(output, progress));
+                    writeLine(output, report);
+                } catch (UncheckedIOException e) {
+                    log.info("Simulation {} aborted, client went away - Correlation ID: {}",
+                            plan.getSimulationId(), correlationId);
+                    throw e.getCause();
+                }
+            };
+            return ResponseEntity.ok().contentType(NDJSON).body(body);
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Simulation rejected: {} - Correlation ID: {}", e.getMessage(), correlationId);
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (Exception e) {
+            log.error("Unexpected error starting simulation - Correlation ID: {}", correlationId, e);
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error");
+        }
+    }
+
+    private void writeLine(OutputStream output, Object value) {
+        try {
+            output.write(objectMapper.writeValueAsBytes(value));
+            output.write('\n');
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> error(HttpStatus status, String message) {
+        ApiResponse<Object> apiResponse = ApiResponse.error(message);
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(output -> objectMapper.writeValue(output, apiResponse));
+    }
+}
@@ -0,0 +1,74 @@
+package com.fee.fee.controller;
+
+import com.fee.fee.Util.CorrelationIdContext;
+import com.fee.fee.domain.TenantShardAssignment;
+import com.fee.fee.dto.ApiResponse;
+import com.fee.fee.dto.TenantShardMoveStatus;
+import com.fee.fee.service.TenantShardDirectory;
+import com.fee.fee.service.TenantShardMover;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/tenant-shards")
+@Slf4j
+public class TenantShardController {
+
+    private final TenantShardDirectory tenantShardDirectory;
+    private final TenantShardMover tenantShardMover;
+
+    public TenantShardController(TenantShardDirectory tenantShardDirectory, TenantShardMover tenantShardMover) {
+        this.tenantShardDirectory = tenantShardDirectory;
+        this.tenantShardMover = tenantShardMover;
+    }
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<TenantShardAssignment>>> getAssignments() {
+        ApiResponse<List<TenantShardAssignment>> apiResponse = ApiResponse.success(
+                "Tenant shard assignments retrieved successfully",
+                tenantShardDirectory.getAssignments()
+        );
+        return ResponseEntity.ok(apiResponse);
+    }
+
+    @PostMapping("/{tenantId}/move")
+    public ResponseEntity<ApiResponse<TenantShardMoveStatus>> moveTenant(
+            @PathVariable String tenantId,
+            @RequestParam String targetShard) {
+
+        String correlationId = CorrelationIdContext.getCorrelationId();
+
+        try {
+            log.info("Moving tenant {} to shard {} - Correlation ID: {}", tenantId, targetShard, correlationId);
+
+            TenantShardMoveStatus status = tenantShardMover.startMove(tenantId, targetShard);
+
+            ApiResponse<TenantShardMoveStatus> apiResponse = ApiResponse.success(
+                    "Tenant move started",
+                    status
+            );
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(apiResponse);
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Tenant move rejected: {} - Correlation ID: {}", e.getMessage(), correlationId);
+            ApiResponse<TenantShardMoveStatus> apiResponse = ApiResponse.error(e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(apiResponse);
+        } catch (Exception e) {
+            log.error("Unexpected error starting tenant move - Correlation ID: {}", correlationId, e);
+            ApiResponse<TenantShardMoveStatus> apiResponse = ApiResponse.error("Internal server error");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(apiResponse);
+        }
+    }
+
+    @GetMapping("/moves/{moveId}")
+    public ResponseEntity<ApiResponse<TenantShardMoveStatus>> getMove(@PathVariable String moveId) {
+        return tenantShardMover.getMove(moveId)
+                .map(status -> ResponseEntity.ok(ApiResponse.success("Tenant move retrieved successfully", status)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(ApiResponse.error("Tenant move not found: " + moveId)));
+    }
+}
@@ -3,6 +3,9 @@ package com.fee.fee.controller;
 import com.fee.fee.domain.Channel;
 import com.fee.fee.dto.ApiResponse;
 import com.fee.fee.repository.ChannelRepository;
+import com.fee.fee.service.FeeCatalogueCache;
+import com.fee.fee.service.ReferenceDataCache;
+import com.fee.fee.service.ShardReferenceDataReplicator;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -19,6 +22,9 @@ import java.util.List;
 public class TransactionChannelController {
 
     private final ChannelRepository repo;
+    private final ReferenceDataCache referenceDataCache;
+    private final FeeCatalogueCache feeCatalogueCache;
+    private final ShardReferenceDataReplicator shardReferenceDataReplicator;
 
     @GetMapping
     public ResponseEntity<ApiResponse<List<Channel>>> list() {
@@ -39,6 +45,8 @@ public class TransactionChannelController {
             throw new IllegalArgumentException("Channel code already exists: " + channel.getCode());
         }
         Channel saved = repo.save(channel);
+        shardReferenceDataReplicator.replicate();
+        referenceDataCache.invalidate();
         return ResponseEntity.ok(new ApiResponse<>("fail","Channel created", Collections.singletonList(saved)));
     }
 
@@ -54,6 +62,10 @@ public class TransactionChannelController {
         }
         channel.setId(id);
         Channel updated = repo.save(channel);
+        // Cached fees hold their own copies of the channel, which must match the refreshed one
+        shardReferenceDataReplicator.replicate();
+        referenceDataCache.invalidate();
+        feeCatalogueCache.invalidateAll();
         return ResponseEntity.ok(new ApiResponse<>("success","Channel updated", Collections.singletonList(updated)));
     }
 
@@ -63,6 +75,9 @@ public class TransactionChannelController {
             throw new IllegalArgumentException("Channel not found: " + id);
         }
         repo.deleteById(id);
+        shardReferenceDataReplicator.replicate();
+        referenceDataCache.invalidate();
+        feeCatalogueCache.invalidateAll();
         return ResponseEntity.ok(new ApiResponse<>("success", "Channel deleted", null));
     }
 }
@@ -2,6 +2,9 @@ package com.fee.fee.controller;
 
 import com.fee.fee.domain.TransactionType;
 import com.fee.fee.repository.TransactionTypeRepository;
+import com.fee.fee.service.FeeCatalogueCache;
+import com.fee.fee.service.ReferenceDataCache;
+import com.fee.fee.service.ShardReferenceDataReplicator;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
@@ -13,19 +16,36 @@ import java.util.List;
 @RequiredArgsConstructor
 public class TransactionTypeController {
     private final TransactionTypeRepository repo;
+    private final ReferenceDataCache referenceDataCache;
+    private final FeeCatalogueCache feeCatalogueCache;
+    private final ShardReferenceDataReplicator shardReferenceDataReplicator;
 
     @GetMapping
     public List<TransactionType> list() { return repo.findAll(); }
 
     @PostMapping
-    public TransactionType create(@Valid @RequestBody TransactionType type) { return repo.save(type); }
+    public TransactionType create(@Valid @RequestBody TransactionType type) {
+        TransactionType saved = repo.save(type);
+        shardReferenceDataReplicator.replicate();
+        referenceDataCache.invalidate();
+        return saved;
+    }
 
     @PutMapping("/{id}")
     public TransactionType update(@PathVariable Long id, @Valid @RequestBody TransactionType type) {
         type.setId(id);
-        return repo.save(type);
+        TransactionType saved = repo.save(type);
+        shardReferenceDataReplicator.replicate();
+        referenceDataCache.invalidate();
+        feeCatalogueCache.invalidateAll();
+        return saved;
     }
 
     @DeleteMapping("/{id}")
-    public void delete(@PathVariable Long id) { repo.deleteById(id); }
+    public void delete(@PathVariable Long id) {
+        repo.deleteById(id);
+        shardReferenceDataReplicator.replicate();
+        referenceDataCache.invalidate();
+        feeCatalogueCache.invalidateAll();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.fee.fee.domain;
+
+import com.fee.fee.enumeration.FeeCalculationType;
+import com.fee.fee.enumeration.FeeType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Append-only record of a fee calculation. Rows are written in JDBC batches by
+ * {@code CalculationAuditTrail}; the entity only defines the table.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "calculation_audit", indexes = {
+        @Index(name = "idx_calculation_audit_tenant_time", columnList = "tenant_id, calculated_at")
+})
+public class CalculationAudit {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "correlation_id")
+    private String correlationId;
+
+    @Column(name = "calculated_at", nullable = false)
+    private LocalDateTime calculatedAt;
+
+    @Column(name = "tenant_id", nullable = false)
+    private String tenantId;
+
+    private String transactionType;
+
+    private String channel;
+
+    private String clientId;
+
+    private String productId;
+
+    private String processorId;
+
+    @Column(nullable = false, precision = 24, scale = 6)
+    private BigDecimal amount;
+
+    @Column(nullable = false)
+    private Long feeId;
+
+    private LocalDateTime feeUpdatedAt;
+
+    // Pins the exact fee revision applied; the update time alone can repeat within a clock tick
+    private Long feeVersion;
+
+    @Enumerated(EnumType.STRING)
+    private FeeType feeType;
+
+    @Enumerated(EnumType.STRING)
+    private FeeCalculationType calculationType;
+
+    @Column(nullable = false, precision = 24, scale = 6)
+    private BigDecimal feeAmount;
+
+    @Column(length = 2000)
+    private String sharerSplit;
+}
@@ -0,0 +1,48 @@
+package com.fee.fee.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Assigns a client to a fee template: the client is charged the tenant's TEMPLATE fees with this
+ * template code unless it has a CLIENT fee of its own. One row per client instead of a fee with its own
+ * ranges and sharers.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "client_template_assignments", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_client_template_assignments_tenant_client", columnNames = {"tenant_id", "client_id"})
+}, indexes = {
+        @Index(name = "idx_client_template_assignments_tenant_template", columnList = "tenant_id, template_code")
+})
+public class ClientTemplateAssignment {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(nullable = false)
+    private Tenant tenant;
+
+    @Column(nullable = false)
+    private String clientId;
+
+    @Column(nullable = false)
+    private String templateCode;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
@@ -7,6 +7,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -22,7 +23,9 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = "fees")
+@Table(name = "fees", indexes = {
+        @Index(name = "idx_fees_tenant_client", columnList = "tenant_id, client_id")
+})
 public class Fee {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -61,9 +64,17 @@ public class Fee {
 
     private String clientId;
 
+    // TEMPLATE fees only: the code clients are assigned to, see ClientTemplateAssignment
+    private String templateCode;
+
     @Builder.Default
     private Boolean isActive = true;
 
+    // Effective window: validFrom inclusive, validTo exclusive; null means open-ended
+    private LocalDateTime validFrom;
+
+    private LocalDateTime validTo;
+
     @Builder.Default
     @OneToMany(mappedBy = "fee", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<FeeRange> feeRanges = new ArrayList<>();
@@ -87,6 +98,11 @@ public class Fee {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
 
+    // Optimistic lock; range and sharer edits bump it too, see FeeService
+    @Version
+    @ColumnDefault("0")
+    private Long version;
+
     public void addFeeRange(FeeRange feeRange) {
         feeRanges.add(feeRange);
         feeRange.setFee(this);
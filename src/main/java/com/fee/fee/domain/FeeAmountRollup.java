@@ -0,0 +1,54 @@
+package com.fee.fee.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Per-minute roll-up of calculated amounts for one (tenant, transaction type, channel). Rows are
+ * appended in JDBC batches by {@code FeeAnalyticsCollector}; a minute may have more than one row,
+ * which queries merge.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "fee_amount_rollups", indexes = {
+        @Index(name = "idx_fee_amount_rollups_tenant_minute", columnList = "tenant_id, minute_start")
+})
+public class FeeAmountRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tenant_id", nullable = false)
+    private String tenantId;
+
+    @Column(name = "minute_start", nullable = false)
+    private LocalDateTime minuteStart;
+
+    @Column(nullable = false)
+    private String transactionType;
+
+    @Column(nullable = false)
+    private String channel;
+
+    @Column(nullable = false)
+    private Long calculationCount;
+
+    @Column(nullable = false, precision = 24, scale = 6)
+    private BigDecimal amountSum;
+
+    @Column(nullable = false, precision = 24, scale = 6)
+    private BigDecimal revenueSum;
+
+    // HdrHistogram of amounts in minor units, compressed encoding
+    @Column(nullable = false, length = 65536)
+    private byte[] amountHistogram;
+}
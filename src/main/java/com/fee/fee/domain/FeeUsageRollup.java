@@ -0,0 +1,43 @@
+package com.fee.fee.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Per-minute usage count and revenue of one fee. Rows are appended in JDBC batches by
+ * {@code FeeAnalyticsCollector}; fee ids are not foreign keys so the fees table is never touched.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "fee_usage_rollups", indexes = {
+        @Index(name = "idx_fee_usage_rollups_tenant_minute", columnList = "tenant_id, minute_start")
+})
+public class FeeUsageRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tenant_id", nullable = false)
+    private String tenantId;
+
+    @Column(name = "minute_start", nullable = false)
+    private LocalDateTime minuteStart;
+
+    @Column(nullable = false)
+    private Long feeId;
+
+    @Column(nullable = false)
+    private Long usageCount;
+
+    @Column(nullable = false, precision = 24, scale = 6)
+    private BigDecimal revenueSum;
+}
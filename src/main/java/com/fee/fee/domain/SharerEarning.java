@@ -0,0 +1,40 @@
+package com.fee.fee.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "sharer_earnings",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"tenant_id", "sharer_id", "earning_date"}))
+public class SharerEarning {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tenant_id", nullable = false)
+    private String tenantId;
+
+    @Column(name = "sharer_id", nullable = false)
+    private String sharerId;
+
+    @Column(name = "earning_date", nullable = false)
+    private LocalDate earningDate;
+
+    @Column(nullable = false, precision = 24, scale = 6)
+    private BigDecimal amount;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
@@ -16,4 +16,10 @@ public class Tenant {
     @Column(unique = true, nullable = false)
     private String tenantId;
     private String name;
+
+    // Bumped by every fee write; catalogue snapshots are reconciled against it
+    private Long ruleVersion;
+
+    // Set on the source shard while the tenant is moved off it; fee writes check it under the row lock
+    private Boolean writesFrozen;
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.fee.fee.domain;
+
+import com.fee.fee.enumeration.TenantShardStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "tenant_shard_assignments")
+public class TenantShardAssignment {
+    @Id
+    @Column(name = "tenant_id")
+    private String tenantId;
+
+    @Column(nullable = false)
+    private String shard;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TenantShardStatus status;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,28 @@
+package com.fee.fee.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AmountDistributionResponse {
+    private LocalDateTime minuteStart; // null when aggregated over the whole window
+    private String transactionType;
+    private String channel;
+    private long calculationCount;
+    private BigDecimal amountSum;
+    private BigDecimal revenueSum;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    private BigDecimal meanAmount;
+    private BigDecimal p50Amount;
+    private BigDecimal p90Amount;
+    private BigDecimal p99Amount;
+}
@@ -0,0 +1,33 @@
+package com.fee.fee.dto;
+
+import com.fee.fee.enumeration.BulkFeeOperation;
+import com.fee.fee.enumeration.FeeCalculationType;
+import com.fee.fee.enumeration.FeeType;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkFeeUpdateRequest {
+    @NotNull(message = "Operation is required")
+    private BulkFeeOperation operation;
+
+    // Signed change for ADJUST_PERCENTAGE_RATE, e.g. 0.05 or -0.05
+    private BigDecimal rateAdjustment;
+
+    // Filter; every field left empty matches any fee
+    private FeeType feeType;
+    private FeeCalculationType calculationType;
+    private String transactionType;
+    private String channel;
+    private String productId;
+    private String processorId;
+    private String clientId;
+}
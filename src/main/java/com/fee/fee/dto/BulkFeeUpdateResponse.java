@@ -0,0 +1,17 @@
+package com.fee.fee.dto;
+
+import com.fee.fee.enumeration.BulkFeeOperation;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkFeeUpdateResponse {
+    private String tenantId;
+    private BulkFeeOperation operation;
+    private Integer affectedFees;
+}
@@ -0,0 +1,36 @@
+package com.fee.fee.dto;
+
+import com.fee.fee.enumeration.FeeCalculationType;
+import com.fee.fee.enumeration.FeeType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CalculationAuditRecord {
+    private String correlationId;
+    private Instant calculatedAt;
+    private String tenantId;
+    private String transactionType;
+    private String channel;
+    private String clientId;
+    private String productId;
+    private String processorId;
+    private BigDecimal amount;
+    private Long feeId;
+    private LocalDateTime feeUpdatedAt;
+    private Long feeVersion;
+    private FeeType feeType;
+    private FeeCalculationType calculationType;
+    private BigDecimal feeAmount;
+    private List<FeeSharerCalculation> sharerCalculations;
+}
@@ -13,6 +13,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
@@ -60,6 +61,13 @@ public class CreateFeeRequest {
 
     private String clientId;
 
+    // TEMPLATE fees: the code clients are assigned to
+    private String templateCode;
+
+    // Effective window: validFrom inclusive, validTo exclusive; leave empty for an open-ended fee
+    private LocalDateTime validFrom;
+    private LocalDateTime validTo;
+
     @Valid
     private List<FeeRangeRequest> feeRanges;
 
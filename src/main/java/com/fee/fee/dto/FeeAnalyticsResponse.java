@@ -0,0 +1,21 @@
+package com.fee.fee.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FeeAnalyticsResponse {
+    private String tenantId;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private List<AmountDistributionResponse> amountDistributions;
+    private List<FeeUsageResponse> feeUsage;
+}
@@ -10,6 +10,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Map;
 
 @Data
@@ -45,5 +46,8 @@ public class FeeCalculationRequest {
     @Builder.Default
     private Boolean applySharing = true;
 
+    // Picks the fee version effective at this time; defaults to now
+    private LocalDateTime transactionTime;
+
     private Map<String, Object> metadata;
 }
\ No newline at end of file
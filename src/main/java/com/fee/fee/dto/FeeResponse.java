@@ -34,10 +34,14 @@ public class FeeResponse {
     private String productId;
     private String processorId;
     private String clientId;
+    private String templateCode;
     private Boolean isActive;
+    private LocalDateTime validFrom;
+    private LocalDateTime validTo;
     private List<FeeRangeResponse> feeRanges;
     private List<FeeSharerResponse> feeSharers;
     private LocalDateTime createdAt;
+    private Long version;
 
     public FeeResponse(Fee fee) {
         this.id = fee.getId();
@@ -53,8 +57,12 @@ public class FeeResponse {
         this.productId = fee.getProductId();
         this.processorId = fee.getProcessorId();
         this.clientId = fee.getClientId();
+        this.templateCode = fee.getTemplateCode();
         this.isActive = fee.getIsActive();
+        this.validFrom = fee.getValidFrom();
+        this.validTo = fee.getValidTo();
         this.createdAt = fee.getCreatedAt();
+        this.version = fee.getVersion();
 
         this.feeRanges = fee.getFeeRanges().stream()
                 .map(FeeRangeResponse::new)
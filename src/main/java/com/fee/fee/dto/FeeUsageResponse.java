@@ -0,0 +1,20 @@
+package com.fee.fee.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FeeUsageResponse {
+    private LocalDateTime minuteStart; // null when aggregated over the whole window
+    private Long feeId;
+    private long usageCount;
+    private BigDecimal revenueSum;
+}
@@ -0,0 +1,21 @@
+package com.fee.fee.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SharerEarningResponse {
+    private String tenantId;
+    private String sharerId;
+    private LocalDate date;
+    private BigDecimal amount;
+    private BigDecimal unflushedAmount;
+}
@@ -0,0 +1,22 @@
+package com.fee.fee.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SimulationDelta {
+    private String key; // fee ID (or draft fee name), cascade level, or sharer ID
+    private String name;
+    private long currentCount;
+    private long draftCount;
+    private BigDecimal currentAmount;
+    private BigDecimal draftAmount;
+    private BigDecimal amountDelta;
+}
@@ -0,0 +1,29 @@
+package com.fee.fee.dto;
+
+import com.fee.fee.enumeration.SimulationStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SimulationReport {
+    private String simulationId;
+    private SimulationStatus status;
+    private long transactionsProcessed;
+    private long transactionsRejected; // unparseable lines or unknown transaction type/channel
+    private long elapsedMillis;
+    private BigDecimal currentRevenue;
+    private BigDecimal draftRevenue;
+    private BigDecimal revenueDelta;
+    private List<SimulationDelta> fees;
+    private List<SimulationDelta> cascadeLevels;
+    private List<SimulationDelta> sharers;
+    private String error;
+}
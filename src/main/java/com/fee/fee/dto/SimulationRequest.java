@@ -0,0 +1,30 @@
+package com.fee.fee.dto;
+
+import jakarta.validation.Valid;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SimulationRequest {
+    private String tenantId;
+
+    // Fees the draft adds
+    @Valid
+    private List<CreateFeeRequest> creates;
+
+    // Draft changes to currently active fees, by fee ID
+    @Valid
+    private Map<Long, UpdateFeeRequest> updates;
+
+    // Used for transactions without their own transactionTime; defaults to now
+    private LocalDateTime transactionTime;
+}
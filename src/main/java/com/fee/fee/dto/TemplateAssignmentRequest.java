@@ -0,0 +1,18 @@
+package com.fee.fee.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TemplateAssignmentRequest {
+    @NotEmpty(message = "At least one client ID is required")
+    private List<String> clientIds;
+}
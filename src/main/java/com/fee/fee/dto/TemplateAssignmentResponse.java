@@ -0,0 +1,17 @@
+package com.fee.fee.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TemplateAssignmentResponse {
+    private String tenantId;
+    private String templateCode;
+    // Clients whose assignment was created, moved or removed
+    private Integer affectedClients;
+}
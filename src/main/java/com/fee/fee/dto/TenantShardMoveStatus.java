@@ -0,0 +1,28 @@
+package com.fee.fee.dto;
+
+import com.fee.fee.enumeration.TenantShardMovePhase;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class TenantShardMoveStatus {
+    private String moveId;
+    private String tenantId;
+    private String sourceShard;
+    private String targetShard;
+    private TenantShardMovePhase phase;
+    private Integer feesCopied;
+    // Source fee id -> id of its copy on the target shard; fee ids are per shard, so a move changes them
+    private Map<Long, Long> feeIdMapping;
+    private Instant startedAt;
+    private Instant completedAt;
+    private String error;
+}
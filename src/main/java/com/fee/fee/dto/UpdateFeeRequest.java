@@ -11,6 +11,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
@@ -41,6 +42,11 @@ public class UpdateFeeRequest {
     private String productId;
     private String processorId;
     private String clientId;
+    private String templateCode;
+
+    // Effective window: validFrom inclusive, validTo exclusive; leave empty for an open-ended fee
+    private LocalDateTime validFrom;
+    private LocalDateTime validTo;
 
     @Valid
     private List<FeeRangeRequest> feeRanges;
@@ -50,4 +56,7 @@ public class UpdateFeeRequest {
 
     @Builder.Default
     private Boolean isActive = true;
+
+    // Version the caller last read; when given, an update to a fee changed since then is rejected
+    private Long version;
 }
\ No newline at end of file
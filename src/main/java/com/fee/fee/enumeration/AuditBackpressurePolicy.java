@@ -0,0 +1,7 @@
+package com.fee.fee.enumeration;
+
+public enum AuditBackpressurePolicy {
+    BLOCK,
+    DROP,
+    SPILL
+}
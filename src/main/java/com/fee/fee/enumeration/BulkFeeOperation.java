@@ -0,0 +1,8 @@
+package com.fee.fee.enumeration;
+
+public enum BulkFeeOperation {
+    ACTIVATE,
+    DEACTIVATE,
+    // Adds rateAdjustment to the percentage rate of every matching PERCENTAGE fee
+    ADJUST_PERCENTAGE_RATE
+}
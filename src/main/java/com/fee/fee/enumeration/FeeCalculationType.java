@@ -3,5 +3,6 @@ package com.fee.fee.enumeration;
 public enum FeeCalculationType {
     FIXED,
     PERCENTAGE,
-    RANGED
+    RANGED,
+    TIERED
 }
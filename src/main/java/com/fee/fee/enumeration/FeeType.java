@@ -4,5 +4,6 @@ public enum FeeType {
     DEFAULT,
     PRODUCT,
     PROCESSOR,
-    CLIENT
+    CLIENT,
+    TEMPLATE
 }
\ No newline at end of file
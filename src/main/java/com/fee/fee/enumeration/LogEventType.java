@@ -0,0 +1,21 @@
+package com.fee.fee.enumeration;
+
+import lombok.Getter;
+import org.slf4j.event.Level;
+
+@Getter
+public enum LogEventType {
+    REQUEST_RECEIVED(Level.INFO, 0.01),
+    REQUEST_COMPLETED(Level.INFO, 0.01),
+    REQUEST_FAILED(Level.WARN, 1.0),
+    CALCULATION_SUCCEEDED(Level.INFO, 0.01),
+    CALCULATION_REJECTED(Level.WARN, 1.0);
+
+    private final Level level;
+    private final double defaultSampleRate;
+
+    LogEventType(Level level, double defaultSampleRate) {
+        this.level = level;
+        this.defaultSampleRate = defaultSampleRate;
+    }
+}
@@ -0,0 +1,11 @@
+package com.fee.fee.enumeration;
+
+public enum TenantShardMovePhase {
+    PENDING,
+    FREEZING,
+    COPYING,
+    SWITCHING,
+    CLEANING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,7 @@
+package com.fee.fee.enumeration;
+
+public enum TenantShardStatus {
+    ACTIVE,
+    // Writes are rejected while the tenant's fees are copied to another shard
+    MOVING
+}
@@ -3,6 +3,7 @@ package com.fee.fee.exception;
 import com.fee.fee.Util.CorrelationIdContext;
 import com.fee.fee.dto.ApiResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -25,6 +26,18 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(apiResponse);
     }
 
+    @ExceptionHandler(TenantThrottledException.class)
+    public ResponseEntity<ApiResponse<Object>> handleTenantThrottledException(TenantThrottledException ex) {
+        // Debug only: under a flood this fires for every shed request
+        log.debug("Tenant throttled - Correlation ID: {} - Tenant: {}, Retry after: {} ms",
+                CorrelationIdContext.getCorrelationId(), ex.getTenantId(), ex.getRetryAfterMillis());
+
+        ApiResponse<Object> apiResponse = ApiResponse.error(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf((ex.getRetryAfterMillis() + 999) / 1000))
+                .body(apiResponse);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiResponse<Object>> handleValidationExceptions(MethodArgumentNotValidException ex) {
         String correlationId = CorrelationIdContext.getCorrelationId();
@@ -0,0 +1,22 @@
+package com.fee.fee.exception;
+
+import lombok.Getter;
+
+/**
+ * A tenant's request was shed by admission control. Thrown before the request reaches a controller and
+ * answered with 429 by {@link GlobalExceptionHandler}.
+ */
+@Getter
+public class TenantThrottledException extends RuntimeException {
+
+    private final String tenantId;
+    private final long retryAfterMillis;
+
+    public TenantThrottledException(String tenantId, long retryAfterMillis) {
+        // No stack trace: shedding is expected under load and must stay cheap
+        super("Rate limit exceeded for tenant: " + tenantId + ", retry after " + retryAfterMillis + " ms",
+                null, false, false);
+        this.tenantId = tenantId;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+}
@@ -0,0 +1,44 @@
+package com.fee.fee.interceptor;
+
+import com.fee.fee.config.ApplicationProperties;
+import com.fee.fee.dto.FeeCalculationRequest;
+import com.fee.fee.service.TenantAdmissionControl;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+
+/**
+ * Runs tenant admission control on every fee calculation before the controller sees it. The tenant
+ * is only known once the body is read, so this hooks body binding rather than being a
+ * {@link org.springframework.web.servlet.HandlerInterceptor} like {@link CorrelationIdInterceptor}.
+ */
+@ControllerAdvice
+public class CalculationAdmissionAdvice extends RequestBodyAdviceAdapter {
+
+    private final TenantAdmissionControl tenantAdmissionControl;
+    private final String defaultTenantId;
+
+    public CalculationAdmissionAdvice(TenantAdmissionControl tenantAdmissionControl,
+                                      ApplicationProperties applicationProperties) {
+        this.tenantAdmissionControl = tenantAdmissionControl;
+        this.defaultTenantId = applicationProperties.getTenant().getDefaultTenantId();
+    }
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return targetType == FeeCalculationRequest.class;
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter,
+                                Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+        String tenantId = ((FeeCalculationRequest) body).getTenantId();
+        tenantAdmissionControl.admit(tenantId != null && !tenantId.isBlank() ? tenantId : defaultTenantId);
+        return body;
+    }
+}
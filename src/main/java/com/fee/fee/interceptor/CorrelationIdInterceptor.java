@@ -1,29 +1,42 @@
 package com.fee.fee.interceptor;
 
 import com.fee.fee.Util.CorrelationIdContext;
+import com.fee.fee.Util.CorrelationIdGenerator;
+import com.fee.fee.Util.TenantShardContext;
+import com.fee.fee.enumeration.LogEventType;
+import com.fee.fee.logging.StructuredEventLogger;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 
-import java.util.UUID;
-
 @Component
 @Slf4j
 public class CorrelationIdInterceptor implements HandlerInterceptor {
 
     private static final String CORRELATION_ID_HEADER = "X-Correlation-ID";
 
+    private final StructuredEventLogger eventLogger;
+    private final CorrelationIdGenerator correlationIdGenerator;
+
+    public CorrelationIdInterceptor(StructuredEventLogger eventLogger, CorrelationIdGenerator correlationIdGenerator) {
+        this.eventLogger = eventLogger;
+        this.correlationIdGenerator = correlationIdGenerator;
+    }
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
                              Object handler) throws Exception {
         String correlationId = getCorrelationIdFromHeader(request);
         CorrelationIdContext.setCorrelationId(correlationId);
 
-        log.info("Incoming request [{}] {} {} - Correlation ID: {}",
-                request.getMethod(), request.getRequestURI(),
-                getClientInfo(request), correlationId);
+        if (eventLogger.isSampled(LogEventType.REQUEST_RECEIVED)) {
+            eventLogger.publish(LogEventType.REQUEST_RECEIVED,
+                    "method", request.getMethod(),
+                    "uri", request.getRequestURI(),
+                    "client", request.getRemoteAddr());
+        }
 
         response.setHeader(CORRELATION_ID_HEADER, correlationId);
 
@@ -33,22 +46,26 @@ public class CorrelationIdInterceptor implements HandlerInterceptor {
     @Override
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
                                 Object handler, Exception ex) throws Exception {
-        log.info("Completed request [{}] {} - Status: {} - Correlation ID: {}",
-                request.getMethod(), request.getRequestURI(),
-                response.getStatus(), CorrelationIdContext.getCorrelationId());
+        LogEventType eventType = response.getStatus() >= 400
+                ? LogEventType.REQUEST_FAILED
+                : LogEventType.REQUEST_COMPLETED;
+
+        if (eventLogger.isSampled(eventType)) {
+            eventLogger.publish(eventType,
+                    "method", request.getMethod(),
+                    "uri", request.getRequestURI(),
+                    "status", response.getStatus());
+        }
 
         CorrelationIdContext.clear();
+        TenantShardContext.clear();
     }
 
     private String getCorrelationIdFromHeader(HttpServletRequest request) {
         String correlationId = request.getHeader(CORRELATION_ID_HEADER);
         if (correlationId == null || correlationId.trim().isEmpty()) {
-            correlationId = UUID.randomUUID().toString();
+            correlationId = correlationIdGenerator.nextId();
         }
         return correlationId;
     }
-
-    private String getClientInfo(HttpServletRequest request) {
-        return String.format("(Client: %s)", request.getRemoteAddr());
-    }
-}
\ No newline at end of file
+}
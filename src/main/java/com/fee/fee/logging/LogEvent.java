@@ -0,0 +1,16 @@
+package com.fee.fee.logging;
+
+import com.fee.fee.enumeration.LogEventType;
+import lombok.Value;
+
+/**
+ * Immutable structured log event. Fields are stored as alternating key/value pairs and are only
+ * rendered to text on the writer thread.
+ */
+@Value
+public class LogEvent {
+    LogEventType type;
+    long timestamp;
+    String correlationId;
+    Object[] fields;
+}
@@ -0,0 +1,168 @@
+package com.fee.fee.logging;
+
+import com.fee.fee.Util.CorrelationIdContext;
+import com.fee.fee.Util.MpscRingBuffer;
+import com.fee.fee.config.ApplicationProperties;
+import com.fee.fee.enumeration.LogEventType;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sampled, asynchronous structured logger for the request hot path.
+ * <p>
+ * Callers check {@link #isSampled(LogEventType)} before building any event fields, so unsampled
+ * events cost a single random draw. Sampled events are handed to a bounded ring buffer and
+ * rendered by a dedicated writer thread; when the buffer is full the event is dropped and
+ * counted rather than blocking the caller.
+ */
+@Component
+@Slf4j
+public class StructuredEventLogger {
+
+    private static final Logger EVENT_LOG = LoggerFactory.getLogger("com.fee.fee.events");
+
+    private final ApplicationProperties.LoggingConfig config;
+    private final MpscRingBuffer<LogEvent> buffer;
+    private final double[] sampleRates;
+    private final LongAdder[] published;
+    private final LongAdder[] dropped;
+    private final LongAdder[] sampledOut;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public StructuredEventLogger(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.config = applicationProperties.getLogging();
+        this.buffer = new MpscRingBuffer<>(config.getBufferSize());
+
+        LogEventType[] types = LogEventType.values();
+        this.sampleRates = new double[types.length];
+        this.published = new LongAdder[types.length];
+        this.dropped = new LongAdder[types.length];
+        this.sampledOut = new LongAdder[types.length];
+
+        for (LogEventType type : types) {
+            int i = type.ordinal();
+            sampleRates[i] = config.getSampling().getOrDefault(type, type.getDefaultSampleRate());
+            published[i] = new LongAdder();
+            dropped[i] = new LongAdder();
+            sampledOut[i] = new LongAdder();
+
+            FunctionCounter.builder("fee.logging.events.published", published[i], LongAdder::sum)
+                    .tag("type", type.name())
+                    .register(meterRegistry);
+            FunctionCounter.builder("fee.logging.events.dropped", dropped[i], LongAdder::sum)
+                    .tag("type", type.name())
+                    .register(meterRegistry);
+            FunctionCounter.builder("fee.logging.events.sampled.out", sampledOut[i], LongAdder::sum)
+                    .tag("type", type.name())
+                    .register(meterRegistry);
+        }
+
+        Gauge.builder("fee.logging.buffer.depth", buffer, MpscRingBuffer::size)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::drainLoop, "structured-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Structured event logger started - Buffer capacity: {}", buffer.capacity());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * Sampling guard. Returns {@code false} when the event should be skipped, in which case the
+     * caller must not build its fields.
+     */
+    public boolean isSampled(LogEventType type) {
+        int i = type.ordinal();
+        double rate = sampleRates[i];
+        if (rate >= 1.0) {
+            return true;
+        }
+        if (rate <= 0.0 || ThreadLocalRandom.current().nextDouble() >= rate) {
+            sampledOut[i].increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Enqueues an event that has already passed {@link #isSampled(LogEventType)}.
+     *
+     * @param fields alternating key/value pairs; values must be immutable
+     */
+    public void publish(LogEventType type, Object... fields) {
+        LogEvent event = new LogEvent(type, System.currentTimeMillis(),
+                CorrelationIdContext.getCorrelationId(), fields);
+
+        if (buffer.offer(event)) {
+            published[type.ordinal()].increment();
+        } else {
+            dropped[type.ordinal()].increment();
+        }
+    }
+
+    public long getDroppedCount(LogEventType type) {
+        return dropped[type.ordinal()].sum();
+    }
+
+    public int getQueueDepth() {
+        return buffer.size();
+    }
+
+    private void drainLoop() {
+        long idleParkNanos = TimeUnit.MILLISECONDS.toNanos(config.getIdleParkMillis());
+        while (true) {
+            int drained = buffer.drain(this::write, config.getDrainBatchSize());
+            if (drained == 0) {
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(idleParkNanos);
+            }
+        }
+    }
+
+    private void write(LogEvent event) {
+        try {
+            StringBuilder line = new StringBuilder(128);
+            line.append("event=").append(event.getType().name())
+                    .append(" ts=").append(Instant.ofEpochMilli(event.getTimestamp()))
+                    .append(" correlationId=").append(event.getCorrelationId());
+
+            Object[] fields = event.getFields();
+            for (int i = 0; i + 1 < fields.length; i += 2) {
+                line.append(' ').append(fields[i]).append('=').append(fields[i + 1]);
+            }
+
+            EVENT_LOG.atLevel(event.getType().getLevel()).log(line.toString());
+        } catch (RuntimeException e) {
+            log.warn("Failed to write structured event: {}", event.getType(), e);
+        }
+    }
+}
@@ -19,6 +19,7 @@ public interface ChannelRepository extends JpaRepository<Channel, Long> {
     Optional<Channel> findByNameAndIsActive(String name, Boolean isActive);
     Optional<Channel> findByCodeAndIsActive(String code, Boolean isActive);
     List<Channel> findByIsActive(Boolean isActive);
+    Optional<Channel> findByName(String name);
     boolean existsByName(String name);
     boolean existsByCode(String code);
     Set<Channel> findByNameInAndIsActive(Collection<String> name, Boolean isActive);
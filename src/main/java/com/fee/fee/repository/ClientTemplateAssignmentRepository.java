@@ -0,0 +1,44 @@
+package com.fee.fee.repository;
+
+import com.fee.fee.domain.ClientTemplateAssignment;
+import com.fee.fee.domain.Tenant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ClientTemplateAssignmentRepository extends JpaRepository<ClientTemplateAssignment, Long> {
+    List<ClientTemplateAssignment> findByTenant(Tenant tenant);
+    Optional<ClientTemplateAssignment> findByTenantAndClientId(Tenant tenant, String clientId);
+    List<ClientTemplateAssignment> findByTenantAndTemplateCodeOrderByClientId(Tenant tenant, String templateCode);
+
+    @Query("SELECT a.clientId FROM ClientTemplateAssignment a WHERE a.tenant = :tenant")
+    List<String> findClientIdsByTenant(Tenant tenant);
+
+    @Query("SELECT a.clientId AS clientId, a.templateCode AS templateCode FROM ClientTemplateAssignment a"
+            + " WHERE a.tenant = :tenant AND a.clientId IN :clientIds")
+    List<AssignedTemplate> findAssignedTemplates(Tenant tenant, Collection<String> clientIds);
+
+    // A bulk update, so it sets the update time itself
+    @Modifying
+    @Query("UPDATE ClientTemplateAssignment a SET a.templateCode = :templateCode, a.updatedAt = :now"
+            + " WHERE a.tenant = :tenant AND a.clientId IN :clientIds")
+    int moveAssignments(Tenant tenant, String templateCode, Collection<String> clientIds, LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM ClientTemplateAssignment a WHERE a.tenant = :tenant AND a.templateCode = :templateCode"
+            + " AND a.clientId IN :clientIds")
+    int deleteAssignments(Tenant tenant, String templateCode, Collection<String> clientIds);
+
+    interface AssignedTemplate {
+        String getClientId();
+
+        String getTemplateCode();
+    }
+}
@@ -0,0 +1,14 @@
+package com.fee.fee.repository;
+
+import com.fee.fee.domain.FeeAmountRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface FeeAmountRollupRepository extends JpaRepository<FeeAmountRollup, Long> {
+    List<FeeAmountRollup> findByTenantIdAndMinuteStartGreaterThanEqualAndMinuteStartLessThan(
+            String tenantId, LocalDateTime from, LocalDateTime to);
+}
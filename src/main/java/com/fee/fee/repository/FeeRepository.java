@@ -2,10 +2,15 @@ package com.fee.fee.repository;
 
 import com.fee.fee.domain.Fee;
 import com.fee.fee.domain.Tenant;
+import com.fee.fee.enumeration.FeeCalculationType;
 import com.fee.fee.enumeration.FeeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,4 +22,57 @@ public interface FeeRepository extends JpaRepository<Fee, Long> {
     Optional<Fee> findByIdAndTenant(Long id, Tenant tenant);
     boolean existsByTenantAndName(Tenant tenant, String name);
     boolean existsByTenantAndNameAndIdNot(Tenant tenant, String name, Long id);
+    boolean existsByTenantAndFeeTypeAndTemplateCode(Tenant tenant, FeeType feeType, String templateCode);
+
+    List<Fee> findByTenantAndIsActiveAndFeeTypeNot(Tenant tenant, Boolean isActive, FeeType feeType);
+
+    // One client's fees for the client fee cache; the tenant and transaction type are fetched so they are
+    // real instances rather than proxies once detached
+    @Query("SELECT f FROM Fee f JOIN FETCH f.tenant LEFT JOIN FETCH f.transactionType"
+            + " WHERE f.tenant = :tenant AND f.isActive = true"
+            + " AND f.feeType = com.fee.fee.enumeration.FeeType.CLIENT AND f.clientId = :clientId")
+    List<Fee> findActiveClientFees(Tenant tenant, String clientId);
+
+    // (client id, transaction type id, channel id) of every active CLIENT fee, for the client key filter
+    @Query("SELECT DISTINCT f.clientId, f.transactionType.id, c.id FROM Fee f JOIN f.channels c"
+            + " WHERE f.tenant = :tenant AND f.isActive = true"
+            + " AND f.feeType = com.fee.fee.enumeration.FeeType.CLIENT AND f.clientId IS NOT NULL")
+    List<Object[]> findActiveClientFeeKeys(Tenant tenant);
+
+    // Bulk filter: a null parameter matches any fee
+    String BULK_FILTER = "f.tenant = :tenant"
+            + " AND (:feeType IS NULL OR f.feeType = :feeType)"
+            + " AND (:calculationType IS NULL OR f.calculationType = :calculationType)"
+            + " AND (:transactionTypeId IS NULL OR f.transactionType.id = :transactionTypeId)"
+            + " AND (:channelId IS NULL OR f.id IN (SELECT cf.id FROM Fee cf JOIN cf.channels c WHERE c.id = :channelId))"
+            + " AND (:productId IS NULL OR f.productId = :productId)"
+            + " AND (:processorId IS NULL OR f.processorId = :processorId)"
+            + " AND (:clientId IS NULL OR f.clientId = :clientId)";
+
+    // Bulk updates bypass the entity lifecycle, so they bump the version and update time themselves
+
+    @Modifying
+    @Query("UPDATE Fee f SET f.isActive = :active, f.updatedAt = :now, f.version = f.version + 1"
+            + " WHERE f.isActive <> :active AND " + BULK_FILTER)
+    int setActiveByFilter(boolean active, LocalDateTime now, Tenant tenant, FeeType feeType,
+                          FeeCalculationType calculationType, Long transactionTypeId, Long channelId,
+                          String productId, String processorId, String clientId);
+
+    @Modifying
+    @Query("UPDATE Fee f SET f.percentageRate = f.percentageRate + :adjustment, f.updatedAt = :now, f.version = f.version + 1"
+            + " WHERE f.calculationType = com.fee.fee.enumeration.FeeCalculationType.PERCENTAGE AND " + BULK_FILTER)
+    int adjustPercentageRateByFilter(BigDecimal adjustment, LocalDateTime now, Tenant tenant, FeeType feeType,
+                                     FeeCalculationType calculationType, Long transactionTypeId, Long channelId,
+                                     String productId, String processorId, String clientId);
+
+    @Query("SELECT COUNT(f) FROM Fee f WHERE f.calculationType = com.fee.fee.enumeration.FeeCalculationType.PERCENTAGE"
+            + " AND f.percentageRate + :adjustment <= 0 AND " + BULK_FILTER)
+    long countNonPositiveRatesAfterAdjustment(BigDecimal adjustment, Tenant tenant, FeeType feeType,
+                                              FeeCalculationType calculationType, Long transactionTypeId, Long channelId,
+                                              String productId, String processorId, String clientId);
+
+    // Carries a fee's version over to its copy on another shard; save() would treat a versioned new fee as detached
+    @Modifying
+    @Query("UPDATE Fee f SET f.version = :version WHERE f.id = :id")
+    int setVersion(Long id, Long version);
 }
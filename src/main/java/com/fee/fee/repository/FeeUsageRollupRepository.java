@@ -0,0 +1,14 @@
+package com.fee.fee.repository;
+
+import com.fee.fee.domain.FeeUsageRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface FeeUsageRollupRepository extends JpaRepository<FeeUsageRollup, Long> {
+    List<FeeUsageRollup> findByTenantIdAndMinuteStartGreaterThanEqualAndMinuteStartLessThan(
+            String tenantId, LocalDateTime from, LocalDateTime to);
+}
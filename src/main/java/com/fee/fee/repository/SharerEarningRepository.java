@@ -0,0 +1,15 @@
+package com.fee.fee.repository;
+
+import com.fee.fee.domain.SharerEarning;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SharerEarningRepository extends JpaRepository<SharerEarning, Long> {
+    List<SharerEarning> findByTenantIdAndEarningDateBetween(String tenantId, LocalDate from, LocalDate to);
+    List<SharerEarning> findByTenantIdAndSharerIdAndEarningDateBetween(String tenantId, String sharerId,
+                                                                       LocalDate from, LocalDate to);
+}
@@ -2,6 +2,8 @@ package com.fee.fee.repository;
 
 import com.fee.fee.domain.Tenant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -10,4 +12,18 @@ import java.util.Optional;
 public interface TenantRepository extends JpaRepository<Tenant, Long> {
     Optional<Tenant> findByTenantId(String tenantId);
     boolean existsByTenantId(String tenantId);
+
+    @Query("SELECT COALESCE(t.ruleVersion, 0) FROM Tenant t WHERE t.tenantId = :tenantId")
+    Optional<Long> findRuleVersionByTenantId(String tenantId);
+
+    // Matches nothing while the tenant's writes are frozen for a shard move; the row lock it takes orders
+    // the write against the freeze
+    @Modifying
+    @Query("UPDATE Tenant t SET t.ruleVersion = COALESCE(t.ruleVersion, 0) + 1 WHERE t.tenantId = :tenantId"
+            + " AND (t.writesFrozen IS NULL OR t.writesFrozen = false)")
+    int incrementRuleVersion(String tenantId);
+
+    @Modifying
+    @Query("UPDATE Tenant t SET t.writesFrozen = :frozen WHERE t.tenantId = :tenantId")
+    int setWritesFrozen(String tenantId, boolean frozen);
 }
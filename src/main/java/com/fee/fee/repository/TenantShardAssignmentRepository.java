@@ -0,0 +1,9 @@
+package com.fee.fee.repository;
+
+import com.fee.fee.domain.TenantShardAssignment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TenantShardAssignmentRepository extends JpaRepository<TenantShardAssignment, String> {
+}
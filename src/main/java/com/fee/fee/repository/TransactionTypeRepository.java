@@ -14,6 +14,7 @@ public interface TransactionTypeRepository extends JpaRepository<TransactionType
     Optional<TransactionType> findByNameAndIsActive(String name, Boolean isActive);
     Optional<TransactionType> findByCodeAndIsActive(String code, Boolean isActive);
     List<TransactionType> findByIsActive(Boolean isActive);
+    Optional<TransactionType> findByName(String name);
     boolean existsByName(String name);
     boolean existsByCode(String code);
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.fee.fee.service;
+
+import java.math.BigDecimal;
+
+/**
+ * The decimal cells of a banded fee, one row per band in ascending lower-bound order and a fixed set
+ * of columns chosen by the evaluator. Tables are compiled onto the heap or read in place from a mapped
+ * {@link RuleSetFile}; either way they are immutable.
+ */
+interface BandTable {
+
+    int bands();
+
+    /**
+     * The cell, or null where the column allows it (an open upper bound, a band without a rate).
+     */
+    BigDecimal cell(int band, int column);
+}
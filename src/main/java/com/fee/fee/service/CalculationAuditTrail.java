@@ -0,0 +1,444 @@
+package com.fee.fee.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fee.fee.Util.MpscRingBuffer;
+import com.fee.fee.config.ApplicationProperties;
+import com.fee.fee.dto.CalculationAuditRecord;
+import com.fee.fee.dto.FeeSharerCalculation;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous, batched audit trail of fee calculations.
+ * <p>
+ * {@link #publish(CalculationAuditRecord)} hands the record to a bounded lock-free ring buffer and
+ * returns; a dedicated writer thread drains it into JDBC batch inserts of up to
+ * {@code app.audit.batch-size} rows, flushing a partial batch once its oldest record has waited
+ * {@code app.audit.linger-millis}. When the buffer is full the configured backpressure policy
+ * applies: BLOCK parks the caller until space frees up (bounded by a timeout), DROP discards and
+ * counts the record, SPILL hands it to a smaller overflow buffer that the writer appends as JSON lines
+ * to a local file, so callers never do file I/O. Batches the database rejects are spilled too, and
+ * spilled records are replayed into the table whenever the writer is idle. Only the writer thread
+ * touches the files; it keeps the spill file open between spills.
+ * <p>
+ * Replay records how many lines it has committed, so a retry resumes where the last attempt stopped.
+ * A batch the database rejects for its data is retried row by row, and rows rejected on their own
+ * go to a dead-letter file ({@code <spill-file>.dead}) and are never retried. Replay is still
+ * at-least-once: a crash or outage part-way through a batch repeats that batch, so consumers should
+ * de-duplicate on correlation id and calculation time.
+ */
+@Service
+@Slf4j
+public class CalculationAuditTrail {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO calculation_audit (correlation_id, calculated_at, tenant_id, transaction_type, channel, " +
+                    "client_id, product_id, processor_id, amount, fee_id, fee_updated_at, fee_version, " +
+                    "fee_type, calculation_type, fee_amount, sharer_split) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final ApplicationProperties.AuditConfig config;
+    private final MpscRingBuffer<CalculationAuditRecord> buffer;
+    // Records the buffer had no room for under SPILL, waiting for the writer to spill them
+    private final MpscRingBuffer<CalculationAuditRecord> overflow;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Path spillFile;
+    private final Path replayFile;
+    private final Path replayProgressFile;
+    private final Path deadLetterFile;
+    // Open spill file, owned by the writer thread; null until a spill needs it, and after a replay moves it
+    private BufferedWriter spillWriter;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public CalculationAuditTrail(ApplicationProperties applicationProperties,
+                                 JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry) {
+        this.config = applicationProperties.getAudit();
+        this.buffer = new MpscRingBuffer<>(config.getBufferSize());
+        this.overflow = new MpscRingBuffer<>(config.getSpillBufferSize());
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.spillFile = Paths.get(config.getSpillFile());
+        this.replayFile = Paths.get(config.getSpillFile() + ".replay");
+        this.replayProgressFile = Paths.get(config.getSpillFile() + ".replay.progress");
+        this.deadLetterFile = Paths.get(config.getSpillFile() + ".dead");
+
+        Gauge.builder("fee.audit.queue.depth", buffer, MpscRingBuffer::size).register(meterRegistry);
+        Gauge.builder("fee.audit.queue.capacity", buffer, MpscRingBuffer::capacity).register(meterRegistry);
+        Gauge.builder("fee.audit.overflow.depth", overflow, MpscRingBuffer::size).register(meterRegistry);
+        FunctionCounter.builder("fee.audit.records.published", published, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("fee.audit.records.dropped", dropped, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("fee.audit.records.spilled", spilled, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("fee.audit.records.written", written, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("fee.audit.write.failures", writeFailures, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("fee.audit.records.dead.lettered", deadLettered, LongAdder::sum).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled()) {
+            log.info("Calculation audit trail disabled");
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "calculation-audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Calculation audit trail started - Capacity: {}, Batch size: {}, Linger: {} ms, Backpressure: {}",
+                buffer.capacity(), config.getBatchSize(), config.getLingerMillis(), config.getBackpressure());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    public void publish(CalculationAuditRecord record) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        if (buffer.offer(record)) {
+            published.increment();
+            return;
+        }
+
+        switch (config.getBackpressure()) {
+            case BLOCK:
+                if (offerBlocking(record)) {
+                    published.increment();
+                } else {
+                    dropped.increment();
+                }
+                break;
+            case SPILL:
+                // Counted as spilled once the writer has appended it to the file
+                if (!overflow.offer(record)) {
+                    dropped.increment();
+                }
+                break;
+            case DROP:
+            default:
+                dropped.increment();
+                break;
+        }
+    }
+
+    public int getQueueDepth() {
+        return buffer.size();
+    }
+
+    private boolean offerBlocking(CalculationAuditRecord record) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getBlockTimeoutMillis());
+        while (System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+            if (buffer.offer(record)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeLoop() {
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(config.getLingerMillis());
+        long replayIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getSpillReplayIntervalMillis());
+        List<CalculationAuditRecord> batch = new ArrayList<>(config.getBatchSize());
+        long batchStartedAt = 0;
+        long lastReplayAt = System.nanoTime() - replayIntervalNanos;
+
+        while (true) {
+            if (!overflow.isEmpty()) {
+                spillOverflow();
+            }
+            CalculationAuditRecord record = buffer.poll();
+            if (record != null) {
+                if (batch.isEmpty()) {
+                    batchStartedAt = System.nanoTime();
+                }
+                batch.add(record);
+                if (batch.size() >= config.getBatchSize()) {
+                    writeOrSpill(batch);
+                }
+                continue;
+            }
+
+            long now = System.nanoTime();
+            if (!batch.isEmpty() && (now - batchStartedAt >= lingerNanos || !running)) {
+                writeOrSpill(batch);
+                continue;
+            }
+            if (!running) {
+                spillOverflow();
+                closeSpillWriter();
+                break;
+            }
+            if (batch.isEmpty() && now - lastReplayAt >= replayIntervalNanos) {
+                replaySpilled();
+                lastReplayAt = System.nanoTime();
+                continue;
+            }
+            LockSupport.parkNanos(batch.isEmpty() ? lingerNanos : Math.max(0, lingerNanos - (now - batchStartedAt)));
+        }
+    }
+
+    private void writeOrSpill(List<CalculationAuditRecord> batch) {
+        try {
+            insert(batch);
+        } catch (RuntimeException e) {
+            writeFailures.increment();
+            log.warn("Audit batch insert failed - Spilling {} records: {}", batch.size(), e.getMessage());
+            spill(batch);
+        }
+        batch.clear();
+    }
+
+    private void insert(List<CalculationAuditRecord> records) {
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        CalculationAuditRecord record = records.get(i);
+                        ps.setString(1, record.getCorrelationId());
+                        ps.setTimestamp(2, Timestamp.from(record.getCalculatedAt()));
+                        ps.setString(3, record.getTenantId());
+                        ps.setString(4, record.getTransactionType());
+                        ps.setString(5, record.getChannel());
+                        ps.setString(6, record.getClientId());
+                        ps.setString(7, record.getProductId());
+                        ps.setString(8, record.getProcessorId());
+                        ps.setBigDecimal(9, record.getAmount());
+                        ps.setLong(10, record.getFeeId());
+                        if (record.getFeeUpdatedAt() != null) {
+                            ps.setTimestamp(11, Timestamp.valueOf(record.getFeeUpdatedAt()));
+                        } else {
+                            ps.setNull(11, Types.TIMESTAMP);
+                        }
+                        if (record.getFeeVersion() != null) {
+                            ps.setLong(12, record.getFeeVersion());
+                        } else {
+                            ps.setNull(12, Types.BIGINT);
+                        }
+                        ps.setString(13, record.getFeeType() != null ? record.getFeeType().name() : null);
+                        ps.setString(14, record.getCalculationType() != null ? record.getCalculationType().name() : null);
+                        ps.setBigDecimal(15, record.getFeeAmount());
+                        ps.setString(16, formatSharerSplit(record.getSharerCalculations()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return records.size();
+                    }
+                }));
+        written.add(records.size());
+    }
+
+    private String formatSharerSplit(List<FeeSharerCalculation> calculations) {
+        if (calculations == null || calculations.isEmpty()) {
+            return null;
+        }
+        StringBuilder split = new StringBuilder();
+        for (FeeSharerCalculation calculation : calculations) {
+            if (split.length() > 0) {
+                split.append(';');
+            }
+            split.append(calculation.getSharerId()).append('=').append(calculation.getAmount().toPlainString());
+        }
+        return split.toString();
+    }
+
+    private void spillOverflow() {
+        List<CalculationAuditRecord> records = new ArrayList<>(overflow.size());
+        overflow.drain(records::add, Integer.MAX_VALUE);
+        if (!records.isEmpty()) {
+            spill(records);
+        }
+    }
+
+    private void spill(List<CalculationAuditRecord> records) {
+        try {
+            if (spillWriter == null) {
+                spillWriter = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            for (CalculationAuditRecord record : records) {
+                spillWriter.write(objectMapper.writeValueAsString(record));
+                spillWriter.newLine();
+            }
+            spillWriter.flush();
+            spilled.add(records.size());
+        } catch (IOException e) {
+            dropped.add(records.size());
+            log.error("Failed to spill {} audit records to {}", records.size(), spillFile, e);
+            closeSpillWriter();
+        }
+    }
+
+    private void closeSpillWriter() {
+        if (spillWriter == null) {
+            return;
+        }
+        try {
+            spillWriter.close();
+        } catch (IOException e) {
+            log.warn("Failed to close audit spill file {}: {}", spillFile, e.getMessage());
+        }
+        spillWriter = null;
+    }
+
+    /**
+     * Moves the spill file aside and inserts its records, resuming after the lines a failed or
+     * interrupted attempt already committed. A replay file left by such an attempt is finished before
+     * any new spill file is picked up.
+     */
+    private void replaySpilled() {
+        try {
+            if (!Files.exists(replayFile)) {
+                if (!Files.exists(spillFile) || Files.size(spillFile) == 0) {
+                    return;
+                }
+                // The next spill opens a fresh file
+                closeSpillWriter();
+                Files.move(spillFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
+                Files.deleteIfExists(replayProgressFile);
+            }
+
+            long committedLines = readReplayProgress();
+            long lineNumber = 0;
+            int replayed = 0;
+            List<String> batch = new ArrayList<>(config.getBatchSize());
+            try (BufferedReader in = Files.newBufferedReader(replayFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lineNumber++;
+                    if (lineNumber <= committedLines || line.isBlank()) {
+                        continue;
+                    }
+                    batch.add(line);
+                    if (batch.size() >= config.getBatchSize()) {
+                        replayed += replayBatch(batch);
+                        writeReplayProgress(lineNumber);
+                        batch.clear();
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                replayed += replayBatch(batch);
+            }
+            Files.delete(replayFile);
+            Files.deleteIfExists(replayProgressFile);
+            log.info("Replayed {} spilled audit records from {}", replayed, replayFile);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Audit spill replay failed, will resume: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Inserts one batch of spilled lines and returns how many rows it wrote. When the database rejects
+     * the batch for its data, the rows are inserted one at a time and those rejected on their own, like
+     * lines that no longer parse, are dead-lettered. Any other failure is rethrown so the batch is
+     * retried on the next replay.
+     */
+    private int replayBatch(List<String> lines) throws IOException {
+        List<String> parsedLines = new ArrayList<>(lines.size());
+        List<CalculationAuditRecord> records = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            try {
+                records.add(objectMapper.readValue(line, CalculationAuditRecord.class));
+                parsedLines.add(line);
+            } catch (JsonProcessingException e) {
+                deadLetter(line, e);
+            }
+        }
+        if (records.isEmpty()) {
+            return 0;
+        }
+        try {
+            insert(records);
+            return records.size();
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Spilled audit batch rejected - Retrying {} records one at a time: {}", records.size(), e.getMessage());
+        }
+
+        int inserted = 0;
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                insert(List.of(records.get(i)));
+                inserted++;
+            } catch (DataIntegrityViolationException e) {
+                deadLetter(parsedLines.get(i), e);
+            }
+        }
+        return inserted;
+    }
+
+    private void deadLetter(String line, Exception cause) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(deadLetterFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            out.write(line);
+            out.newLine();
+        }
+        deadLettered.increment();
+        log.error("Dead-lettered spilled audit record to {}: {}", deadLetterFile, cause.getMessage());
+    }
+
+    private long readReplayProgress() throws IOException {
+        if (!Files.exists(replayProgressFile)) {
+            return 0;
+        }
+        String progress = Files.readString(replayProgressFile, StandardCharsets.UTF_8).trim();
+        return progress.isEmpty() ? 0 : Long.parseLong(progress);
+    }
+
+    private void writeReplayProgress(long committedLines) throws IOException {
+        Path temporary = Paths.get(replayProgressFile + ".tmp");
+        Files.writeString(temporary, Long.toString(committedLines), StandardCharsets.UTF_8);
+        Files.move(temporary, replayProgressFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,265 @@
+package com.fee.fee.service;
+
+import com.fee.fee.Util.CorrelationIdContext;
+import com.fee.fee.Util.TenantShardContext;
+import com.fee.fee.config.ApplicationProperties;
+import com.fee.fee.dto.FeeCalculationRequest;
+import com.fee.fee.dto.FeeCalculationResult;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in micro-batching of fee calculations ({@code app.batching.enabled}).
+ * <p>
+ * Callers queue their request and wait; a collector thread gathers requests arriving within the batch
+ * window, up to {@code max-batch-size}, and hands each batch to a worker, which calculates it through
+ * {@link FeeService#calculateFees} in one transaction per tenant. The tenant catalogue and reference data
+ * come from the caches already, so what a batch saves is the per-request transaction: one connection
+ * checkout and one commit instead of one per calculation. A batch's tenants are calculated on separate
+ * workers, so one tenant's slow catalogue load or failed commit holds up and fails only its own requests.
+ * <p>
+ * The window adapts to the arrival rate, kept as a moving average of the gap between requests. It is
+ * just long enough to expect a full batch, capped at {@code max-window-micros}, and zero when not even
+ * one more request is expected within the cap, so a quiet node adds no latency. When the queue is full,
+ * or the batcher has stopped, the caller calculates on its own thread.
+ */
+@Service
+@Slf4j
+public class CalculationBatcher {
+
+    private final FeeService feeService;
+    private final TenantShardDirectory tenantShardDirectory;
+    private final ApplicationProperties.BatchingConfig config;
+    private final String defaultTenantId;
+    private final BlockingQueue<PendingCalculation> queue;
+    private final long maxWindowNanos;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedRequests = new LongAdder();
+    private final LongAdder bypassedRequests = new LongAdder();
+    // Written by the collector only
+    private volatile long windowNanos;
+    private double averageGapNanos;
+    private long lastArrivalNanos;
+
+    private Thread collector;
+    private ExecutorService workers;
+    // Set before the queue is drained for the last time; callers then calculate on their own threads
+    private volatile boolean stopped;
+    private final AtomicInteger workerIds = new AtomicInteger();
+
+    public CalculationBatcher(FeeService feeService,
+                              TenantShardDirectory tenantShardDirectory,
+                              ApplicationProperties applicationProperties,
+                              MeterRegistry meterRegistry) {
+        this.feeService = feeService;
+        this.tenantShardDirectory = tenantShardDirectory;
+        this.config = applicationProperties.getBatching();
+        this.defaultTenantId = applicationProperties.getTenant().getDefaultTenantId();
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity()));
+        this.maxWindowNanos = TimeUnit.MICROSECONDS.toNanos(config.getMaxWindowMicros());
+        this.averageGapNanos = Double.MAX_VALUE;
+
+        FunctionCounter.builder("fee.batching.batches", batches, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("fee.batching.requests", batchedRequests, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("fee.batching.bypassed", bypassedRequests, LongAdder::sum).register(meterRegistry);
+        Gauge.builder("fee.batching.window.micros", this, batcher -> batcher.windowNanos / 1000.0).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        int parallelism = config.getParallelism() > 0 ? config.getParallelism() : Runtime.getRuntime().availableProcessors();
+        workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "calculation-batch-" + workerIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        collector = new Thread(this::collect, "calculation-batcher");
+        collector.setDaemon(true);
+        collector.start();
+        log.info("Calculation batching started - Max batch size: {}, Max window: {} us, Workers: {}",
+                config.getMaxBatchSize(), config.getMaxWindowMicros(), parallelism);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (collector == null) {
+            return;
+        }
+        stopped = true;
+        collector.interrupt();
+        collector.join(TimeUnit.SECONDS.toMillis(5));
+        workers.shutdown();
+        workers.awaitTermination(5, TimeUnit.SECONDS);
+        // Anything still queued is calculated by its caller
+        List<PendingCalculation> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.forEach(pending -> pending.result().completeExceptionally(new BatcherStoppedException()));
+    }
+
+    /**
+     * Calculates the request, batched with others when batching is enabled. Exceptions are those of
+     * {@link FeeService#calculateFee(FeeCalculationRequest)}.
+     */
+    public FeeCalculationResult calculate(FeeCalculationRequest request) {
+        if (collector == null || stopped) {
+            return feeService.calculateFee(request);
+        }
+        PendingCalculation pending = new PendingCalculation(request, CorrelationIdContext.getCorrelationId(),
+                System.nanoTime(), new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            bypassedRequests.increment();
+            return feeService.calculateFee(request);
+        }
+        // Queued after stop() drained the queue: nothing will take it, so take it back
+        if (stopped && queue.remove(pending)) {
+            return feeService.calculateFee(request);
+        }
+        try {
+            return pending.result().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BatcherStoppedException) {
+                return feeService.calculateFee(request);
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a batched calculation", e);
+        }
+    }
+
+    private void collect() {
+        int maxBatchSize = Math.max(1, config.getMaxBatchSize());
+        while (!Thread.currentThread().isInterrupted()) {
+            List<PendingCalculation> batch = new ArrayList<>(maxBatchSize);
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - 1);
+                observeArrivals(batch, 0);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingCalculation next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    int from = batch.size();
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    observeArrivals(batch, from);
+                }
+                workers.execute(() -> run(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(pending -> pending.result().completeExceptionally(new BatcherStoppedException()));
+            } catch (RuntimeException e) {
+                log.error("Calculation batcher failed to dispatch a batch - Calculating on the callers' threads", e);
+                batch.forEach(pending -> pending.result().completeExceptionally(new BatcherStoppedException()));
+            }
+        }
+    }
+
+    private void observeArrivals(List<PendingCalculation> batch, int from) {
+        for (int i = from; i < batch.size(); i++) {
+            long arrival = batch.get(i).enqueuedAtNanos();
+            if (lastArrivalNanos != 0) {
+                long gap = Math.max(0, arrival - lastArrivalNanos);
+                averageGapNanos = averageGapNanos == Double.MAX_VALUE ? gap : averageGapNanos * 0.9 + gap * 0.1;
+            }
+            lastArrivalNanos = arrival;
+        }
+        // Long enough to expect a full batch; zero when even one more request is unlikely within the cap
+        double fillNanos = averageGapNanos * (Math.max(1, config.getMaxBatchSize()) - 1);
+        windowNanos = averageGapNanos >= maxWindowNanos ? 0 : (long) Math.min(fillNanos, maxWindowNanos);
+    }
+
+    private void run(List<PendingCalculation> batch) {
+        batches.increment();
+        batchedRequests.add(batch.size());
+        Map<String, List<PendingCalculation>> byTenant = new LinkedHashMap<>();
+        for (PendingCalculation pending : batch) {
+            String tenantId = pending.request().getTenantId() != null && !pending.request().getTenantId().isBlank()
+                    ? pending.request().getTenantId()
+                    : defaultTenantId;
+            byTenant.computeIfAbsent(tenantId, id -> new ArrayList<>()).add(pending);
+        }
+        // The first tenant stays on this worker; the others are handed to workers of their own
+        Map.Entry<String, List<PendingCalculation>> first = null;
+        for (Map.Entry<String, List<PendingCalculation>> tenant : byTenant.entrySet()) {
+            if (first == null) {
+                first = tenant;
+                continue;
+            }
+            String shard = tenantShardDirectory.resolve(tenant.getKey());
+            List<PendingCalculation> group = tenant.getValue();
+            try {
+                workers.execute(() -> run(shard, group));
+            } catch (RejectedExecutionException e) {
+                group.forEach(pending -> pending.result().completeExceptionally(new BatcherStoppedException()));
+            }
+        }
+        run(tenantShardDirectory.resolve(first.getKey()), first.getValue());
+    }
+
+    private void run(String shard, List<PendingCalculation> group) {
+        List<FeeCalculationRequest> requests = new ArrayList<>(group.size());
+        List<String> correlationIds = new ArrayList<>(group.size());
+        for (PendingCalculation pending : group) {
+            requests.add(pending.request());
+            correlationIds.add(pending.correlationId());
+        }
+        try {
+            List<CalculationOutcome> outcomes = TenantShardContext.callWithShard(shard,
+                    () -> feeService.calculateFees(requests, correlationIds));
+            for (int i = 0; i < group.size(); i++) {
+                CalculationOutcome outcome = outcomes.get(i);
+                if (outcome.failure() != null) {
+                    group.get(i).result().completeExceptionally(outcome.failure());
+                } else {
+                    group.get(i).result().complete(outcome.result());
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            group.forEach(pending -> pending.result().completeExceptionally(e));
+        }
+    }
+
+    private record PendingCalculation(FeeCalculationRequest request, String correlationId, long enqueuedAtNanos,
+                                      CompletableFuture<FeeCalculationResult> result) {
+    }
+
+    private static class BatcherStoppedException extends RuntimeException {
+        BatcherStoppedException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.fee.fee.service;
+
+import com.fee.fee.dto.FeeCalculationResult;
+
+/**
+ * One request's share of a batched calculation: its result, or the exception it failed with.
+ */
+public record CalculationOutcome(FeeCalculationResult result, RuntimeException failure) {
+}
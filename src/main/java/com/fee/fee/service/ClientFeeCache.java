@@ -0,0 +1,580 @@
+package com.fee.fee.service;
+
+import com.fee.fee.Util.SingleFlight;
+import com.fee.fee.config.ApplicationProperties;
+import com.fee.fee.domain.Channel;
+import com.fee.fee.domain.Fee;
+import com.fee.fee.domain.FeeSharer;
+import com.fee.fee.domain.Tenant;
+import com.fee.fee.domain.TransactionType;
+import com.fee.fee.repository.ClientTemplateAssignmentRepository;
+import com.fee.fee.repository.FeeRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * CLIENT fees of every tenant, held within a heap budget of {@code app.cache.client-fee-budget-bytes}.
+ * <p>
+ * With a budget, tenant catalogues pin all but their CLIENT fees and the cascade
+ * asks this cache for a client's fees, loading them on a miss inside the calculation's transaction.
+ * Each (tenant, client) entry is a small {@link TenantCatalogue} of that client's fees and template
+ * assignment, empty for a client without either, and is tied to the tenant catalogue it was loaded under: once that catalogue is
+ * reloaded the entry is stale and the next lookup loads it again, so client fees follow the same
+ * invalidation and TTL as the rest of the tenant's rules.
+ * <p>
+ * The budget is counted in estimated bytes and shared by all tenants. Eviction is W-TinyLFU: a new
+ * entry enters a small LRU window; when it leaves the window it only enters the main segment if a
+ * frequency sketch has seen it more often than each entry it would displace, so a scan of one-off
+ * clients cannot flush the clients that are used all the time. The main segment is a segmented LRU
+ * whose protected part holds entries hit again since they were admitted.
+ * <p>
+ * Lookups read a concurrent map. Reordering on a hit takes the eviction lock only if it is free; under
+ * contention the hit is served without being recorded, which costs some precision but never blocks.
+ * <p>
+ * Most clients have no fee of their own, and every one of them would still cost a load and an empty
+ * entry. Each tenant therefore gets a {@link ClientKeyFilter} of the clients that do, built with the
+ * tenant catalogue and handed to it; the cascade skips this cache for clients the filter rules out. A
+ * filter survives catalogue reloads for as long as it covers the tenant's rule version: writes on this
+ * node add their keys after commit, and a version it does not cover, such as one moved on by a write
+ * elsewhere, has it rebuilt from the database.
+ */
+@Service
+@Slf4j
+public class ClientFeeCache {
+
+    // Shares of the budget for the admission window and, within the main segment, the protected part
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+    // Used to size the frequency sketch from the budget
+    private static final int EXPECTED_ENTRY_BYTES = 1024;
+
+    // Rough shallow sizes on a 64-bit JVM with compressed oops, compiled evaluators included
+    private static final long ENTRY_BYTES = 400;
+    private static final long FEE_BYTES = 480;
+    private static final long CHANNEL_BYTES = 16;
+    private static final long RANGE_BYTES = 160;
+    private static final long SHARER_BYTES = 160;
+    private static final long ASSIGNMENT_BYTES = 96;
+
+    private final FeeRepository feeRepository;
+    private final ClientTemplateAssignmentRepository clientTemplateAssignmentRepository;
+    private final SharerAllocationService sharerAllocationService;
+    private final MeterRegistry meterRegistry;
+    private final long budgetBytes;
+    private final long windowMaxBytes;
+    private final long mainMaxBytes;
+    private final long protectedMaxBytes;
+    private final long loadTimeoutMillis;
+    private final int filterBitsPerKey;
+
+    private final ConcurrentHashMap<Key, Node> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TenantStats> tenantStats = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ClientKeyFilter> filters = new ConcurrentHashMap<>();
+    private final SingleFlight<Flight, TenantCatalogue> loads = new SingleFlight<>();
+    // Guards the segments, the sketch and every node's links
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final Segment window = new Segment();
+    private final Segment probation = new Segment();
+    private final Segment protectedSegment = new Segment();
+
+    public ClientFeeCache(FeeRepository feeRepository,
+                          ClientTemplateAssignmentRepository clientTemplateAssignmentRepository,
+                          SharerAllocationService sharerAllocationService,
+                          ApplicationProperties applicationProperties,
+                          MeterRegistry meterRegistry) {
+        this.feeRepository = feeRepository;
+        this.clientTemplateAssignmentRepository = clientTemplateAssignmentRepository;
+        this.sharerAllocationService = sharerAllocationService;
+        this.meterRegistry = meterRegistry;
+        this.budgetBytes = Math.max(0, applicationProperties.getCache().getClientFeeBudgetBytes());
+        this.windowMaxBytes = Math.max(1, budgetBytes * WINDOW_PERCENT / 100);
+        this.mainMaxBytes = Math.max(0, budgetBytes - windowMaxBytes);
+        this.protectedMaxBytes = mainMaxBytes * PROTECTED_PERCENT / 100;
+        this.loadTimeoutMillis = applicationProperties.getCache().getLoadTimeoutMillis();
+        this.filterBitsPerKey = Math.max(0, applicationProperties.getCache().getClientFilterBitsPerKey());
+        this.sketch = new FrequencySketch(budgetBytes / EXPECTED_ENTRY_BYTES);
+
+        FunctionCounter.builder("fee.cache.loads", loads, SingleFlight::getLoadCount)
+                .tag("cache", "client-fees").register(meterRegistry);
+        FunctionCounter.builder("fee.cache.loads.coalesced", loads, SingleFlight::getCoalescedCount)
+                .tag("cache", "client-fees").register(meterRegistry);
+        FunctionCounter.builder("fee.cache.loads.timeouts", loads, SingleFlight::getTimeoutCount)
+                .tag("cache", "client-fees").register(meterRegistry);
+
+        if (isEnabled()) {
+            log.info("Client fee cache enabled - Budget: {} bytes, Window: {} bytes, Protected: {} bytes, Filter: {} bits per key",
+                    budgetBytes, windowMaxBytes, protectedMaxBytes, filterBitsPerKey);
+        }
+    }
+
+    /**
+     * Whether CLIENT fees are held here rather than in the tenant catalogues.
+     */
+    public boolean isEnabled() {
+        return budgetBytes > 0;
+    }
+
+    /**
+     * Whether tenants get a {@link ClientKeyFilter}, and writes must report their keys through
+     * {@link #addToFilterAfterCommit}.
+     */
+    public boolean isFilterEnabled() {
+        return isEnabled() && filterBitsPerKey > 0;
+    }
+
+    /**
+     * The tenant's client key filter as of {@code ruleVersion}, rebuilt from the database unless the
+     * current one covers it; null when filters are disabled. Must run inside a transaction on the
+     * tenant's shard.
+     */
+    ClientKeyFilter filterFor(Tenant tenant, long ruleVersion) {
+        if (!isFilterEnabled()) {
+            return null;
+        }
+        ClientKeyFilter filter = filters.get(tenant.getTenantId());
+        if (filter != null && filter.covers(ruleVersion)) {
+            return filter;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        List<Object[]> feeKeys = feeRepository.findActiveClientFeeKeys(tenant);
+        List<String> assignedClientIds = clientTemplateAssignmentRepository.findClientIdsByTenant(tenant);
+        ClientKeyFilter rebuilt = new ClientKeyFilter(feeKeys.size() + assignedClientIds.size(), filterBitsPerKey,
+                ruleVersion);
+        for (Object[] feeKey : feeKeys) {
+            rebuilt.add(ClientKeyFilter.feeKey((String) feeKey[0], (Long) feeKey[1], (Long) feeKey[2]));
+        }
+        for (String clientId : assignedClientIds) {
+            rebuilt.add(ClientKeyFilter.clientKey(clientId));
+        }
+        // Keep whichever covers the later version; writes may have moved the current one on meanwhile
+        ClientKeyFilter kept = filters.merge(tenant.getTenantId(), rebuilt, (current, fresh) ->
+                current.getCoveredRuleVersion() > fresh.getCoveredRuleVersion() ? current : fresh);
+        statsFor(tenant.getTenantId()).filterRebuilds.increment();
+
+        log.debug("Built client key filter for tenant: {} - Fee keys: {}, Assigned clients: {}, Size: {} bytes, Took: {} ms",
+                tenant.getTenantId(), feeKeys.size(), assignedClientIds.size(), rebuilt.sizeBytes(),
+                System.currentTimeMillis() - startedAt);
+        return kept;
+    }
+
+    /**
+     * Adds the keys written by the current transaction, which moved the tenant to {@code ruleVersion},
+     * to the tenant's filter once it commits. Pass null when the write may have added CLIENT fees or
+     * assignments it cannot list, so the filter is rebuilt on the next catalogue load. Registered before
+     * the catalogue invalidation, so the reload that follows sees the keys.
+     */
+    public void addToFilterAfterCommit(String tenantId, long ruleVersion, long[] keys) {
+        if (!isFilterEnabled() || keys == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            addToFilter(tenantId, ruleVersion, keys);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                addToFilter(tenantId, ruleVersion, keys);
+            }
+        });
+    }
+
+    private void addToFilter(String tenantId, long ruleVersion, long[] keys) {
+        ClientKeyFilter filter = filters.get(tenantId);
+        if (filter != null) {
+            filter.addWritten(keys, ruleVersion);
+        }
+    }
+
+    /**
+     * False when the catalogue's filter rules out a CLIENT fee for the transaction type and channel and a
+     * template assignment for the client, so the cascade need not call {@link #get}.
+     */
+    boolean mightHold(TenantCatalogue catalogue, String clientId, TransactionType transactionType, Channel channel) {
+        ClientKeyFilter filter = catalogue.getClientKeyFilter();
+        if (filter == null) {
+            return true;
+        }
+        TenantStats stats = statsFor(catalogue.getTenant().getTenantId());
+        if (filter.mightHold(clientId, transactionType.getId(), channel.getId())) {
+            stats.filterPassed.increment();
+            return true;
+        }
+        stats.filterSkipped.increment();
+        return false;
+    }
+
+    /**
+     * The client's active CLIENT fees as of {@code catalogue}, loaded on a miss. Must run inside a
+     * transaction on the tenant's shard.
+     */
+    TenantCatalogue get(TenantCatalogue catalogue, String clientId) {
+        String tenantId = catalogue.getTenant().getTenantId();
+        TenantStats stats = statsFor(tenantId);
+        Node node = entries.get(new Key(tenantId, clientId));
+        if (node != null && node.generation == catalogue.getGeneration()) {
+            stats.hits.increment();
+            onHit(node);
+            return node.fees;
+        }
+
+        stats.misses.increment();
+        try {
+            return loads.load(new Flight(catalogue.getGeneration(), clientId),
+                    () -> load(catalogue, clientId, stats), loadTimeoutMillis);
+        } catch (SingleFlight.LoadTimeoutException e) {
+            if (node == null) {
+                throw e;
+            }
+            log.warn("Serving stale client fees for tenant: {}, client: {} - {}", tenantId, clientId, e.getMessage());
+            return node.fees;
+        }
+    }
+
+    /**
+     * The cached fees of the client as of {@code catalogue}, or null, without loading or counting a hit.
+     */
+    TenantCatalogue peek(TenantCatalogue catalogue, String clientId) {
+        Node node = entries.get(new Key(catalogue.getTenant().getTenantId(), clientId));
+        return node != null && node.generation == catalogue.getGeneration() ? node.fees : null;
+    }
+
+    private TenantCatalogue load(TenantCatalogue catalogue, String clientId, TenantStats stats) {
+        List<Fee> fees = feeRepository.findActiveClientFees(catalogue.getTenant(), clientId);
+        for (Fee fee : fees) {
+            Hibernate.initialize(fee.getChannels());
+            Hibernate.initialize(fee.getFeeRanges());
+            Hibernate.initialize(fee.getFeeSharers());
+        }
+        Map<String, String> assignment = clientTemplateAssignmentRepository
+                .findByTenantAndClientId(catalogue.getTenant(), clientId)
+                .map(found -> Map.of(clientId, found.getTemplateCode()))
+                .orElse(Map.of());
+        if (fees.isEmpty() && assignment.isEmpty() && catalogue.getClientKeyFilter() != null) {
+            stats.filterFalsePositives.increment();
+        }
+        TenantCatalogue clientFees = new TenantCatalogue(catalogue.getTenant(), fees, assignment,
+                System.currentTimeMillis(), catalogue.getRuleVersion(), sharerAllocationService, null, null, null);
+        put(new Key(catalogue.getTenant().getTenantId(), clientId), clientFees, catalogue.getGeneration(),
+                estimateBytes(clientId, fees, assignment), stats);
+        return clientFees;
+    }
+
+    private void put(Key key, TenantCatalogue fees, long generation, long weight, TenantStats stats) {
+        evictionLock.lock();
+        try {
+            sketch.increment(key);
+            Node existing = entries.get(key);
+            if (existing != null) {
+                if (existing.generation > generation) {
+                    return; // Loaded under a newer catalogue while this load ran
+                }
+                remove(existing);
+            }
+            if (weight > mainMaxBytes) {
+                stats.rejected.increment();
+                return; // Larger than the cache could ever hold; served uncached
+            }
+            Node node = new Node(key, fees, generation, weight, stats);
+            entries.put(key, node);
+            stats.entries.incrementAndGet();
+            stats.bytes.addAndGet(weight);
+            window.addLast(node);
+            while (window.bytes > windowMaxBytes) {
+                Node candidate = window.first;
+                window.unlink(candidate);
+                admit(candidate);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void onHit(Node node) {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            if (node.segment == null) {
+                return; // Evicted since it was read
+            }
+            sketch.increment(node.key);
+            if (node.segment == protectedSegment || node.segment == window) {
+                node.segment.moveToLast(node);
+                return;
+            }
+            probation.unlink(node);
+            protectedSegment.addLast(node);
+            while (protectedSegment.bytes > protectedMaxBytes) {
+                Node demoted = protectedSegment.first;
+                protectedSegment.unlink(demoted);
+                probation.addLast(demoted);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Moves an entry leaving the window into probation if it is used more often than every entry it
+     * displaces, probation's least recent first; otherwise evicts the entry itself.
+     */
+    private void admit(Node candidate) {
+        long needed = probation.bytes + protectedSegment.bytes + candidate.weight - mainMaxBytes;
+        if (needed > 0) {
+            int candidateFrequency = sketch.frequency(candidate.key);
+            long freed = 0;
+            Node lastVictim = null;
+            for (Node victim = firstVictim(); freed < needed && victim != null; victim = nextVictim(victim)) {
+                if (sketch.frequency(victim.key) >= candidateFrequency) {
+                    evict(candidate);
+                    return;
+                }
+                freed += victim.weight;
+                lastVictim = victim;
+            }
+            Node victim = firstVictim();
+            while (victim != null) {
+                Node next = victim == lastVictim ? null : nextVictim(victim);
+                evict(victim);
+                victim = next;
+            }
+        }
+        probation.addLast(candidate);
+    }
+
+    private Node firstVictim() {
+        return probation.first != null ? probation.first : protectedSegment.first;
+    }
+
+    private Node nextVictim(Node victim) {
+        if (victim.next != null) {
+            return victim.next;
+        }
+        return victim.segment == probation ? protectedSegment.first : null;
+    }
+
+    private void evict(Node node) {
+        remove(node);
+        node.stats.evictions.increment();
+    }
+
+    private void remove(Node node) {
+        if (node.segment != null) {
+            node.segment.unlink(node);
+        }
+        entries.remove(node.key, node);
+        node.stats.entries.decrementAndGet();
+        node.stats.bytes.addAndGet(-node.weight);
+    }
+
+    static long estimateBytes(String clientId, List<Fee> fees, Map<String, String> assignment) {
+        long bytes = ENTRY_BYTES + 2L * clientId.length();
+        for (String templateCode : assignment.values()) {
+            bytes += ASSIGNMENT_BYTES + 2L * templateCode.length();
+        }
+        for (Fee fee : fees) {
+            bytes += FEE_BYTES
+                    + 2L * (fee.getName() != null ? fee.getName().length() : 0)
+                    + 2L * (fee.getDescription() != null ? fee.getDescription().length() : 0)
+                    + CHANNEL_BYTES * fee.getChannels().size()
+                    + RANGE_BYTES * fee.getFeeRanges().size();
+            for (FeeSharer sharer : fee.getFeeSharers()) {
+                bytes += SHARER_BYTES + 2L * (sharer.getSharerId() != null ? sharer.getSharerId().length() : 0);
+            }
+        }
+        return bytes;
+    }
+
+    private TenantStats statsFor(String tenantId) {
+        TenantStats stats = tenantStats.get(tenantId);
+        return stats != null ? stats : tenantStats.computeIfAbsent(tenantId, this::newStats);
+    }
+
+    private TenantStats newStats(String tenantId) {
+        TenantStats stats = new TenantStats();
+        FunctionCounter.builder("fee.cache.client.hits", stats.hits, LongAdder::sum)
+                .tag("tenant", tenantId).register(meterRegistry);
+        FunctionCounter.builder("fee.cache.client.misses", stats.misses, LongAdder::sum)
+                .tag("tenant", tenantId).register(meterRegistry);
+        FunctionCounter.builder("fee.cache.client.evictions", stats.evictions, LongAdder::sum)
+                .tag("tenant", tenantId).register(meterRegistry);
+        FunctionCounter.builder("fee.cache.client.rejected", stats.rejected, LongAdder::sum)
+                .tag("tenant", tenantId).register(meterRegistry);
+        Gauge.builder("fee.cache.client.entries", stats.entries, AtomicLong::get)
+                .tag("tenant", tenantId).register(meterRegistry);
+        Gauge.builder("fee.cache.client.bytes", stats.bytes, AtomicLong::get)
+                .tag("tenant", tenantId).register(meterRegistry);
+        // Skip rate is skipped / (skipped + passed); false positives are passes whose load found nothing
+        FunctionCounter.builder("fee.cache.client.filter.skipped", stats.filterSkipped, LongAdder::sum)
+                .tag("tenant", tenantId).register(meterRegistry);
+        FunctionCounter.builder("fee.cache.client.filter.passed", stats.filterPassed, LongAdder::sum)
+                .tag("tenant", tenantId).register(meterRegistry);
+        FunctionCounter.builder("fee.cache.client.filter.false.positives", stats.filterFalsePositives, LongAdder::sum)
+                .tag("tenant", tenantId).register(meterRegistry);
+        FunctionCounter.builder("fee.cache.client.filter.rebuilds", stats.filterRebuilds, LongAdder::sum)
+                .tag("tenant", tenantId).register(meterRegistry);
+        Gauge.builder("fee.cache.client.filter.bytes", filters, map -> {
+                    ClientKeyFilter filter = map.get(tenantId);
+                    return filter != null ? filter.sizeBytes() : 0;
+                })
+                .tag("tenant", tenantId).register(meterRegistry);
+        return stats;
+    }
+
+    private record Key(String tenantId, String clientId) {
+    }
+
+    // Catalogue generations are unique across tenants, so the tenant is implied
+    private record Flight(long catalogueGeneration, String clientId) {
+    }
+
+    private static final class TenantStats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder filterSkipped = new LongAdder();
+        private final LongAdder filterPassed = new LongAdder();
+        private final LongAdder filterFalsePositives = new LongAdder();
+        private final LongAdder filterRebuilds = new LongAdder();
+        private final AtomicLong entries = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+    }
+
+    private static final class Node {
+        private final Key key;
+        private final TenantCatalogue fees;
+        private final long generation;
+        private final long weight;
+        private final TenantStats stats;
+        // Links, guarded by the eviction lock; segment is null once the node is unlinked for good
+        private Segment segment;
+        private Node prev;
+        private Node next;
+
+        private Node(Key key, TenantCatalogue fees, long generation, long weight, TenantStats stats) {
+            this.key = key;
+            this.fees = fees;
+            this.generation = generation;
+            this.weight = weight;
+            this.stats = stats;
+        }
+    }
+
+    /**
+     * An LRU list of nodes, least recently used first, with its total weight.
+     */
+    private static final class Segment {
+        private Node first;
+        private Node last;
+        private long bytes;
+
+        private void addLast(Node node) {
+            node.segment = this;
+            node.prev = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+            bytes += node.weight;
+        }
+
+        private void unlink(Node node) {
+            if (node.prev == null) {
+                first = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.segment = null;
+            bytes -= node.weight;
+        }
+
+        private void moveToLast(Node node) {
+            if (node != last) {
+                unlink(node);
+                addLast(node);
+            }
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit-saturating access counts over four rows. Every count is halved once the
+     * sketch has recorded ten times its width, so past popularity fades.
+     */
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+        private final byte[] counts;
+        private final int width;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(long expectedEntries) {
+            int entries = (int) Math.min(1 << 22, Math.max(64, expectedEntries));
+            this.width = Integer.highestOneBit(entries - 1) << 1;
+            this.counts = new byte[DEPTH * width];
+            this.sampleSize = 10 * width;
+        }
+
+        private int frequency(Object key) {
+            int hash = key.hashCode();
+            int frequency = Integer.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                frequency = Math.min(frequency, counts[index(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private void increment(Object key) {
+            int hash = key.hashCode();
+            boolean added = false;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = index(hash, row);
+                if (counts[index] < 15) {
+                    counts[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        private int index(int hash, int row) {
+            long spread = (hash + SEEDS[row]) * SEEDS[row];
+            spread += spread >>> 32;
+            return row * width + ((int) spread & (width - 1));
+        }
+    }
+}
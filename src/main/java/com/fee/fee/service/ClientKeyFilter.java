@@ -0,0 +1,137 @@
+package com.fee.fee.service;
+
+import com.fee.fee.domain.Channel;
+import com.fee.fee.domain.Fee;
+import com.fee.fee.enumeration.FeeType;
+
+import java.util.Collection;
+
+/**
+ * Blocked Bloom filter over what can make a tenant's CLIENT level match: a (client id, transaction type,
+ * channel) key for every channel of an active CLIENT fee, and a client-only key for every template
+ * assignment. A negative answer is certain, so the cascade can go past the {@link ClientFeeCache} for
+ * such a client without loading it.
+ * <p>
+ * Each key sets four bits of one 64-bit word chosen by its hash, so a probe is a single array read.
+ * Keys are only ever added: fees deactivated or moved to another client leave stale bits that cost a
+ * cache lookup, never a wrong answer, until the filter is rebuilt. A filter has room for as many keys
+ * again as it was built with; once writes have added more, it stops covering new rule versions and the
+ * next catalogue load rebuilds it.
+ * <p>
+ * Adds are serialised; probes read the words without locking. A probe racing an add can miss the new
+ * key, but only before the write has invalidated the tenant's catalogue, which is stale until then anyway.
+ */
+final class ClientKeyFilter {
+
+    static final long[] NO_KEYS = new long[0];
+
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MAX_WORDS = 1 << 24;
+
+    private final long[] words;
+    private final int mask;
+    private final long capacity;
+    // Guarded by this
+    private long keyCount;
+    // Every key of the tenant as of this rule version is in the filter
+    private volatile long coveredRuleVersion;
+
+    ClientKeyFilter(long expectedKeys, int bitsPerKey, long ruleVersion) {
+        this.capacity = Math.max(MIN_CAPACITY, 2 * expectedKeys);
+        long wanted = Math.min(MAX_WORDS, Math.max(16, capacity * bitsPerKey / Long.SIZE));
+        this.words = new long[Integer.highestOneBit((int) wanted - 1) << 1];
+        this.mask = words.length - 1;
+        this.coveredRuleVersion = ruleVersion;
+    }
+
+    /**
+     * Whether the filter holds every key the tenant had at {@code ruleVersion}.
+     */
+    boolean covers(long ruleVersion) {
+        return coveredRuleVersion >= ruleVersion;
+    }
+
+    /**
+     * False when the client certainly has neither a CLIENT fee for the transaction type and channel nor a
+     * template assignment.
+     */
+    boolean mightHold(String clientId, long transactionTypeId, long channelId) {
+        long clientHash = clientHash(clientId);
+        return mightContain(key(clientHash, 0, 0)) || mightContain(key(clientHash, transactionTypeId, channelId));
+    }
+
+    synchronized void add(long key) {
+        words[(int) (key >>> 32) & mask] |= bits(key);
+        keyCount++;
+    }
+
+    /**
+     * Adds the keys of a write that moved the tenant to {@code ruleVersion}. The filter then covers that
+     * version only if it covered the one before and still has room; otherwise it is left to be rebuilt.
+     */
+    synchronized void addWritten(long[] keys, long ruleVersion) {
+        for (long key : keys) {
+            add(key);
+        }
+        if (coveredRuleVersion == ruleVersion - 1 && keyCount <= capacity) {
+            coveredRuleVersion = ruleVersion;
+        }
+    }
+
+    long getCoveredRuleVersion() {
+        return coveredRuleVersion;
+    }
+
+    long sizeBytes() {
+        return (long) words.length * Long.BYTES;
+    }
+
+    static long[] keysOf(Fee fee) {
+        if (fee.getFeeType() != FeeType.CLIENT || fee.getClientId() == null || fee.getTransactionType() == null) {
+            return NO_KEYS;
+        }
+        long clientHash = clientHash(fee.getClientId());
+        long transactionTypeId = fee.getTransactionType().getId();
+        return fee.getChannels().stream()
+                .map(Channel::getId)
+                .mapToLong(channelId -> key(clientHash, transactionTypeId, channelId))
+                .toArray();
+    }
+
+    static long[] keysOfClients(Collection<String> clientIds) {
+        return clientIds.stream().mapToLong(ClientKeyFilter::clientKey).toArray();
+    }
+
+    static long feeKey(String clientId, long transactionTypeId, long channelId) {
+        return key(clientHash(clientId), transactionTypeId, channelId);
+    }
+
+    static long clientKey(String clientId) {
+        return key(clientHash(clientId), 0, 0);
+    }
+
+    private boolean mightContain(long key) {
+        long bits = bits(key);
+        return (words[(int) (key >>> 32) & mask] & bits) == bits;
+    }
+
+    private static long bits(long key) {
+        return 1L << key | 1L << (key >>> 6) | 1L << (key >>> 12) | 1L << (key >>> 18);
+    }
+
+    // FNV-1a; the key mixes it with the ids and spreads the result over all 64 bits
+    private static long clientHash(String clientId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < clientId.length(); i++) {
+            hash = (hash ^ clientId.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long key(long clientHash, long transactionTypeId, long channelId) {
+        long key = clientHash ^ transactionTypeId * 0x9E3779B97F4A7C15L ^ channelId * 0xC2B2AE3D27D4EB4FL;
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+}
@@ -0,0 +1,17 @@
+package com.fee.fee.service;
+
+import com.fee.fee.domain.Fee;
+
+/**
+ * A catalogue fee ready for evaluation: its amount evaluator and, for shared fees, its sharer split
+ * (null otherwise).
+ */
+record CompiledFee(FeeEvaluator evaluator, SharerSplit sharerSplit) {
+
+    static CompiledFee of(Fee fee, SharerAllocationService sharerAllocationService) {
+        SharerSplit sharerSplit = Boolean.TRUE.equals(fee.getIsShared()) && !fee.getFeeSharers().isEmpty()
+                ? sharerAllocationService.compile(fee)
+                : null;
+        return new CompiledFee(FeeEvaluator.compile(fee), sharerSplit);
+    }
+}
@@ -0,0 +1,34 @@
+package com.fee.fee.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dense, process-wide ordinals for reference-data ids (0, 1, 2, ... in order of first sight), so
+ * sets of channels or transaction types can be held as bitsets and array indexes. Ordinals are
+ * never reused or reassigned; ids are the same on every shard since reference data is replicated
+ * with its ids.
+ */
+final class DenseOrdinals {
+
+    private final ConcurrentHashMap<Long, Integer> ordinals = new ConcurrentHashMap<>();
+
+    /**
+     * The id's ordinal, assigning the next one on first sight.
+     */
+    synchronized int assign(Long id) {
+        Integer ordinal = ordinals.get(id);
+        if (ordinal == null) {
+            ordinal = ordinals.size();
+            ordinals.put(id, ordinal);
+        }
+        return ordinal;
+    }
+
+    /**
+     * The id's ordinal, or -1 when it has never been assigned (so nothing indexed can contain it).
+     */
+    int find(Long id) {
+        Integer ordinal = id == null ? null : ordinals.get(id);
+        return ordinal == null ? -1 : ordinal;
+    }
+}
@@ -0,0 +1,527 @@
+package com.fee.fee.service;
+
+import com.fee.fee.config.ApplicationProperties;
+import com.fee.fee.domain.FeeAmountRollup;
+import com.fee.fee.domain.FeeUsageRollup;
+import com.fee.fee.dto.AmountDistributionResponse;
+import com.fee.fee.dto.FeeAnalyticsResponse;
+import com.fee.fee.dto.FeeUsageResponse;
+import com.fee.fee.repository.FeeAmountRollupRepository;
+import com.fee.fee.repository.FeeUsageRollupRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.DataFormatException;
+
+/**
+ * Per-minute fee analytics fed from the calculation path: usage count and revenue per fee, and
+ * amount distribution (HdrHistogram), amount sum and revenue per (tenant, transaction type, channel).
+ * <p>
+ * Recording only touches {@link LongAdder}s and a {@link ConcurrentHistogram}, so it never blocks or
+ * reaches the database. A background flusher appends closed minutes to {@code fee_amount_rollups} and
+ * {@code fee_usage_rollups} in JDBC batches; it leaves the open minute and the one before it in
+ * memory so no calculation can still be writing to a bucket being persisted. Queries merge the
+ * persisted rows with the buckets still in memory. Minutes are UTC.
+ * <p>
+ * Like the sharer ledger, an abrupt stop loses whatever has not been flushed, and a failed flush puts
+ * its buckets back for the next cycle. These figures are for product analytics, not settlement.
+ */
+@Service
+@Slf4j
+public class FeeAnalyticsCollector {
+
+    private static final long MINUTE_MILLIS = 60_000;
+
+    private static final String INSERT_AMOUNT_SQL =
+            "INSERT INTO fee_amount_rollups (tenant_id, minute_start, transaction_type, channel, " +
+                    "calculation_count, amount_sum, revenue_sum, amount_histogram) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_USAGE_SQL =
+            "INSERT INTO fee_usage_rollups (tenant_id, minute_start, fee_id, usage_count, revenue_sum) " +
+                    "VALUES (?, ?, ?, ?, ?)";
+
+    private final ConcurrentHashMap<SeriesKey, SeriesBucket> series = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UsageKey, UsageBucket> usage = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder droppedRecords = new LongAdder();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final FeeAmountRollupRepository feeAmountRollupRepository;
+    private final FeeUsageRollupRepository feeUsageRollupRepository;
+    private final ApplicationProperties applicationProperties;
+    private final ApplicationProperties.AnalyticsConfig config;
+    private final int minorUnitScale;
+
+    private ScheduledExecutorService flusher;
+
+    public FeeAnalyticsCollector(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 FeeAmountRollupRepository feeAmountRollupRepository,
+                                 FeeUsageRollupRepository feeUsageRollupRepository,
+                                 ApplicationProperties applicationProperties,
+                                 MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.feeAmountRollupRepository = feeAmountRollupRepository;
+        this.feeUsageRollupRepository = feeUsageRollupRepository;
+        this.applicationProperties = applicationProperties;
+        this.config = applicationProperties.getAnalytics();
+        this.minorUnitScale = applicationProperties.getCalculation().getMinorUnitScale();
+
+        Gauge.builder("fee.analytics.pending.buckets", this, collector -> collector.series.size() + collector.usage.size())
+                .register(meterRegistry);
+        FunctionCounter.builder("fee.analytics.flushed.rows", flushedRows, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("fee.analytics.flush.failures", flushFailures, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("fee.analytics.records.dropped", droppedRecords, LongAdder::sum).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled()) {
+            log.info("Fee analytics disabled");
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fee-analytics-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(() -> flushQuietly(false),
+                config.getFlushIntervalMillis(), config.getFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+        log.info("Fee analytics started - Flush interval: {} ms", config.getFlushIntervalMillis());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        flushQuietly(true);
+    }
+
+    /**
+     * Adds one calculation to the current minute. Lock-free; called on the calculation path, after the
+     * fee has been charged, so it never throws: a calculation it cannot record, such as an amount too
+     * large for the unit counters, is counted as dropped instead.
+     */
+    public void record(String tenantId, String transactionType, String channel, Long feeId,
+                       BigDecimal amount, BigDecimal feeAmount) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        try {
+            long minute = System.currentTimeMillis() / MINUTE_MILLIS;
+            // Converted before touching a bucket, so an amount out of range leaves none half-updated
+            long revenueUnits = toUnits(feeAmount);
+            long amountUnits = toUnits(amount);
+            long minorUnits = toMinorUnits(amount);
+
+            seriesFor(new SeriesKey(tenantId, minute, transactionType, channel))
+                    .record(minorUnits, amountUnits, revenueUnits);
+            usageFor(new UsageKey(tenantId, minute, feeId)).record(revenueUnits);
+        } catch (RuntimeException e) {
+            droppedRecords.increment();
+            log.debug("Fee analytics dropped a calculation - Tenant: {}, Amount: {}, Fee: {}",
+                    tenantId, amount, feeAmount, e);
+        }
+    }
+
+    /**
+     * Amount distributions and fee usage of a tenant in [from, to), optionally narrowed to one
+     * transaction type and/or channel. Defaults to the last hour.
+     *
+     * @param perMinute keep one entry per minute instead of aggregating over the window
+     */
+    public FeeAnalyticsResponse getAnalytics(String tenantId, LocalDateTime from, LocalDateTime to,
+                                             String transactionType, String channel, boolean perMinute) {
+        String effectiveTenantId = tenantId != null && !tenantId.trim().isEmpty()
+                ? tenantId
+                : applicationProperties.getTenant().getDefaultTenantId();
+        LocalDateTime toTime = to != null ? to : LocalDateTime.now(ZoneOffset.UTC);
+        LocalDateTime fromTime = from != null ? from : toTime.minusHours(1);
+        if (!fromTime.isBefore(toTime)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        long fromMinute = Math.floorDiv(fromTime.toEpochSecond(ZoneOffset.UTC), 60);
+        long toMinute = Math.floorDiv(toTime.toEpochSecond(ZoneOffset.UTC) + 59, 60);
+
+        Map<SeriesKey, SeriesTotals> distributions = new TreeMap<>(SeriesKey.ORDER);
+        Map<UsageKey, UsageTotals> feeUsage = new TreeMap<>(UsageKey.ORDER);
+
+        flushLock.readLock().lock();
+        try {
+            List<FeeAmountRollup> amountRows = feeAmountRollupRepository
+                    .findByTenantIdAndMinuteStartGreaterThanEqualAndMinuteStartLessThan(
+                            effectiveTenantId, toDateTime(fromMinute), toDateTime(toMinute));
+            for (FeeAmountRollup row : amountRows) {
+                if (matches(row.getTransactionType(), row.getChannel(), transactionType, channel)) {
+                    long minute = row.getMinuteStart().toEpochSecond(ZoneOffset.UTC) / 60;
+                    totals(distributions, new SeriesKey(effectiveTenantId, perMinute ? minute : -1,
+                            row.getTransactionType(), row.getChannel()))
+                            .add(row.getCalculationCount(), row.getAmountSum(), row.getRevenueSum(),
+                                    decode(row.getAmountHistogram()));
+                }
+            }
+
+            List<FeeUsageRollup> usageRows = feeUsageRollupRepository
+                    .findByTenantIdAndMinuteStartGreaterThanEqualAndMinuteStartLessThan(
+                            effectiveTenantId, toDateTime(fromMinute), toDateTime(toMinute));
+            if (transactionType == null && channel == null) {
+                for (FeeUsageRollup row : usageRows) {
+                    long minute = row.getMinuteStart().toEpochSecond(ZoneOffset.UTC) / 60;
+                    usageTotals(feeUsage, new UsageKey(effectiveTenantId, perMinute ? minute : -1, row.getFeeId()))
+                            .add(row.getUsageCount(), row.getRevenueSum());
+                }
+            }
+
+            for (Map.Entry<SeriesKey, SeriesBucket> entry : series.entrySet()) {
+                SeriesKey key = entry.getKey();
+                if (key.tenantId().equals(effectiveTenantId) && key.minute() >= fromMinute && key.minute() < toMinute
+                        && matches(key.transactionType(), key.channel(), transactionType, channel)) {
+                    SeriesBucket bucket = entry.getValue();
+                    totals(distributions, new SeriesKey(effectiveTenantId, perMinute ? key.minute() : -1,
+                            key.transactionType(), key.channel()))
+                            .add(bucket.count.sum(), fromUnits(bucket.amountUnits.sum()),
+                                    fromUnits(bucket.revenueUnits.sum()), bucket.histogram.copy());
+                }
+            }
+
+            if (transactionType == null && channel == null) {
+                for (Map.Entry<UsageKey, UsageBucket> entry : usage.entrySet()) {
+                    UsageKey key = entry.getKey();
+                    if (key.tenantId().equals(effectiveTenantId) && key.minute() >= fromMinute && key.minute() < toMinute) {
+                        UsageBucket bucket = entry.getValue();
+                        usageTotals(feeUsage, new UsageKey(effectiveTenantId, perMinute ? key.minute() : -1, key.feeId()))
+                                .add(bucket.count.sum(), fromUnits(bucket.revenueUnits.sum()));
+                    }
+                }
+            }
+        } finally {
+            flushLock.readLock().unlock();
+        }
+
+        return FeeAnalyticsResponse.builder()
+                .tenantId(effectiveTenantId)
+                .from(fromTime)
+                .to(toTime)
+                .amountDistributions(distributions.entrySet().stream()
+                        .map(entry -> toResponse(entry.getKey(), entry.getValue()))
+                        .toList())
+                .feeUsage(feeUsage.entrySet().stream()
+                        .map(entry -> FeeUsageResponse.builder()
+                                .minuteStart(entry.getKey().minute() < 0 ? null : toDateTime(entry.getKey().minute()))
+                                .feeId(entry.getKey().feeId())
+                                .usageCount(entry.getValue().count)
+                                .revenueSum(entry.getValue().revenue)
+                                .build())
+                        .toList())
+                .build();
+    }
+
+    /**
+     * Appends closed minutes to the roll-up tables. Holding the write lock keeps queries from seeing
+     * a bucket both in memory and in the table, or in neither.
+     *
+     * @param includeOpenMinutes also persist the current and previous minute; only safe once
+     *                           calculations have stopped
+     */
+    public void flush(boolean includeOpenMinutes) {
+        long cutoff = includeOpenMinutes ? Long.MAX_VALUE : System.currentTimeMillis() / MINUTE_MILLIS - 1;
+
+        flushLock.writeLock().lock();
+        try {
+            List<Map.Entry<SeriesKey, SeriesBucket>> seriesRows = drain(series, cutoff);
+            List<Map.Entry<UsageKey, UsageBucket>> usageRows = drain(usage, cutoff);
+
+            int seriesWritten = 0;
+            int usageWritten = 0;
+            try {
+                while (seriesWritten < seriesRows.size()) {
+                    List<Map.Entry<SeriesKey, SeriesBucket>> chunk = seriesRows.subList(seriesWritten,
+                            Math.min(seriesWritten + config.getBatchSize(), seriesRows.size()));
+                    transactionTemplate.executeWithoutResult(status -> insertSeries(chunk));
+                    seriesWritten += chunk.size();
+                    flushedRows.add(chunk.size());
+                }
+                while (usageWritten < usageRows.size()) {
+                    List<Map.Entry<UsageKey, UsageBucket>> chunk = usageRows.subList(usageWritten,
+                            Math.min(usageWritten + config.getBatchSize(), usageRows.size()));
+                    transactionTemplate.executeWithoutResult(status -> insertUsage(chunk));
+                    usageWritten += chunk.size();
+                    flushedRows.add(chunk.size());
+                }
+            } catch (RuntimeException e) {
+                flushFailures.increment();
+                seriesRows.subList(seriesWritten, seriesRows.size())
+                        .forEach(entry -> series.merge(entry.getKey(), entry.getValue(), SeriesBucket::mergeFrom));
+                usageRows.subList(usageWritten, usageRows.size())
+                        .forEach(entry -> usage.merge(entry.getKey(), entry.getValue(), UsageBucket::mergeFrom));
+                log.warn("Fee analytics flush failed - {} buckets re-queued: {}",
+                        seriesRows.size() - seriesWritten + usageRows.size() - usageWritten, e.getMessage());
+            }
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    private void flushQuietly(boolean includeOpenMinutes) {
+        try {
+            flush(includeOpenMinutes);
+        } catch (RuntimeException e) {
+            log.error("Unexpected error flushing fee analytics", e);
+        }
+    }
+
+    private static <K extends MinuteKey, V> List<Map.Entry<K, V>> drain(ConcurrentHashMap<K, V> buckets, long cutoff) {
+        List<Map.Entry<K, V>> drained = new ArrayList<>();
+        for (K key : buckets.keySet()) {
+            if (key.minute() < cutoff) {
+                V bucket = buckets.remove(key);
+                if (bucket != null) {
+                    drained.add(Map.entry(key, bucket));
+                }
+            }
+        }
+        return drained;
+    }
+
+    private void insertSeries(List<Map.Entry<SeriesKey, SeriesBucket>> chunk) {
+        jdbcTemplate.batchUpdate(INSERT_AMOUNT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                SeriesKey key = chunk.get(i).getKey();
+                SeriesBucket bucket = chunk.get(i).getValue();
+                ps.setString(1, key.tenantId());
+                ps.setTimestamp(2, Timestamp.valueOf(toDateTime(key.minute())));
+                ps.setString(3, key.transactionType());
+                ps.setString(4, key.channel());
+                ps.setLong(5, bucket.count.sum());
+                ps.setBigDecimal(6, fromUnits(bucket.amountUnits.sum()));
+                ps.setBigDecimal(7, fromUnits(bucket.revenueUnits.sum()));
+                ps.setBytes(8, encode(bucket.histogram));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return chunk.size();
+            }
+        });
+    }
+
+    private void insertUsage(List<Map.Entry<UsageKey, UsageBucket>> chunk) {
+        jdbcTemplate.batchUpdate(INSERT_USAGE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                UsageKey key = chunk.get(i).getKey();
+                UsageBucket bucket = chunk.get(i).getValue();
+                ps.setString(1, key.tenantId());
+                ps.setTimestamp(2, Timestamp.valueOf(toDateTime(key.minute())));
+                ps.setLong(3, key.feeId());
+                ps.setLong(4, bucket.count.sum());
+                ps.setBigDecimal(5, fromUnits(bucket.revenueUnits.sum()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return chunk.size();
+            }
+        });
+    }
+
+    private AmountDistributionResponse toResponse(SeriesKey key, SeriesTotals totals) {
+        Histogram histogram = totals.histogram;
+        boolean empty = histogram.getTotalCount() == 0;
+        return AmountDistributionResponse.builder()
+                .minuteStart(key.minute() < 0 ? null : toDateTime(key.minute()))
+                .transactionType(key.transactionType())
+                .channel(key.channel())
+                .calculationCount(totals.count)
+                .amountSum(totals.amount)
+                .revenueSum(totals.revenue)
+                .minAmount(empty ? null : fromMinorUnits(histogram.getMinValue()))
+                .maxAmount(empty ? null : fromMinorUnits(histogram.getMaxValue()))
+                .meanAmount(empty ? null : BigDecimal.valueOf(histogram.getMean())
+                        .movePointLeft(minorUnitScale).setScale(minorUnitScale, RoundingMode.HALF_EVEN))
+                .p50Amount(empty ? null : fromMinorUnits(histogram.getValueAtPercentile(50)))
+                .p90Amount(empty ? null : fromMinorUnits(histogram.getValueAtPercentile(90)))
+                .p99Amount(empty ? null : fromMinorUnits(histogram.getValueAtPercentile(99)))
+                .build();
+    }
+
+    private SeriesTotals totals(Map<SeriesKey, SeriesTotals> totals, SeriesKey key) {
+        return totals.computeIfAbsent(key, k -> new SeriesTotals(config.getHistogramSignificantDigits()));
+    }
+
+    private UsageTotals usageTotals(Map<UsageKey, UsageTotals> totals, UsageKey key) {
+        return totals.computeIfAbsent(key, k -> new UsageTotals());
+    }
+
+    private SeriesBucket seriesFor(SeriesKey key) {
+        SeriesBucket bucket = series.get(key);
+        return bucket != null ? bucket
+                : series.computeIfAbsent(key, k -> new SeriesBucket(config.getHistogramSignificantDigits()));
+    }
+
+    private UsageBucket usageFor(UsageKey key) {
+        UsageBucket bucket = usage.get(key);
+        return bucket != null ? bucket : usage.computeIfAbsent(key, k -> new UsageBucket());
+    }
+
+    private static boolean matches(String rowTransactionType, String rowChannel, String transactionType, String channel) {
+        return (transactionType == null || transactionType.equals(rowTransactionType))
+                && (channel == null || channel.equals(rowChannel));
+    }
+
+    private static byte[] encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return Arrays.copyOf(buffer.array(), length);
+    }
+
+    private static Histogram decode(byte[] encoded) {
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(encoded), 0);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt amount histogram in fee_amount_rollups", e);
+        }
+    }
+
+    private static LocalDateTime toDateTime(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+
+    private long toUnits(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.setScale(config.getScale(), RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    private BigDecimal fromUnits(long units) {
+        return BigDecimal.valueOf(units, config.getScale());
+    }
+
+    private long toMinorUnits(BigDecimal amount) {
+        return Math.max(0, amount.setScale(minorUnitScale, RoundingMode.HALF_EVEN).unscaledValue().longValueExact());
+    }
+
+    private BigDecimal fromMinorUnits(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, minorUnitScale);
+    }
+
+    private interface MinuteKey {
+        long minute();
+    }
+
+    private record SeriesKey(String tenantId, long minute, String transactionType, String channel) implements MinuteKey {
+        static final Comparator<SeriesKey> ORDER = Comparator.comparingLong(SeriesKey::minute)
+                .thenComparing(SeriesKey::transactionType)
+                .thenComparing(SeriesKey::channel);
+    }
+
+    private record UsageKey(String tenantId, long minute, long feeId) implements MinuteKey {
+        static final Comparator<UsageKey> ORDER = Comparator.comparingLong(UsageKey::minute)
+                .thenComparingLong(UsageKey::feeId);
+    }
+
+    private static final class SeriesBucket {
+        final ConcurrentHistogram histogram;
+        final LongAdder count = new LongAdder();
+        final LongAdder amountUnits = new LongAdder();
+        final LongAdder revenueUnits = new LongAdder();
+
+        SeriesBucket(int significantDigits) {
+            // Auto-resizing, so no upper bound on amounts has to be configured
+            this.histogram = new ConcurrentHistogram(significantDigits);
+        }
+
+        void record(long minorUnits, long amount, long revenue) {
+            histogram.recordValue(minorUnits);
+            count.increment();
+            amountUnits.add(amount);
+            revenueUnits.add(revenue);
+        }
+
+        SeriesBucket mergeFrom(SeriesBucket other) {
+            histogram.add(other.histogram);
+            count.add(other.count.sum());
+            amountUnits.add(other.amountUnits.sum());
+            revenueUnits.add(other.revenueUnits.sum());
+            return this;
+        }
+    }
+
+    private static final class UsageBucket {
+        final LongAdder count = new LongAdder();
+        final LongAdder revenueUnits = new LongAdder();
+
+        void record(long revenue) {
+            count.increment();
+            revenueUnits.add(revenue);
+        }
+
+        UsageBucket mergeFrom(UsageBucket other) {
+            count.add(other.count.sum());
+            revenueUnits.add(other.revenueUnits.sum());
+            return this;
+        }
+    }
+
+    private static final class SeriesTotals {
+        final Histogram histogram;
+        long count;
+        BigDecimal amount = BigDecimal.ZERO;
+        BigDecimal revenue = BigDecimal.ZERO;
+
+        SeriesTotals(int significantDigits) {
+            this.histogram = new Histogram(significantDigits);
+        }
+
+        void add(long count, BigDecimal amount, BigDecimal revenue, Histogram histogram) {
+            this.count += count;
+            this.amount = this.amount.add(amount);
+            this.revenue = this.revenue.add(revenue);
+            this.histogram.add(histogram);
+        }
+    }
+
+    private static final class UsageTotals {
+        long count;
+        BigDecimal revenue = BigDecimal.ZERO;
+
+        void add(long count, BigDecimal revenue) {
+            this.count += count;
+            this.revenue = this.revenue.add(revenue);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.fee.fee.service;
+
+import com.fee.fee.Util.SingleFlight;
+import com.fee.fee.config.ApplicationProperties;
+import com.fee.fee.domain.Fee;
+import com.fee.fee.domain.Tenant;
+import com.fee.fee.enumeration.FeeType;
+import com.fee.fee.repository.ClientTemplateAssignmentRepository;
+import com.fee.fee.repository.FeeRepository;
+import com.fee.fee.repository.TenantRepository;
+import com.fee.fee.repository.TransactionTypeRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Per-tenant cache of active fees used by the calculation path.
+ * <p>
+ * Catalogues are loaded on first use (or by the startup preloader), invalidated after commit of
+ * any fee write on this node, and reloaded once older than {@code app.cache.catalogue-ttl-millis}
+ * so writes made through other nodes are picked up. Loading must run inside a transaction.
+ * <p>
+ * Concurrent misses for a tenant share one load: the first caller runs it inside the transaction it is
+ * already in, typically its calculation's, and the rest wait up to {@code app.cache.load-timeout-millis}
+ * for its result, falling back to the expired catalogue, if there is one, when the load takes longer.
+ * <p>
+ * A load is only cached if the tenant was not invalidated while it ran, and never over a catalogue of a
+ * newer rule version, so a load that read the fees before a write committed cannot put the old rules
+ * back after that write's invalidation.
+ * <p>
+ * When the {@link ClientFeeCache} is enabled, catalogues pin all but the CLIENT fees and leave those,
+ * and the clients' template assignments, to it.
+ */
+@Service
+@Slf4j
+public class FeeCatalogueCache {
+
+    private final ConcurrentHashMap<String, TenantCatalogue> catalogues = new ConcurrentHashMap<>();
+    private final SingleFlight<String, TenantCatalogue> loads = new SingleFlight<>();
+    // Bumped by every invalidation of the tenant, and of all tenants, so a load can tell it was overtaken
+    private final ConcurrentHashMap<String, AtomicLong> invalidations = new ConcurrentHashMap<>();
+    private final AtomicLong allInvalidations = new AtomicLong();
+    private final FeeRepository feeRepository;
+    private final ClientTemplateAssignmentRepository clientTemplateAssignmentRepository;
+    private final TenantRepository tenantRepository;
+    private final TransactionTypeRepository transactionTypeRepository;
+    private final SharerAllocationService sharerAllocationService;
+    private final OffHeapRuleStore offHeapRuleStore;
+    private final ClientFeeCache clientFeeCache;
+    private final long ttlMillis;
+    private final long loadTimeoutMillis;
+
+    public FeeCatalogueCache(FeeRepository feeRepository,
+                             ClientTemplateAssignmentRepository clientTemplateAssignmentRepository,
+                             TenantRepository tenantRepository,
+                             TransactionTypeRepository transactionTypeRepository,
+                             SharerAllocationService sharerAllocationService,
+                             OffHeapRuleStore offHeapRuleStore,
+                             ClientFeeCache clientFeeCache,
+                             ApplicationProperties applicationProperties,
+                             MeterRegistry meterRegistry) {
+        this.feeRepository = feeRepository;
+        this.clientTemplateAssignmentRepository = clientTemplateAssignmentRepository;
+        this.tenantRepository = tenantRepository;
+        this.transactionTypeRepository = transactionTypeRepository;
+        this.sharerAllocationService = sharerAllocationService;
+        this.offHeapRuleStore = offHeapRuleStore;
+        this.clientFeeCache = clientFeeCache;
+        this.ttlMillis = applicationProperties.getCache().getCatalogueTtlMillis();
+        this.loadTimeoutMillis = applicationProperties.getCache().getLoadTimeoutMillis();
+
+        FunctionCounter.builder("fee.cache.loads", loads, SingleFlight::getLoadCount)
+                .tag("cache", "catalogue").register(meterRegistry);
+        FunctionCounter.builder("fee.cache.loads.coalesced", loads, SingleFlight::getCoalescedCount)
+                .tag("cache", "catalogue").register(meterRegistry);
+        FunctionCounter.builder("fee.cache.loads.timeouts", loads, SingleFlight::getTimeoutCount)
+                .tag("cache", "catalogue").register(meterRegistry);
+    }
+
+    public TenantCatalogue get(String tenantId, Supplier<Tenant> tenantSupplier) {
+        TenantCatalogue catalogue = catalogues.get(tenantId);
+        if (catalogue != null && !isExpired(catalogue)) {
+            return catalogue;
+        }
+        try {
+            return loads.load(tenantId, () -> load(tenantSupplier.get()), loadTimeoutMillis);
+        } catch (SingleFlight.LoadTimeoutException e) {
+            if (catalogue == null) {
+                throw e;
+            }
+            log.warn("Serving expired fee catalogue for tenant: {} - {}", tenantId, e.getMessage());
+            return catalogue;
+        }
+    }
+
+    /**
+     * Returns the cached catalogue, expired or not, without loading.
+     */
+    public Optional<TenantCatalogue> peek(String tenantId) {
+        return Optional.ofNullable(catalogues.get(tenantId));
+    }
+
+    /**
+     * Like {@link #get} but with the tenant's CLIENT fees included, for callers that need every fee at
+     * once (the what-if simulator). Loaded without being cached when CLIENT fees are budgeted.
+     */
+    public TenantCatalogue getComplete(String tenantId, Supplier<Tenant> tenantSupplier) {
+        if (!clientFeeCache.isEnabled()) {
+            return get(tenantId, tenantSupplier);
+        }
+        return build(tenantSupplier.get(), false);
+    }
+
+    /**
+     * Loads and returns the tenant's catalogue, caching it unless the tenant was invalidated during the
+     * load or a catalogue of a newer rule version has been cached meanwhile.
+     */
+    public TenantCatalogue load(Tenant tenant) {
+        String tenantId = tenant.getTenantId();
+        long epoch = invalidationEpoch(tenantId);
+        TenantCatalogue catalogue = build(tenant, clientFeeCache.isEnabled());
+        // The epoch is re-read under the map's lock on the key, which invalidate() also takes to remove
+        catalogues.compute(tenantId, (id, cached) -> {
+            if (invalidationEpoch(id) != epoch) {
+                log.debug("Not caching fee catalogue for tenant: {} - Invalidated while loading", id);
+                return cached;
+            }
+            return cached != null && cached.getRuleVersion() > catalogue.getRuleVersion() ? cached : catalogue;
+        });
+        return catalogue;
+    }
+
+    private TenantCatalogue build(Tenant tenant, boolean budgetClientFees) {
+        long startedAt = System.currentTimeMillis();
+        // Read before the fees, so a write committed in between can only make the version look stale
+        long ruleVersion = tenantRepository.findRuleVersionByTenantId(tenant.getTenantId()).orElse(0L);
+
+        // Loading every transaction type first lets the fees' lazy associations resolve to real
+        // instances rather than proxies that cannot be initialised once detached
+        transactionTypeRepository.findAll();
+
+        List<Fee> activeFees = budgetClientFees
+                ? feeRepository.findByTenantAndIsActiveAndFeeTypeNot(tenant, true, FeeType.CLIENT)
+                : feeRepository.findByTenantAndIsActive(tenant, true);
+        for (Fee fee : activeFees) {
+            Hibernate.initialize(fee.getTransactionType());
+            Hibernate.initialize(fee.getChannels());
+            Hibernate.initialize(fee.getFeeRanges());
+            Hibernate.initialize(fee.getFeeSharers());
+        }
+        Map<String, String> templateAssignments = new HashMap<>();
+        if (!budgetClientFees) {
+            clientTemplateAssignmentRepository.findByTenant(tenant).forEach(assignment ->
+                    templateAssignments.put(assignment.getClientId(), assignment.getTemplateCode()));
+        }
+
+        // A complete catalogue built while CLIENT fees are budgeted is never cached, so it is not published
+        RuleSetFile ruleSet = budgetClientFees == clientFeeCache.isEnabled() ? offHeapRuleStore.attach(tenant, activeFees) : null;
+        ClientKeyFilter clientKeyFilter = budgetClientFees ? clientFeeCache.filterFor(tenant, ruleVersion) : null;
+        TenantCatalogue catalogue = new TenantCatalogue(tenant, activeFees, templateAssignments, startedAt,
+                ruleVersion, sharerAllocationService, ruleSet, budgetClientFees ? clientFeeCache : null, clientKeyFilter);
+
+        log.debug("Loaded fee catalogue for tenant: {} - Fees: {}, Mapped: {}, Template assignments: {}, Client fees: {}, Took: {} ms",
+                tenant.getTenantId(), activeFees.size(), catalogue.getMappedFeeCount(), templateAssignments.size(),
+                budgetClientFees ? "budgeted" : "included", System.currentTimeMillis() - startedAt);
+        return catalogue;
+    }
+
+    /**
+     * Caches a catalogue rebuilt from a snapshot rather than loaded, unless one has been loaded since.
+     * Returns null, caching nothing, when the snapshot lacks CLIENT fees this node keeps in its
+     * catalogues. A restored catalogue has no client key filter, so its clients are all looked up until
+     * the first reload.
+     */
+    public TenantCatalogue restore(RuleSnapshot.TenantRules rules, long restoredAtMillis) {
+        List<Fee> fees = rules.fees();
+        Map<String, String> templateAssignments = rules.templateAssignments();
+        if (clientFeeCache.isEnabled()) {
+            fees = fees.stream().filter(fee -> fee.getFeeType() != FeeType.CLIENT).toList();
+            templateAssignments = Map.of();
+        } else if (!rules.clientFeesIncluded()) {
+            return null;
+        }
+        TenantCatalogue catalogue = new TenantCatalogue(rules.tenant(), fees, templateAssignments, restoredAtMillis,
+                rules.ruleVersion(), sharerAllocationService, offHeapRuleStore.attach(rules.tenant(), fees),
+                clientFeeCache.isEnabled() ? clientFeeCache : null, null);
+        catalogues.putIfAbsent(rules.tenant().getTenantId(), catalogue);
+        return catalogue;
+    }
+
+    public void invalidate(String tenantId) {
+        // A load already running may have read the fees before the change: stop others joining it, and
+        // move the epoch on before removing so it cannot cache its result afterwards
+        invalidations.computeIfAbsent(tenantId, id -> new AtomicLong()).incrementAndGet();
+        loads.forget(tenantId);
+        catalogues.remove(tenantId);
+    }
+
+    public void invalidateAll() {
+        allInvalidations.incrementAndGet();
+        loads.forgetAll();
+        catalogues.clear();
+    }
+
+    /**
+     * Invalidates once the current transaction commits. Loads running at that point do not cache what
+     * they read, so a concurrent reload cannot re-cache the pre-commit state. Invalidates immediately
+     * when no transaction is active.
+     */
+    public void invalidateAfterCommit(String tenantId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(tenantId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(tenantId);
+            }
+        });
+    }
+
+    public Set<String> getCachedTenantIds() {
+        return Set.copyOf(catalogues.keySet());
+    }
+
+    private long invalidationEpoch(String tenantId) {
+        return invalidations.computeIfAbsent(tenantId, id -> new AtomicLong()).get() + allInvalidations.get();
+    }
+
+    private boolean isExpired(TenantCatalogue catalogue) {
+        return ttlMillis > 0 && System.currentTimeMillis() - catalogue.getLoadedAtMillis() > ttlMillis;
+    }
+}
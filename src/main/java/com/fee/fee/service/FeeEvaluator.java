@@ -0,0 +1,35 @@
+package com.fee.fee.service;
+
+import com.fee.fee.domain.Fee;
+
+import java.math.BigDecimal;
+
+/**
+ * A fee's amount calculation specialised for its calculation type, compiled once per catalogue load
+ * with everything that does not depend on the transaction amount (rate factors, sorted range
+ * tables) worked out up front. Evaluators are immutable and shared between threads; negative results
+ * are floored at zero by the caller.
+ */
+interface FeeEvaluator {
+
+    BigDecimal evaluate(BigDecimal amount);
+
+    static FeeEvaluator compile(Fee fee) {
+        return switch (fee.getCalculationType()) {
+            case FIXED -> new FixedFeeEvaluator(fee.getFixedAmount());
+            case PERCENTAGE -> new PercentageFeeEvaluator(fee.getPercentageRate() == null
+                    ? null : percentageToFraction(fee.getPercentageRate()));
+            case RANGED -> RangedFeeEvaluator.of(fee);
+            case TIERED -> TieredFeeEvaluator.of(fee);
+        };
+    }
+
+    /**
+     * Same value and scale as {@code rate.divide(100)}, which strips the exact quotient's trailing
+     * zeros down to the rate's own scale, without the cost of an exact division.
+     */
+    static BigDecimal percentageToFraction(BigDecimal rate) {
+        BigDecimal fraction = rate.movePointLeft(2).stripTrailingZeros();
+        return fraction.scale() < rate.scale() ? fraction.setScale(rate.scale()) : fraction;
+    }
+}
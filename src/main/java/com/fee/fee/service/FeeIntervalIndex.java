@@ -0,0 +1,213 @@
+package com.fee.fee.service;
+
+import com.fee.fee.domain.Channel;
+import com.fee.fee.domain.Fee;
+import com.fee.fee.domain.TransactionType;
+import com.fee.fee.enumeration.FeeType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Per-key index of fee versions by effective window, built once per catalogue load.
+ * <p>
+ * Fees are keyed by fee type, scope id (client, product or processor id or template code; none for
+ * DEFAULT) and transaction type. Each key holds its versions sorted by {@code validFrom} descending,
+ * open-ended starts last, so a lookup binary-searches to the newest version that has started and scans forward
+ * for one that has not yet ended and covers the channel. Staged versions therefore take over at their
+ * {@code validFrom} without any reload or write. Fees without a window keep their catalogue order.
+ * <p>
+ * Everything is flat and primitive so tenants with millions of scoped fees stay compact: scope ids
+ * are encoded by a {@link ScopeDictionary} and transaction types and channels by
+ * {@link DenseOrdinals}. Keys are sorted scope first, so a scope's keys are a run of slots found by
+ * indexing with its code, and each slot's versions are a run in parallel arrays of fees, windows and
+ * channel bitsets. Matching never hashes or compares the entities themselves.
+ */
+final class FeeIntervalIndex {
+
+    private static final DenseOrdinals TRANSACTION_TYPE_ORDINALS = new DenseOrdinals();
+    private static final DenseOrdinals CHANNEL_ORDINALS = new DenseOrdinals();
+
+    private static final Comparator<Fee> NEWEST_START_FIRST =
+            Comparator.comparing(Fee::getValidFrom, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private final ScopeDictionary scopes;
+    // Slots of scope code c are [scopeStart[c], scopeStart[c + 1])
+    private final int[] scopeStart;
+    // Slot s is (key, first version) at [2s, 2s + 1]; its versions end where slot s + 1's begin
+    private final int[] slotTable;
+    private final Fee[] fees;
+    // Both null when no fee has an effective window, which spares the common case two array reads
+    private final LocalDateTime[] validFrom;
+    private final LocalDateTime[] validTo;
+    // channelWords longs per version
+    private final int channelWords;
+    private final long[] channelBits;
+
+    FeeIntervalIndex(List<Fee> catalogueFees) {
+        int count = catalogueFees.size();
+        String[] scopeIdOf = new String[count];
+        List<String> scopeIds = new ArrayList<>();
+        Integer[] order = new Integer[count];
+        int indexed = 0;
+        boolean windowed = false;
+
+        for (int i = 0; i < count; i++) {
+            Fee fee = catalogueFees.get(i);
+            String scopeId = scopeId(fee);
+            if ((scopeId == null && fee.getFeeType() != FeeType.DEFAULT) || fee.getTransactionType() == null) {
+                continue; // never matched by the cascade
+            }
+            if (scopeId != null) {
+                scopeIds.add(scopeId);
+            }
+            scopeIdOf[i] = scopeId;
+            windowed |= fee.getValidFrom() != null || fee.getValidTo() != null;
+            order[indexed++] = i;
+        }
+        this.scopes = new ScopeDictionary(scopeIds);
+
+        long[] keyOf = new long[count];
+        int[][] channelOrdinalsOf = new int[count][];
+        int maxChannelOrdinal = 0;
+        for (int n = 0; n < indexed; n++) {
+            int i = order[n];
+            Fee fee = catalogueFees.get(i);
+            keyOf[i] = key(fee.getFeeType(), scopes.codeOf(scopeIdOf[i]),
+                    TRANSACTION_TYPE_ORDINALS.assign(fee.getTransactionType().getId()));
+            channelOrdinalsOf[i] = fee.getChannels().stream()
+                    .mapToInt(channel -> CHANNEL_ORDINALS.assign(channel.getId()))
+                    .toArray();
+            for (int ordinal : channelOrdinalsOf[i]) {
+                maxChannelOrdinal = Math.max(maxChannelOrdinal, ordinal);
+            }
+        }
+
+        // Group by key, newest start first within a key; the sort is stable, so ties keep catalogue order
+        Integer[] sorted = Arrays.copyOf(order, indexed);
+        Arrays.sort(sorted, Comparator.<Integer>comparingLong(i -> keyOf[i])
+                .thenComparing(catalogueFees::get, NEWEST_START_FIRST));
+
+        this.fees = new Fee[indexed];
+        this.validFrom = windowed ? new LocalDateTime[indexed] : null;
+        this.validTo = windowed ? new LocalDateTime[indexed] : null;
+        this.channelWords = (maxChannelOrdinal >>> 6) + 1;
+        this.channelBits = new long[indexed * channelWords];
+        this.scopeStart = new int[scopes.codeBound() + 1];
+
+        int[] table = new int[indexed * 2 + 2];
+        int slots = 0;
+        int scope = -1;
+        for (int v = 0; v < indexed; v++) {
+            int i = sorted[v];
+            if (v == 0 || keyOf[i] != keyOf[sorted[v - 1]]) {
+                for (int code = (int) (keyOf[i] >>> 32); scope < code; ) {
+                    scopeStart[++scope] = slots;
+                }
+                table[slots * 2] = (int) keyOf[i];
+                table[slots * 2 + 1] = v;
+                slots++;
+            }
+            fees[v] = catalogueFees.get(i);
+            if (windowed) {
+                validFrom[v] = fees[v].getValidFrom();
+                validTo[v] = fees[v].getValidTo();
+            }
+            for (int ordinal : channelOrdinalsOf[i]) {
+                channelBits[v * channelWords + (ordinal >>> 6)] |= 1L << ordinal;
+            }
+        }
+        while (scope < scopeStart.length - 1) {
+            scopeStart[++scope] = slots;
+        }
+        table[slots * 2 + 1] = indexed;
+        this.slotTable = Arrays.copyOf(table, slots * 2 + 2);
+    }
+
+    /**
+     * The code to look a scope id up with: {@link ScopeDictionary#NO_SCOPE} for null, or
+     * {@link ScopeDictionary#UNKNOWN} when no fee is scoped to the id.
+     */
+    int scopeCode(String scopeId) {
+        return scopes.codeOf(scopeId);
+    }
+
+    Fee find(FeeType feeType, int scopeCode, TransactionType transactionType, Channel channel, LocalDateTime at) {
+        if (scopeCode == ScopeDictionary.UNKNOWN) {
+            return null;
+        }
+        int transactionTypeOrdinal = TRANSACTION_TYPE_ORDINALS.find(transactionType.getId());
+        int slot = transactionTypeOrdinal < 0 ? -1 : slotOf(scopeCode, (int) key(feeType, 0, transactionTypeOrdinal));
+        int channelOrdinal = CHANNEL_ORDINALS.find(channel.getId());
+        if (slot < 0 || channelOrdinal < 0 || (channelOrdinal >>> 6) >= channelWords) {
+            return null;
+        }
+
+        int word = channelOrdinal >>> 6;
+        long bit = 1L << channelOrdinal;
+        int end = slotTable[slot * 2 + 3];
+        if (validFrom == null) {
+            for (int v = slotTable[slot * 2 + 1]; v < end; v++) {
+                if ((channelBits[v * channelWords + word] & bit) != 0) {
+                    return fees[v];
+                }
+            }
+            return null;
+        }
+        for (int v = firstStartedBy(slotTable[slot * 2 + 1], end, at); v < end; v++) {
+            if ((channelBits[v * channelWords + word] & bit) != 0
+                    && (validTo[v] == null || at.isBefore(validTo[v]))) {
+                return fees[v];
+            }
+        }
+        return null;
+    }
+
+    private int slotOf(int scopeCode, int key) {
+        for (int slot = scopeStart[scopeCode], end = scopeStart[scopeCode + 1]; slot < end; slot++) {
+            if (slotTable[slot * 2] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Index of the first version in {@code [from, to)} whose {@code validFrom} is at or before
+     * {@code at}; versions before it have not started yet.
+     */
+    private int firstStartedBy(int from, int to, LocalDateTime at) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (validFrom[mid] != null && validFrom[mid].isAfter(at)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    static String scopeId(Fee fee) {
+        return switch (fee.getFeeType()) {
+            case CLIENT -> fee.getClientId();
+            case PRODUCT -> fee.getProductId();
+            case PROCESSOR -> fee.getProcessorId();
+            case TEMPLATE -> fee.getTemplateCode();
+            case DEFAULT -> null;
+        };
+    }
+
+    /**
+     * Scope code in the high word, fee type and transaction-type ordinal in the low word, so sorting by
+     * key groups each scope's keys together.
+     */
+    private static long key(FeeType feeType, int scopeCode, int transactionTypeOrdinal) {
+        return ((long) scopeCode << 32) | ((long) feeType.ordinal() << 28) | transactionTypeOrdinal;
+    }
+}
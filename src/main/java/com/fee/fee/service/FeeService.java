@@ -1,17 +1,30 @@
 package com.fee.fee.service;
 
 import com.fee.fee.Util.CorrelationIdContext;
+import com.fee.fee.Util.TenantShardContext;
 import com.fee.fee.config.ApplicationProperties;
 import com.fee.fee.domain.*;
 import com.fee.fee.dto.*;
+import com.fee.fee.enumeration.BulkFeeOperation;
 import com.fee.fee.enumeration.FeeCalculationType;
 import com.fee.fee.enumeration.FeeType;
+import com.fee.fee.enumeration.LogEventType;
+import com.fee.fee.logging.StructuredEventLogger;
 import com.fee.fee.repository.*;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -20,13 +33,30 @@ import java.util.stream.Collectors;
 @Slf4j
 public class FeeService {
 
+    // Client ids per query when assigning templates, to keep IN lists bounded
+    private static final int ASSIGNMENT_BATCH_SIZE = 1000;
+    private static final String INSERT_ASSIGNMENT_SQL =
+            "INSERT INTO client_template_assignments (tenant_id, client_id, template_code, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?)";
+
     private final FeeRepository feeRepository;
     private final TenantRepository tenantRepository;
     private final TransactionTypeRepository transactionTypeRepository;
     private final ChannelRepository channelRepository;
     private final FeeRangeRepository feeRangeRepository;
     private final FeeSharerRepository feeSharerRepository;
+    private final ClientTemplateAssignmentRepository clientTemplateAssignmentRepository;
     private final ApplicationProperties applicationProperties;
+    private final StructuredEventLogger eventLogger;
+    private final SharerAllocationService sharerAllocationService;
+    private final SharerEarningsLedger sharerEarningsLedger;
+    private final CalculationAuditTrail calculationAuditTrail;
+    private final FeeAnalyticsCollector feeAnalyticsCollector;
+    private final FeeCatalogueCache feeCatalogueCache;
+    private final ClientFeeCache clientFeeCache;
+    private final ReferenceDataCache referenceDataCache;
+    private final TenantShardDirectory tenantShardDirectory;
+    private final JdbcTemplate jdbcTemplate;
 
     public FeeService(FeeRepository feeRepository,
                       TenantRepository tenantRepository,
@@ -34,20 +64,43 @@ public class FeeService {
                       ChannelRepository channelRepository,
                       FeeRangeRepository feeRangeRepository,
                       FeeSharerRepository feeSharerRepository,
-                      ApplicationProperties applicationProperties) {
+                      ClientTemplateAssignmentRepository clientTemplateAssignmentRepository,
+                      ApplicationProperties applicationProperties,
+                      StructuredEventLogger eventLogger,
+                      SharerAllocationService sharerAllocationService,
+                      SharerEarningsLedger sharerEarningsLedger,
+                      CalculationAuditTrail calculationAuditTrail,
+                      FeeAnalyticsCollector feeAnalyticsCollector,
+                      FeeCatalogueCache feeCatalogueCache,
+                      ClientFeeCache clientFeeCache,
+                      ReferenceDataCache referenceDataCache,
+                      TenantShardDirectory tenantShardDirectory,
+                      JdbcTemplate jdbcTemplate) {
         this.feeRepository = feeRepository;
         this.tenantRepository = tenantRepository;
         this.transactionTypeRepository = transactionTypeRepository;
         this.channelRepository = channelRepository;
         this.feeRangeRepository = feeRangeRepository;
         this.feeSharerRepository = feeSharerRepository;
+        this.clientTemplateAssignmentRepository = clientTemplateAssignmentRepository;
         this.applicationProperties = applicationProperties;
+        this.eventLogger = eventLogger;
+        this.sharerAllocationService = sharerAllocationService;
+        this.sharerEarningsLedger = sharerEarningsLedger;
+        this.calculationAuditTrail = calculationAuditTrail;
+        this.feeAnalyticsCollector = feeAnalyticsCollector;
+        this.feeCatalogueCache = feeCatalogueCache;
+        this.clientFeeCache = clientFeeCache;
+        this.referenceDataCache = referenceDataCache;
+        this.tenantShardDirectory = tenantShardDirectory;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     public Fee createFee(String tenantId, CreateFeeRequest request) {
         String correlationId = CorrelationIdContext.getCorrelationId();
 
         String effectiveTenantId = getEffectiveTenantId(tenantId, request.getTenantId());
+        tenantShardDirectory.assertWritable(effectiveTenantId);
         log.info("Creating fee for tenant: {} - Correlation ID: {}", effectiveTenantId, correlationId);
 
         Tenant tenant = getOrCreateTenant(effectiveTenantId, correlationId);
@@ -73,6 +126,7 @@ public class FeeService {
 
         // Validate fee type specific requirements
         validateFeeRequest(request, correlationId);
+        validateEffectiveWindow(request.getValidFrom(), request.getValidTo());
 
         // Validate fee sharers if fee is shared
         if (request.getIsShared() && request.getFeeSharers() != null) {
@@ -87,6 +141,8 @@ public class FeeService {
                 .description(request.getDescription())
                 .transactionType(transactionType)
                 .isShared(request.getIsShared())
+                .validFrom(request.getValidFrom())
+                .validTo(request.getValidTo())
                 .build();
 
         // Set channels
@@ -100,8 +156,8 @@ public class FeeService {
 
         Fee savedFee = feeRepository.save(fee);
 
-        // Create fee ranges for RANGED calculation type
-        if (request.getCalculationType() == FeeCalculationType.RANGED &&
+        // Create fee ranges for RANGED and TIERED calculation types
+        if (usesFeeRanges(request.getCalculationType()) &&
                 request.getFeeRanges() != null) {
             createFeeRanges(savedFee, request.getFeeRanges());
         }
@@ -111,13 +167,39 @@ public class FeeService {
             createFeeSharers(savedFee, request.getFeeSharers(), correlationId);
         }
 
+        ruleSetChanged(effectiveTenantId, ClientKeyFilter.keysOf(savedFee));
+
         log.info("Fee created successfully with ID: {} - Correlation ID: {}",
                 savedFee.getId(), correlationId);
 
         return savedFee;
     }
 
+    /**
+     * Bumps the tenant's rule version in the writing transaction and drops its cached catalogue once
+     * that commits. {@code addedClientKeys} are the {@link ClientKeyFilter} keys the write may have added,
+     * or null when it cannot tell, which has the tenant's filter rebuilt.
+     */
+    private void ruleSetChanged(String tenantId, long[] addedClientKeys) {
+        // Rolls the write back if a shard move froze the tenant after assertWritable let it through
+        if (tenantRepository.incrementRuleVersion(tenantId) == 0) {
+            throw new IllegalArgumentException("Tenant " + tenantId + " is being moved between shards; retry shortly");
+        }
+        if (clientFeeCache.isFilterEnabled()) {
+            clientFeeCache.addToFilterAfterCommit(tenantId,
+                    tenantRepository.findRuleVersionByTenantId(tenantId).orElse(0L), addedClientKeys);
+        }
+        feeCatalogueCache.invalidateAfterCommit(tenantId);
+    }
+
     private String getEffectiveTenantId(String methodTenantId, String requestTenantId) {
+        String effectiveTenantId = resolveEffectiveTenantId(methodTenantId, requestTenantId);
+        // Route this transaction's first statement, and everything after it, to the tenant's shard
+        TenantShardContext.setShard(tenantShardDirectory.resolve(effectiveTenantId));
+        return effectiveTenantId;
+    }
+
+    private String resolveEffectiveTenantId(String methodTenantId, String requestTenantId) {
         // Priority: Method parameter > Request body > Default from properties
         if (methodTenantId != null && !methodTenantId.trim().isEmpty()) {
             return methodTenantId;
@@ -198,10 +280,11 @@ public class FeeService {
                 }
                 break;
             case RANGED:
+            case TIERED:
                 if (request.getFeeRanges() == null || request.getFeeRanges().isEmpty()) {
-                    throw new IllegalArgumentException("Fee ranges must be provided for RANGED fees");
+                    throw new IllegalArgumentException("Fee ranges must be provided for " + request.getCalculationType() + " fees");
                 }
-                validateFeeRanges(request.getFeeRanges(), correlationId);
+                validateFeeRanges(request.getFeeRanges(), request.getCalculationType(), correlationId);
                 break;
         }
 
@@ -222,13 +305,40 @@ public class FeeService {
                     throw new IllegalArgumentException("clientId must be provided for CLIENT fees");
                 }
                 break;
+            case TEMPLATE:
+                if (request.getTemplateCode() == null) {
+                    throw new IllegalArgumentException("templateCode must be provided for TEMPLATE fees");
+                }
+                break;
             case DEFAULT:
                 // No specific references needed for default fees
                 break;
         }
     }
 
-    private void validateFeeRanges(List<FeeRangeRequest> feeRanges, String correlationId) {
+    private void validateEffectiveWindow(LocalDateTime validFrom, LocalDateTime validTo) {
+        if (validFrom != null && validTo != null && !validFrom.isBefore(validTo)) {
+            throw new IllegalArgumentException("Valid from must be before valid to");
+        }
+    }
+
+    private LocalDateTime parseDateTime(String field, Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value.toString());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date-time for " + field + ": " + value);
+        }
+    }
+
+    private static boolean usesFeeRanges(FeeCalculationType calculationType) {
+        return calculationType == FeeCalculationType.RANGED || calculationType == FeeCalculationType.TIERED;
+    }
+
+    private void validateFeeRanges(List<FeeRangeRequest> feeRanges, FeeCalculationType calculationType,
+                                   String correlationId) {
         List<FeeRangeRequest> sortedRanges = feeRanges.stream()
                 .sorted(Comparator.comparing(FeeRangeRequest::getMinAmount))
                 .collect(Collectors.toList());
@@ -244,6 +354,16 @@ public class FeeService {
                 throw new IllegalArgumentException("Amount must be provided and non-negative for all ranges");
             }
 
+            if (calculationType == FeeCalculationType.TIERED) {
+                // Marginal tiers price every slice of the amount, so they must start at zero and carry a rate
+                if (i == 0 && current.getMinAmount().compareTo(BigDecimal.ZERO) != 0) {
+                    throw new IllegalArgumentException("The first tier must start at 0 for TIERED fees");
+                }
+                if (current.getRate() == null || current.getRate().compareTo(BigDecimal.ZERO) < 0) {
+                    throw new IllegalArgumentException("Rate must be provided and non-negative for all TIERED ranges");
+                }
+            }
+
             if (i < sortedRanges.size() - 1) {
                 FeeRangeRequest next = sortedRanges.get(i + 1);
 
@@ -311,6 +431,7 @@ public class FeeService {
                 fee.setPercentageRate(request.getPercentageRate());
                 break;
             case RANGED:
+            case TIERED:
                 // Ranges are handled separately
                 break;
         }
@@ -327,6 +448,9 @@ public class FeeService {
             case CLIENT:
                 fee.setClientId(request.getClientId());
                 break;
+            case TEMPLATE:
+                fee.setTemplateCode(request.getTemplateCode());
+                break;
             case DEFAULT:
                 // No specific references for default fees
                 break;
@@ -388,6 +512,7 @@ public class FeeService {
         String correlationId = CorrelationIdContext.getCorrelationId();
 
         String effectiveTenantId = getEffectiveTenantId(tenantId, null);
+        tenantShardDirectory.assertWritable(effectiveTenantId);
         Fee fee = getFeeByIdAndTenant(id, effectiveTenantId)
                 .orElseThrow(() -> {
                     log.warn("Fee not found: {} for tenant: {} - Correlation ID: {}", id, effectiveTenantId, correlationId);
@@ -396,6 +521,7 @@ public class FeeService {
 
         fee.setIsActive(true);
         Fee updatedFee = feeRepository.save(fee);
+        ruleSetChanged(effectiveTenantId, ClientKeyFilter.keysOf(updatedFee));
 
         log.info("Fee activated: {} for tenant: {} - Correlation ID: {}", id, effectiveTenantId, correlationId);
         return updatedFee;
@@ -405,6 +531,7 @@ public class FeeService {
         String correlationId = CorrelationIdContext.getCorrelationId();
 
         String effectiveTenantId = getEffectiveTenantId(tenantId, null);
+        tenantShardDirectory.assertWritable(effectiveTenantId);
         Fee fee = getFeeByIdAndTenant(id, effectiveTenantId)
                 .orElseThrow(() -> {
                     log.warn("Fee not found: {} for tenant: {} - Correlation ID: {}", id, effectiveTenantId, correlationId);
@@ -413,6 +540,7 @@ public class FeeService {
 
         fee.setIsActive(false);
         Fee updatedFee = feeRepository.save(fee);
+        ruleSetChanged(effectiveTenantId, ClientKeyFilter.NO_KEYS);
 
         log.info("Fee deactivated: {} for tenant: {} - Correlation ID: {}", id, effectiveTenantId, correlationId);
         return updatedFee;
@@ -422,6 +550,7 @@ public class FeeService {
         String correlationId = CorrelationIdContext.getCorrelationId();
 
         String effectiveTenantId = getEffectiveTenantId(tenantId, null);
+        tenantShardDirectory.assertWritable(effectiveTenantId);
         Fee fee = getFeeByIdAndTenant(id, effectiveTenantId)
                 .orElseThrow(() -> {
                     log.warn("Fee not found: {} for tenant: {} - Correlation ID: {}", id, effectiveTenantId, correlationId);
@@ -435,11 +564,11 @@ public class FeeService {
         // Validate new sharers
         validateFeeSharers(sharerRequests, correlationId);
 
-        // Remove existing sharers
-        feeSharerRepository.deleteByFeeId(fee.getId());
-
-        // Add new sharers
-        createFeeSharers(fee, sharerRequests, correlationId);
+        // Apply only the sharer rows that changed
+        if (updateFeeSharers(fee, sharerRequests, correlationId)) {
+            touch(fee);
+        }
+        ruleSetChanged(effectiveTenantId, ClientKeyFilter.NO_KEYS);
 
         log.info("Updated fee sharers for fee ID: {} - Correlation ID: {}", id, correlationId);
         return fee;
@@ -467,6 +596,7 @@ public class FeeService {
         String correlationId = CorrelationIdContext.getCorrelationId();
 
         String effectiveTenantId = getEffectiveTenantId(tenantId, null);
+        tenantShardDirectory.assertWritable(effectiveTenantId);
         log.info("Updating fee ID: {} for tenant: {} - Correlation ID: {}", id, effectiveTenantId, correlationId);
 
         Tenant tenant = getOrCreateTenant(effectiveTenantId, correlationId);
@@ -479,6 +609,13 @@ public class FeeService {
                     return new IllegalArgumentException("Fee not found");
                 });
 
+        // Reject edits based on a version someone else has since replaced
+        if (request.getVersion() != null && !request.getVersion().equals(existingFee.getVersion())) {
+            log.warn("Stale fee update: {} at version {}, current {} - Correlation ID: {}",
+                    id, request.getVersion(), existingFee.getVersion(), correlationId);
+            throw new ObjectOptimisticLockingFailureException(Fee.class, id);
+        }
+
         // Validate fee name uniqueness per tenant (excluding current fee)
         if (!existingFee.getName().equals(request.getName()) &&
                 feeRepository.existsByTenantAndNameAndIdNot(tenant, request.getName(), id)) {
@@ -501,6 +638,7 @@ public class FeeService {
 
         // Validate fee type specific requirements for update
         validateUpdateFeeRequest(request, existingFee.getFeeType(), existingFee.getCalculationType(), correlationId);
+        validateEffectiveWindow(request.getValidFrom(), request.getValidTo());
 
         // Validate fee sharers if fee is shared
         if (request.getIsShared() && request.getFeeSharers() != null) {
@@ -513,10 +651,14 @@ public class FeeService {
         existingFee.setTransactionType(transactionType);
         existingFee.setIsShared(request.getIsShared());
         existingFee.setIsActive(request.getIsActive());
+        existingFee.setValidFrom(request.getValidFrom());
+        existingFee.setValidTo(request.getValidTo());
 
-        // Update channels - clear existing and add new ones
-        existingFee.getChannels().clear();
-        channels.forEach(existingFee::addChannel);
+        // Update channels - replaced only when the set differs, as a rewritten collection bumps the version
+        if (!channelIds(existingFee.getChannels()).equals(channelIds(channels))) {
+            existingFee.getChannels().clear();
+            channels.forEach(existingFee::addChannel);
+        }
 
         // Update calculation type specific fields
         updateCalculationSpecificFields(existingFee, request, existingFee.getCalculationType());
@@ -524,20 +666,25 @@ public class FeeService {
         // Update fee type specific references
         updateFeeTypeSpecificReferences(existingFee, request, existingFee.getFeeType());
 
-        // Update fee ranges for RANGED calculation type
-        if (existingFee.getCalculationType() == FeeCalculationType.RANGED) {
-            updateFeeRanges(existingFee, request.getFeeRanges(), correlationId);
+        // Update fee ranges for RANGED and TIERED calculation types
+        boolean childrenChanged = false;
+        if (usesFeeRanges(existingFee.getCalculationType())) {
+            childrenChanged = updateFeeRanges(existingFee, request.getFeeRanges(), correlationId);
         }
 
         // Update fee sharers if fee is shared
         if (request.getIsShared()) {
-            updateFeeSharers(existingFee, request.getFeeSharers(), correlationId);
+            childrenChanged |= updateFeeSharers(existingFee, request.getFeeSharers(), correlationId);
         } else {
             // Remove all sharers if fee is no longer shared
-            removeFeeSharers(existingFee, correlationId);
+            childrenChanged |= removeFeeSharers(existingFee, correlationId);
+        }
+        if (childrenChanged) {
+            touch(existingFee);
         }
 
         Fee updatedFee = feeRepository.save(existingFee);
+        ruleSetChanged(effectiveTenantId, ClientKeyFilter.keysOf(updatedFee));
 
         log.info("Fee updated successfully with ID: {} - Correlation ID: {}", updatedFee.getId(), correlationId);
 
@@ -574,10 +721,11 @@ public class FeeService {
                 }
                 break;
             case RANGED:
+            case TIERED:
                 if (request.getFeeRanges() == null || request.getFeeRanges().isEmpty()) {
-                    throw new IllegalArgumentException("Fee ranges must be provided for RANGED fees");
+                    throw new IllegalArgumentException("Fee ranges must be provided for " + existingCalculationType + " fees");
                 }
-                validateFeeRanges(request.getFeeRanges(), correlationId);
+                validateFeeRanges(request.getFeeRanges(), existingCalculationType, correlationId);
                 break;
         }
 
@@ -598,6 +746,11 @@ public class FeeService {
                     throw new IllegalArgumentException("clientId must be provided for CLIENT fees");
                 }
                 break;
+            case TEMPLATE:
+                if (request.getTemplateCode() == null) {
+                    throw new IllegalArgumentException("templateCode must be provided for TEMPLATE fees");
+                }
+                break;
             case DEFAULT:
                 // No specific references needed for default fees
                 break;
@@ -617,6 +770,7 @@ public class FeeService {
                 fee.setPercentageRate(request.getPercentageRate());
                 break;
             case RANGED:
+            case TIERED:
                 // Ranges are handled separately
                 break;
         }
@@ -627,6 +781,7 @@ public class FeeService {
         fee.setProductId(null);
         fee.setProcessorId(null);
         fee.setClientId(null);
+        fee.setTemplateCode(null);
 
         switch (feeType) {
             case PRODUCT:
@@ -638,81 +793,127 @@ public class FeeService {
             case CLIENT:
                 fee.setClientId(request.getClientId());
                 break;
+            case TEMPLATE:
+                fee.setTemplateCode(request.getTemplateCode());
+                break;
             case DEFAULT:
                 // No specific references for default fees
                 break;
         }
     }
 
-    private void updateFeeRanges(Fee fee, List<FeeRangeRequest> rangeRequests, String correlationId) {
+    private boolean updateFeeRanges(Fee fee, List<FeeRangeRequest> rangeRequests, String correlationId) {
         if (rangeRequests == null || rangeRequests.isEmpty()) {
-            log.warn("No fee ranges provided for RANGED fee update - Correlation ID: {}", correlationId);
-            throw new IllegalArgumentException("Fee ranges must be provided for RANGED fees");
+            log.warn("No fee ranges provided for {} fee update - Correlation ID: {}", fee.getCalculationType(), correlationId);
+            throw new IllegalArgumentException("Fee ranges must be provided for " + fee.getCalculationType() + " fees");
         }
 
-        // Remove existing ranges
-        feeRangeRepository.deleteByFeeId(fee.getId());
-        fee.getFeeRanges().clear();
+        // Match existing rows by lower bound, which validation keeps unique within a fee, and only touch
+        // the rows that differ; removed rows go through orphan removal
+        Map<BigDecimal, FeeRange> existingRanges = new HashMap<>();
+        fee.getFeeRanges().forEach(range -> existingRanges.put(range.getMinAmount().stripTrailingZeros(), range));
 
-        // Add new ranges
+        int inserted = 0;
+        int updated = 0;
         for (FeeRangeRequest rangeRequest : rangeRequests) {
-            FeeRange feeRange = FeeRange.builder()
-                    .fee(fee)
-                    .minAmount(rangeRequest.getMinAmount())
-                    .maxAmount(rangeRequest.getMaxAmount())
-                    .amount(rangeRequest.getAmount())
-                    .rate(rangeRequest.getRate())
-                    .build();
-
-            feeRangeRepository.save(feeRange);
-            fee.addFeeRange(feeRange);
+            FeeRange feeRange = existingRanges.remove(rangeRequest.getMinAmount().stripTrailingZeros());
+            if (feeRange == null) {
+                fee.addFeeRange(FeeRange.builder()
+                        .minAmount(rangeRequest.getMinAmount())
+                        .maxAmount(rangeRequest.getMaxAmount())
+                        .amount(rangeRequest.getAmount())
+                        .rate(rangeRequest.getRate())
+                        .build());
+                inserted++;
+            } else if (!sameAmount(feeRange.getMaxAmount(), rangeRequest.getMaxAmount())
+                    || !sameAmount(feeRange.getAmount(), rangeRequest.getAmount())
+                    || !sameAmount(feeRange.getRate(), rangeRequest.getRate())) {
+                feeRange.setMaxAmount(rangeRequest.getMaxAmount());
+                feeRange.setAmount(rangeRequest.getAmount());
+                feeRange.setRate(rangeRequest.getRate());
+                updated++;
+            }
         }
+        existingRanges.values().forEach(fee::removeFeeRange);
 
-        log.debug("Updated {} fee ranges for fee ID: {} - Correlation ID: {}",
-                rangeRequests.size(), fee.getId(), correlationId);
+        log.debug("Updated fee ranges for fee ID: {} - Inserted: {}, Updated: {}, Deleted: {} - Correlation ID: {}",
+                fee.getId(), inserted, updated, existingRanges.size(), correlationId);
+        return inserted + updated + existingRanges.size() > 0;
     }
 
-    private void updateFeeSharers(Fee fee, List<FeeSharerRequest> sharerRequests, String correlationId) {
+    private boolean updateFeeSharers(Fee fee, List<FeeSharerRequest> sharerRequests, String correlationId) {
         if (sharerRequests == null || sharerRequests.isEmpty()) {
             log.warn("No fee sharers provided for shared fee update - Correlation ID: {}", correlationId);
             throw new IllegalArgumentException("Fee sharers must be provided when fee is shared");
         }
 
-        // Remove existing sharers
-        feeSharerRepository.deleteByFeeId(fee.getId());
-        fee.getFeeSharers().clear();
+        // Match existing rows by sharer id, which validation keeps unique within a fee, and only touch
+        // the rows that differ; removed rows go through orphan removal
+        Map<String, FeeSharer> existingSharers = new HashMap<>();
+        fee.getFeeSharers().forEach(sharer -> existingSharers.put(sharer.getSharerId(), sharer));
 
-        // Add new sharers
+        int inserted = 0;
+        int updated = 0;
         for (FeeSharerRequest sharerRequest : sharerRequests) {
-            FeeSharer feeSharer = FeeSharer.builder()
-                    .fee(fee)
-                    .sharerType(sharerRequest.getSharerType())
-                    .sharerId(sharerRequest.getSharerId())
-                    .sharerName(sharerRequest.getSharerName())
-                    .percentage(sharerRequest.getPercentage())
-                    .isPrimary(sharerRequest.getIsPrimary())
-                    .build();
-
-            feeSharerRepository.save(feeSharer);
-            fee.addFeeSharer(feeSharer);
+            FeeSharer feeSharer = existingSharers.remove(sharerRequest.getSharerId());
+            if (feeSharer == null) {
+                fee.addFeeSharer(FeeSharer.builder()
+                        .sharerType(sharerRequest.getSharerType())
+                        .sharerId(sharerRequest.getSharerId())
+                        .sharerName(sharerRequest.getSharerName())
+                        .percentage(sharerRequest.getPercentage())
+                        .isPrimary(sharerRequest.getIsPrimary())
+                        .build());
+                inserted++;
+            } else if (!Objects.equals(feeSharer.getSharerType(), sharerRequest.getSharerType())
+                    || !Objects.equals(feeSharer.getSharerName(), sharerRequest.getSharerName())
+                    || !sameAmount(feeSharer.getPercentage(), sharerRequest.getPercentage())
+                    || !Objects.equals(feeSharer.getIsPrimary(), sharerRequest.getIsPrimary())) {
+                feeSharer.setSharerType(sharerRequest.getSharerType());
+                feeSharer.setSharerName(sharerRequest.getSharerName());
+                feeSharer.setPercentage(sharerRequest.getPercentage());
+                feeSharer.setIsPrimary(sharerRequest.getIsPrimary());
+                updated++;
+            }
         }
+        existingSharers.values().forEach(fee::removeFeeSharer);
 
-        log.debug("Updated {} fee sharers for fee ID: {} - Correlation ID: {}",
-                sharerRequests.size(), fee.getId(), correlationId);
+        log.debug("Updated fee sharers for fee ID: {} - Inserted: {}, Updated: {}, Deleted: {} - Correlation ID: {}",
+                fee.getId(), inserted, updated, existingSharers.size(), correlationId);
+        return inserted + updated + existingSharers.size() > 0;
     }
 
-    private void removeFeeSharers(Fee fee, String correlationId) {
-        if (!fee.getFeeSharers().isEmpty()) {
-            feeSharerRepository.deleteByFeeId(fee.getId());
-            fee.getFeeSharers().clear();
-            log.debug("Removed all fee sharers for fee ID: {} - Correlation ID: {}", fee.getId(), correlationId);
+    /**
+     * Marks the fee itself as modified when only its range or sharer rows changed, which would not
+     * dirty it otherwise, so its version and update time still move with the edit.
+     */
+    private void touch(Fee fee) {
+        fee.setUpdatedAt(LocalDateTime.now());
+    }
+
+    private static Set<Long> channelIds(Set<Channel> channels) {
+        return channels.stream().map(Channel::getId).collect(Collectors.toSet());
+    }
+
+    private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    // The rows go through orphan removal, as in updateFeeSharers
+    private boolean removeFeeSharers(Fee fee, String correlationId) {
+        if (fee.getFeeSharers().isEmpty()) {
+            return false;
         }
+        new ArrayList<>(fee.getFeeSharers()).forEach(fee::removeFeeSharer);
+        log.debug("Removed all fee sharers for fee ID: {} - Correlation ID: {}", fee.getId(), correlationId);
+        return true;
     }
 
     public Fee partialUpdateFee(Long id, String tenantId, Map<String, Object> updates) {
         String correlationId = CorrelationIdContext.getCorrelationId();
 
         String effectiveTenantId = getEffectiveTenantId(tenantId, null);
+        tenantShardDirectory.assertWritable(effectiveTenantId);
         log.info("Partial updating fee ID: {} for tenant: {} - Correlation ID: {}", id, effectiveTenantId, correlationId);
 
         Tenant tenant = getOrCreateTenant(effectiveTenantId, correlationId);
@@ -779,40 +980,411 @@ public class FeeService {
                     existingFee.setPercentageRate(percentageRate);
                     break;
 
+                case "validFrom":
+                    existingFee.setValidFrom(parseDateTime(field, value));
+                    break;
+
+                case "validTo":
+                    existingFee.setValidTo(parseDateTime(field, value));
+                    break;
+
                 default:
                     log.warn("Unknown field for partial update: {} - Correlation ID: {}", field, correlationId);
                     throw new IllegalArgumentException("Unknown field: " + field);
             }
         }
 
+        validateEffectiveWindow(existingFee.getValidFrom(), existingFee.getValidTo());
+
         Fee updatedFee = feeRepository.save(existingFee);
+        ruleSetChanged(effectiveTenantId, ClientKeyFilter.keysOf(updatedFee));
 
         log.info("Fee partially updated successfully with ID: {} - Correlation ID: {}", updatedFee.getId(), correlationId);
 
         return updatedFee;
     }
 
-    public FeeCalculationResult calculateFee(FeeCalculationRequest request) {
+    /**
+     * Applies one operation to every fee of the tenant matching the request's filter, as a single
+     * set-based UPDATE, and drops the tenant's cached catalogue once. Returns the number of fees changed;
+     * activation and deactivation skip fees already in the requested state.
+     */
+    public BulkFeeUpdateResponse bulkUpdateFees(String tenantId, BulkFeeUpdateRequest request) {
         String correlationId = CorrelationIdContext.getCorrelationId();
 
-        String effectiveTenantId = getEffectiveTenantId(request.getTenantId(), null);
+        String effectiveTenantId = getEffectiveTenantId(tenantId, null);
+        tenantShardDirectory.assertWritable(effectiveTenantId);
+        Tenant tenant = getOrCreateTenant(effectiveTenantId, correlationId);
 
-        // Log the cascade search criteria
-        StringBuilder cascadeInfo = new StringBuilder();
-        cascadeInfo.append("Cascade search: ");
-        if (request.getClientId() != null) cascadeInfo.append("CLIENT(").append(request.getClientId()).append(") → ");
-        if (request.getProductId() != null) cascadeInfo.append("PRODUCT(").append(request.getProductId()).append(") → ");
-        if (request.getProcessorId() != null) cascadeInfo.append("PROCESSOR(").append(request.getProcessorId()).append(") → ");
-        cascadeInfo.append("DEFAULT");
+        // Filter by name regardless of status, so fees on a retired channel or type can still be found
+        Long transactionTypeId = null;
+        if (request.getTransactionType() != null) {
+            transactionTypeId = transactionTypeRepository.findByName(request.getTransactionType())
+                    .orElseThrow(() -> new IllegalArgumentException("Transaction type not found: " + request.getTransactionType()))
+                    .getId();
+        }
+        Long channelId = null;
+        if (request.getChannel() != null) {
+            channelId = channelRepository.findByName(request.getChannel())
+                    .orElseThrow(() -> new IllegalArgumentException("Channel not found: " + request.getChannel()))
+                    .getId();
+        }
 
-        log.info("Calculating fee for tenant: {}, amount: {} - {} - Correlation ID: {}",
-                effectiveTenantId, request.getAmount(), cascadeInfo.toString(), correlationId);
+        LocalDateTime now = LocalDateTime.now();
+        int affected;
+        switch (request.getOperation()) {
+            case ACTIVATE:
+            case DEACTIVATE:
+                affected = feeRepository.setActiveByFilter(request.getOperation() == BulkFeeOperation.ACTIVATE, now,
+                        tenant, request.getFeeType(), request.getCalculationType(), transactionTypeId, channelId,
+                        request.getProductId(), request.getProcessorId(), request.getClientId());
+                break;
+            case ADJUST_PERCENTAGE_RATE:
+                BigDecimal adjustment = request.getRateAdjustment();
+                if (adjustment == null || adjustment.signum() == 0) {
+                    throw new IllegalArgumentException("A non-zero rate adjustment is required for " + request.getOperation());
+                }
+                if (request.getCalculationType() != null && request.getCalculationType() != FeeCalculationType.PERCENTAGE) {
+                    throw new IllegalArgumentException("Rate adjustment only applies to PERCENTAGE fees");
+                }
+                long invalid = feeRepository.countNonPositiveRatesAfterAdjustment(adjustment, tenant,
+                        request.getFeeType(), request.getCalculationType(), transactionTypeId, channelId,
+                        request.getProductId(), request.getProcessorId(), request.getClientId());
+                if (invalid > 0) {
+                    throw new IllegalArgumentException("Rate adjustment would leave " + invalid
+                            + " fees with a percentage rate not greater than 0");
+                }
+                affected = feeRepository.adjustPercentageRateByFilter(adjustment, now, tenant,
+                        request.getFeeType(), request.getCalculationType(), transactionTypeId, channelId,
+                        request.getProductId(), request.getProcessorId(), request.getClientId());
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported bulk operation: " + request.getOperation());
+        }
+
+        if (affected > 0) {
+            // Activation may bring back CLIENT fees the filter no longer lists, and the UPDATE does not say which
+            ruleSetChanged(effectiveTenantId,
+                    request.getOperation() == BulkFeeOperation.ACTIVATE ? null : ClientKeyFilter.NO_KEYS);
+        }
+
+        log.info("Bulk {} applied for tenant: {} - Fees affected: {} - Correlation ID: {}",
+                request.getOperation(), effectiveTenantId, affected, correlationId);
+        return BulkFeeUpdateResponse.builder()
+                .tenantId(effectiveTenantId)
+                .operation(request.getOperation())
+                .affectedFees(affected)
+                .build();
+    }
+
+    /**
+     * Assigns the clients to a fee template, moving those assigned to another one. The template must have
+     * a TEMPLATE fee with its code, active or not. Clients keep precedence for CLIENT fees of their own.
+     */
+    public TemplateAssignmentResponse assignTemplate(String tenantId, String templateCode,
+                                                     TemplateAssignmentRequest request) {
+        String correlationId = CorrelationIdContext.getCorrelationId();
+
+        String effectiveTenantId = getEffectiveTenantId(tenantId, null);
+        tenantShardDirectory.assertWritable(effectiveTenantId);
+        Tenant tenant = getOrCreateTenant(effectiveTenantId, correlationId);
+
+        if (!feeRepository.existsByTenantAndFeeTypeAndTemplateCode(tenant, FeeType.TEMPLATE, templateCode)) {
+            throw new IllegalArgumentException("Fee template not found: " + templateCode);
+        }
+
+        // Plain statements rather than entities: IDENTITY ids rule out insert batching, and a large
+        // assignment would otherwise keep every row managed until the commit
+        List<String> clientIds = distinctClientIds(request);
+        LocalDateTime now = LocalDateTime.now();
+        int affected = 0;
+        for (int from = 0; from < clientIds.size(); from += ASSIGNMENT_BATCH_SIZE) {
+            List<String> batch = clientIds.subList(from, Math.min(from + ASSIGNMENT_BATCH_SIZE, clientIds.size()));
+            Set<String> existing = new HashSet<>();
+            List<String> moved = new ArrayList<>();
+            for (ClientTemplateAssignmentRepository.AssignedTemplate assigned
+                    : clientTemplateAssignmentRepository.findAssignedTemplates(tenant, batch)) {
+                existing.add(assigned.getClientId());
+                if (!templateCode.equals(assigned.getTemplateCode())) {
+                    moved.add(assigned.getClientId());
+                }
+            }
+            if (!moved.isEmpty()) {
+                affected += clientTemplateAssignmentRepository.moveAssignments(tenant, templateCode, moved, now);
+            }
+
+            List<String> added = batch.stream().filter(clientId -> !existing.contains(clientId)).toList();
+            jdbcTemplate.batchUpdate(INSERT_ASSIGNMENT_SQL, added, added.size(), (ps, clientId) -> {
+                ps.setLong(1, tenant.getId());
+                ps.setString(2, clientId);
+                ps.setString(3, templateCode);
+                ps.setTimestamp(4, Timestamp.valueOf(now));
+                ps.setTimestamp(5, Timestamp.valueOf(now));
+            });
+            affected += added.size();
+        }
+
+        if (affected > 0) {
+            ruleSetChanged(effectiveTenantId, ClientKeyFilter.keysOfClients(clientIds));
+        }
+
+        log.info("Assigned {} clients to fee template: {} for tenant: {} - Correlation ID: {}",
+                affected, templateCode, effectiveTenantId, correlationId);
+        return TemplateAssignmentResponse.builder()
+                .tenantId(effectiveTenantId)
+                .templateCode(templateCode)
+                .affectedClients(affected)
+                .build();
+    }
+
+    /**
+     * Removes the clients' assignments to the template; clients assigned elsewhere are left alone.
+     */
+    public TemplateAssignmentResponse unassignTemplate(String tenantId, String templateCode,
+                                                       TemplateAssignmentRequest request) {
+        String correlationId = CorrelationIdContext.getCorrelationId();
+
+        String effectiveTenantId = getEffectiveTenantId(tenantId, null);
+        tenantShardDirectory.assertWritable(effectiveTenantId);
+        Tenant tenant = getOrCreateTenant(effectiveTenantId, correlationId);
+
+        List<String> clientIds = distinctClientIds(request);
+        int affected = 0;
+        for (int from = 0; from < clientIds.size(); from += ASSIGNMENT_BATCH_SIZE) {
+            affected += clientTemplateAssignmentRepository.deleteAssignments(tenant, templateCode,
+                    clientIds.subList(from, Math.min(from + ASSIGNMENT_BATCH_SIZE, clientIds.size())));
+        }
 
+        if (affected > 0) {
+            ruleSetChanged(effectiveTenantId, ClientKeyFilter.NO_KEYS);
+        }
+
+        log.info("Unassigned {} clients from fee template: {} for tenant: {} - Correlation ID: {}",
+                affected, templateCode, effectiveTenantId, correlationId);
+        return TemplateAssignmentResponse.builder()
+                .tenantId(effectiveTenantId)
+                .templateCode(templateCode)
+                .affectedClients(affected)
+                .build();
+    }
+
+    public List<String> getTemplateClients(String tenantId, String templateCode) {
+        String correlationId = CorrelationIdContext.getCorrelationId();
+
+        String effectiveTenantId = getEffectiveTenantId(tenantId, null);
         Tenant tenant = getOrCreateTenant(effectiveTenantId, correlationId);
 
+        return clientTemplateAssignmentRepository.findByTenantAndTemplateCodeOrderByClientId(tenant, templateCode)
+                .stream()
+                .map(ClientTemplateAssignment::getClientId)
+                .toList();
+    }
+
+    private List<String> distinctClientIds(TemplateAssignmentRequest request) {
+        Set<String> clientIds = new LinkedHashSet<>();
+        for (String clientId : request.getClientIds()) {
+            if (clientId == null || clientId.isBlank()) {
+                throw new IllegalArgumentException("Client IDs must not be blank");
+            }
+            clientIds.add(clientId);
+        }
+        return new ArrayList<>(clientIds);
+    }
+
+    /**
+     * Builds the fee a create request would produce, validated like {@link #createFee} except for
+     * name uniqueness, without saving anything. References resolve through the reference data cache.
+     */
+    Fee buildDraftFee(Tenant tenant, CreateFeeRequest request) {
+        String correlationId = CorrelationIdContext.getCorrelationId();
+
+        validateFeeRequest(request, correlationId);
+        validateEffectiveWindow(request.getValidFrom(), request.getValidTo());
+        if (request.getIsShared() && request.getFeeSharers() != null) {
+            validateFeeSharers(request.getFeeSharers(), correlationId);
+        }
+
+        Fee fee = Fee.builder()
+                .tenant(tenant)
+                .feeType(request.getFeeType())
+                .calculationType(request.getCalculationType())
+                .name(request.getName())
+                .description(request.getDescription())
+                .transactionType(findDraftTransactionType(request.getTransactionType()))
+                .isShared(request.getIsShared())
+                .validFrom(request.getValidFrom())
+                .validTo(request.getValidTo())
+                .build();
+
+        findDraftChannels(request.getChannels()).forEach(fee::addChannel);
+        setCalculationSpecificFields(fee, request);
+        setFeeTypeSpecificReferences(fee, request);
+
+        if (usesFeeRanges(request.getCalculationType())) {
+            addDraftFeeRanges(fee, request.getFeeRanges());
+        }
+        if (request.getIsShared() && request.getFeeSharers() != null) {
+            addDraftFeeSharers(fee, request.getFeeSharers());
+        }
+        return fee;
+    }
+
+    /**
+     * Builds a copy of {@code existing} with an update request applied, validated like
+     * {@link #updateFee} except for name uniqueness. {@code existing} is left untouched and nothing
+     * is saved.
+     */
+    Fee buildDraftUpdate(Fee existing, UpdateFeeRequest request) {
+        String correlationId = CorrelationIdContext.getCorrelationId();
+
+        validateUpdateFeeRequest(request, existing.getFeeType(), existing.getCalculationType(), correlationId);
+        validateEffectiveWindow(request.getValidFrom(), request.getValidTo());
+        if (request.getIsShared() && request.getFeeSharers() != null) {
+            validateFeeSharers(request.getFeeSharers(), correlationId);
+        }
+
+        Fee fee = Fee.builder()
+                .id(existing.getId())
+                .tenant(existing.getTenant())
+                .feeType(existing.getFeeType())
+                .calculationType(existing.getCalculationType())
+                .name(request.getName())
+                .description(request.getDescription())
+                .transactionType(findDraftTransactionType(request.getTransactionType()))
+                .isShared(request.getIsShared())
+                .isActive(request.getIsActive())
+                .validFrom(request.getValidFrom())
+                .validTo(request.getValidTo())
+                .createdAt(existing.getCreatedAt())
+                .build();
+
+        findDraftChannels(request.getChannels()).forEach(fee::addChannel);
+        updateCalculationSpecificFields(fee, request, existing.getCalculationType());
+        updateFeeTypeSpecificReferences(fee, request, existing.getFeeType());
+
+        if (usesFeeRanges(existing.getCalculationType())) {
+            addDraftFeeRanges(fee, request.getFeeRanges());
+        }
+        if (request.getIsShared()) {
+            addDraftFeeSharers(fee, request.getFeeSharers());
+        }
+        return fee;
+    }
+
+    private TransactionType findDraftTransactionType(String name) {
+        return referenceDataCache.findActiveTransactionType(name)
+                .orElseThrow(() -> new IllegalArgumentException("Transaction type '" + name + "' not found or inactive"));
+    }
+
+    private Set<Channel> findDraftChannels(List<String> channelNames) {
+        if (channelNames == null || channelNames.isEmpty()) {
+            throw new IllegalArgumentException("At least one channel must be provided");
+        }
+        Set<Channel> channels = new HashSet<>();
+        for (String name : channelNames) {
+            channels.add(referenceDataCache.findActiveChannel(name)
+                    .orElseThrow(() -> new IllegalArgumentException("One or more channels not found or inactive: [" + name + "]")));
+        }
+        return channels;
+    }
+
+    private void addDraftFeeRanges(Fee fee, List<FeeRangeRequest> rangeRequests) {
+        for (FeeRangeRequest rangeRequest : rangeRequests) {
+            fee.addFeeRange(FeeRange.builder()
+                    .minAmount(rangeRequest.getMinAmount())
+                    .maxAmount(rangeRequest.getMaxAmount())
+                    .amount(rangeRequest.getAmount())
+                    .rate(rangeRequest.getRate())
+                    .build());
+        }
+    }
+
+    private void addDraftFeeSharers(Fee fee, List<FeeSharerRequest> sharerRequests) {
+        for (FeeSharerRequest sharerRequest : sharerRequests) {
+            fee.addFeeSharer(FeeSharer.builder()
+                    .sharerType(sharerRequest.getSharerType())
+                    .sharerId(sharerRequest.getSharerId())
+                    .sharerName(sharerRequest.getSharerName())
+                    .percentage(sharerRequest.getPercentage())
+                    .isPrimary(sharerRequest.getIsPrimary())
+                    .build());
+        }
+    }
+
+    public FeeCalculationResult calculateFee(FeeCalculationRequest request) {
+        return calculateFee(request, true);
+    }
+
+    /**
+     * Calculates a batch of requests in one transaction, so they share a connection and a commit. The
+     * requests must all route to the current shard. Outcomes line up with the requests; a request that
+     * fails does not affect the others.
+     * <p>
+     * The ledger, audit trail and event log are fed only once the transaction has committed, so when
+     * the commit fails and every request is reported as failed, none of them has been recorded and a
+     * retry is not counted twice.
+     */
+    public List<CalculationOutcome> calculateFees(List<FeeCalculationRequest> requests, List<String> correlationIds) {
+        List<CalculationOutcome> outcomes = new ArrayList<>(requests.size());
+        try {
+            for (int i = 0; i < requests.size(); i++) {
+                CorrelationIdContext.setCorrelationId(correlationIds.get(i));
+                try {
+                    outcomes.add(new CalculationOutcome(calculateFee(requests.get(i), false), null));
+                } catch (RuntimeException e) {
+                    if (!(e instanceof IllegalArgumentException)) {
+                        log.error("Batched fee calculation failed - Correlation ID: {}", correlationIds.get(i), e);
+                    }
+                    outcomes.add(new CalculationOutcome(null, e));
+                }
+            }
+        } finally {
+            CorrelationIdContext.clear();
+        }
+        recordAfterCommit(requests, correlationIds, outcomes);
+        return outcomes;
+    }
+
+    private void recordAfterCommit(List<FeeCalculationRequest> requests, List<String> correlationIds,
+                                   List<CalculationOutcome> outcomes) {
+        Runnable record = () -> {
+            for (int i = 0; i < outcomes.size(); i++) {
+                FeeCalculationResult result = outcomes.get(i).result();
+                if (result != null) {
+                    FeeCalculationRequest request = requests.get(i);
+                    recordCalculation(correlationIds.get(i), resolveEffectiveTenantId(request.getTenantId(), null), request,
+                            result.getFee(), result.getCalculatedAmount(), result.getSharerCalculations());
+                }
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record.run();
+            }
+        });
+    }
+
+    /**
+     * @param recordOutcome whether to feed the ledger, audit trail and event log; false for
+     *                      synthetic calculations such as the startup warm-up, and for batches,
+     *                      which record after their commit
+     */
+    public FeeCalculationResult calculateFee(FeeCalculationRequest request, boolean recordOutcome) {
+        String correlationId = CorrelationIdContext.getCorrelationId();
+
+        String effectiveTenantId = getEffectiveTenantId(request.getTenantId(), null);
+
+        TenantCatalogue catalogue = feeCatalogueCache.get(effectiveTenantId,
+                () -> getOrCreateTenant(effectiveTenantId, correlationId));
+
         // Validate and get transaction type
-        TransactionType transactionType = transactionTypeRepository
-                .findByNameAndIsActive(request.getTransactionType(), true)
+        TransactionType transactionType = referenceDataCache
+                .findActiveTransactionType(request.getTransactionType())
                 .orElseThrow(() -> {
                     log.warn("Transaction type not found: {} - Correlation ID: {}",
                             request.getTransactionType(), correlationId);
@@ -820,33 +1392,36 @@ public class FeeService {
                 });
 
         // Validate and get channel
-        Channel channel = channelRepository
-                .findByNameAndIsActive(request.getChannel(), true)
+        Channel channel = referenceDataCache
+                .findActiveChannel(request.getChannel())
                 .orElseThrow(() -> {
                     log.warn("Channel not found: {} - Correlation ID: {}", request.getChannel(), correlationId);
                     return new IllegalArgumentException("Channel not found or inactive");
                 });
 
         // Find applicable fee with cascading logic
-        Fee applicableFee = findApplicableFeeWithCascading(tenant, request, transactionType, channel, correlationId);
+        Fee applicableFee = findApplicableFeeWithCascading(catalogue, request, transactionType, channel, correlationId);
 
         if (applicableFee == null) {
             log.warn("No applicable fee found in cascade - Correlation ID: {}", correlationId);
             throw new IllegalArgumentException("No applicable fee found for the given criteria");
         }
 
-        // Calculate fee amount
-        BigDecimal calculatedAmount = calculateFeeAmount(applicableFee, request.getAmount(), correlationId);
+        // Calculate fee amount with the fee's compiled evaluator
+        CompiledFee compiledFee = catalogue.compiledFee(applicableFee);
+        BigDecimal calculatedAmount = calculateFeeAmount(compiledFee, applicableFee, request.getAmount(),
+                applicationProperties.getCalculation().getMinorUnitScale(), correlationId);
 
         // Calculate sharer distributions if applicable
         List<FeeSharerCalculation> sharerCalculations = new ArrayList<>();
-        if (request.getApplySharing() && applicableFee.getIsShared() && !applicableFee.getFeeSharers().isEmpty()) {
-            sharerCalculations = calculateSharerDistributions(applicableFee, calculatedAmount, correlationId);
+        if (request.getApplySharing() && compiledFee.sharerSplit() != null) {
+            sharerCalculations = calculateSharerDistributions(compiledFee.sharerSplit(), applicableFee,
+                    calculatedAmount, correlationId);
         }
 
-        log.info("Fee calculation completed - Amount: {}, Fee: {}, Total: {}, Applied Fee Type: {} - Correlation ID: {}",
-                request.getAmount(), calculatedAmount, request.getAmount().add(calculatedAmount),
-                applicableFee.getFeeType(), correlationId);
+        if (recordOutcome) {
+            recordCalculation(correlationId, effectiveTenantId, request, applicableFee, calculatedAmount, sharerCalculations);
+        }
 
         return FeeCalculationResult.builder()
                 .fee(applicableFee)
@@ -855,40 +1430,113 @@ public class FeeService {
                 .build();
     }
 
-    private Fee findApplicableFeeWithCascading(Tenant tenant, FeeCalculationRequest request,
-                                               TransactionType transactionType, Channel channel, String correlationId) {
-        log.debug("Finding applicable fee with cascading logic - Correlation ID: {}", correlationId);
+    /**
+     * Cascade lookup without any side effects, for callers that evaluate many transactions against a
+     * catalogue of their own (the what-if simulator). Static so those calls skip the transactional proxy.
+     */
+    static Fee findApplicableFee(TenantCatalogue catalogue, FeeCalculationRequest request,
+                          TransactionType transactionType, Channel channel) {
+        return findApplicableFeeWithCascading(catalogue, request, transactionType, channel, null);
+    }
 
-        // Get all active fees for the tenant that match transaction type and channel
-        List<Fee> allFees = feeRepository.findByTenantAndIsActive(tenant, true);
+    static BigDecimal calculateFeeAmount(CompiledFee compiledFee, Fee fee, BigDecimal amount, int minorUnitScale) {
+        return calculateFeeAmount(compiledFee, fee, amount, minorUnitScale, null);
+    }
 
-        List<Fee> matchingFees = allFees.stream()
-                .filter(fee -> fee.getTransactionType().getId().equals(transactionType.getId()))
-                .filter(fee -> fee.getChannels().contains(channel))
-                .collect(Collectors.toList());
+    private void recordCalculation(String correlationId, String effectiveTenantId, FeeCalculationRequest request,
+                                   Fee applicableFee, BigDecimal calculatedAmount,
+                                   List<FeeSharerCalculation> sharerCalculations) {
+        if (!sharerCalculations.isEmpty()) {
+            sharerEarningsLedger.record(effectiveTenantId, sharerCalculations);
+        }
+
+        feeAnalyticsCollector.record(effectiveTenantId, request.getTransactionType(), request.getChannel(),
+                applicableFee.getId(), request.getAmount(), calculatedAmount);
+
+        calculationAuditTrail.publish(CalculationAuditRecord.builder()
+                .correlationId(correlationId)
+                .calculatedAt(Instant.now())
+                .tenantId(effectiveTenantId)
+                .transactionType(request.getTransactionType())
+                .channel(request.getChannel())
+                .clientId(request.getClientId())
+                .productId(request.getProductId())
+                .processorId(request.getProcessorId())
+                .amount(request.getAmount())
+                .feeId(applicableFee.getId())
+                .feeUpdatedAt(applicableFee.getUpdatedAt())
+                .feeVersion(applicableFee.getVersion())
+                .feeType(applicableFee.getFeeType())
+                .calculationType(applicableFee.getCalculationType())
+                .feeAmount(calculatedAmount)
+                .sharerCalculations(sharerCalculations)
+                .build());
+
+        if (eventLogger.isSampled(LogEventType.CALCULATION_SUCCEEDED)) {
+            eventLogger.publish(LogEventType.CALCULATION_SUCCEEDED,
+                    "tenant", effectiveTenantId,
+                    "transactionType", request.getTransactionType(),
+                    "channel", request.getChannel(),
+                    "cascade", describeCascade(request),
+                    "amount", request.getAmount(),
+                    "fee", calculatedAmount,
+                    "feeId", applicableFee.getId(),
+                    "feeType", applicableFee.getFeeType(),
+                    "shared", !sharerCalculations.isEmpty());
+        }
+    }
 
-        log.debug("Found {} fees matching transaction type and channel - Correlation ID: {}",
-                matchingFees.size(), correlationId);
+    private String describeCascade(FeeCalculationRequest request) {
+        StringBuilder cascadeInfo = new StringBuilder();
+        if (request.getClientId() != null) cascadeInfo.append("CLIENT(").append(request.getClientId()).append(")>");
+        if (request.getProductId() != null) cascadeInfo.append("PRODUCT(").append(request.getProductId()).append(")>");
+        if (request.getProcessorId() != null) cascadeInfo.append("PROCESSOR(").append(request.getProcessorId()).append(")>");
+        cascadeInfo.append("DEFAULT");
+        return cascadeInfo.toString();
+    }
+
+    private static Fee findApplicableFeeWithCascading(TenantCatalogue catalogue, FeeCalculationRequest request,
+                                               TransactionType transactionType, Channel channel, String correlationId) {
+        LocalDateTime transactionTime = request.getTransactionTime() != null
+                ? request.getTransactionTime()
+                : LocalDateTime.now();
+
+        log.debug("Finding applicable fee with cascading logic at {} - Correlation ID: {}", transactionTime, correlationId);
 
         // Cascading logic: CLIENT → PRODUCT → PROCESSOR → DEFAULT
         Fee applicableFee = null;
 
-        // 1. CLIENT (Highest priority)
-        if (request.getClientId() != null && !request.getClientId().trim().isEmpty()) {
-            applicableFee = findMatchingFee(matchingFees, FeeType.CLIENT, null, null, request.getClientId(), correlationId);
+        // 1. CLIENT (Highest priority), then the template the client is assigned to; skipped when the
+        // client key filter shows the client has neither
+        if (request.getClientId() != null && !request.getClientId().trim().isEmpty()
+                && catalogue.mayHoldClientFees(request.getClientId(), transactionType, channel)) {
+            TenantCatalogue clientFees = catalogue.clientFees(request.getClientId());
+            applicableFee = clientFees.findEffectiveFee(FeeType.CLIENT, clientFees.scopeCode(request.getClientId()),
+                    transactionType, channel, transactionTime);
             if (applicableFee != null) {
-                log.debug("Found CLIENT fee - Correlation ID: {}", correlationId);
+                log.debug("Found CLIENT fee: {} - Correlation ID: {}", applicableFee.getId(), correlationId);
                 return applicableFee;
             }
+            String templateCode = clientFees.assignedTemplate(request.getClientId());
+            if (templateCode != null) {
+                applicableFee = catalogue.findEffectiveFee(FeeType.TEMPLATE, catalogue.scopeCode(templateCode),
+                        transactionType, channel, transactionTime);
+                if (applicableFee != null) {
+                    log.debug("Found TEMPLATE fee: {} ({}) for clientId: {} - Correlation ID: {}",
+                            applicableFee.getId(), templateCode, request.getClientId(), correlationId);
+                    return applicableFee;
+                }
+            }
             log.debug("No CLIENT fee found for clientId: {} - Continuing cascade - Correlation ID: {}",
                     request.getClientId(), correlationId);
         }
 
         // 2. PRODUCT (Second priority)
         if (request.getProductId() != null && !request.getProductId().trim().isEmpty()) {
-            applicableFee = findMatchingFee(matchingFees, FeeType.PRODUCT, request.getProductId(), null, null, correlationId);
+            applicableFee = catalogue.findEffectiveFee(FeeType.PRODUCT, catalogue.scopeCode(request.getProductId()),
+                    transactionType, channel, transactionTime);
             if (applicableFee != null) {
-                log.debug("Found PRODUCT fee - Correlation ID: {}", correlationId);
+                log.debug("Found PRODUCT fee: {} - Correlation ID: {}", applicableFee.getId(), correlationId);
                 return applicableFee;
             }
             log.debug("No PRODUCT fee found for productId: {} - Continuing cascade - Correlation ID: {}",
@@ -897,9 +1545,10 @@ public class FeeService {
 
         // 3. PROCESSOR (Third priority)
         if (request.getProcessorId() != null && !request.getProcessorId().trim().isEmpty()) {
-            applicableFee = findMatchingFee(matchingFees, FeeType.PROCESSOR, null, request.getProcessorId(), null, correlationId);
+            applicableFee = catalogue.findEffectiveFee(FeeType.PROCESSOR, catalogue.scopeCode(request.getProcessorId()),
+                    transactionType, channel, transactionTime);
             if (applicableFee != null) {
-                log.debug("Found PROCESSOR fee - Correlation ID: {}", correlationId);
+                log.debug("Found PROCESSOR fee: {} - Correlation ID: {}", applicableFee.getId(), correlationId);
                 return applicableFee;
             }
             log.debug("No PROCESSOR fee found for processorId: {} - Continuing cascade - Correlation ID: {}",
@@ -907,9 +1556,10 @@ public class FeeService {
         }
 
         // 4. DEFAULT (Lowest priority - fallback)
-        applicableFee = findMatchingFee(matchingFees, FeeType.DEFAULT, null, null, null, correlationId);
+        applicableFee = catalogue.findEffectiveFee(FeeType.DEFAULT, ScopeDictionary.NO_SCOPE,
+                transactionType, channel, transactionTime);
         if (applicableFee != null) {
-            log.debug("Found DEFAULT fee - Correlation ID: {}", correlationId);
+            log.debug("Found DEFAULT fee: {} - Correlation ID: {}", applicableFee.getId(), correlationId);
             return applicableFee;
         }
 
@@ -917,174 +1567,37 @@ public class FeeService {
         return null;
     }
 
-    private Fee findMatchingFee(List<Fee> fees, FeeType feeType, String productId, String processorId, String clientId, String correlationId) {
-        List<Fee> typedFees = fees.stream()
-                .filter(fee -> fee.getFeeType() == feeType)
-                .collect(Collectors.toList());
-
-        log.debug("Searching for {} fee - Available: {} - Correlation ID: {}", feeType, typedFees.size(), correlationId);
-
-        for (Fee fee : typedFees) {
-            boolean matches = false;
-
-            switch (feeType) {
-                case PRODUCT:
-                    matches = fee.getProductId() != null && fee.getProductId().equals(productId);
-                    break;
-                case PROCESSOR:
-                    matches = fee.getProcessorId() != null && fee.getProcessorId().equals(processorId);
-                    break;
-                case CLIENT:
-                    matches = fee.getClientId() != null && fee.getClientId().equals(clientId);
-                    break;
-                case DEFAULT:
-                    matches = true; // DEFAULT fees don't have specific IDs
-                    break;
-            }
-
-            if (matches) {
-                log.debug("Found matching {} fee: {} - Correlation ID: {}", feeType, fee.getId(), correlationId);
-                return fee;
-            }
-        }
-
-        log.debug("No matching {} fee found - Correlation ID: {}", feeType, correlationId);
-        return null;
-    }
-
-    private BigDecimal calculateFeeAmount(Fee fee, BigDecimal amount, String correlationId) {
-        log.debug("Calculating fee amount for fee ID: {}, amount: {}, type: {} - Correlation ID: {}",
-                fee.getId(), amount, fee.getCalculationType(), correlationId);
-
-        BigDecimal calculatedAmount;
-
-        switch (fee.getCalculationType()) {
-            case FIXED:
-                calculatedAmount = calculateFixedFee(fee, amount);
-                break;
-            case PERCENTAGE:
-                calculatedAmount = calculatePercentageFee(fee, amount);
-                break;
-            case RANGED:
-                calculatedAmount = calculateRangedFee(fee, amount, correlationId);
-                break;
-            default:
-                throw new IllegalArgumentException("Unsupported calculation type: " + fee.getCalculationType());
-        }
+    /**
+     * Evaluates the fee and rounds it half-even to minor units, once, so the result, the sharer split,
+     * the audit trail, analytics and the ledger all carry the same amount.
+     */
+    private static BigDecimal calculateFeeAmount(CompiledFee compiledFee, Fee fee, BigDecimal amount,
+                                                 int minorUnitScale, String correlationId) {
+        BigDecimal calculatedAmount = compiledFee.evaluator().evaluate(amount);
 
         // Ensure fee amount is non-negative
         if (calculatedAmount.compareTo(BigDecimal.ZERO) < 0) {
             calculatedAmount = BigDecimal.ZERO;
         }
+        calculatedAmount = calculatedAmount.setScale(minorUnitScale, RoundingMode.HALF_EVEN);
 
-        log.debug("Calculated fee amount: {} - Correlation ID: {}", calculatedAmount, correlationId);
-        return calculatedAmount;
-    }
-
-    private BigDecimal calculateFixedFee(Fee fee, BigDecimal amount) {
-        return fee.getFixedAmount();
-    }
-
-    private BigDecimal calculatePercentageFee(Fee fee, BigDecimal amount) {
-        return amount.multiply(fee.getPercentageRate().divide(new BigDecimal("100")));
-    }
-
-    private BigDecimal calculateRangedFee(Fee fee, BigDecimal amount, String correlationId) {
-        if (fee.getFeeRanges() == null || fee.getFeeRanges().isEmpty()) {
-            log.warn("No ranges defined for RANGED fee ID: {} - Correlation ID: {}", fee.getId(), correlationId);
-            throw new IllegalArgumentException("No ranges defined for RANGED fee");
-        }
-
-        // Sort ranges by min amount
-        List<FeeRange> sortedRanges = fee.getFeeRanges().stream()
-                .sorted(Comparator.comparing(FeeRange::getMinAmount))
-                .collect(Collectors.toList());
-
-        // Find applicable range
-        for (FeeRange range : sortedRanges) {
-            if (amount.compareTo(range.getMinAmount()) >= 0) {
-                // Check if amount is within this range (or if it's the last range with no max)
-                if (range.getMaxAmount() == null || amount.compareTo(range.getMaxAmount()) < 0) {
-                    log.debug("Using range: {} - {} for amount: {} - Correlation ID: {}",
-                            range.getMinAmount(), range.getMaxAmount(), amount, correlationId);
-
-                    // Calculate based on amount or rate
-                    if (range.getRate() != null && range.getRate().compareTo(BigDecimal.ZERO) > 0) {
-                        // Percentage-based range
-                        return amount.multiply(range.getRate().divide(new BigDecimal("100")));
-                    } else {
-                        // Fixed amount range
-                        return range.getAmount();
-                    }
-                }
-            }
-        }
-
-        // If no range found, use the last range (should handle infinite upper bound)
-        FeeRange lastRange = sortedRanges.get(sortedRanges.size() - 1);
-        if (lastRange.getMaxAmount() == null) {
-            log.debug("Using last range (infinite) for amount: {} - Correlation ID: {}", amount, correlationId);
-            if (lastRange.getRate() != null && lastRange.getRate().compareTo(BigDecimal.ZERO) > 0) {
-                return amount.multiply(lastRange.getRate().divide(new BigDecimal("100")));
-            } else {
-                return lastRange.getAmount();
-            }
+        if (log.isDebugEnabled()) {
+            log.debug("Calculated fee amount for fee ID: {}, amount: {}, type: {}: {} - Correlation ID: {}",
+                    fee.getId(), amount, fee.getCalculationType(), calculatedAmount, correlationId);
         }
-
-        log.warn("No applicable range found for amount: {} in fee ID: {} - Correlation ID: {}",
-                amount, fee.getId(), correlationId);
-        throw new IllegalArgumentException("No applicable range found for amount: " + amount);
+        return calculatedAmount;
     }
 
-    private List<FeeSharerCalculation> calculateSharerDistributions(Fee fee, BigDecimal totalFeeAmount, String correlationId) {
+    private List<FeeSharerCalculation> calculateSharerDistributions(SharerSplit sharerSplit, Fee fee,
+                                                                    BigDecimal totalFeeAmount, String correlationId) {
         log.debug("Calculating sharer distributions for fee ID: {}, total amount: {} - Correlation ID: {}",
                 fee.getId(), totalFeeAmount, correlationId);
 
-        List<FeeSharerCalculation> calculations = new ArrayList<>();
-
-        for (FeeSharer sharer : fee.getFeeSharers()) {
-            BigDecimal sharerAmount = totalFeeAmount.multiply(sharer.getPercentage().divide(new BigDecimal("100")));
-
-            FeeSharerCalculation calculation = FeeSharerCalculation.builder()
-                    .sharerType(sharer.getSharerType())
-                    .sharerId(sharer.getSharerId())
-                    .sharerName(sharer.getSharerName())
-                    .percentage(sharer.getPercentage())
-                    .amount(sharerAmount)
-                    .isPrimary(sharer.getIsPrimary())
-                    .build();
-
-            calculations.add(calculation);
-        }
-
-        // Validate total distribution equals total fee amount (with rounding tolerance)
-        BigDecimal distributedTotal = calculations.stream()
-                .map(FeeSharerCalculation::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal difference = totalFeeAmount.subtract(distributedTotal).abs();
-        if (difference.compareTo(new BigDecimal("0.01")) > 0) {
-            log.warn("Sharer distribution mismatch - Total: {}, Distributed: {} - Correlation ID: {}",
-                    totalFeeAmount, distributedTotal, correlationId);
-            // Adjust the primary sharer's amount to account for rounding differences
-            adjustPrimarySharerAmount(calculations, totalFeeAmount, distributedTotal);
-        }
+        // Largest-remainder split over precompiled weights; the fee is already in minor units, so the
+        // parts sum exactly to it
+        List<FeeSharerCalculation> calculations = sharerAllocationService.distribute(sharerSplit, fee, totalFeeAmount);
 
         log.debug("Calculated distributions for {} sharers - Correlation ID: {}", calculations.size(), correlationId);
         return calculations;
     }
-
-    private void adjustPrimarySharerAmount(List<FeeSharerCalculation> calculations, BigDecimal totalFeeAmount, BigDecimal distributedTotal) {
-        Optional<FeeSharerCalculation> primarySharer = calculations.stream()
-                .filter(FeeSharerCalculation::getIsPrimary)
-                .findFirst();
-
-        if (primarySharer.isPresent()) {
-            BigDecimal adjustment = totalFeeAmount.subtract(distributedTotal);
-            FeeSharerCalculation primary = primarySharer.get();
-            primary.setAmount(primary.getAmount().add(adjustment));
-
-            log.debug("Adjusted primary sharer amount by: {}", adjustment);
-        }
-    }
-}
\ No newline at end of file
+}
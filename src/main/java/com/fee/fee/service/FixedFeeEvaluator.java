@@ -0,0 +1,17 @@
+package com.fee.fee.service;
+
+import java.math.BigDecimal;
+
+final class FixedFeeEvaluator implements FeeEvaluator {
+
+    private final BigDecimal fixedAmount;
+
+    FixedFeeEvaluator(BigDecimal fixedAmount) {
+        this.fixedAmount = fixedAmount;
+    }
+
+    @Override
+    public BigDecimal evaluate(BigDecimal amount) {
+        return fixedAmount;
+    }
+}
@@ -0,0 +1,29 @@
+package com.fee.fee.service;
+
+import java.math.BigDecimal;
+
+final class HeapBandTable implements BandTable {
+
+    private final int columns;
+    // Row-major: band * columns + column
+    private final BigDecimal[] cells;
+
+    HeapBandTable(int bands, int columns) {
+        this.columns = columns;
+        this.cells = new BigDecimal[bands * columns];
+    }
+
+    void set(int band, int column, BigDecimal value) {
+        cells[band * columns + column] = value;
+    }
+
+    @Override
+    public int bands() {
+        return cells.length / columns;
+    }
+
+    @Override
+    public BigDecimal cell(int band, int column) {
+        return cells[band * columns + column];
+    }
+}
@@ -0,0 +1,145 @@
+package com.fee.fee.service;
+
+import com.fee.fee.config.ApplicationProperties;
+import com.fee.fee.domain.Fee;
+import com.fee.fee.domain.Tenant;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Host-wide store of compiled tenant catalogues as memory-mapped {@link RuleSetFile}s, so instances on
+ * one host share a single page-cache copy of every fee's range tables and sharer weights instead of
+ * each compiling its own onto the heap.
+ * <p>
+ * Exactly one instance per host runs with {@code app.rule-store.writer=true}. Whenever it loads a
+ * catalogue whose fees differ from the published file, it writes a new file beside it and renames it
+ * over the old one, so a reader only ever maps a complete file. Readers keep the file they mapped until
+ * their next catalogue load notices a new one. Any I/O failure leaves the catalogue compiled on the heap.
+ */
+@Service
+@Slf4j
+public class OffHeapRuleStore {
+
+    private static final String FILE_SUFFIX = ".rules";
+
+    private final boolean enabled;
+    private final boolean writer;
+    private final Path directory;
+    // One mapping per tenant file, replaced when the file is
+    private final ConcurrentHashMap<String, MappedFile> mapped = new ConcurrentHashMap<>();
+
+    public OffHeapRuleStore(ApplicationProperties applicationProperties) {
+        ApplicationProperties.RuleStoreConfig config = applicationProperties.getRuleStore();
+        this.writer = config.isWriter();
+        this.directory = Paths.get(config.getDirectory());
+        this.enabled = config.isEnabled() && createDirectory();
+    }
+
+    /**
+     * The rule set to compile the tenant's catalogue from, publishing {@code activeFees} first on the
+     * writer; null when the store is disabled or has no usable file for the tenant.
+     */
+    RuleSetFile attach(Tenant tenant, List<Fee> activeFees) {
+        if (!enabled) {
+            return null;
+        }
+        Path file = directory.resolve(fileName(tenant.getTenantId()));
+        try {
+            RuleSetFile current = map(tenant.getTenantId(), file);
+            if (!writer) {
+                return current;
+            }
+            ByteBuffer encoded = RuleSetFile.encode(activeFees, System.currentTimeMillis());
+            if (current != null && current.catalogueFingerprint() == RuleSetFile.wrap(encoded).catalogueFingerprint()) {
+                return current;
+            }
+            publish(file, encoded);
+            log.debug("Published rule set for tenant: {} - Fees: {}, Bytes: {}",
+                    tenant.getTenantId(), activeFees.size(), encoded.capacity());
+            return map(tenant.getTenantId(), file);
+        } catch (IOException e) {
+            log.warn("Rule store unavailable for tenant: {} - Compiling on heap: {}", tenant.getTenantId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private RuleSetFile map(String tenantId, Path file) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        // The inode changes with every publish, since the writer renames a new file into place
+        Object identity = attributes.fileKey() != null ? attributes.fileKey() : attributes.lastModifiedTime();
+        MappedFile current = mapped.get(tenantId);
+        if (current != null && current.identity().equals(identity)) {
+            return current.ruleSet();
+        }
+
+        RuleSetFile ruleSet;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                log.warn("Rule set for tenant: {} exceeds 2 GB - Compiling on heap", tenantId);
+                return null;
+            }
+            ruleSet = RuleSetFile.wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        if (ruleSet == null) {
+            log.warn("Ignoring unreadable rule set file: {}", file);
+            return null;
+        }
+        mapped.put(tenantId, new MappedFile(identity, ruleSet));
+        return ruleSet;
+    }
+
+    private void publish(Path file, ByteBuffer encoded) throws IOException {
+        // Not Files.createTempFile, whose owner-only permissions would hide the file from other users
+        Path temporary = directory.resolve(file.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (encoded.hasRemaining()) {
+                    channel.write(encoded);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private boolean createDirectory() {
+        try {
+            Files.createDirectories(directory);
+            return true;
+        } catch (IOException e) {
+            log.warn("Rule store disabled - Cannot create {}: {}", directory, e.getMessage());
+            return false;
+        }
+    }
+
+    private static String fileName(String tenantId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(tenantId.getBytes(StandardCharsets.UTF_8))
+                + FILE_SUFFIX;
+    }
+
+    private record MappedFile(Object identity, RuleSetFile ruleSet) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.fee.fee.service;
+
+import java.math.BigDecimal;
+
+final class PercentageFeeEvaluator implements FeeEvaluator {
+
+    private final BigDecimal rateFraction;
+
+    PercentageFeeEvaluator(BigDecimal rateFraction) {
+        this.rateFraction = rateFraction;
+    }
+
+    @Override
+    public BigDecimal evaluate(BigDecimal amount) {
+        return amount.multiply(rateFraction);
+    }
+}
@@ -0,0 +1,85 @@
+package com.fee.fee.service;
+
+import com.fee.fee.domain.Fee;
+import com.fee.fee.domain.FeeRange;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Whole-amount band pricing for a {@code RANGED} fee: the first band (by min amount) containing the
+ * amount charges its rate on the whole amount, or its flat amount when it has no positive rate. An
+ * amount no band contains falls back to an open-ended last band, if there is one.
+ */
+@Slf4j
+final class RangedFeeEvaluator implements FeeEvaluator {
+
+    static final int MIN_AMOUNT = 0;
+    static final int MAX_AMOUNT = 1;
+    // Null where the band charges its flat amount instead
+    static final int RATE_FRACTION = 2;
+    static final int FLAT_AMOUNT = 3;
+    static final int COLUMNS = 4;
+
+    private final Long feeId;
+    private final BandTable bands;
+
+    RangedFeeEvaluator(Long feeId, BandTable bands) {
+        this.feeId = feeId;
+        this.bands = bands;
+    }
+
+    static FeeEvaluator of(Fee fee) {
+        if (fee.getFeeRanges().isEmpty()) {
+            return amount -> {
+                log.warn("No ranges defined for RANGED fee ID: {}", fee.getId());
+                throw new IllegalArgumentException("No ranges defined for RANGED fee");
+            };
+        }
+        return new RangedFeeEvaluator(fee.getId(), bands(fee.getFeeRanges()));
+    }
+
+    static HeapBandTable bands(List<FeeRange> ranges) {
+        List<FeeRange> sorted = ranges.stream()
+                .sorted(Comparator.comparing(FeeRange::getMinAmount))
+                .toList();
+        HeapBandTable table = new HeapBandTable(sorted.size(), COLUMNS);
+        for (int i = 0; i < sorted.size(); i++) {
+            FeeRange range = sorted.get(i);
+            table.set(i, MIN_AMOUNT, range.getMinAmount());
+            table.set(i, MAX_AMOUNT, range.getMaxAmount());
+            table.set(i, RATE_FRACTION, range.getRate() != null && range.getRate().compareTo(BigDecimal.ZERO) > 0
+                    ? FeeEvaluator.percentageToFraction(range.getRate())
+                    : null);
+            table.set(i, FLAT_AMOUNT, range.getAmount());
+        }
+        return table;
+    }
+
+    @Override
+    public BigDecimal evaluate(BigDecimal amount) {
+        int count = bands.bands();
+        for (int i = 0; i < count; i++) {
+            BigDecimal max = bands.cell(i, MAX_AMOUNT);
+            if (amount.compareTo(bands.cell(i, MIN_AMOUNT)) >= 0
+                    && (max == null || amount.compareTo(max) < 0)) {
+                return charge(i, amount);
+            }
+        }
+
+        int last = count - 1;
+        if (bands.cell(last, MAX_AMOUNT) == null) {
+            return charge(last, amount);
+        }
+
+        log.warn("No applicable range found for amount: {} in fee ID: {}", amount, feeId);
+        throw new IllegalArgumentException("No applicable range found for amount: " + amount);
+    }
+
+    private BigDecimal charge(int band, BigDecimal amount) {
+        BigDecimal rateFraction = bands.cell(band, RATE_FRACTION);
+        return rateFraction != null ? amount.multiply(rateFraction) : bands.cell(band, FLAT_AMOUNT);
+    }
+}
@@ -0,0 +1,151 @@
+package com.fee.fee.service;
+
+import com.fee.fee.Util.SingleFlight;
+import com.fee.fee.config.ApplicationProperties;
+import com.fee.fee.domain.Channel;
+import com.fee.fee.domain.TransactionType;
+import com.fee.fee.repository.ChannelRepository;
+import com.fee.fee.repository.TransactionTypeRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Active transaction types and channels by name, shared by every tenant. Refreshed wholesale when
+ * invalidated or older than {@code app.cache.reference-ttl-millis}; concurrent misses share one refresh.
+ */
+@Service
+@Slf4j
+public class ReferenceDataCache {
+
+    private final TransactionTypeRepository transactionTypeRepository;
+    private final ChannelRepository channelRepository;
+    private final long ttlMillis;
+    private final long loadTimeoutMillis;
+    // Everything is refreshed at once, so there is a single key
+    private final SingleFlight<String, Snapshot> refreshes = new SingleFlight<>();
+    // Bumped by every invalidation, so a refresh can tell it was overtaken; guarded by itself together
+    // with publishing the snapshot
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+
+    public ReferenceDataCache(TransactionTypeRepository transactionTypeRepository,
+                              ChannelRepository channelRepository,
+                              ApplicationProperties applicationProperties,
+                              MeterRegistry meterRegistry) {
+        this.transactionTypeRepository = transactionTypeRepository;
+        this.channelRepository = channelRepository;
+        this.ttlMillis = applicationProperties.getCache().getReferenceTtlMillis();
+        this.loadTimeoutMillis = applicationProperties.getCache().getLoadTimeoutMillis();
+
+        FunctionCounter.builder("fee.cache.loads", refreshes, SingleFlight::getLoadCount)
+                .tag("cache", "reference-data").register(meterRegistry);
+        FunctionCounter.builder("fee.cache.loads.coalesced", refreshes, SingleFlight::getCoalescedCount)
+                .tag("cache", "reference-data").register(meterRegistry);
+        FunctionCounter.builder("fee.cache.loads.timeouts", refreshes, SingleFlight::getTimeoutCount)
+                .tag("cache", "reference-data").register(meterRegistry);
+    }
+
+    public Optional<TransactionType> findActiveTransactionType(String name) {
+        return Optional.ofNullable(current().transactionTypes().get(name));
+    }
+
+    public Optional<Channel> findActiveChannel(String name) {
+        return Optional.ofNullable(current().channels().get(name));
+    }
+
+    public void refresh() {
+        reload();
+    }
+
+    /**
+     * Reads and returns the reference data, caching it unless the cache was invalidated during the read.
+     */
+    private Snapshot reload() {
+        long epoch = invalidations.get();
+        Map<String, TransactionType> transactionTypes = new HashMap<>();
+        for (TransactionType transactionType : transactionTypeRepository.findByIsActive(true)) {
+            transactionTypes.putIfAbsent(transactionType.getName(), transactionType);
+        }
+
+        Map<String, Channel> channels = new HashMap<>();
+        for (Channel channel : channelRepository.findByIsActive(true)) {
+            channels.putIfAbsent(channel.getName(), channel);
+        }
+
+        Snapshot reloaded = new Snapshot(Map.copyOf(transactionTypes), Map.copyOf(channels), System.currentTimeMillis());
+        synchronized (invalidations) {
+            if (invalidations.get() != epoch) {
+                log.debug("Not caching reference data - Invalidated while loading");
+                return reloaded;
+            }
+            snapshot = reloaded;
+        }
+        log.debug("Refreshed reference data - Transaction types: {}, Channels: {}",
+                transactionTypes.size(), channels.size());
+        return reloaded;
+    }
+
+    /**
+     * Installs reference data restored from a snapshot, as though just refreshed.
+     */
+    public void restore(Collection<TransactionType> transactionTypes, Collection<Channel> channels) {
+        Map<String, TransactionType> transactionTypesByName = new HashMap<>();
+        transactionTypes.forEach(transactionType -> transactionTypesByName.putIfAbsent(transactionType.getName(), transactionType));
+        Map<String, Channel> channelsByName = new HashMap<>();
+        channels.forEach(channel -> channelsByName.putIfAbsent(channel.getName(), channel));
+        snapshot = new Snapshot(Map.copyOf(transactionTypesByName), Map.copyOf(channelsByName), System.currentTimeMillis());
+    }
+
+    /**
+     * The transaction types currently cached, without refreshing; empty before the first load.
+     */
+    public List<TransactionType> getCachedTransactionTypes() {
+        Snapshot current = snapshot;
+        return current == null ? List.of() : List.copyOf(current.transactionTypes().values());
+    }
+
+    public List<Channel> getCachedChannels() {
+        Snapshot current = snapshot;
+        return current == null ? List.of() : List.copyOf(current.channels().values());
+    }
+
+    public void invalidate() {
+        // A refresh already running may have read the rows before the change: stop others joining it, and
+        // move the epoch on before clearing so it cannot cache its result afterwards
+        synchronized (invalidations) {
+            invalidations.incrementAndGet();
+            refreshes.forgetAll();
+            snapshot = null;
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null || (ttlMillis > 0 && System.currentTimeMillis() - current.loadedAtMillis() > ttlMillis)) {
+            try {
+                current = refreshes.load("reference-data", this::reload, loadTimeoutMillis);
+            } catch (SingleFlight.LoadTimeoutException e) {
+                if (current == null) {
+                    throw e;
+                }
+                log.warn("Serving expired reference data - {}", e.getMessage());
+            }
+        }
+        return current;
+    }
+
+    private record Snapshot(Map<String, TransactionType> transactionTypes,
+                            Map<String, Channel> channels,
+                            long loadedAtMillis) {
+    }
+}
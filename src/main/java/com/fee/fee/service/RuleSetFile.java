@@ -0,0 +1,322 @@
+package com.fee.fee.service;
+
+import com.fee.fee.domain.Fee;
+import com.fee.fee.domain.FeeRange;
+import com.fee.fee.domain.FeeSharer;
+import com.fee.fee.enumeration.FeeCalculationType;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A tenant's compiled fees in a fixed binary layout, written by the {@link OffHeapRuleStore} writer and
+ * mapped read-only by every instance on the host.
+ * <p>
+ * Little-endian throughout. A 32-byte header (magic, format version, catalogue fingerprint, publish
+ * time, fee count) is followed by a directory of 24-byte entries (fee id, fee fingerprint, record
+ * offset) sorted by fee id, then one 8-byte aligned record per fee: calculation type, band count and
+ * sharer count, one scalar cell (the fixed amount or percentage fraction), the band table row by row,
+ * and the sharer weights. Decimals are 16-byte cells holding the unscaled long and the scale, with
+ * {@link #NULL_SCALE} for null. Band tables and weights are read in place on every calculation; only
+ * the scalar is decoded, once per catalogue load.
+ * <p>
+ * A fee is served from the file only while the loaded entity still has the fingerprint it was written
+ * with, so an instance whose catalogue is ahead of or behind the file compiles that fee on the heap.
+ */
+final class RuleSetFile {
+
+    private static final int MAGIC = 0x464C5552; // "RULF"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_BYTES = 32;
+    private static final int ENTRY_BYTES = 24;
+    private static final int RECORD_HEADER_BYTES = 16;
+    private static final int CELL_BYTES = 16;
+    private static final int NULL_SCALE = Integer.MIN_VALUE;
+    private static final long FINGERPRINT_SEED = 0x6A09E667F3BCC909L;
+
+    private final ByteBuffer buffer;
+    private final int feeCount;
+
+    private RuleSetFile(ByteBuffer buffer, int feeCount) {
+        this.buffer = buffer;
+        this.feeCount = feeCount;
+    }
+
+    /**
+     * Reads a buffer produced by {@link #encode}, or returns null when it holds something else.
+     */
+    static RuleSetFile wrap(ByteBuffer buffer) {
+        ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (view.capacity() < HEADER_BYTES || view.getInt(0) != MAGIC || view.getInt(4) != FORMAT_VERSION) {
+            return null;
+        }
+        int feeCount = view.getInt(24);
+        if (feeCount < 0 || HEADER_BYTES + (long) feeCount * ENTRY_BYTES > view.capacity()) {
+            return null;
+        }
+        return new RuleSetFile(view, feeCount);
+    }
+
+    /**
+     * Covers the id and fingerprint of every fee in the file, so two files with the same value hold the
+     * same compiled fees.
+     */
+    long catalogueFingerprint() {
+        return buffer.getLong(8);
+    }
+
+    long publishedAtMillis() {
+        return buffer.getLong(16);
+    }
+
+    int feeCount() {
+        return feeCount;
+    }
+
+    /**
+     * The fee compiled over this file's cells, or null when the file has no record of it as loaded.
+     */
+    CompiledFee compiledFee(Fee fee, SharerAllocationService sharerAllocationService) {
+        int entry = fee.getId() == null ? -1 : entryOf(fee.getId());
+        if (entry < 0 || buffer.getLong(entry + 8) != fingerprint(fee)) {
+            return null;
+        }
+        int record = buffer.getInt(entry + 16);
+        FeeCalculationType calculationType = fee.getCalculationType();
+        if (buffer.getInt(record) != calculationType.ordinal()) {
+            return null;
+        }
+        int bands = buffer.getInt(record + 4);
+        int sharers = buffer.getInt(record + 8);
+        int scalar = record + RECORD_HEADER_BYTES;
+        int table = scalar + CELL_BYTES;
+
+        FeeEvaluator evaluator = switch (calculationType) {
+            case FIXED -> new FixedFeeEvaluator(decimal(scalar));
+            case PERCENTAGE -> new PercentageFeeEvaluator(decimal(scalar));
+            case RANGED -> bands == 0 ? RangedFeeEvaluator.of(fee)
+                    : new RangedFeeEvaluator(fee.getId(), new MappedBandTable(table, bands, RangedFeeEvaluator.COLUMNS));
+            case TIERED -> bands == 0 ? TieredFeeEvaluator.of(fee)
+                    : new TieredFeeEvaluator(new MappedBandTable(table, bands, TieredFeeEvaluator.COLUMNS));
+        };
+        SharerSplit sharerSplit = sharers == 0 ? null : sharerAllocationService.compile(fee,
+                buffer.slice(table + bands * columnsOf(calculationType) * CELL_BYTES, sharers * Long.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .asLongBuffer());
+        return new CompiledFee(evaluator, sharerSplit);
+    }
+
+    private int entryOf(long feeId) {
+        int low = 0;
+        int high = feeCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long id = buffer.getLong(HEADER_BYTES + mid * ENTRY_BYTES);
+            if (id < feeId) {
+                low = mid + 1;
+            } else if (id > feeId) {
+                high = mid - 1;
+            } else {
+                return HEADER_BYTES + mid * ENTRY_BYTES;
+            }
+        }
+        return -1;
+    }
+
+    private BigDecimal decimal(int position) {
+        int scale = buffer.getInt(position + 8);
+        return scale == NULL_SCALE ? null : BigDecimal.valueOf(buffer.getLong(position), scale);
+    }
+
+    /**
+     * Lays out the given fees. Fees without an id, and fees with a decimal whose unscaled value does not
+     * fit in a long, are left out and compile on the heap wherever they are loaded.
+     */
+    static ByteBuffer encode(List<Fee> fees, long publishedAtMillis) {
+        List<Record> records = new ArrayList<>();
+        fees.stream()
+                .filter(fee -> fee.getId() != null)
+                .sorted(Comparator.comparing(Fee::getId))
+                .map(Record::of)
+                .filter(Objects::nonNull)
+                .forEach(records::add);
+
+        int size = HEADER_BYTES + records.size() * ENTRY_BYTES;
+        for (Record record : records) {
+            size += record.bytes();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+        long catalogueFingerprint = mix(FINGERPRINT_SEED, records.size());
+        int position = HEADER_BYTES + records.size() * ENTRY_BYTES;
+        for (int i = 0; i < records.size(); i++) {
+            Record record = records.get(i);
+            int entry = HEADER_BYTES + i * ENTRY_BYTES;
+            buffer.putLong(entry, record.fee().getId());
+            buffer.putLong(entry + 8, record.fingerprint());
+            buffer.putInt(entry + 16, position);
+            catalogueFingerprint = mix(mix(catalogueFingerprint, record.fee().getId()), record.fingerprint());
+
+            record.write(buffer, position);
+            position += record.bytes();
+        }
+
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, FORMAT_VERSION);
+        buffer.putLong(8, catalogueFingerprint);
+        buffer.putLong(16, publishedAtMillis);
+        buffer.putInt(24, records.size());
+        return buffer;
+    }
+
+    private static int columnsOf(FeeCalculationType calculationType) {
+        return switch (calculationType) {
+            case RANGED -> RangedFeeEvaluator.COLUMNS;
+            case TIERED -> TieredFeeEvaluator.COLUMNS;
+            case FIXED, PERCENTAGE -> 0;
+        };
+    }
+
+    private static boolean fitsCell(BigDecimal value) {
+        return value == null || value.unscaledValue().bitLength() < Long.SIZE;
+    }
+
+    private static void putDecimal(ByteBuffer buffer, int position, BigDecimal value) {
+        buffer.putLong(position, value == null ? 0 : value.unscaledValue().longValue());
+        buffer.putInt(position + 8, value == null ? NULL_SCALE : value.scale());
+    }
+
+    /**
+     * Hash of everything a fee's record is compiled from: calculation type, fixed amount, rate, ranges,
+     * sharing flag and sharer percentages (the only sharer input to the weights).
+     */
+    static long fingerprint(Fee fee) {
+        long hash = mix(FINGERPRINT_SEED, fee.getCalculationType().ordinal());
+        hash = mix(hash, fee.getFixedAmount());
+        hash = mix(hash, fee.getPercentageRate());
+        hash = mix(hash, fee.getFeeRanges().size());
+        for (FeeRange range : fee.getFeeRanges()) {
+            hash = mix(hash, range.getMinAmount());
+            hash = mix(hash, range.getMaxAmount());
+            hash = mix(hash, range.getAmount());
+            hash = mix(hash, range.getRate());
+        }
+        hash = mix(hash, Boolean.TRUE.equals(fee.getIsShared()) ? 1 : 0);
+        hash = mix(hash, fee.getFeeSharers().size());
+        for (FeeSharer sharer : fee.getFeeSharers()) {
+            hash = mix(hash, sharer.getPercentage());
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, BigDecimal value) {
+        return value == null
+                ? mix(hash, -1L)
+                : mix(mix(mix(hash, value.unscaledValue().longValue()), value.unscaledValue().bitLength()), value.scale());
+    }
+
+    private static long mix(long hash, long value) {
+        long mixed = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return mixed ^ (mixed >>> 29);
+    }
+
+    /**
+     * One fee's compiled cells, gathered before the layout is sized.
+     */
+    private record Record(Fee fee, long fingerprint, BigDecimal scalar, HeapBandTable bands, long[] weights) {
+
+        static Record of(Fee fee) {
+            BigDecimal scalar = switch (fee.getCalculationType()) {
+                case FIXED -> fee.getFixedAmount();
+                case PERCENTAGE -> fee.getPercentageRate() == null
+                        ? null : FeeEvaluator.percentageToFraction(fee.getPercentageRate());
+                case RANGED, TIERED -> null;
+            };
+            HeapBandTable bands = switch (fee.getCalculationType()) {
+                case RANGED -> RangedFeeEvaluator.bands(fee.getFeeRanges());
+                case TIERED -> TieredFeeEvaluator.bands(fee.getFeeRanges());
+                case FIXED, PERCENTAGE -> null;
+            };
+            // Same condition under which CompiledFee compiles a split
+            long[] weights = Boolean.TRUE.equals(fee.getIsShared()) && !fee.getFeeSharers().isEmpty()
+                    ? SharerSplit.weightsOf(fee.getFeeSharers())
+                    : new long[0];
+
+            if (!fitsCell(scalar)) {
+                return null;
+            }
+            int columns = columnsOf(fee.getCalculationType());
+            for (int band = 0; bands != null && band < bands.bands(); band++) {
+                for (int column = 0; column < columns; column++) {
+                    if (!fitsCell(bands.cell(band, column))) {
+                        return null;
+                    }
+                }
+            }
+            return new Record(fee, RuleSetFile.fingerprint(fee), scalar, bands, weights);
+        }
+
+        int bandCount() {
+            return bands == null ? 0 : bands.bands();
+        }
+
+        int bytes() {
+            return RECORD_HEADER_BYTES + CELL_BYTES
+                    + bandCount() * columnsOf(fee.getCalculationType()) * CELL_BYTES
+                    + weights.length * Long.BYTES;
+        }
+
+        void write(ByteBuffer buffer, int position) {
+            int columns = columnsOf(fee.getCalculationType());
+            buffer.putInt(position, fee.getCalculationType().ordinal());
+            buffer.putInt(position + 4, bandCount());
+            buffer.putInt(position + 8, weights.length);
+
+            int cell = position + RECORD_HEADER_BYTES;
+            putDecimal(buffer, cell, scalar);
+            cell += CELL_BYTES;
+            for (int band = 0; band < bandCount(); band++) {
+                for (int column = 0; column < columns; column++) {
+                    putDecimal(buffer, cell, bands.cell(band, column));
+                    cell += CELL_BYTES;
+                }
+            }
+            for (long weight : weights) {
+                buffer.putLong(cell, weight);
+                cell += Long.BYTES;
+            }
+        }
+    }
+
+    /**
+     * A band table read cell by cell from the file.
+     */
+    private final class MappedBandTable implements BandTable {
+
+        private final int position;
+        private final int bands;
+        private final int columns;
+
+        MappedBandTable(int position, int bands, int columns) {
+            this.position = position;
+            this.bands = bands;
+            this.columns = columns;
+        }
+
+        @Override
+        public int bands() {
+            return bands;
+        }
+
+        @Override
+        public BigDecimal cell(int band, int column) {
+            return decimal(position + (band * columns + column) * CELL_BYTES);
+        }
+    }
+}
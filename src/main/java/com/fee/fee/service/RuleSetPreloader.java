@@ -0,0 +1,304 @@
+package com.fee.fee.service;
+
+import com.fee.fee.Util.CorrelationIdContext;
+import com.fee.fee.Util.TenantShardContext;
+import com.fee.fee.config.ApplicationProperties;
+import com.fee.fee.domain.Channel;
+import com.fee.fee.domain.Fee;
+import com.fee.fee.domain.FeeRange;
+import com.fee.fee.domain.Tenant;
+import com.fee.fee.dto.FeeCalculationRequest;
+import com.fee.fee.repository.TenantRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads every tenant's active fee catalogue and the shared reference data (or restores them from the
+ * last {@link RuleSnapshotStore rule snapshot}), then runs synthetic
+ * calculations through {@link FeeService} so the hot path is compiled before the node takes traffic.
+ * <p>
+ * Runs as an {@link ApplicationRunner}: Spring Boot only moves readiness to ACCEPTING_TRAFFIC once
+ * all runners have returned, so {@code /actuator/health/readiness} stays DOWN until warm-up is done.
+ * A failing phase is logged and skipped rather than failing startup; the caches fill lazily instead.
+ */
+@Component
+@Slf4j
+public class RuleSetPreloader implements ApplicationRunner, InfoContributor {
+
+    private static final String WARMUP_CORRELATION_ID = "startup-warmup";
+
+    private final TenantRepository tenantRepository;
+    private final FeeCatalogueCache feeCatalogueCache;
+    private final ReferenceDataCache referenceDataCache;
+    private final TenantShardDirectory tenantShardDirectory;
+    private final FeeService feeService;
+    private final RuleSnapshotStore ruleSnapshotStore;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final DataSource dataSource;
+    private final ApplicationProperties.WarmupConfig config;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Long> phaseDurations = new ConcurrentHashMap<>();
+    private final Map<String, Object> phaseDetails = new ConcurrentHashMap<>();
+
+    public RuleSetPreloader(TenantRepository tenantRepository,
+                            FeeCatalogueCache feeCatalogueCache,
+                            ReferenceDataCache referenceDataCache,
+                            TenantShardDirectory tenantShardDirectory,
+                            FeeService feeService,
+                            RuleSnapshotStore ruleSnapshotStore,
+                            PlatformTransactionManager transactionManager,
+                            DataSource dataSource,
+                            ApplicationProperties applicationProperties,
+                            MeterRegistry meterRegistry) {
+        this.tenantRepository = tenantRepository;
+        this.feeCatalogueCache = feeCatalogueCache;
+        this.referenceDataCache = referenceDataCache;
+        this.tenantShardDirectory = tenantShardDirectory;
+        this.feeService = feeService;
+        this.ruleSnapshotStore = ruleSnapshotStore;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.dataSource = dataSource;
+        this.config = applicationProperties.getWarmup();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!config.isEnabled()) {
+            log.info("Startup warm-up disabled");
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        runPhase("snapshot-restore", this::restoreSnapshot);
+        boolean restored = (int) phaseDetails.getOrDefault("tenantsRestored", 0) > 0;
+        if (!restored) {
+            runPhase("reference-data", this::preloadReferenceData);
+            runPhase("catalogue-preload", this::preloadCatalogues);
+        }
+        runPhase("jit-warmup", this::warmUpCalculations);
+        recordPhase("total", System.nanoTime() - startedAt);
+        if (restored) {
+            ruleSnapshotStore.reconcileInBackground();
+        }
+
+        log.info("Startup warm-up completed - Phases (ms): {}", phaseDurations);
+    }
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        Map<String, Object> startup = new LinkedHashMap<>(phaseDetails);
+        startup.put("phaseDurationsMillis", Map.copyOf(phaseDurations));
+        builder.withDetail("startup", startup);
+    }
+
+    /**
+     * Serves from the last rule snapshot when there is one, skipping the database preload; the
+     * snapshot is reconciled with the database in the background once warm-up is done.
+     */
+    private void restoreSnapshot() {
+        phaseDetails.put("tenantsRestored", ruleSnapshotStore.restore());
+    }
+
+    private void preloadReferenceData() {
+        readOnlyTransactionTemplate.executeWithoutResult(status -> referenceDataCache.refresh());
+    }
+
+    private void preloadCatalogues() {
+        // Each shard is asked for its tenants; rows left behind by an unfinished move are skipped
+        Map<String, String> shardByTenant = new LinkedHashMap<>();
+        for (String shard : tenantShardDirectory.getShards()) {
+            List<Tenant> tenants = TenantShardContext.callWithShard(shard,
+                    () -> readOnlyTransactionTemplate.execute(status -> tenantRepository.findAll()));
+            for (Tenant tenant : tenants) {
+                if (shard.equals(tenantShardDirectory.resolve(tenant.getTenantId()))) {
+                    shardByTenant.put(tenant.getTenantId(), shard);
+                }
+            }
+        }
+        if (shardByTenant.isEmpty()) {
+            phaseDetails.put("tenantsLoaded", 0);
+            return;
+        }
+
+        int parallelism = Math.min(shardByTenant.size(), resolvePreloadParallelism());
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "catalogue-preload-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        AtomicInteger loaded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>(shardByTenant.size());
+            shardByTenant.forEach((tenantId, shard) -> futures.add(executor.submit(() -> {
+                try {
+                    // Re-read the tenant inside the loading transaction so the fees reference a
+                    // fully initialised instance rather than a detached proxy
+                    TenantShardContext.runWithShard(shard, () -> readOnlyTransactionTemplate.executeWithoutResult(
+                            status -> tenantRepository.findByTenantId(tenantId).ifPresent(feeCatalogueCache::load)));
+                    loaded.incrementAndGet();
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                    log.warn("Failed to preload fee catalogue for tenant: {}", tenantId, e);
+                }
+            })));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Fee catalogue preload did not complete", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        phaseDetails.put("tenantsLoaded", loaded.get());
+        phaseDetails.put("tenantsFailed", failed.get());
+        phaseDetails.put("preloadParallelism", parallelism);
+        log.info("Preloaded fee catalogues - Tenants: {}, Failed: {}, Parallelism: {}",
+                loaded.get(), failed.get(), parallelism);
+    }
+
+    private void warmUpCalculations() {
+        List<FeeCalculationRequest> requests = buildSyntheticRequests();
+        int target = config.getSyntheticCalculations();
+        if (requests.isEmpty() || target <= 0) {
+            phaseDetails.put("syntheticCalculations", 0);
+            return;
+        }
+
+        int rejected = 0;
+        CorrelationIdContext.setCorrelationId(WARMUP_CORRELATION_ID);
+        try {
+            for (int i = 0; i < target; i++) {
+                try {
+                    feeService.calculateFee(requests.get(i % requests.size()), false);
+                } catch (RuntimeException e) {
+                    // Rejections exercise the error path too; they are expected for some shapes
+                    rejected++;
+                }
+            }
+        } finally {
+            CorrelationIdContext.clear();
+            TenantShardContext.clear();
+        }
+
+        phaseDetails.put("syntheticCalculations", target);
+        phaseDetails.put("syntheticRequestShapes", requests.size());
+        log.info("Ran {} synthetic calculations over {} request shapes - Rejected: {}",
+                target, requests.size(), rejected);
+    }
+
+    /**
+     * One request per cached fee, shaped so the cascade resolves to that fee and, for ranged fees,
+     * once per range so every lookup branch is exercised.
+     */
+    private List<FeeCalculationRequest> buildSyntheticRequests() {
+        List<FeeCalculationRequest> requests = new ArrayList<>();
+        for (String tenantId : feeCatalogueCache.getCachedTenantIds()) {
+            TenantCatalogue catalogue = feeCatalogueCache.peek(tenantId).orElse(null);
+            if (catalogue == null) {
+                continue;
+            }
+            for (Fee fee : catalogue.getActiveFees()) {
+                if (fee.getTransactionType() == null || fee.getChannels().isEmpty()) {
+                    continue;
+                }
+                Channel channel = fee.getChannels().iterator().next();
+                for (BigDecimal amount : sampleAmounts(fee)) {
+                    requests.add(FeeCalculationRequest.builder()
+                            .tenantId(tenantId)
+                            .transactionType(fee.getTransactionType().getName())
+                            .channel(channel.getName())
+                            .amount(amount)
+                            .clientId(fee.getClientId())
+                            .productId(fee.getProductId())
+                            .processorId(fee.getProcessorId())
+                            .applySharing(true)
+                            .build());
+                }
+            }
+        }
+        return requests;
+    }
+
+    private List<BigDecimal> sampleAmounts(Fee fee) {
+        List<BigDecimal> amounts = new ArrayList<>();
+        for (FeeRange range : fee.getFeeRanges()) {
+            if (range.getMinAmount() != null) {
+                amounts.add(range.getMinAmount());
+            }
+        }
+        if (amounts.isEmpty()) {
+            amounts.add(new BigDecimal("1000.00"));
+        }
+        return amounts;
+    }
+
+    private int resolvePreloadParallelism() {
+        if (config.getPreloadParallelism() > 0) {
+            return config.getPreloadParallelism();
+        }
+        try {
+            // Unwraps through the shard routing proxy to the default shard's pool when sharding is on
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return Math.max(1, dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize());
+            }
+        } catch (SQLException e) {
+            log.debug("Could not determine connection pool size", e);
+        }
+        return Math.max(1, Runtime.getRuntime().availableProcessors());
+    }
+
+    private void runPhase(String phase, Runnable action) {
+        long startedAt = System.nanoTime();
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            log.warn("Startup warm-up phase failed: {}", phase, e);
+        }
+        recordPhase(phase, System.nanoTime() - startedAt);
+    }
+
+    private void recordPhase(String phase, long elapsedNanos) {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        boolean firstRecording = phaseDurations.put(phase, elapsedMillis) == null;
+        if (firstRecording) {
+            TimeGauge.builder("fee.startup.phase.duration", phaseDurations,
+                            TimeUnit.MILLISECONDS, durations -> durations.getOrDefault(phase, 0L))
+                    .tag("phase", phase)
+                    .description("Duration of each startup warm-up phase")
+                    .register(meterRegistry);
+        }
+        log.info("Startup phase {} took {} ms", phase, elapsedMillis);
+    }
+}
@@ -0,0 +1,26 @@
+package com.fee.fee.service;
+
+import com.fee.fee.domain.Channel;
+import com.fee.fee.domain.Fee;
+import com.fee.fee.domain.Tenant;
+import com.fee.fee.domain.TransactionType;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a node needs to calculate without reading the database: the cached reference data and each
+ * cached tenant's active fees, with the rule version they were loaded at. Entities are detached and
+ * fully initialised, as in a loaded {@link TenantCatalogue}. A tenant's fees leave out its CLIENT fees
+ * and template assignments when they were budgeted in the {@link ClientFeeCache} rather than held in the
+ * catalogue.
+ */
+record RuleSnapshot(long writtenAtMillis,
+                    List<TransactionType> transactionTypes,
+                    List<Channel> channels,
+                    List<TenantRules> tenants) {
+
+    record TenantRules(Tenant tenant, long ruleVersion, boolean clientFeesIncluded, List<Fee> fees,
+                       Map<String, String> templateAssignments) {
+    }
+}
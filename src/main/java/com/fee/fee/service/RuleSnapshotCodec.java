@@ -0,0 +1,399 @@
+package com.fee.fee.service;
+
+import com.fee.fee.domain.Channel;
+import com.fee.fee.domain.Fee;
+import com.fee.fee.domain.FeeRange;
+import com.fee.fee.domain.FeeSharer;
+import com.fee.fee.domain.Tenant;
+import com.fee.fee.domain.TransactionType;
+import com.fee.fee.enumeration.FeeCalculationType;
+import com.fee.fee.enumeration.FeeType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary form of a {@link RuleSnapshot}.
+ * <p>
+ * A 32-byte header (magic, format version, write time, payload length, CRC32C of the payload) is
+ * followed by the payload: the transaction type and channel tables (every one cached or referenced by
+ * a fee), the ids of those cached as reference data, and then each tenant with its rule version,
+ * whether its CLIENT fees are included, its fees and its client template assignments. Fees refer to
+ * transaction types and channels by id. Big-endian, as written by {@link DataOutputStream}. Decoding
+ * verifies the checksum before reading anything else, so a torn or corrupted file is rejected as a whole.
+ */
+final class RuleSnapshotCodec {
+
+    private static final int MAGIC = 0x46534E50; // "FSNP"
+    private static final int FORMAT_VERSION = 4;
+    private static final int HEADER_BYTES = 32;
+
+    private RuleSnapshotCodec() {
+    }
+
+    static ByteBuffer encode(RuleSnapshot snapshot) {
+        Map<Long, TransactionType> transactionTypes = new LinkedHashMap<>();
+        Map<Long, Channel> channels = new LinkedHashMap<>();
+        snapshot.transactionTypes().forEach(transactionType -> transactionTypes.put(transactionType.getId(), transactionType));
+        snapshot.channels().forEach(channel -> channels.put(channel.getId(), channel));
+        for (RuleSnapshot.TenantRules tenant : snapshot.tenants()) {
+            for (Fee fee : tenant.fees()) {
+                if (fee.getTransactionType() != null) {
+                    transactionTypes.putIfAbsent(fee.getTransactionType().getId(), fee.getTransactionType());
+                }
+                fee.getChannels().forEach(channel -> channels.putIfAbsent(channel.getId(), channel));
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.write(new byte[HEADER_BYTES]);
+
+            out.writeInt(transactionTypes.size());
+            for (TransactionType transactionType : transactionTypes.values()) {
+                writeLong(out, transactionType.getId());
+                writeString(out, transactionType.getName());
+                writeString(out, transactionType.getCode());
+                writeString(out, transactionType.getDescription());
+                writeBoolean(out, transactionType.getIsActive());
+                writeTime(out, transactionType.getCreatedAt());
+            }
+            out.writeInt(channels.size());
+            for (Channel channel : channels.values()) {
+                writeLong(out, channel.getId());
+                writeString(out, channel.getName());
+                writeString(out, channel.getCode());
+                writeString(out, channel.getDescription());
+                writeBoolean(out, channel.getIsActive());
+                writeTime(out, channel.getCreatedAt());
+            }
+            writeIds(out, snapshot.transactionTypes().stream().map(TransactionType::getId).toList());
+            writeIds(out, snapshot.channels().stream().map(Channel::getId).toList());
+
+            out.writeInt(snapshot.tenants().size());
+            for (RuleSnapshot.TenantRules tenant : snapshot.tenants()) {
+                writeLong(out, tenant.tenant().getId());
+                writeString(out, tenant.tenant().getTenantId());
+                writeString(out, tenant.tenant().getName());
+                writeLong(out, tenant.tenant().getRuleVersion());
+                out.writeLong(tenant.ruleVersion());
+                out.writeBoolean(tenant.clientFeesIncluded());
+                out.writeInt(tenant.fees().size());
+                for (Fee fee : tenant.fees()) {
+                    writeFee(out, fee);
+                }
+                out.writeInt(tenant.templateAssignments().size());
+                for (Map.Entry<String, String> assignment : tenant.templateAssignments().entrySet()) {
+                    writeString(out, assignment.getKey());
+                    writeString(out, assignment.getValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.slice(HEADER_BYTES, buffer.capacity() - HEADER_BYTES));
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, FORMAT_VERSION);
+        buffer.putLong(8, snapshot.writtenAtMillis());
+        buffer.putLong(16, buffer.capacity() - HEADER_BYTES);
+        buffer.putInt(24, (int) checksum.getValue());
+        return buffer;
+    }
+
+    /**
+     * @throws IllegalStateException when the buffer is not a complete snapshot of this format
+     */
+    static RuleSnapshot decode(ByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalStateException("Not a rule snapshot");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported rule snapshot format " + buffer.getInt(4));
+        }
+        long payloadLength = buffer.getLong(16);
+        if (payloadLength != buffer.capacity() - HEADER_BYTES) {
+            throw new IllegalStateException("Truncated rule snapshot");
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.slice(HEADER_BYTES, (int) payloadLength));
+        if ((int) checksum.getValue() != buffer.getInt(24)) {
+            throw new IllegalStateException("Rule snapshot checksum mismatch");
+        }
+
+        ByteBuffer in = buffer.slice(HEADER_BYTES, (int) payloadLength);
+        Map<Long, TransactionType> transactionTypes = new LinkedHashMap<>();
+        for (int i = in.getInt(); i > 0; i--) {
+            TransactionType transactionType = TransactionType.builder()
+                    .id(readLong(in))
+                    .name(readString(in))
+                    .code(readString(in))
+                    .description(readString(in))
+                    .isActive(readBoolean(in))
+                    .createdAt(readTime(in))
+                    .build();
+            transactionTypes.put(transactionType.getId(), transactionType);
+        }
+        Map<Long, Channel> channels = new LinkedHashMap<>();
+        for (int i = in.getInt(); i > 0; i--) {
+            Channel channel = Channel.builder()
+                    .id(readLong(in))
+                    .name(readString(in))
+                    .code(readString(in))
+                    .description(readString(in))
+                    .isActive(readBoolean(in))
+                    .createdAt(readTime(in))
+                    .build();
+            channels.put(channel.getId(), channel);
+        }
+        List<TransactionType> cachedTransactionTypes = readIds(in).stream().map(transactionTypes::get).toList();
+        List<Channel> cachedChannels = readIds(in).stream().map(channels::get).toList();
+
+        int tenantCount = in.getInt();
+        List<RuleSnapshot.TenantRules> tenants = new ArrayList<>(tenantCount);
+        for (int t = 0; t < tenantCount; t++) {
+            Tenant tenant = Tenant.builder()
+                    .id(readLong(in))
+                    .tenantId(readString(in))
+                    .name(readString(in))
+                    .ruleVersion(readLong(in))
+                    .build();
+            long ruleVersion = in.getLong();
+            boolean clientFeesIncluded = in.get() != 0;
+            int feeCount = in.getInt();
+            List<Fee> fees = new ArrayList<>(feeCount);
+            for (int f = 0; f < feeCount; f++) {
+                fees.add(readFee(in, tenant, transactionTypes, channels));
+            }
+            int assignmentCount = in.getInt();
+            Map<String, String> templateAssignments = new HashMap<>(assignmentCount * 2);
+            for (int a = 0; a < assignmentCount; a++) {
+                templateAssignments.put(readString(in), readString(in));
+            }
+            tenants.add(new RuleSnapshot.TenantRules(tenant, ruleVersion, clientFeesIncluded, fees, templateAssignments));
+        }
+        return new RuleSnapshot(buffer.getLong(8), cachedTransactionTypes, cachedChannels, tenants);
+    }
+
+    /**
+     * Whether two fees would be written identically, i.e. a catalogue built from either calculates the
+     * same. Used to report what a reconciliation changed.
+     */
+    static boolean sameFee(Fee a, Fee b) {
+        return Arrays.equals(encodeFee(a), encodeFee(b));
+    }
+
+    private static byte[] encodeFee(Fee fee) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeFee(out, fee);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeFee(DataOutputStream out, Fee fee) throws IOException {
+        writeLong(out, fee.getId());
+        writeString(out, fee.getFeeType().name());
+        writeString(out, fee.getCalculationType().name());
+        writeString(out, fee.getName());
+        writeString(out, fee.getDescription());
+        writeLong(out, fee.getTransactionType() == null ? null : fee.getTransactionType().getId());
+        writeDecimal(out, fee.getFixedAmount());
+        writeDecimal(out, fee.getPercentageRate());
+        writeBoolean(out, fee.getIsShared());
+        writeString(out, fee.getProductId());
+        writeString(out, fee.getProcessorId());
+        writeString(out, fee.getClientId());
+        writeString(out, fee.getTemplateCode());
+        writeBoolean(out, fee.getIsActive());
+        writeTime(out, fee.getValidFrom());
+        writeTime(out, fee.getValidTo());
+        writeTime(out, fee.getCreatedAt());
+        writeTime(out, fee.getUpdatedAt());
+        writeLong(out, fee.getVersion());
+
+        writeIds(out, fee.getChannels().stream().map(Channel::getId).sorted().toList());
+        out.writeInt(fee.getFeeRanges().size());
+        for (FeeRange range : fee.getFeeRanges()) {
+            writeLong(out, range.getId());
+            writeDecimal(out, range.getMinAmount());
+            writeDecimal(out, range.getMaxAmount());
+            writeDecimal(out, range.getAmount());
+            writeDecimal(out, range.getRate());
+            writeTime(out, range.getCreatedAt());
+        }
+        out.writeInt(fee.getFeeSharers().size());
+        for (FeeSharer sharer : fee.getFeeSharers()) {
+            writeLong(out, sharer.getId());
+            writeString(out, sharer.getSharerType());
+            writeString(out, sharer.getSharerId());
+            writeString(out, sharer.getSharerName());
+            writeDecimal(out, sharer.getPercentage());
+            writeBoolean(out, sharer.getIsPrimary());
+            writeTime(out, sharer.getCreatedAt());
+            writeTime(out, sharer.getUpdatedAt());
+        }
+    }
+
+    private static Fee readFee(ByteBuffer in, Tenant tenant, Map<Long, TransactionType> transactionTypes,
+                               Map<Long, Channel> channels) {
+        Fee fee = Fee.builder()
+                .tenant(tenant)
+                .id(readLong(in))
+                .feeType(FeeType.valueOf(readString(in)))
+                .calculationType(FeeCalculationType.valueOf(readString(in)))
+                .name(readString(in))
+                .description(readString(in))
+                .build();
+        Long transactionTypeId = readLong(in);
+        fee.setTransactionType(transactionTypeId == null ? null : transactionTypes.get(transactionTypeId));
+        fee.setFixedAmount(readDecimal(in));
+        fee.setPercentageRate(readDecimal(in));
+        fee.setIsShared(readBoolean(in));
+        fee.setProductId(readString(in));
+        fee.setProcessorId(readString(in));
+        fee.setClientId(readString(in));
+        fee.setTemplateCode(readString(in));
+        fee.setIsActive(readBoolean(in));
+        fee.setValidFrom(readTime(in));
+        fee.setValidTo(readTime(in));
+        fee.setCreatedAt(readTime(in));
+        fee.setUpdatedAt(readTime(in));
+        fee.setVersion(readLong(in));
+
+        readIds(in).forEach(channelId -> fee.addChannel(channels.get(channelId)));
+        for (int i = in.getInt(); i > 0; i--) {
+            fee.addFeeRange(FeeRange.builder()
+                    .id(readLong(in))
+                    .minAmount(readDecimal(in))
+                    .maxAmount(readDecimal(in))
+                    .amount(readDecimal(in))
+                    .rate(readDecimal(in))
+                    .createdAt(readTime(in))
+                    .build());
+        }
+        for (int i = in.getInt(); i > 0; i--) {
+            fee.addFeeSharer(FeeSharer.builder()
+                    .id(readLong(in))
+                    .sharerType(readString(in))
+                    .sharerId(readString(in))
+                    .sharerName(readString(in))
+                    .percentage(readDecimal(in))
+                    .isPrimary(readBoolean(in))
+                    .createdAt(readTime(in))
+                    .updatedAt(readTime(in))
+                    .build());
+        }
+        return fee;
+    }
+
+    // Nullable values carry a leading presence byte; strings and decimals use a negative length instead
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(ByteBuffer in) {
+        return in.get() != 0 ? in.getLong() : null;
+    }
+
+    private static void writeBoolean(DataOutputStream out, Boolean value) throws IOException {
+        out.writeByte(value == null ? -1 : value ? 1 : 0);
+    }
+
+    private static Boolean readBoolean(ByteBuffer in) {
+        byte value = in.get();
+        return value < 0 ? null : value == 1;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeInt(unscaled.length);
+        out.write(unscaled);
+        out.writeInt(value.scale());
+    }
+
+    private static BigDecimal readDecimal(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] unscaled = new byte[length];
+        in.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), in.getInt());
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readTime(ByteBuffer in) {
+        return in.get() != 0 ? LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC) : null;
+    }
+
+    private static void writeIds(DataOutputStream out, List<Long> ids) throws IOException {
+        out.writeInt(ids.size());
+        for (Long id : ids) {
+            out.writeLong(id);
+        }
+    }
+
+    private static List<Long> readIds(ByteBuffer in) {
+        int count = in.getInt();
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(in.getLong());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,261 @@
+package com.fee.fee.service;
+
+import com.fee.fee.Util.TenantShardContext;
+import com.fee.fee.config.ApplicationProperties;
+import com.fee.fee.domain.Fee;
+import com.fee.fee.domain.Tenant;
+import com.fee.fee.repository.TenantRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persists the cached catalogues and reference data to a local {@link RuleSnapshotCodec snapshot file}
+ * so a restarted node can calculate straight away instead of first reading every tenant's fees.
+ * <p>
+ * The snapshot is rewritten on an interval, skipped while no cached tenant's rule version has changed,
+ * and once more on shutdown. On boot the {@link RuleSetPreloader} restores it and then starts the
+ * reconciliation, which compares each restored tenant's rule version with the database and reloads
+ * the tenants that moved on, logging the fees that drifted. A snapshot that fails its checksum is
+ * ignored and the node warms up from the database as usual.
+ */
+@Service
+@Slf4j
+public class RuleSnapshotStore {
+
+    private final FeeCatalogueCache feeCatalogueCache;
+    private final ReferenceDataCache referenceDataCache;
+    private final TenantRepository tenantRepository;
+    private final TenantShardDirectory tenantShardDirectory;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ApplicationProperties.SnapshotConfig config;
+    private final Path file;
+
+    // Restored catalogues awaiting reconciliation, by tenant id
+    private final Map<String, TenantCatalogue> restored = new ConcurrentHashMap<>();
+    private final LongAdder tenantsReconciled = new LongAdder();
+    private final LongAdder tenantsDrifted = new LongAdder();
+    private volatile Map<String, Long> writtenVersions = Map.of();
+    private ScheduledExecutorService executor;
+
+    public RuleSnapshotStore(FeeCatalogueCache feeCatalogueCache,
+                             ReferenceDataCache referenceDataCache,
+                             TenantRepository tenantRepository,
+                             TenantShardDirectory tenantShardDirectory,
+                             PlatformTransactionManager transactionManager,
+                             ApplicationProperties applicationProperties,
+                             MeterRegistry meterRegistry) {
+        this.feeCatalogueCache = feeCatalogueCache;
+        this.referenceDataCache = referenceDataCache;
+        this.tenantRepository = tenantRepository;
+        this.tenantShardDirectory = tenantShardDirectory;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.config = applicationProperties.getSnapshot();
+        this.file = Paths.get(config.getFile());
+
+        FunctionCounter.builder("fee.snapshot.tenants.reconciled", tenantsReconciled, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("fee.snapshot.tenants.drifted", tenantsDrifted, LongAdder::sum).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled()) {
+            log.info("Rule snapshots disabled");
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rule-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::writeQuietly,
+                config.getWriteIntervalMillis(), config.getWriteIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        writeQuietly();
+    }
+
+    /**
+     * Installs the snapshot's reference data and catalogues. Returns the number of tenants restored, 0
+     * when disabled or when there is no usable snapshot.
+     */
+    public int restore() {
+        if (!config.isEnabled()) {
+            return 0;
+        }
+        RuleSnapshot snapshot;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            snapshot = RuleSnapshotCodec.decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring rule snapshot {}: {}", file, e.getMessage());
+            return 0;
+        }
+
+        referenceDataCache.restore(snapshot.transactionTypes(), snapshot.channels());
+        long restoredAt = System.currentTimeMillis();
+        Map<String, Long> versions = new HashMap<>();
+        for (RuleSnapshot.TenantRules rules : snapshot.tenants()) {
+            TenantCatalogue catalogue = feeCatalogueCache.restore(rules, restoredAt);
+            if (catalogue == null) {
+                // Written while CLIENT fees were budgeted; this node loads the tenant from the database
+                continue;
+            }
+            restored.put(rules.tenant().getTenantId(), catalogue);
+            versions.put(rules.tenant().getTenantId(), rules.ruleVersion());
+        }
+        writtenVersions = versions;
+
+        log.info("Restored rule snapshot written at {} - Tenants: {}, Took: {} ms",
+                Instant.ofEpochMilli(snapshot.writtenAtMillis()), versions.size(),
+                System.currentTimeMillis() - restoredAt);
+        return versions.size();
+    }
+
+    /**
+     * Reconciles every restored tenant with the database on the snapshot thread.
+     */
+    public void reconcileInBackground() {
+        if (executor != null && !restored.isEmpty()) {
+            executor.execute(this::reconcile);
+        }
+    }
+
+    private void reconcile() {
+        try {
+            readOnlyTransactionTemplate.executeWithoutResult(status -> referenceDataCache.refresh());
+        } catch (RuntimeException e) {
+            log.warn("Reference data refresh after snapshot restore failed: {}", e.getMessage());
+        }
+        for (String tenantId : List.copyOf(restored.keySet())) {
+            try {
+                TenantShardContext.runWithShard(tenantShardDirectory.resolve(tenantId),
+                        () -> readOnlyTransactionTemplate.executeWithoutResult(status -> reconcile(tenantId)));
+            } catch (RuntimeException e) {
+                // The catalogue cache TTL replaces the restored catalogue eventually regardless
+                log.warn("Snapshot reconciliation failed for tenant: {}", tenantId, e);
+            } finally {
+                restored.remove(tenantId);
+            }
+        }
+        log.info("Snapshot reconciliation completed - Tenants reconciled: {}, Drifted: {}",
+                tenantsReconciled.sum(), tenantsDrifted.sum());
+    }
+
+    private void reconcile(String tenantId) {
+        TenantCatalogue snapshotCatalogue = restored.get(tenantId);
+        Optional<Tenant> tenant = tenantRepository.findByTenantId(tenantId);
+        tenantsReconciled.increment();
+        if (tenant.isEmpty()) {
+            tenantsDrifted.increment();
+            feeCatalogueCache.invalidate(tenantId);
+            log.warn("Snapshot drift corrected for tenant: {} - Tenant no longer exists", tenantId);
+            return;
+        }
+        long ruleVersion = tenant.get().getRuleVersion() == null ? 0 : tenant.get().getRuleVersion();
+        if (ruleVersion == snapshotCatalogue.getRuleVersion()) {
+            log.debug("Snapshot of tenant: {} is current at rule version {}", tenantId, ruleVersion);
+            return;
+        }
+
+        tenantsDrifted.increment();
+        TenantCatalogue current = feeCatalogueCache.load(tenant.get());
+        Map<Long, Fee> snapshotFees = new HashMap<>();
+        snapshotCatalogue.getActiveFees().forEach(fee -> snapshotFees.put(fee.getId(), fee));
+        List<Long> added = new ArrayList<>();
+        List<Long> changed = new ArrayList<>();
+        for (Fee fee : current.getActiveFees()) {
+            Fee before = snapshotFees.remove(fee.getId());
+            if (before == null) {
+                added.add(fee.getId());
+            } else if (!RuleSnapshotCodec.sameFee(before, fee)) {
+                changed.add(fee.getId());
+            }
+        }
+        log.warn("Snapshot drift corrected for tenant: {} - Rule version: {} -> {}, Fees added: {}, removed: {}, changed: {}",
+                tenantId, snapshotCatalogue.getRuleVersion(), current.getRuleVersion(), added,
+                snapshotFees.keySet(), changed);
+    }
+
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Rule snapshot write failed: {}", e.getMessage());
+        }
+    }
+
+    private void write() throws IOException {
+        List<RuleSnapshot.TenantRules> tenants = new ArrayList<>();
+        Map<String, Long> versions = new HashMap<>();
+        for (String tenantId : feeCatalogueCache.getCachedTenantIds()) {
+            // Restored catalogues not yet reconciled are written back as they are; their versions are
+            // checked again after the next restore
+            TenantCatalogue catalogue = feeCatalogueCache.peek(tenantId).orElse(null);
+            if (catalogue == null) {
+                continue;
+            }
+            tenants.add(new RuleSnapshot.TenantRules(catalogue.getTenant(), catalogue.getRuleVersion(),
+                    catalogue.holdsClientFees(), catalogue.getActiveFees(), catalogue.getTemplateAssignments()));
+            versions.put(tenantId, catalogue.getRuleVersion());
+        }
+        if (versions.equals(writtenVersions) || tenants.isEmpty()) {
+            return;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        ByteBuffer encoded = RuleSnapshotCodec.encode(new RuleSnapshot(startedAt,
+                referenceDataCache.getCachedTransactionTypes(), referenceDataCache.getCachedChannels(), tenants));
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (encoded.hasRemaining()) {
+                    channel.write(encoded);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        writtenVersions = versions;
+        log.debug("Wrote rule snapshot - Tenants: {}, Bytes: {}, Took: {} ms",
+                tenants.size(), encoded.capacity(), System.currentTimeMillis() - startedAt);
+    }
+}
@@ -0,0 +1,63 @@
+package com.fee.fee.service;
+
+import java.util.Collection;
+
+/**
+ * Open-addressing dictionary from the client, product and processor ids that scope a catalogue's
+ * fees to dense int codes, so a request's ids are encoded once on the way in and every index probe
+ * after that is primitive. Sized for all its ids up front and immutable after construction. Codes
+ * follow first appearance, so fees listed scope by scope get ascending codes.
+ */
+final class ScopeDictionary {
+
+    /** Code of the absent scope of DEFAULT fees. */
+    static final int NO_SCOPE = 0;
+    /** Code of an id no fee in the catalogue is scoped to. */
+    static final int UNKNOWN = -1;
+
+    private final String[] keys;
+    private final int[] codes;
+    private int size;
+
+    ScopeDictionary(Collection<String> ids) {
+        int capacity = Integer.highestOneBit(Math.max(ids.size(), 8) * 2 - 1) << 1;
+        this.keys = new String[capacity];
+        this.codes = new int[capacity];
+        for (String id : ids) {
+            int slot = slotOf(id);
+            if (keys[slot] == null) {
+                keys[slot] = id;
+                codes[slot] = ++size;
+            }
+        }
+    }
+
+    /**
+     * Codes run from {@link #NO_SCOPE} up to, but excluding, this bound.
+     */
+    int codeBound() {
+        return size + 1;
+    }
+
+    int codeOf(String id) {
+        if (id == null) {
+            return NO_SCOPE;
+        }
+        int slot = slotOf(id);
+        return keys[slot] != null ? codes[slot] : UNKNOWN;
+    }
+
+    /**
+     * The slot holding {@code id}, or the empty slot where it would go (linear probing).
+     */
+    private int slotOf(String id) {
+        int mask = keys.length - 1;
+        // Similar ids have clustered String hashes; spread them so linear probing stays short
+        int hash = id.hashCode() * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (keys[slot] != null && !keys[slot].equals(id)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
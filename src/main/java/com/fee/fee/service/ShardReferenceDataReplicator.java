@@ -0,0 +1,87 @@
+package com.fee.fee.service;
+
+import com.fee.fee.Util.TenantShardContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Copies transaction types and channels from the default shard to every other shard, keeping ids
+ * so fees on any shard can reference them. Reference data is only ever written on the default shard;
+ * rows removed there are removed from the other shards unless fees still reference them.
+ */
+@Service
+@Slf4j
+public class ShardReferenceDataReplicator {
+
+    private static final List<String> REFERENCE_TABLES = List.of("transaction_types", "channels");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TenantShardDirectory tenantShardDirectory;
+
+    public ShardReferenceDataReplicator(JdbcTemplate jdbcTemplate,
+                                        PlatformTransactionManager transactionManager,
+                                        TenantShardDirectory tenantShardDirectory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.tenantShardDirectory = tenantShardDirectory;
+    }
+
+    public void replicate() {
+        if (!tenantShardDirectory.isEnabled()) {
+            return;
+        }
+        String defaultShard = tenantShardDirectory.getDefaultShard();
+        for (String table : REFERENCE_TABLES) {
+            List<Map<String, Object>> rows = TenantShardContext.callWithShard(defaultShard, () ->
+                    jdbcTemplate.queryForList("SELECT id, name, code, description, is_active, created_at FROM " + table));
+
+            for (String shard : tenantShardDirectory.getShards()) {
+                if (!shard.equals(defaultShard)) {
+                    TenantShardContext.runWithShard(shard, () -> replicateTable(shard, table, rows));
+                }
+            }
+        }
+    }
+
+    private void replicateTable(String shard, String table, List<Map<String, Object>> rows) {
+        Set<Long> ids = new HashSet<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Map<String, Object> row : rows) {
+                Object[] values = {row.get("name"), row.get("code"), row.get("description"),
+                        row.get("is_active"), row.get("created_at"), row.get("id")};
+                ids.add(((Number) row.get("id")).longValue());
+
+                int updated = jdbcTemplate.update("UPDATE " + table
+                        + " SET name = ?, code = ?, description = ?, is_active = ?, created_at = ? WHERE id = ?", values);
+                if (updated == 0) {
+                    jdbcTemplate.update("INSERT INTO " + table
+                            + " (name, code, description, is_active, created_at, id) VALUES (?, ?, ?, ?, ?, ?)", values);
+                }
+            }
+        });
+
+        List<Long> existing = jdbcTemplate.queryForList("SELECT id FROM " + table, Long.class);
+        for (Long id : existing) {
+            if (!ids.contains(id)) {
+                try {
+                    jdbcTemplate.update("DELETE FROM " + table + " WHERE id = ?", id);
+                } catch (DataAccessException e) {
+                    log.warn("Could not remove {} row {} from shard {}; it is still referenced", table, id, shard);
+                }
+            }
+        }
+        log.debug("Replicated {} {} rows to shard {}", rows.size(), table, shard);
+    }
+}
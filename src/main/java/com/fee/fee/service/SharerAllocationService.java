@@ -0,0 +1,62 @@
+package com.fee.fee.service;
+
+import com.fee.fee.config.ApplicationProperties;
+import com.fee.fee.domain.Fee;
+import com.fee.fee.dto.FeeSharerCalculation;
+import com.fee.fee.enumeration.FeeCalculationType;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.LongBuffer;
+import java.util.List;
+
+/**
+ * Splits calculated fees between sharers using per-fee compiled {@link SharerSplit}s.
+ * <p>
+ * Splits are compiled with {@link #compile} as part of a fee's {@link CompiledFee}, so they live and
+ * are rebuilt with the tenant's catalogue; {@link #distribute} only applies one to a fee amount.
+ */
+@Service
+public class SharerAllocationService {
+
+    private final int minorUnitScale;
+
+    public SharerAllocationService(ApplicationProperties applicationProperties) {
+        this.minorUnitScale = applicationProperties.getCalculation().getMinorUnitScale();
+    }
+
+    /**
+     * Splits {@code totalFeeAmount} with the fee's split, reusing the precomputed distribution when a
+     * FIXED fee charges its fixed amount.
+     */
+    public List<FeeSharerCalculation> distribute(SharerSplit split, Fee fee, BigDecimal totalFeeAmount) {
+        BigDecimal[] amounts = split.getFixedDistribution();
+        if (amounts == null || !isFixedAmount(fee, totalFeeAmount)) {
+            amounts = split.distributeAmount(totalFeeAmount, minorUnitScale);
+        }
+        return split.toCalculations(amounts);
+    }
+
+    public SharerSplit compile(Fee fee) {
+        BigDecimal fixedAmount = fee.getCalculationType() == FeeCalculationType.FIXED ? fee.getFixedAmount() : null;
+        return new SharerSplit(fee.getFeeSharers(), LongBuffer.wrap(SharerSplit.weightsOf(fee.getFeeSharers())),
+                fixedAmount, minorUnitScale);
+    }
+
+    /**
+     * Compiles with weights read in place from a {@link RuleSetFile}, which must hold one per sharer of
+     * {@code fee} in list order.
+     */
+    SharerSplit compile(Fee fee, LongBuffer weights) {
+        BigDecimal fixedAmount = fee.getCalculationType() == FeeCalculationType.FIXED ? fee.getFixedAmount() : null;
+        return new SharerSplit(fee.getFeeSharers(), weights, fixedAmount, minorUnitScale);
+    }
+
+    // Fee amounts arrive rounded to minor units, as the fixed distribution was
+    private boolean isFixedAmount(Fee fee, BigDecimal totalFeeAmount) {
+        return fee.getCalculationType() == FeeCalculationType.FIXED
+                && fee.getFixedAmount() != null
+                && totalFeeAmount.compareTo(fee.getFixedAmount().setScale(minorUnitScale, RoundingMode.HALF_EVEN)) == 0;
+    }
+}
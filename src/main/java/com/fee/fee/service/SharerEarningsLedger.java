@@ -0,0 +1,345 @@
+package com.fee.fee.service;
+
+import com.fee.fee.config.ApplicationProperties;
+import com.fee.fee.domain.SharerEarning;
+import com.fee.fee.dto.FeeSharerCalculation;
+import com.fee.fee.dto.SharerEarningResponse;
+import com.fee.fee.repository.SharerEarningRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Live running totals of sharer earnings per (tenant, sharerId, day).
+ * <p>
+ * The calculation path only adds to a striped {@link LongAdder} per key (fixed-point units at
+ * {@code app.ledger.scale} decimals); it never blocks or touches the database. A background flusher
+ * moves the accumulated deltas into {@code sharer_earnings} with batched update-then-insert upserts,
+ * and balance queries return the persisted total plus whatever has not been flushed yet.
+ * <p>
+ * Crash recovery: deltas live only in memory until the next successful flush, so an abrupt stop
+ * loses at most one flush interval of earnings (a graceful shutdown flushes first). A failed flush
+ * puts its deltas back and retries on the next cycle; a failure after the database committed but
+ * before the commit was acknowledged can therefore apply a batch twice. The ledger is an
+ * operational view, and totals for an affected window should be rebuilt from the calculation
+ * records when exact figures are required.
+ */
+@Service
+@Slf4j
+public class SharerEarningsLedger {
+
+    private static final String UPDATE_SQL =
+            "UPDATE sharer_earnings SET amount = amount + ?, updated_at = ? " +
+                    "WHERE tenant_id = ? AND sharer_id = ? AND earning_date = ?";
+    private static final String INSERT_SQL =
+            "INSERT INTO sharer_earnings (tenant_id, sharer_id, earning_date, amount, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?)";
+
+    private final ConcurrentHashMap<LedgerKey, LongAdder> pending = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder droppedRecords = new LongAdder();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SharerEarningRepository sharerEarningRepository;
+    private final ApplicationProperties applicationProperties;
+    private final ApplicationProperties.LedgerConfig config;
+    private final ZoneId zone;
+
+    private volatile DayWindow currentDay;
+    private ScheduledExecutorService flusher;
+
+    public SharerEarningsLedger(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                SharerEarningRepository sharerEarningRepository,
+                                ApplicationProperties applicationProperties,
+                                MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sharerEarningRepository = sharerEarningRepository;
+        this.applicationProperties = applicationProperties;
+        this.config = applicationProperties.getLedger();
+        this.zone = ZoneId.of(config.getZone());
+        this.currentDay = DayWindow.containing(System.currentTimeMillis(), zone);
+
+        Gauge.builder("fee.ledger.pending.keys", pending, Map::size).register(meterRegistry);
+        FunctionCounter.builder("fee.ledger.flushed.rows", flushedRows, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("fee.ledger.flush.failures", flushFailures, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("fee.ledger.records.dropped", droppedRecords, LongAdder::sum).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled()) {
+            log.info("Sharer earnings ledger disabled");
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sharer-ledger-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly,
+                config.getFlushIntervalMillis(), config.getFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+        log.info("Sharer earnings ledger started - Flush interval: {} ms", config.getFlushIntervalMillis());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        flushQuietly();
+    }
+
+    /**
+     * Adds each sharer's amount to today's running total. Lock-free; called on the calculation path.
+     * <p>
+     * A calculation with an amount too large for the fixed-point units is left out as a whole and
+     * counted under {@code fee.ledger.records.dropped}, rather than failing a fee that has been charged;
+     * its window has to be rebuilt from the calculation records like any other gap.
+     */
+    public void record(String tenantId, List<FeeSharerCalculation> calculations) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        long[] units = new long[calculations.size()];
+        try {
+            for (int i = 0; i < units.length; i++) {
+                units[i] = toUnits(calculations.get(i).getAmount());
+            }
+        } catch (ArithmeticException e) {
+            droppedRecords.increment();
+            log.warn("Sharer earnings left out of the ledger, amount out of range - Tenant: {}, Sharers: {}",
+                    tenantId, calculations.size());
+            return;
+        }
+        long epochDay = currentEpochDay();
+        for (int i = 0; i < units.length; i++) {
+            if (units[i] != 0) {
+                adderFor(new LedgerKey(tenantId, calculations.get(i).getSharerId(), epochDay)).add(units[i]);
+            }
+        }
+    }
+
+    public List<SharerEarningResponse> getBalances(String tenantId, String sharerId, LocalDate from, LocalDate to) {
+        String effectiveTenantId = tenantId != null && !tenantId.trim().isEmpty()
+                ? tenantId
+                : applicationProperties.getTenant().getDefaultTenantId();
+        LocalDate today = LocalDate.ofEpochDay(currentEpochDay());
+        LocalDate fromDate = from != null ? from : today;
+        LocalDate toDate = to != null ? to : fromDate;
+        if (toDate.isBefore(fromDate)) {
+            throw new IllegalArgumentException("'to' date must not be before 'from' date");
+        }
+
+        Map<String, SharerEarningResponse> balances = new TreeMap<>();
+        flushLock.readLock().lock();
+        try {
+            List<SharerEarning> persisted = sharerId != null
+                    ? sharerEarningRepository.findByTenantIdAndSharerIdAndEarningDateBetween(effectiveTenantId, sharerId, fromDate, toDate)
+                    : sharerEarningRepository.findByTenantIdAndEarningDateBetween(effectiveTenantId, fromDate, toDate);
+
+            for (SharerEarning earning : persisted) {
+                balance(balances, effectiveTenantId, earning.getSharerId(), earning.getEarningDate())
+                        .setAmount(earning.getAmount());
+            }
+
+            for (Map.Entry<LedgerKey, LongAdder> entry : pending.entrySet()) {
+                LedgerKey key = entry.getKey();
+                LocalDate date = LocalDate.ofEpochDay(key.epochDay());
+                if (!key.tenantId().equals(effectiveTenantId)
+                        || (sharerId != null && !key.sharerId().equals(sharerId))
+                        || date.isBefore(fromDate) || date.isAfter(toDate)) {
+                    continue;
+                }
+                long units = entry.getValue().sum();
+                if (units != 0) {
+                    SharerEarningResponse response = balance(balances, effectiveTenantId, key.sharerId(), date);
+                    BigDecimal unflushed = BigDecimal.valueOf(units, config.getScale());
+                    response.setUnflushedAmount(response.getUnflushedAmount().add(unflushed));
+                    response.setAmount(response.getAmount().add(unflushed));
+                }
+            }
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        return new ArrayList<>(balances.values());
+    }
+
+    /**
+     * Moves all pending deltas to the database. Holding the write lock keeps balance queries from
+     * seeing a delta both in memory and in the table, or in neither.
+     */
+    public void flush() {
+        flushLock.writeLock().lock();
+        try {
+            List<PendingDelta> deltas = drainPending();
+            for (int start = 0; start < deltas.size(); start += config.getBatchSize()) {
+                List<PendingDelta> chunk = deltas.subList(start, Math.min(start + config.getBatchSize(), deltas.size()));
+                try {
+                    transactionTemplate.executeWithoutResult(status -> upsert(chunk));
+                    flushedRows.add(chunk.size());
+                } catch (RuntimeException e) {
+                    flushFailures.increment();
+                    List<PendingDelta> unwritten = deltas.subList(start, deltas.size());
+                    unwritten.forEach(delta -> adderFor(delta.key()).add(delta.units()));
+                    log.warn("Sharer ledger flush failed - {} deltas re-queued: {}", unwritten.size(), e.getMessage());
+                    return;
+                }
+            }
+            evictIdleKeys();
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Unexpected error flushing sharer ledger", e);
+        }
+    }
+
+    private List<PendingDelta> drainPending() {
+        List<PendingDelta> deltas = new ArrayList<>();
+        for (Map.Entry<LedgerKey, LongAdder> entry : pending.entrySet()) {
+            long units = entry.getValue().sumThenReset();
+            if (units != 0) {
+                deltas.add(new PendingDelta(entry.getKey(), units));
+            }
+        }
+        return deltas;
+    }
+
+    private void upsert(List<PendingDelta> chunk) {
+        Timestamp now = Timestamp.from(Instant.now());
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                PendingDelta delta = chunk.get(i);
+                ps.setBigDecimal(1, BigDecimal.valueOf(delta.units(), config.getScale()));
+                ps.setTimestamp(2, now);
+                ps.setString(3, delta.key().tenantId());
+                ps.setString(4, delta.key().sharerId());
+                ps.setDate(5, Date.valueOf(LocalDate.ofEpochDay(delta.key().epochDay())));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return chunk.size();
+            }
+        });
+
+        List<PendingDelta> missing = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                missing.add(chunk.get(i));
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                PendingDelta delta = missing.get(i);
+                ps.setString(1, delta.key().tenantId());
+                ps.setString(2, delta.key().sharerId());
+                ps.setDate(3, Date.valueOf(LocalDate.ofEpochDay(delta.key().epochDay())));
+                ps.setBigDecimal(4, BigDecimal.valueOf(delta.units(), config.getScale()));
+                ps.setTimestamp(5, now);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return missing.size();
+            }
+        });
+    }
+
+    // Keys older than yesterday can no longer receive writes, so drained ones are dropped
+    private void evictIdleKeys() {
+        long cutoff = currentEpochDay() - 1;
+        pending.entrySet().removeIf(entry -> entry.getKey().epochDay() < cutoff && entry.getValue().sum() == 0);
+    }
+
+    private LongAdder adderFor(LedgerKey key) {
+        LongAdder adder = pending.get(key);
+        return adder != null ? adder : pending.computeIfAbsent(key, k -> new LongAdder());
+    }
+
+    private long toUnits(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.setScale(config.getScale(), RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    private long currentEpochDay() {
+        long now = System.currentTimeMillis();
+        DayWindow day = currentDay;
+        if (now < day.startMillis() || now >= day.endMillis()) {
+            day = DayWindow.containing(now, zone);
+            currentDay = day;
+        }
+        return day.epochDay();
+    }
+
+    private SharerEarningResponse balance(Map<String, SharerEarningResponse> balances, String tenantId,
+                                          String sharerId, LocalDate date) {
+        return balances.computeIfAbsent(sharerId + '|' + date, k -> SharerEarningResponse.builder()
+                .tenantId(tenantId)
+                .sharerId(sharerId)
+                .date(date)
+                .amount(BigDecimal.ZERO)
+                .unflushedAmount(BigDecimal.ZERO)
+                .build());
+    }
+
+    private record LedgerKey(String tenantId, String sharerId, long epochDay) {
+    }
+
+    private record PendingDelta(LedgerKey key, long units) {
+    }
+
+    private record DayWindow(long epochDay, long startMillis, long endMillis) {
+        static DayWindow containing(long epochMillis, ZoneId zone) {
+            LocalDate date = Instant.ofEpochMilli(epochMillis).atZone(zone).toLocalDate();
+            return new DayWindow(date.toEpochDay(),
+                    date.atStartOfDay(zone).toInstant().toEpochMilli(),
+                    date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+        }
+    }
+}
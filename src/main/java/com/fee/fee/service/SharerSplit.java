@@ -0,0 +1,179 @@
+package com.fee.fee.service;
+
+import com.fee.fee.domain.FeeSharer;
+import com.fee.fee.dto.FeeSharerCalculation;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sharer split of one fee compiled to integer weights.
+ * <p>
+ * Percentages are scaled to integers (e.g. 33.33% becomes 3333 of 10000) once, so allocating a fee
+ * amount is pure long arithmetic. The weights are read through a {@link LongBuffer} so they can live
+ * in a mapped {@link RuleSetFile} as well as on the heap. Sharer metadata is copied off the entities
+ * so building results never touches Hibernate collections.
+ */
+@Getter
+public final class SharerSplit {
+
+    private final LongBuffer weights;
+    private final long weightTotal;
+    private final int primaryIndex;
+    private final String[] sharerTypes;
+    private final String[] sharerIds;
+    private final String[] sharerNames;
+    private final BigDecimal[] percentages;
+    private final boolean[] primaries;
+
+    // Whole distribution for FIXED fees, computed once per fee version; null otherwise
+    private final BigDecimal[] fixedDistribution;
+
+    /**
+     * @param weights one weight per sharer, in the order of {@code sharers}; see {@link #weightsOf}
+     */
+    SharerSplit(List<FeeSharer> sharers, LongBuffer weights, BigDecimal fixedAmount, int minorUnitScale) {
+        int count = sharers.size();
+        this.weights = weights;
+        this.sharerTypes = new String[count];
+        this.sharerIds = new String[count];
+        this.sharerNames = new String[count];
+        this.percentages = new BigDecimal[count];
+        this.primaries = new boolean[count];
+
+        long total = 0;
+        int primary = 0;
+        for (int i = 0; i < count; i++) {
+            FeeSharer sharer = sharers.get(i);
+            total += weights.get(i);
+            sharerTypes[i] = sharer.getSharerType();
+            sharerIds[i] = sharer.getSharerId();
+            sharerNames[i] = sharer.getSharerName();
+            percentages[i] = sharer.getPercentage();
+            primaries[i] = Boolean.TRUE.equals(sharer.getIsPrimary());
+            if (primaries[i]) {
+                primary = i;
+            }
+        }
+        this.weightTotal = total;
+        this.primaryIndex = primary;
+
+        this.fixedDistribution = fixedAmount != null ? distributeAmount(fixedAmount, minorUnitScale) : null;
+    }
+
+    /**
+     * The sharers' percentages scaled to integers by the largest scale among them.
+     */
+    static long[] weightsOf(List<FeeSharer> sharers) {
+        int percentageScale = 0;
+        for (FeeSharer sharer : sharers) {
+            percentageScale = Math.max(percentageScale, sharer.getPercentage().scale());
+        }
+        long[] weights = new long[sharers.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = sharers.get(i).getPercentage().movePointRight(percentageScale).longValueExact();
+        }
+        return weights;
+    }
+
+    /**
+     * Splits {@code amount}, rounded half-even to minor units first, across the sharers. The parts are
+     * whole minor units and always sum exactly to the rounded amount, whatever its sign or size.
+     */
+    BigDecimal[] distributeAmount(BigDecimal amount, int minorUnitScale) {
+        BigInteger units = amount.setScale(minorUnitScale, RoundingMode.HALF_EVEN).unscaledValue();
+        long[] shares = new long[sharerIds.length];
+        BigDecimal[] amounts = new BigDecimal[shares.length];
+        if (units.bitLength() < Long.SIZE || weightTotal <= 0) {
+            allocate(units.longValue(), shares);
+            for (int i = 0; i < shares.length; i++) {
+                amounts[i] = BigDecimal.valueOf(shares[i], minorUnitScale);
+            }
+            return amounts;
+        }
+
+        // Beyond a long: only the quotient needs big arithmetic, the remainder is below the weight total
+        BigInteger total = BigInteger.valueOf(weightTotal);
+        BigInteger[] quotientAndRemainder = units.divideAndRemainder(total);
+        BigInteger quotient = quotientAndRemainder[0];
+        long remainder = quotientAndRemainder[1].longValue();
+        if (remainder < 0) {
+            quotient = quotient.subtract(BigInteger.ONE);
+            remainder += weightTotal;
+        }
+        allocateRemainder(remainder, shares);
+        for (int i = 0; i < shares.length; i++) {
+            amounts[i] = new BigDecimal(quotient.multiply(BigInteger.valueOf(weights.get(i)))
+                    .add(BigInteger.valueOf(shares[i])), minorUnitScale);
+        }
+        return amounts;
+    }
+
+    /**
+     * Largest-remainder allocation of {@code units} in proportion to the weights. Each sharer gets its
+     * weight times the floored quotient of {@code units} by the weight total, plus its share of the
+     * non-negative remainder from {@link #allocateRemainder}, so negative amounts split as exactly as
+     * positive ones.
+     */
+    void allocate(long units, long[] result) {
+        if (weightTotal <= 0) {
+            return;
+        }
+        allocateRemainder(Math.floorMod(units, weightTotal), result);
+        long quotient = Math.floorDiv(units, weightTotal);
+        for (int i = 0; i < result.length; i++) {
+            result[i] += quotient * weights.get(i);
+        }
+    }
+
+    /**
+     * Splits a remainder below the weight total. Each sharer first gets the floor of its exact share;
+     * the units left over (fewer than the number of sharers) go one each to the sharers with the
+     * largest fractional remainders, the primary sharer winning ties. Remainders are recomputed rather
+     * than stored so nothing but {@code result} is written.
+     */
+    private void allocateRemainder(long remainder, long[] result) {
+        long allocated = 0;
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (remainder * weights.get(i)) / weightTotal;
+            allocated += result[i];
+        }
+
+        for (long leftover = remainder - allocated; leftover > 0; leftover--) {
+            int best = -1;
+            long bestRemainder = -1;
+            for (int i = 0; i < result.length; i++) {
+                long weight = weights.get(i);
+                if (result[i] != (remainder * weight) / weightTotal) {
+                    continue; // already received a leftover unit
+                }
+                long fraction = (remainder * weight) % weightTotal;
+                if (fraction > bestRemainder || (fraction == bestRemainder && i == primaryIndex)) {
+                    best = i;
+                    bestRemainder = fraction;
+                }
+            }
+            result[best]++;
+        }
+    }
+
+    List<FeeSharerCalculation> toCalculations(BigDecimal[] amounts) {
+        List<FeeSharerCalculation> calculations = new ArrayList<>(amounts.length);
+        for (int i = 0; i < amounts.length; i++) {
+            calculations.add(FeeSharerCalculation.builder()
+                    .sharerType(sharerTypes[i])
+                    .sharerId(sharerIds[i])
+                    .sharerName(sharerNames[i])
+                    .percentage(percentages[i])
+                    .amount(amounts[i])
+                    .isPrimary(primaries[i])
+                    .build());
+        }
+        return calculations;
+    }
+}
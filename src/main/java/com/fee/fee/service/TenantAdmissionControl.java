@@ -0,0 +1,123 @@
+package com.fee.fee.service;
+
+import com.fee.fee.Util.TokenBucket;
+import com.fee.fee.config.ApplicationProperties;
+import com.fee.fee.exception.TenantThrottledException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-tenant rate limits on fee calculations, so one tenant's burst cannot take the node's capacity
+ * from the others.
+ * <p>
+ * Each tenant gets a {@link TokenBucket} sized by its {@code app.admission.tenants} entry or the default
+ * limit. Admission is a map read and a CAS, with no locks on the request path; a bucket is only created
+ * on a tenant's first request. Tenants seen after {@code max-tracked-tenants} share one overflow bucket,
+ * so arbitrary tenant ids cannot grow the table. Admitted and shed counts are tagged by tenant only for
+ * the configured tenants and the default one; every other tenant is counted under {@code _overflow},
+ * so request-supplied ids cannot grow the meter registry either.
+ */
+@Service
+@Slf4j
+public class TenantAdmissionControl {
+
+    private static final String OVERFLOW_TENANT = "_overflow";
+
+    private final ApplicationProperties.AdmissionConfig config;
+    private final String defaultTenantId;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, TenantGate> gates = new ConcurrentHashMap<>();
+    private final GateCounters overflowCounters;
+    private volatile TenantGate overflowGate;
+
+    public TenantAdmissionControl(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.config = applicationProperties.getAdmission();
+        this.defaultTenantId = applicationProperties.getTenant().getDefaultTenantId();
+        this.meterRegistry = meterRegistry;
+        this.overflowCounters = registerCounters(OVERFLOW_TENANT);
+        log.info("Tenant admission control {} - Default limit: {}/s, Burst: {}, Overrides: {}",
+                config.isEnabled() ? "enabled" : "disabled", config.getDefaultLimit().getRequestsPerSecond(),
+                config.getDefaultLimit().getBurst(), config.getTenants().keySet());
+    }
+
+    /**
+     * Admits one request for the tenant or throws {@link TenantThrottledException} with the time until
+     * the tenant's next permit.
+     */
+    public void admit(String tenantId) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        TenantGate gate = gates.get(tenantId);
+        if (gate == null) {
+            gate = gateFor(tenantId);
+        }
+        if (gate.bucket == null) {
+            gate.counters.admitted.increment();
+            return;
+        }
+        long waitNanos = gate.bucket.tryAcquire();
+        if (waitNanos == 0) {
+            gate.counters.admitted.increment();
+            return;
+        }
+        gate.counters.shed.increment();
+        throw new TenantThrottledException(tenantId, Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+    }
+
+    private TenantGate gateFor(String tenantId) {
+        if (gates.size() >= config.getMaxTrackedTenants() && !config.getTenants().containsKey(tenantId)) {
+            TenantGate overflow = overflowGate;
+            if (overflow == null) {
+                synchronized (this) {
+                    if (overflowGate == null) {
+                        overflowGate = newGate(config.getDefaultLimit(), overflowCounters);
+                    }
+                    overflow = overflowGate;
+                }
+            }
+            return overflow;
+        }
+        return gates.computeIfAbsent(tenantId, id -> {
+            ApplicationProperties.TenantLimit limit = config.getTenants().get(id);
+            GateCounters counters = limit != null || id.equals(defaultTenantId)
+                    ? registerCounters(id)
+                    : overflowCounters;
+            return newGate(limit != null ? limit : config.getDefaultLimit(), counters);
+        });
+    }
+
+    private static TenantGate newGate(ApplicationProperties.TenantLimit limit, GateCounters counters) {
+        // A non-positive rate leaves the tenant unlimited while still counting its requests
+        TokenBucket bucket = limit.getRequestsPerSecond() > 0
+                ? new TokenBucket(limit.getRequestsPerSecond(),
+                        limit.getBurst() > 0 ? limit.getBurst() : (int) Math.ceil(limit.getRequestsPerSecond()))
+                : null;
+        return new TenantGate(bucket, counters);
+    }
+
+    private GateCounters registerCounters(String tenantId) {
+        GateCounters counters = new GateCounters();
+        FunctionCounter.builder("fee.admission.admitted", counters.admitted, LongAdder::sum)
+                .tag("tenant", tenantId)
+                .register(meterRegistry);
+        FunctionCounter.builder("fee.admission.shed", counters.shed, LongAdder::sum)
+                .tag("tenant", tenantId)
+                .register(meterRegistry);
+        return counters;
+    }
+
+    private record TenantGate(TokenBucket bucket, GateCounters counters) {
+    }
+
+    private static final class GateCounters {
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder shed = new LongAdder();
+    }
+}
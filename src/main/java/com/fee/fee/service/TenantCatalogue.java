@@ -0,0 +1,150 @@
+package com.fee.fee.service;
+
+import com.fee.fee.domain.Channel;
+import com.fee.fee.domain.Fee;
+import com.fee.fee.domain.Tenant;
+import com.fee.fee.domain.TransactionType;
+import com.fee.fee.enumeration.FeeType;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable snapshot of a tenant's active fees, including versions staged for a later start. The fees are detached entities whose channels,
+ * ranges, sharers and transaction type were initialised at load time; they are shared between
+ * threads and must be treated as read-only. Each fee is compiled into a {@link CompiledFee} as the
+ * catalogue is built, so a reload after any fee change recompiles it; fees found in the tenant's
+ * mapped {@link RuleSetFile} are compiled over its cells instead of onto the heap.
+ * <p>
+ * A catalogue built with a {@link ClientFeeCache} pins only the tenant's DEFAULT, PRODUCT, PROCESSOR
+ * and TEMPLATE fees and looks its CLIENT fees and template assignments up there, per client, unless
+ * its {@link ClientKeyFilter} rules the client out.
+ */
+@Getter
+public final class TenantCatalogue {
+
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+
+    private final Tenant tenant;
+    private final List<Fee> activeFees;
+    private final long loadedAtMillis;
+    // The tenant's rule version read before the fees, or 0 when unknown
+    private final long ruleVersion;
+    private final int mappedFeeCount;
+    // Client id -> template code of the clients held in this catalogue
+    private final Map<String, String> templateAssignments;
+    // Unique per catalogue built; client fees cached under an older generation are stale
+    @Getter(AccessLevel.PACKAGE)
+    private final long generation = GENERATIONS.incrementAndGet();
+    @Getter(AccessLevel.NONE)
+    private final FeeIntervalIndex intervalIndex;
+    @Getter(AccessLevel.NONE)
+    private final Map<Fee, CompiledFee> compiledFees;
+    @Getter(AccessLevel.NONE)
+    private final SharerAllocationService sharerAllocationService;
+    // Null when the catalogue holds the tenant's CLIENT fees itself
+    @Getter(AccessLevel.NONE)
+    private final ClientFeeCache clientFeeCache;
+    // Null when there is no client fee cache, filters are disabled, or the catalogue was restored
+    @Getter(AccessLevel.PACKAGE)
+    private final ClientKeyFilter clientKeyFilter;
+
+    TenantCatalogue(Tenant tenant, List<Fee> activeFees, Map<String, String> templateAssignments,
+                    long loadedAtMillis, SharerAllocationService sharerAllocationService) {
+        this(tenant, activeFees, templateAssignments, loadedAtMillis, 0, sharerAllocationService, null, null, null);
+    }
+
+    TenantCatalogue(Tenant tenant, List<Fee> activeFees, Map<String, String> templateAssignments,
+                    long loadedAtMillis, long ruleVersion, SharerAllocationService sharerAllocationService,
+                    RuleSetFile ruleSet, ClientFeeCache clientFeeCache, ClientKeyFilter clientKeyFilter) {
+        this.tenant = tenant;
+        this.activeFees = List.copyOf(activeFees);
+        this.templateAssignments = Map.copyOf(templateAssignments);
+        this.loadedAtMillis = loadedAtMillis;
+        this.ruleVersion = ruleVersion;
+        this.sharerAllocationService = sharerAllocationService;
+        this.clientFeeCache = clientFeeCache;
+        this.clientKeyFilter = clientKeyFilter;
+        this.intervalIndex = new FeeIntervalIndex(this.activeFees);
+
+        Map<Fee, CompiledFee> compiled = new IdentityHashMap<>();
+        int mapped = 0;
+        for (Fee fee : this.activeFees) {
+            CompiledFee compiledFee = ruleSet != null ? ruleSet.compiledFee(fee, sharerAllocationService) : null;
+            if (compiledFee != null) {
+                mapped++;
+            } else {
+                compiledFee = CompiledFee.of(fee, sharerAllocationService);
+            }
+            compiled.put(fee, compiledFee);
+        }
+        this.compiledFees = compiled;
+        this.mappedFeeCount = mapped;
+    }
+
+    /**
+     * Whether {@link #getActiveFees()} and {@link #getTemplateAssignments()} include the tenant's CLIENT
+     * fees and every template assignment.
+     */
+    public boolean holdsClientFees() {
+        return clientFeeCache == null;
+    }
+
+    /**
+     * False when the client certainly has neither a CLIENT fee for the transaction type and channel nor a
+     * template, so the cascade can skip the client level without calling {@link #clientFees}.
+     */
+    boolean mayHoldClientFees(String clientId, TransactionType transactionType, Channel channel) {
+        return clientFeeCache == null || clientFeeCache.mightHold(this, clientId, transactionType, channel);
+    }
+
+    /**
+     * The catalogue to look the client's CLIENT fees up in: this one, or the client's entry in the
+     * {@link ClientFeeCache}, loaded on a miss.
+     */
+    TenantCatalogue clientFees(String clientId) {
+        return clientFeeCache == null ? this : clientFeeCache.get(this, clientId);
+    }
+
+    /**
+     * The code of the template the client is assigned to, or null. Ask the catalogue returned by
+     * {@link #clientFees}.
+     */
+    String assignedTemplate(String clientId) {
+        return templateAssignments.get(clientId);
+    }
+
+    /**
+     * Encodes a client, product or processor id or a template code for {@link #findEffectiveFee}; ids no fee of this
+     * catalogue is scoped to encode to {@link ScopeDictionary#UNKNOWN} and match nothing.
+     */
+    int scopeCode(String scopeId) {
+        return intervalIndex.scopeCode(scopeId);
+    }
+
+    /**
+     * The fee of the given type and encoded scope effective at {@code at}, or null when none covers it.
+     */
+    Fee findEffectiveFee(FeeType feeType, int scopeCode, TransactionType transactionType,
+                         Channel channel, LocalDateTime at) {
+        return intervalIndex.find(feeType, scopeCode, transactionType, channel, at);
+    }
+
+    /**
+     * The evaluator and sharer split compiled for a fee of this catalogue or of its cached client fees;
+     * fees from elsewhere are compiled on the spot.
+     */
+    CompiledFee compiledFee(Fee fee) {
+        CompiledFee compiled = compiledFees.get(fee);
+        if (compiled == null && clientFeeCache != null && fee.getFeeType() == FeeType.CLIENT) {
+            TenantCatalogue clientFees = clientFeeCache.peek(this, fee.getClientId());
+            compiled = clientFees != null ? clientFees.compiledFees.get(fee) : null;
+        }
+        return compiled != null ? compiled : CompiledFee.of(fee, sharerAllocationService);
+    }
+}
@@ -0,0 +1,170 @@
+package com.fee.fee.service;
+
+import com.fee.fee.Util.TenantShardContext;
+import com.fee.fee.config.ApplicationProperties;
+import com.fee.fee.domain.TenantShardAssignment;
+import com.fee.fee.enumeration.TenantShardStatus;
+import com.fee.fee.repository.TenantShardAssignmentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves which shard holds a tenant's fees.
+ * <p>
+ * Placements come from {@code app.sharding.tenants}, overridden by the {@code tenant_shard_assignments}
+ * table on the default shard, which records moves made at run time. The table is re-read every
+ * {@code app.sharding.directory-refresh-millis} so moves made through another node are observed
+ * within that interval. With sharding disabled every tenant resolves to the default shard.
+ */
+@Service
+@Slf4j
+public class TenantShardDirectory {
+
+    private final TenantShardAssignmentRepository assignmentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationProperties.ShardingConfig config;
+    private final Set<String> shards;
+
+    private volatile Map<String, TenantShardAssignment> assignments = Map.of();
+    private ScheduledExecutorService refresher;
+
+    public TenantShardDirectory(TenantShardAssignmentRepository assignmentRepository,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationProperties applicationProperties) {
+        this.assignmentRepository = assignmentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Directory writes must not join a caller's transaction, which may be bound to another shard
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.config = applicationProperties.getSharding();
+
+        Set<String> shardNames = new LinkedHashSet<>();
+        shardNames.add(config.getDefaultShard());
+        if (config.isEnabled()) {
+            shardNames.addAll(config.getShards().keySet());
+        }
+        this.shards = Set.copyOf(shardNames);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        refresh();
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tenant-shard-directory");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, config.getDirectoryRefreshMillis(),
+                config.getDirectoryRefreshMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    public String resolve(String tenantId) {
+        if (!config.isEnabled()) {
+            return config.getDefaultShard();
+        }
+        TenantShardAssignment assignment = assignments.get(tenantId);
+        if (assignment != null) {
+            return assignment.getShard();
+        }
+        return config.getTenants().getOrDefault(tenantId, config.getDefaultShard());
+    }
+
+    public void assertWritable(String tenantId) {
+        TenantShardAssignment assignment = assignments.get(tenantId);
+        if (assignment != null && assignment.getStatus() == TenantShardStatus.MOVING) {
+            throw new IllegalArgumentException("Tenant " + tenantId + " is being moved between shards; retry shortly");
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    public String getDefaultShard() {
+        return config.getDefaultShard();
+    }
+
+    public Set<String> getShards() {
+        return shards;
+    }
+
+    public long getRefreshIntervalMillis() {
+        return config.getDirectoryRefreshMillis();
+    }
+
+    public List<TenantShardAssignment> getAssignments() {
+        Map<String, TenantShardAssignment> resolved = new HashMap<>();
+        config.getTenants().forEach((tenantId, shard) -> resolved.put(tenantId, TenantShardAssignment.builder()
+                .tenantId(tenantId)
+                .shard(shard)
+                .status(TenantShardStatus.ACTIVE)
+                .build()));
+        resolved.putAll(assignments);
+        return new ArrayList<>(resolved.values());
+    }
+
+    public void markMoving(String tenantId, String shard) {
+        save(tenantId, shard, TenantShardStatus.MOVING);
+    }
+
+    public void assign(String tenantId, String shard) {
+        save(tenantId, shard, TenantShardStatus.ACTIVE);
+    }
+
+    public void refresh() {
+        List<TenantShardAssignment> rows = TenantShardContext.callWithShard(config.getDefaultShard(),
+                () -> transactionTemplate.execute(status -> assignmentRepository.findAll()));
+
+        Map<String, TenantShardAssignment> refreshed = new HashMap<>();
+        for (TenantShardAssignment row : rows) {
+            refreshed.put(row.getTenantId(), row);
+        }
+        assignments = Map.copyOf(refreshed);
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh tenant shard directory", e);
+        }
+    }
+
+    private void save(String tenantId, String shard, TenantShardStatus status) {
+        if (!shards.contains(shard)) {
+            throw new IllegalArgumentException("Unknown shard: " + shard);
+        }
+        TenantShardContext.runWithShard(config.getDefaultShard(), () -> transactionTemplate.executeWithoutResult(
+                tx -> assignmentRepository.save(TenantShardAssignment.builder()
+                        .tenantId(tenantId)
+                        .shard(shard)
+                        .status(status)
+                        .build())));
+        refresh();
+        log.info("Tenant {} assigned to shard {} ({})", tenantId, shard, status);
+    }
+}
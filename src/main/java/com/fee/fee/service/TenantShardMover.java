@@ -0,0 +1,412 @@
+package com.fee.fee.service;
+
+import com.fee.fee.Util.TenantShardContext;
+import com.fee.fee.domain.*;
+import com.fee.fee.dto.TenantShardMoveStatus;
+import com.fee.fee.enumeration.TenantShardMovePhase;
+import com.fee.fee.repository.ChannelRepository;
+import com.fee.fee.repository.ClientTemplateAssignmentRepository;
+import com.fee.fee.repository.FeeRepository;
+import com.fee.fee.repository.TenantRepository;
+import com.fee.fee.repository.TransactionTypeRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Moves a tenant's fees, ranges, sharers and client template assignments to another shard while the service keeps running.
+ * <p>
+ * Phases: the tenant is marked MOVING in the directory, so nodes reject fee writes up front, and its
+ * row on the source shard is frozen. Every fee write bumps that row's rule version only while it is
+ * not frozen, under the row lock, so writes already past the directory check either commit before
+ * the freeze does or roll back; nothing can land on the source after the copy starts, however stale
+ * a node's directory. Calculations keep reading from the source meanwhile. The fees are copied and
+ * each copy is verified field by field, with its channels, ranges and sharers; the directory is then
+ * switched to the target shard, and after one refresh interval the source rows are deleted. The
+ * source tenant row stays frozen, so a node still routing writes there is refused. A failure before
+ * the switch removes the partial copy, unfreezes the source and leaves the tenant there.
+ * <p>
+ * Fee ids come from each shard's own sequence, so copies get new ids; the move status maps every
+ * source id to its copy's, for audit and analytics records that still carry the old ids. Versions are
+ * kept. Moves run one at a time on a background thread.
+ */
+@Service
+@Slf4j
+public class TenantShardMover {
+
+    private final TenantShardDirectory tenantShardDirectory;
+    private final TenantRepository tenantRepository;
+    private final FeeRepository feeRepository;
+    private final ClientTemplateAssignmentRepository clientTemplateAssignmentRepository;
+    private final TransactionTypeRepository transactionTypeRepository;
+    private final ChannelRepository channelRepository;
+    private final FeeCatalogueCache feeCatalogueCache;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<String, TenantShardMoveStatus> moves = new ConcurrentHashMap<>();
+    private final Map<String, String> activeMoveByTenant = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tenant-shard-mover");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public TenantShardMover(TenantShardDirectory tenantShardDirectory,
+                            TenantRepository tenantRepository,
+                            FeeRepository feeRepository,
+                            ClientTemplateAssignmentRepository clientTemplateAssignmentRepository,
+                            TransactionTypeRepository transactionTypeRepository,
+                            ChannelRepository channelRepository,
+                            FeeCatalogueCache feeCatalogueCache,
+                            PlatformTransactionManager transactionManager) {
+        this.tenantShardDirectory = tenantShardDirectory;
+        this.tenantRepository = tenantRepository;
+        this.feeRepository = feeRepository;
+        this.clientTemplateAssignmentRepository = clientTemplateAssignmentRepository;
+        this.transactionTypeRepository = transactionTypeRepository;
+        this.channelRepository = channelRepository;
+        this.feeCatalogueCache = feeCatalogueCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public TenantShardMoveStatus startMove(String tenantId, String targetShard) {
+        if (!tenantShardDirectory.isEnabled()) {
+            throw new IllegalArgumentException("Tenant sharding is not enabled");
+        }
+        if (tenantId == null || tenantId.isBlank()) {
+            throw new IllegalArgumentException("Tenant ID is required");
+        }
+        if (!tenantShardDirectory.getShards().contains(targetShard)) {
+            throw new IllegalArgumentException("Unknown shard: " + targetShard);
+        }
+        String sourceShard = tenantShardDirectory.resolve(tenantId);
+        if (sourceShard.equals(targetShard)) {
+            throw new IllegalArgumentException("Tenant " + tenantId + " is already on shard " + targetShard);
+        }
+
+        String moveId = UUID.randomUUID().toString();
+        if (activeMoveByTenant.putIfAbsent(tenantId, moveId) != null) {
+            throw new IllegalArgumentException("A move is already in progress for tenant " + tenantId);
+        }
+
+        TenantShardMoveStatus status = TenantShardMoveStatus.builder()
+                .moveId(moveId)
+                .tenantId(tenantId)
+                .sourceShard(sourceShard)
+                .targetShard(targetShard)
+                .phase(TenantShardMovePhase.PENDING)
+                .startedAt(Instant.now())
+                .build();
+        moves.put(moveId, status);
+        executor.execute(() -> runMove(moveId));
+
+        log.info("Scheduled move of tenant {} from shard {} to shard {} - Move ID: {}",
+                tenantId, sourceShard, targetShard, moveId);
+        return status;
+    }
+
+    public Optional<TenantShardMoveStatus> getMove(String moveId) {
+        return Optional.ofNullable(moves.get(moveId));
+    }
+
+    private void runMove(String moveId) {
+        TenantShardMoveStatus move = moves.get(moveId);
+        String tenantId = move.getTenantId();
+        String source = move.getSourceShard();
+        String target = move.getTargetShard();
+        boolean switched = false;
+
+        try {
+            updatePhase(moveId, TenantShardMovePhase.FREEZING, null);
+            tenantShardDirectory.markMoving(tenantId, source);
+            freezeWrites(tenantId, source);
+
+            updatePhase(moveId, TenantShardMovePhase.COPYING, null);
+            List<Fee> sourceFees = readFees(tenantId, source);
+            Map<String, String> sourceAssignments = readTemplateAssignments(tenantId, source);
+            Map<Long, Long> feeIdMapping = copyFees(tenantId, sourceFees, sourceAssignments, target);
+            verifyCopy(sourceFees, sourceAssignments, feeIdMapping, tenantId, target);
+            int copied = sourceFees.size();
+            moves.computeIfPresent(moveId, (id, status) -> status.toBuilder()
+                    .phase(TenantShardMovePhase.SWITCHING)
+                    .feesCopied(copied)
+                    .feeIdMapping(Map.copyOf(feeIdMapping))
+                    .build());
+
+            tenantShardDirectory.assign(tenantId, target);
+            switched = true;
+            feeCatalogueCache.invalidate(tenantId);
+            // Lets other nodes stop reading from the source before its rows go
+            Thread.sleep(tenantShardDirectory.getRefreshIntervalMillis());
+
+            updatePhase(moveId, TenantShardMovePhase.CLEANING, copied);
+            deleteFees(tenantId, source);
+
+            moves.computeIfPresent(moveId, (id, status) -> status.toBuilder()
+                    .phase(TenantShardMovePhase.COMPLETED)
+                    .completedAt(Instant.now())
+                    .build());
+            log.info("Moved tenant {} from shard {} to shard {} - Fees: {}, Move ID: {}",
+                    tenantId, source, target, copied, moveId);
+
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.error("Move of tenant {} from shard {} to shard {} failed - Move ID: {}",
+                    tenantId, source, target, moveId, e);
+            rollBack(tenantId, source, target, switched);
+            moves.computeIfPresent(moveId, (id, status) -> status.toBuilder()
+                    .phase(TenantShardMovePhase.FAILED)
+                    .completedAt(Instant.now())
+                    .error(e.getMessage())
+                    .build());
+        } finally {
+            activeMoveByTenant.remove(tenantId, moveId);
+        }
+    }
+
+    private void rollBack(String tenantId, String source, String target, boolean switched) {
+        try {
+            if (switched) {
+                // The target is authoritative; only the source clean-up is left, which is safe to repeat
+                return;
+            }
+            deleteFees(tenantId, target);
+            TenantShardContext.runWithShard(source, () -> transactionTemplate.executeWithoutResult(status ->
+                    tenantRepository.setWritesFrozen(tenantId, false)));
+            tenantShardDirectory.assign(tenantId, source);
+        } catch (RuntimeException rollbackFailure) {
+            log.error("Could not roll back move of tenant {}; it stays frozen on shard {}",
+                    tenantId, source, rollbackFailure);
+        }
+    }
+
+    /**
+     * Freezes the tenant's row on the source shard, creating it if the tenant has never written there.
+     * Waits for writes holding the row lock to commit, so everything read after this is final.
+     */
+    private void freezeWrites(String tenantId, String shard) {
+        TenantShardContext.runWithShard(shard, () -> transactionTemplate.executeWithoutResult(status -> {
+            if (tenantRepository.findByTenantId(tenantId).isEmpty()) {
+                tenantRepository.saveAndFlush(Tenant.builder().tenantId(tenantId).build());
+            }
+            tenantRepository.setWritesFrozen(tenantId, true);
+        }));
+    }
+
+    private List<Fee> readFees(String tenantId, String shard) {
+        return TenantShardContext.callWithShard(shard, () -> transactionTemplate.execute(status -> {
+            Optional<Tenant> tenant = tenantRepository.findByTenantId(tenantId);
+            if (tenant.isEmpty()) {
+                return List.<Fee>of();
+            }
+            List<Fee> fees = feeRepository.findByTenant(tenant.get());
+            for (Fee fee : fees) {
+                Hibernate.initialize(fee.getTenant());
+                Hibernate.initialize(fee.getTransactionType());
+                Hibernate.initialize(fee.getChannels());
+                Hibernate.initialize(fee.getFeeRanges());
+                Hibernate.initialize(fee.getFeeSharers());
+            }
+            return fees;
+        }));
+    }
+
+    private Map<String, String> readTemplateAssignments(String tenantId, String shard) {
+        return TenantShardContext.callWithShard(shard, () -> transactionTemplate.execute(status -> {
+            Map<String, String> assignments = new HashMap<>();
+            tenantRepository.findByTenantId(tenantId).ifPresent(tenant -> clientTemplateAssignmentRepository
+                    .findByTenant(tenant)
+                    .forEach(assignment -> assignments.put(assignment.getClientId(), assignment.getTemplateCode())));
+            return assignments;
+        }));
+    }
+
+    /**
+     * Copies the fees and assignments onto the shard and returns each source fee id mapped to its copy's.
+     */
+    private Map<Long, Long> copyFees(String tenantId, List<Fee> sourceFees, Map<String, String> sourceAssignments,
+                                     String shard) {
+        return TenantShardContext.callWithShard(shard, () -> transactionTemplate.execute(status -> {
+            // Clear leftovers of an earlier failed attempt before copying
+            Tenant tenant = tenantRepository.findByTenantId(tenantId)
+                    .orElseGet(() -> tenantRepository.save(Tenant.builder()
+                            .tenantId(tenantId)
+                            .name(sourceFees.isEmpty() ? null : sourceFees.get(0).getTenant().getName())
+                            .build()));
+            feeRepository.deleteAll(feeRepository.findByTenant(tenant));
+            clientTemplateAssignmentRepository.deleteAll(clientTemplateAssignmentRepository.findByTenant(tenant));
+            feeRepository.flush();
+
+            Map<Long, Long> feeIdMapping = new LinkedHashMap<>();
+            for (Fee source : sourceFees) {
+                Fee copy = Fee.builder()
+                        .tenant(tenant)
+                        .feeType(source.getFeeType())
+                        .calculationType(source.getCalculationType())
+                        .name(source.getName())
+                        .description(source.getDescription())
+                        .transactionType(source.getTransactionType() == null ? null : transactionTypeRepository
+                                .findById(source.getTransactionType().getId())
+                                .orElseThrow(() -> new IllegalStateException(
+                                        "Transaction type " + source.getTransactionType().getId() + " missing on shard " + shard)))
+                        .fixedAmount(source.getFixedAmount())
+                        .percentageRate(source.getPercentageRate())
+                        .isShared(source.getIsShared())
+                        .productId(source.getProductId())
+                        .processorId(source.getProcessorId())
+                        .clientId(source.getClientId())
+                        .templateCode(source.getTemplateCode())
+                        .isActive(source.getIsActive())
+                        .validFrom(source.getValidFrom())
+                        .validTo(source.getValidTo())
+                        .build();
+
+                List<Channel> channels = channelRepository.findAllById(
+                        source.getChannels().stream().map(Channel::getId).toList());
+                if (channels.size() != source.getChannels().size()) {
+                    throw new IllegalStateException("Channels of fee " + source.getId() + " missing on shard " + shard);
+                }
+                channels.forEach(copy::addChannel);
+
+                for (FeeRange range : source.getFeeRanges()) {
+                    copy.addFeeRange(FeeRange.builder()
+                            .minAmount(range.getMinAmount())
+                            .maxAmount(range.getMaxAmount())
+                            .amount(range.getAmount())
+                            .rate(range.getRate())
+                            .build());
+                }
+                for (FeeSharer sharer : source.getFeeSharers()) {
+                    copy.addFeeSharer(FeeSharer.builder()
+                            .sharerType(sharer.getSharerType())
+                            .sharerId(sharer.getSharerId())
+                            .sharerName(sharer.getSharerName())
+                            .percentage(sharer.getPercentage())
+                            .isPrimary(sharer.getIsPrimary())
+                            .build());
+                }
+                feeIdMapping.put(source.getId(), feeRepository.save(copy).getId());
+            }
+            feeRepository.flush();
+            sourceFees.forEach(source -> feeRepository.setVersion(feeIdMapping.get(source.getId()), source.getVersion()));
+            sourceAssignments.forEach((clientId, templateCode) -> clientTemplateAssignmentRepository.save(
+                    ClientTemplateAssignment.builder()
+                            .tenant(tenant)
+                            .clientId(clientId)
+                            .templateCode(templateCode)
+                            .build()));
+
+            // Strictly ahead of the source so snapshots taken there never pass as current here
+            long sourceVersion = sourceFees.isEmpty() || sourceFees.get(0).getTenant().getRuleVersion() == null
+                    ? 0 : sourceFees.get(0).getTenant().getRuleVersion();
+            long targetVersion = tenant.getRuleVersion() == null ? 0 : tenant.getRuleVersion();
+            tenant.setRuleVersion(Math.max(sourceVersion, targetVersion) + 1);
+            // Left frozen if the tenant was moved off this shard before
+            tenant.setWritesFrozen(false);
+            return feeIdMapping;
+        }));
+    }
+
+    /**
+     * Reads the copy back from the shard and checks every source fee has exactly one copy equal to it
+     * in every copied field, channel, range and sharer, and that the assignments match.
+     */
+    private void verifyCopy(List<Fee> sourceFees, Map<String, String> sourceAssignments, Map<Long, Long> feeIdMapping,
+                            String tenantId, String shard) {
+        Map<Long, Fee> copies = new HashMap<>();
+        readFees(tenantId, shard).forEach(copy -> copies.put(copy.getId(), copy));
+        if (copies.size() != sourceFees.size()) {
+            throw new IllegalStateException("Copied " + copies.size() + " fees but source has " + sourceFees.size());
+        }
+        for (Fee source : sourceFees) {
+            Fee copy = copies.get(feeIdMapping.get(source.getId()));
+            if (copy == null || !fingerprint(copy).equals(fingerprint(source))) {
+                throw new IllegalStateException("Copy of fee " + source.getId() + " on shard " + shard
+                        + " does not match the source");
+            }
+        }
+        Map<String, String> copiedAssignments = readTemplateAssignments(tenantId, shard);
+        if (!copiedAssignments.equals(sourceAssignments)) {
+            throw new IllegalStateException("Copied " + copiedAssignments.size() + " template assignments but source has "
+                    + sourceAssignments.size());
+        }
+    }
+
+    /**
+     * Everything a move copies of a fee, in a canonical order and with the ids of the fee and its rows
+     * left out; numbers are compared by value.
+     */
+    private static List<Object> fingerprint(Fee fee) {
+        List<Object> fields = new ArrayList<>(List.of(
+                fee.getFeeType(), fee.getCalculationType(), fee.getName(), fee.getIsShared(), fee.getIsActive()));
+        fields.add(fee.getDescription());
+        fields.add(fee.getTransactionType() == null ? null : fee.getTransactionType().getId());
+        fields.add(number(fee.getFixedAmount()));
+        fields.add(number(fee.getPercentageRate()));
+        fields.add(fee.getProductId());
+        fields.add(fee.getProcessorId());
+        fields.add(fee.getClientId());
+        fields.add(fee.getTemplateCode());
+        fields.add(fee.getValidFrom());
+        fields.add(fee.getValidTo());
+        fields.add(fee.getVersion());
+        fields.add(fee.getChannels().stream().map(Channel::getId).sorted().toList());
+        fields.add(fee.getFeeRanges().stream()
+                .map(range -> List.of(Objects.toString(number(range.getMinAmount())),
+                        Objects.toString(number(range.getMaxAmount())), Objects.toString(number(range.getAmount())),
+                        Objects.toString(number(range.getRate()))))
+                .sorted(Comparator.comparing(Object::toString))
+                .toList());
+        fields.add(fee.getFeeSharers().stream()
+                .map(sharer -> List.of(Objects.toString(sharer.getSharerType()), Objects.toString(sharer.getSharerId()),
+                        Objects.toString(sharer.getSharerName()), Objects.toString(number(sharer.getPercentage())),
+                        Objects.toString(sharer.getIsPrimary())))
+                .sorted(Comparator.comparing(Object::toString))
+                .toList());
+        return fields;
+    }
+
+    private static BigDecimal number(BigDecimal value) {
+        return value == null ? null : value.stripTrailingZeros();
+    }
+
+    private void deleteFees(String tenantId, String shard) {
+        TenantShardContext.runWithShard(shard, () -> transactionTemplate.executeWithoutResult(status ->
+                tenantRepository.findByTenantId(tenantId).ifPresent(tenant -> {
+                    feeRepository.deleteAll(feeRepository.findByTenant(tenant));
+                    clientTemplateAssignmentRepository.deleteAll(clientTemplateAssignmentRepository.findByTenant(tenant));
+                })));
+    }
+
+    private void updatePhase(String moveId, TenantShardMovePhase phase, Integer feesCopied) {
+        moves.computeIfPresent(moveId, (id, status) -> status.toBuilder()
+                .phase(phase)
+                .feesCopied(feesCopied)
+                .build());
+    }
+}
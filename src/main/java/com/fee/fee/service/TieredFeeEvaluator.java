@@ -0,0 +1,95 @@
+package com.fee.fee.service;
+
+import com.fee.fee.domain.Fee;
+import com.fee.fee.domain.FeeRange;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Marginal pricing for a {@code TIERED} fee.
+ * <p>
+ * Each slice of the amount that falls inside a band is charged at that band's rate, and a band's flat
+ * {@code amount} is added once the transaction reaches the band. The fee accrued at every band's lower
+ * bound is precomputed, so a calculation is a binary search for the band plus one multiply for the
+ * slice inside it. Amounts beyond a closed top band are charged nothing further.
+ */
+final class TieredFeeEvaluator implements FeeEvaluator {
+
+    static final int LOWER_BOUND = 0;
+    static final int UPPER_BOUND = 1;
+    static final int RATE_FRACTION = 2;
+    static final int FEE_AT_LOWER_BOUND = 3;
+    static final int COLUMNS = 4;
+
+    private final BandTable bands;
+
+    TieredFeeEvaluator(BandTable bands) {
+        this.bands = bands;
+    }
+
+    static FeeEvaluator of(Fee fee) {
+        if (fee.getFeeRanges().isEmpty()) {
+            return amount -> {
+                throw new IllegalArgumentException("No ranges defined for TIERED fee");
+            };
+        }
+        return new TieredFeeEvaluator(bands(fee.getFeeRanges()));
+    }
+
+    static HeapBandTable bands(List<FeeRange> ranges) {
+        List<FeeRange> sorted = ranges.stream()
+                .sorted(Comparator.comparing(FeeRange::getMinAmount))
+                .toList();
+        HeapBandTable table = new HeapBandTable(sorted.size(), COLUMNS);
+
+        BigDecimal accrued = BigDecimal.ZERO;
+        for (int i = 0; i < sorted.size(); i++) {
+            FeeRange range = sorted.get(i);
+            BigDecimal rateFraction = range.getRate() == null
+                    ? BigDecimal.ZERO : FeeEvaluator.percentageToFraction(range.getRate());
+            table.set(i, LOWER_BOUND, range.getMinAmount());
+            table.set(i, UPPER_BOUND, range.getMaxAmount());
+            table.set(i, RATE_FRACTION, rateFraction);
+            if (i > 0) {
+                // Everything below this band: the previous band charged in full up to this lower bound
+                accrued = accrued.add(range.getMinAmount().subtract(table.cell(i - 1, LOWER_BOUND))
+                        .multiply(table.cell(i - 1, RATE_FRACTION)));
+            }
+            accrued = accrued.add(range.getAmount());
+            table.set(i, FEE_AT_LOWER_BOUND, accrued);
+        }
+        return table;
+    }
+
+    @Override
+    public BigDecimal evaluate(BigDecimal amount) {
+        int band = bandOf(amount);
+        if (band < 0) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal upper = bands.cell(band, UPPER_BOUND);
+        BigDecimal top = upper != null && amount.compareTo(upper) > 0 ? upper : amount;
+        return bands.cell(band, FEE_AT_LOWER_BOUND)
+                .add(top.subtract(bands.cell(band, LOWER_BOUND)).multiply(bands.cell(band, RATE_FRACTION)));
+    }
+
+    /**
+     * Index of the last band whose lower bound is at or below {@code amount}, or -1 when the amount is
+     * below the first band.
+     */
+    private int bandOf(BigDecimal amount) {
+        int low = 0;
+        int high = bands.bands();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bands.cell(mid, LOWER_BOUND).compareTo(amount) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+}
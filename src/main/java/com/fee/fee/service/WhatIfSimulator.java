@@ -0,0 +1,518 @@
+package com.fee.fee.service;
+
+import com.fee.fee.Util.TenantShardContext;
+import com.fee.fee.config.ApplicationProperties;
+import com.fee.fee.domain.Channel;
+import com.fee.fee.domain.Fee;
+import com.fee.fee.domain.Tenant;
+import com.fee.fee.domain.TransactionType;
+import com.fee.fee.dto.*;
+import com.fee.fee.enumeration.FeeType;
+import com.fee.fee.enumeration.SimulationStatus;
+import com.fee.fee.repository.TenantRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Replays a recorded transaction file against the current fee configuration and a draft of changes
+ * to it, and reports the revenue difference per fee, per cascade level and per sharer.
+ * <p>
+ * The draft is applied to a copy of the tenant's cached catalogue: fees are built and validated by
+ * {@link FeeService} but never saved, and both sides are evaluated with the same cascade, amount and
+ * sharer-split code as live calculations, minus the ledger, audit trail and analytics. Nothing is
+ * written to the database.
+ * <p>
+ * The file is CSV with a header row naming the columns {@code transactionType}, {@code channel} and
+ * {@code amount} (required) and {@code clientId}, {@code productId}, {@code processorId} and
+ * {@code transactionTime} (optional), in any order; fields must not contain commas. The reader hands
+ * chunks of lines to a dedicated fork-join pool, keeping at most two chunks per worker in flight so
+ * memory stays flat however large the file is. Each chunk is parsed and evaluated into its own
+ * fixed-point totals, merged on the reading thread, which also publishes progress reports.
+ */
+@Service
+@Slf4j
+public class WhatIfSimulator {
+
+    private static final int SCALE = 6;
+    private static final String NO_FEE_LEVEL = "NONE";
+    private static final int LEVELS = FeeType.values().length + 1;
+    private static final long[] NO_UNITS = new long[0];
+
+    private final FeeService feeService;
+    private final FeeCatalogueCache feeCatalogueCache;
+    private final ReferenceDataCache referenceDataCache;
+    private final SharerAllocationService sharerAllocationService;
+    private final TenantRepository tenantRepository;
+    private final TenantShardDirectory tenantShardDirectory;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ApplicationProperties applicationProperties;
+    private final ApplicationProperties.SimulationConfig config;
+    private final ForkJoinPool pool;
+
+    public WhatIfSimulator(FeeService feeService,
+                           FeeCatalogueCache feeCatalogueCache,
+                           ReferenceDataCache referenceDataCache,
+                           SharerAllocationService sharerAllocationService,
+                           TenantRepository tenantRepository,
+                           TenantShardDirectory tenantShardDirectory,
+                           PlatformTransactionManager transactionManager,
+                           ApplicationProperties applicationProperties) {
+        this.feeService = feeService;
+        this.feeCatalogueCache = feeCatalogueCache;
+        this.referenceDataCache = referenceDataCache;
+        this.sharerAllocationService = sharerAllocationService;
+        this.tenantRepository = tenantRepository;
+        this.tenantShardDirectory = tenantShardDirectory;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.applicationProperties = applicationProperties;
+        this.config = applicationProperties.getSimulation();
+
+        int parallelism = config.getParallelism() > 0
+                ? config.getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("fee-simulation-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Validates the draft and builds both configurations. Throws {@link IllegalArgumentException}
+     * for an invalid draft, before any transaction is read.
+     */
+    public Plan prepare(SimulationRequest request) {
+        String tenantId = request.getTenantId() != null && !request.getTenantId().trim().isEmpty()
+                ? request.getTenantId()
+                : applicationProperties.getTenant().getDefaultTenantId();
+
+        TenantCatalogue current = loadCatalogue(tenantId);
+        Map<Long, UpdateFeeRequest> updates = request.getUpdates() != null ? request.getUpdates() : Map.of();
+        List<CreateFeeRequest> creates = request.getCreates() != null ? request.getCreates() : List.of();
+
+        Set<Long> activeIds = new HashSet<>();
+        current.getActiveFees().forEach(fee -> activeIds.add(fee.getId()));
+        for (Long feeId : updates.keySet()) {
+            if (!activeIds.contains(feeId)) {
+                throw new IllegalArgumentException("Fee " + feeId + " is not an active fee of tenant " + tenantId);
+            }
+        }
+
+        List<Fee> draftFees = new ArrayList<>();
+        for (Fee fee : current.getActiveFees()) {
+            UpdateFeeRequest update = updates.get(fee.getId());
+            Fee draft = update != null ? feeService.buildDraftUpdate(fee, update) : fee;
+            if (Boolean.TRUE.equals(draft.getIsActive())) {
+                draftFees.add(draft);
+            }
+        }
+        Set<String> names = new HashSet<>();
+        draftFees.forEach(fee -> names.add(fee.getName()));
+        for (CreateFeeRequest create : creates) {
+            if (!names.add(create.getName())) {
+                throw new IllegalArgumentException("Fee with name '" + create.getName() + "' already exists for this tenant");
+            }
+            draftFees.add(feeService.buildDraftFee(current.getTenant(), create));
+        }
+        TenantCatalogue draft = new TenantCatalogue(current.getTenant(), draftFees, current.getTemplateAssignments(),
+                System.currentTimeMillis(), sharerAllocationService);
+
+        Plan plan = new Plan(UUID.randomUUID().toString(), tenantId, current, draft,
+                request.getTransactionTime() != null ? request.getTransactionTime() : LocalDateTime.now());
+        current.getActiveFees().forEach(fee -> plan.assignSlots(current, fee));
+        draft.getActiveFees().forEach(fee -> plan.assignSlots(draft, fee));
+
+        log.info("Prepared simulation {} for tenant {} - Current fees: {}, Draft fees: {} ({} created, {} updated)",
+                plan.simulationId, tenantId, current.getActiveFees().size(), draftFees.size(),
+                creates.size(), updates.size());
+        return plan;
+    }
+
+    /**
+     * Evaluates every transaction in {@code transactions} against both configurations. Progress
+     * reports go to {@code progressListener} on the calling thread; the returned report is final.
+     */
+    public SimulationReport run(Plan plan, InputStream transactions, Consumer<SimulationReport> progressListener)
+            throws IOException {
+        long startedAt = System.currentTimeMillis();
+        long lastProgressAt = startedAt;
+        int maxInFlight = pool.getParallelism() * 2;
+        Deque<ForkJoinTask<Totals>> inFlight = new ArrayDeque<>();
+        Totals totals = plan.newTotals();
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(transactions, StandardCharsets.UTF_8), 1 << 20)) {
+            Columns columns = Columns.parse(reader.readLine());
+
+            List<String> chunk = new ArrayList<>(config.getChunkSize());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                chunk.add(line);
+                if (chunk.size() == config.getChunkSize()) {
+                    List<String> lines = chunk;
+                    inFlight.addLast(pool.submit(() -> evaluate(plan, columns, lines)));
+                    chunk = new ArrayList<>(config.getChunkSize());
+
+                    while (inFlight.size() >= maxInFlight) {
+                        totals.merge(join(inFlight.removeFirst()));
+                    }
+                    long now = System.currentTimeMillis();
+                    if (now - lastProgressAt >= config.getProgressIntervalMillis()) {
+                        progressListener.accept(plan.report(totals, SimulationStatus.RUNNING, now - startedAt, null));
+                        lastProgressAt = now;
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                List<String> lines = chunk;
+                inFlight.addLast(pool.submit(() -> evaluate(plan, columns, lines)));
+            }
+            while (!inFlight.isEmpty()) {
+                totals.merge(join(inFlight.removeFirst()));
+            }
+
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            inFlight.forEach(task -> task.cancel(true));
+            log.warn("Simulation {} failed: {}", plan.simulationId, e.getMessage());
+            return plan.report(totals, SimulationStatus.FAILED, System.currentTimeMillis() - startedAt, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            inFlight.forEach(task -> task.cancel(true));
+            throw e;
+        }
+
+        long elapsed = System.currentTimeMillis() - startedAt;
+        log.info("Simulation {} completed - Transactions: {}, Rejected: {}, Took: {} ms",
+                plan.simulationId, totals.transactions, totals.rejected, elapsed);
+        return plan.report(totals, SimulationStatus.COMPLETED, elapsed, null);
+    }
+
+    private TenantCatalogue loadCatalogue(String tenantId) {
+        return TenantShardContext.callWithShard(tenantShardDirectory.resolve(tenantId), () ->
+                readOnlyTransactionTemplate.execute(status -> tenantRepository.findByTenantId(tenantId)
+                        .map(tenant -> feeCatalogueCache.getComplete(tenantId, () -> tenant))
+                        .orElseGet(() -> new TenantCatalogue(
+                                Tenant.builder().tenantId(tenantId).build(), List.of(), Map.of(), System.currentTimeMillis(),
+                                sharerAllocationService))));
+    }
+
+    private Totals evaluate(Plan plan, Columns columns, List<String> lines) {
+        Totals totals = plan.newTotals();
+        for (int i = 0; i < lines.size(); i++) {
+            FeeCalculationRequest request;
+            TransactionType transactionType;
+            Channel channel;
+            try {
+                String[] fields = lines.get(i).split(",", -1);
+                request = columns.toRequest(fields, plan.defaultTransactionTime);
+                transactionType = referenceDataCache.findActiveTransactionType(request.getTransactionType()).orElse(null);
+                channel = referenceDataCache.findActiveChannel(request.getChannel()).orElse(null);
+            } catch (RuntimeException e) {
+                totals.rejected++;
+                continue;
+            }
+            if (transactionType == null || channel == null || request.getAmount().signum() <= 0) {
+                totals.rejected++;
+                continue;
+            }
+
+            // Both sides are priced before either is added, so a transaction is counted whole or not at all
+            PricedSide current;
+            PricedSide draft;
+            try {
+                current = priceSide(plan, plan.current, request, transactionType, channel);
+                draft = priceSide(plan, plan.draft, request, transactionType, channel);
+            } catch (ArithmeticException e) {
+                totals.rejected++; // a fee beyond the fixed-point range
+                continue;
+            }
+            totals.transactions++;
+            current.addTo(totals, 0);
+            draft.addTo(totals, 1);
+        }
+        return totals;
+    }
+
+    private PricedSide priceSide(Plan plan, TenantCatalogue catalogue, FeeCalculationRequest request,
+                                 TransactionType transactionType, Channel channel) {
+        Fee fee = FeeService.findApplicableFee(catalogue, request, transactionType, channel);
+        CompiledFee compiledFee = fee != null ? catalogue.compiledFee(fee) : null;
+        BigDecimal amount;
+        try {
+            amount = fee != null ? FeeService.calculateFeeAmount(compiledFee, fee, request.getAmount(),
+                    applicationProperties.getCalculation().getMinorUnitScale()) : null;
+        } catch (IllegalArgumentException e) {
+            amount = null; // e.g. no range covers the amount; the live call would reject it
+        }
+        if (amount == null) {
+            return PricedSide.NO_FEE;
+        }
+
+        long[] sharerUnits = NO_UNITS;
+        if (compiledFee.sharerSplit() != null) {
+            List<FeeSharerCalculation> calculations = sharerAllocationService.distribute(compiledFee.sharerSplit(), fee, amount);
+            sharerUnits = new long[calculations.size()];
+            for (int i = 0; i < calculations.size(); i++) {
+                sharerUnits[i] = toUnits(calculations.get(i).getAmount());
+            }
+        }
+        return new PricedSide(plan.slots.get(fee), fee.getFeeType().ordinal(), toUnits(amount), sharerUnits);
+    }
+
+    private static Totals join(ForkJoinTask<Totals> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation chunk failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static long toUnits(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal fromUnits(long units) {
+        return BigDecimal.valueOf(units, SCALE);
+    }
+
+    /**
+     * Both configurations of one simulation, with every fee assigned a result slot. An updated fee
+     * shares its slot with the current version so the two are reported side by side.
+     */
+    public static final class Plan {
+        @Getter
+        private final String simulationId;
+        @Getter
+        private final String tenantId;
+        private final TenantCatalogue current;
+        private final TenantCatalogue draft;
+        private final LocalDateTime defaultTransactionTime;
+
+        // Read concurrently by the workers once prepared; never modified after prepare()
+        private final IdentityHashMap<Fee, FeeSlots> slots = new IdentityHashMap<>();
+        private final Map<String, Integer> feeSlots = new HashMap<>();
+        private final List<String> feeKeys = new ArrayList<>();
+        private final List<String> feeNames = new ArrayList<>();
+        private final Map<String, Integer> sharerSlots = new HashMap<>();
+        private final List<String> sharerIds = new ArrayList<>();
+        private final List<String> sharerNames = new ArrayList<>();
+
+        Plan(String simulationId, String tenantId, TenantCatalogue current, TenantCatalogue draft,
+             LocalDateTime defaultTransactionTime) {
+            this.simulationId = simulationId;
+            this.tenantId = tenantId;
+            this.current = current;
+            this.draft = draft;
+            this.defaultTransactionTime = defaultTransactionTime;
+        }
+
+        private void assignSlots(TenantCatalogue catalogue, Fee fee) {
+            if (slots.containsKey(fee)) {
+                return;
+            }
+            String key = fee.getId() != null ? String.valueOf(fee.getId()) : "draft:" + fee.getName();
+            int slot = feeSlots.computeIfAbsent(key, k -> {
+                feeKeys.add(k);
+                feeNames.add(fee.getName());
+                return feeKeys.size() - 1;
+            });
+
+            SharerSplit split = catalogue.compiledFee(fee).sharerSplit();
+            int[] sharerSlotsOfFee = new int[fee.getFeeSharers().size()];
+            if (split != null) {
+                for (int i = 0; i < sharerSlotsOfFee.length; i++) {
+                    String sharerId = split.getSharerIds()[i];
+                    String sharerName = split.getSharerNames()[i];
+                    sharerSlotsOfFee[i] = sharerSlots.computeIfAbsent(sharerId, k -> {
+                        sharerIds.add(k);
+                        sharerNames.add(sharerName);
+                        return sharerIds.size() - 1;
+                    });
+                }
+            }
+            slots.put(fee, new FeeSlots(slot, sharerSlotsOfFee));
+        }
+
+        private Totals newTotals() {
+            return new Totals(feeKeys.size(), sharerIds.size());
+        }
+
+        private SimulationReport report(Totals totals, SimulationStatus status, long elapsedMillis, String error) {
+            List<SimulationDelta> levels = deltas(totals.levels, i -> i < LEVELS - 1 ? FeeType.values()[i].name() : NO_FEE_LEVEL,
+                    i -> null);
+            long currentUnits = 0;
+            long draftUnits = 0;
+            for (int i = 0; i < LEVELS; i++) {
+                currentUnits += totals.levels[i * 4 + 1];
+                draftUnits += totals.levels[i * 4 + 3];
+            }
+            return SimulationReport.builder()
+                    .simulationId(simulationId)
+                    .status(status)
+                    .transactionsProcessed(totals.transactions)
+                    .transactionsRejected(totals.rejected)
+                    .elapsedMillis(elapsedMillis)
+                    .currentRevenue(fromUnits(currentUnits))
+                    .draftRevenue(fromUnits(draftUnits))
+                    .revenueDelta(fromUnits(draftUnits - currentUnits))
+                    .fees(deltas(totals.fees, feeKeys::get, feeNames::get))
+                    .cascadeLevels(levels)
+                    .sharers(deltas(totals.sharers, sharerIds::get, sharerNames::get))
+                    .error(error)
+                    .build();
+        }
+
+        private static List<SimulationDelta> deltas(long[] values, IntFunction<String> key,
+                                                    IntFunction<String> name) {
+            List<SimulationDelta> deltas = new ArrayList<>();
+            for (int slot = 0; slot < values.length / 4; slot++) {
+                int base = slot * 4;
+                if (values[base] == 0 && values[base + 2] == 0) {
+                    continue;
+                }
+                deltas.add(SimulationDelta.builder()
+                        .key(key.apply(slot))
+                        .name(name.apply(slot))
+                        .currentCount(values[base])
+                        .currentAmount(fromUnits(values[base + 1]))
+                        .draftCount(values[base + 2])
+                        .draftAmount(fromUnits(values[base + 3]))
+                        .amountDelta(fromUnits(values[base + 3] - values[base + 1]))
+                        .build());
+            }
+            return deltas;
+        }
+    }
+
+    private record FeeSlots(int fee, int[] sharers) {
+    }
+
+    /**
+     * One side's outcome for one transaction, in fixed-point units; {@code slots} is null when no fee applied.
+     */
+    private record PricedSide(FeeSlots slots, int level, long units, long[] sharerUnits) {
+        static final PricedSide NO_FEE = new PricedSide(null, LEVELS - 1, 0, NO_UNITS);
+
+        void addTo(Totals totals, int side) {
+            Totals.add(totals.levels, level, side, units);
+            if (slots == null) {
+                return;
+            }
+            Totals.add(totals.fees, slots.fee(), side, units);
+            for (int i = 0; i < sharerUnits.length; i++) {
+                Totals.add(totals.sharers, slots.sharers()[i], side, sharerUnits[i]);
+            }
+        }
+    }
+
+    /**
+     * Fixed-point totals of one chunk, or of the whole run once merged. Each slot holds four longs:
+     * current count, current amount, draft count, draft amount.
+     */
+    private static final class Totals {
+        final long[] fees;
+        final long[] levels = new long[LEVELS * 4];
+        final long[] sharers;
+        long transactions;
+        long rejected;
+
+        Totals(int feeSlots, int sharerSlots) {
+            this.fees = new long[feeSlots * 4];
+            this.sharers = new long[sharerSlots * 4];
+        }
+
+        static void add(long[] values, int slot, int side, long units) {
+            int base = slot * 4 + side * 2;
+            values[base]++;
+            values[base + 1] += units;
+        }
+
+        void merge(Totals other) {
+            for (int i = 0; i < fees.length; i++) fees[i] += other.fees[i];
+            for (int i = 0; i < levels.length; i++) levels[i] += other.levels[i];
+            for (int i = 0; i < sharers.length; i++) sharers[i] += other.sharers[i];
+            transactions += other.transactions;
+            rejected += other.rejected;
+        }
+    }
+
+    /**
+     * Column positions taken from the header row.
+     */
+    private record Columns(int transactionType, int channel, int amount, int clientId, int productId,
+                           int processorId, int transactionTime) {
+
+        static Columns parse(String header) {
+            if (header == null) {
+                throw new IllegalArgumentException("Transaction file is empty");
+            }
+            List<String> names = Arrays.stream(header.split(",", -1)).map(String::trim).toList();
+            return new Columns(required(names, "transactionType"), required(names, "channel"),
+                    required(names, "amount"), names.indexOf("clientId"), names.indexOf("productId"),
+                    names.indexOf("processorId"), names.indexOf("transactionTime"));
+        }
+
+        private static int required(List<String> names, String column) {
+            int index = names.indexOf(column);
+            if (index < 0) {
+                throw new IllegalArgumentException("Transaction file header is missing column: " + column);
+            }
+            return index;
+        }
+
+        FeeCalculationRequest toRequest(String[] fields, LocalDateTime defaultTransactionTime) {
+            String time = field(fields, transactionTime);
+            return FeeCalculationRequest.builder()
+                    .feeType(FeeType.DEFAULT)
+                    .transactionType(field(fields, transactionType))
+                    .channel(field(fields, channel))
+                    .amount(new BigDecimal(field(fields, amount)))
+                    .clientId(field(fields, clientId))
+                    .productId(field(fields, productId))
+                    .processorId(field(fields, processorId))
+                    .transactionTime(time != null ? LocalDateTime.parse(time) : defaultTransactionTime)
+                    .applySharing(true)
+                    .build();
+        }
+
+        private static String field(String[] fields, int index) {
+            if (index < 0 || index >= fields.length) {
+                return null;
+            }
+            String value = fields[index].trim();
+            return value.isEmpty() ? null : value;
+        }
+    }
+}
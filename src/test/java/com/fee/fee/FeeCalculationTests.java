@@ -0,0 +1,92 @@
+package com.fee.fee;
+
+import com.fee.fee.domain.Channel;
+import com.fee.fee.domain.TransactionType;
+import com.fee.fee.dto.CreateFeeRequest;
+import com.fee.fee.dto.FeeCalculationRequest;
+import com.fee.fee.dto.FeeCalculationResult;
+import com.fee.fee.dto.FeeSharerCalculation;
+import com.fee.fee.dto.FeeSharerRequest;
+import com.fee.fee.enumeration.FeeCalculationType;
+import com.fee.fee.enumeration.FeeType;
+import com.fee.fee.repository.ChannelRepository;
+import com.fee.fee.repository.TransactionTypeRepository;
+import com.fee.fee.service.FeeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "app.warmup.enabled=false")
+@ActiveProfiles("test")
+class FeeCalculationTests {
+
+	@Autowired
+	private FeeService feeService;
+
+	@Autowired
+	private TransactionTypeRepository transactionTypeRepository;
+
+	@Autowired
+	private ChannelRepository channelRepository;
+
+	@BeforeEach
+	void createReferenceData() {
+		if (!transactionTypeRepository.existsByCode("TRF")) {
+			transactionTypeRepository.save(TransactionType.builder().name("TRANSFER").code("TRF").build());
+		}
+		if (!channelRepository.existsByCode("WEB")) {
+			channelRepository.save(Channel.builder().name("WEB").code("WEB").build());
+		}
+	}
+
+	@Test
+	void sharerPartsSumToTheRoundedPercentageFee() {
+		feeService.createFee("rounding-tenant", CreateFeeRequest.builder()
+				.feeType(FeeType.DEFAULT)
+				.calculationType(FeeCalculationType.PERCENTAGE)
+				.name("percentage")
+				.transactionType("TRANSFER")
+				.channels(List.of("WEB"))
+				.percentageRate(new BigDecimal("1.5"))
+				.isShared(true)
+				.feeSharers(List.of(
+						sharer("us", "33.33", true),
+						sharer("p1", "33.33", false),
+						sharer("p2", "33.34", false)))
+				.build());
+
+		// 1.5% of 333.37 is 5.00055, which must be charged and split as 5.00
+		FeeCalculationResult result = feeService.calculateFee(FeeCalculationRequest.builder()
+				.tenantId("rounding-tenant")
+				.feeType(FeeType.DEFAULT)
+				.transactionType("TRANSFER")
+				.channel("WEB")
+				.amount(new BigDecimal("333.37"))
+				.applySharing(true)
+				.build());
+
+		assertThat(result.getCalculatedAmount()).isEqualTo(new BigDecimal("5.00"));
+		assertThat(result.getSharerCalculations()).hasSize(3);
+		BigDecimal parts = result.getSharerCalculations().stream()
+				.map(FeeSharerCalculation::getAmount)
+				.reduce(BigDecimal.ZERO, BigDecimal::add);
+		assertThat(parts).isEqualTo(result.getCalculatedAmount());
+	}
+
+	private static FeeSharerRequest sharer(String sharerId, String percentage, boolean primary) {
+		return FeeSharerRequest.builder()
+				.sharerType(primary ? "PRIMARY" : "PARTNER")
+				.sharerId(sharerId)
+				.percentage(new BigDecimal(percentage))
+				.isPrimary(primary)
+				.build();
+	}
+
+}
@@ -0,0 +1,211 @@
+package com.fee.fee;
+
+import com.fee.fee.controller.FeeController;
+import com.fee.fee.domain.Channel;
+import com.fee.fee.domain.Fee;
+import com.fee.fee.domain.FeeRange;
+import com.fee.fee.domain.FeeSharer;
+import com.fee.fee.domain.TransactionType;
+import com.fee.fee.dto.ApiResponse;
+import com.fee.fee.dto.CreateFeeRequest;
+import com.fee.fee.dto.FeeRangeRequest;
+import com.fee.fee.dto.FeeResponse;
+import com.fee.fee.dto.FeeSharerRequest;
+import com.fee.fee.dto.UpdateFeeRequest;
+import com.fee.fee.enumeration.FeeCalculationType;
+import com.fee.fee.enumeration.FeeType;
+import com.fee.fee.repository.ChannelRepository;
+import com.fee.fee.repository.FeeRangeRepository;
+import com.fee.fee.repository.FeeRepository;
+import com.fee.fee.repository.FeeSharerRepository;
+import com.fee.fee.repository.TransactionTypeRepository;
+import com.fee.fee.service.FeeService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+		"app.warmup.enabled=false",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles("test")
+class FeeUpdateTests {
+
+	@Autowired
+	private FeeService feeService;
+
+	@Autowired
+	private FeeController feeController;
+
+	@Autowired
+	private FeeRepository feeRepository;
+
+	@Autowired
+	private FeeRangeRepository feeRangeRepository;
+
+	@Autowired
+	private FeeSharerRepository feeSharerRepository;
+
+	@Autowired
+	private TransactionTypeRepository transactionTypeRepository;
+
+	@Autowired
+	private ChannelRepository channelRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@BeforeEach
+	void createReferenceData() {
+		if (!transactionTypeRepository.existsByCode("TRF")) {
+			transactionTypeRepository.save(TransactionType.builder().name("TRANSFER").code("TRF").build());
+		}
+		if (!channelRepository.existsByCode("WEB")) {
+			channelRepository.save(Channel.builder().name("WEB").code("WEB").build());
+		}
+	}
+
+	@Test
+	void updatesOnlyTheRangeAndSharerRowsThatChanged() {
+		Fee fee = feeService.createFee("diff-tenant", rangedFee(
+				List.of(range("0", "100", "1"), range("100", "1000", "5"), range("1000", null, "9")),
+				List.of(sharer("us", "50", true), sharer("p1", "30", false), sharer("p2", "20", false))));
+		Map<Integer, FeeRange> rangesBefore = rangesByMin(fee.getId());
+		Map<String, FeeSharer> sharersBefore = sharersById(fee.getId());
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		// Keep the first range, re-price the second and drop the third; keep us, re-weight p1 and p2
+		Fee updated = feeService.updateFee(fee.getId(), "diff-tenant", rangedUpdate(
+				List.of(range("0", "100", "1"), range("100", null, "6")),
+				List.of(sharer("us", "50", true), sharer("p1", "40", false), sharer("p2", "10", false)),
+				fee.getVersion()));
+
+		assertThat(statistics.getEntityStatistics(FeeRange.class.getName()).getUpdateCount()).isEqualTo(1);
+		assertThat(statistics.getEntityStatistics(FeeRange.class.getName()).getDeleteCount()).isEqualTo(1);
+		assertThat(statistics.getEntityStatistics(FeeRange.class.getName()).getInsertCount()).isZero();
+		assertThat(statistics.getEntityStatistics(FeeSharer.class.getName()).getUpdateCount()).isEqualTo(2);
+		assertThat(statistics.getEntityStatistics(FeeSharer.class.getName()).getDeleteCount()).isZero();
+		assertThat(statistics.getEntityStatistics(FeeSharer.class.getName()).getInsertCount()).isZero();
+
+		Map<Integer, FeeRange> rangesAfter = rangesByMin(fee.getId());
+		assertThat(rangesAfter).containsOnlyKeys(0, 100);
+		assertThat(rangesAfter.get(0).getId()).isEqualTo(rangesBefore.get(0).getId());
+		assertThat(rangesAfter.get(100).getId()).isEqualTo(rangesBefore.get(100).getId());
+		assertThat(rangesAfter.get(100).getAmount()).isEqualByComparingTo("6");
+		assertThat(rangesAfter.get(100).getMaxAmount()).isNull();
+
+		Map<String, FeeSharer> sharersAfter = sharersById(fee.getId());
+		sharersBefore.forEach((sharerId, sharer) ->
+				assertThat(sharersAfter.get(sharerId).getId()).isEqualTo(sharer.getId()));
+		assertThat(sharersAfter.get("p1").getPercentage()).isEqualByComparingTo("40");
+
+		// Child-only edits still move the fee's version
+		assertThat(updated.getVersion()).isGreaterThan(fee.getVersion());
+	}
+
+	@Test
+	void removesAllSharersOnceWhenAFeeStopsBeingShared() {
+		Fee fee = feeService.createFee("unshare-tenant", rangedFee(
+				List.of(range("0", null, "1")),
+				List.of(sharer("us", "60", true), sharer("p1", "40", false))));
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		UpdateFeeRequest request = rangedUpdate(List.of(range("0", null, "1")), null, fee.getVersion());
+		request.setIsShared(false);
+		Fee updated = feeService.updateFee(fee.getId(), "unshare-tenant", request);
+
+		assertThat(statistics.getEntityStatistics(FeeSharer.class.getName()).getDeleteCount()).isEqualTo(2);
+		assertThat(feeSharerRepository.findByFeeId(fee.getId())).isEmpty();
+		assertThat(updated.getVersion()).isGreaterThan(fee.getVersion());
+	}
+
+	@Test
+	void rejectsAnUpdateFromAStaleVersionWithConflict() {
+		Fee fee = feeService.createFee("stale-tenant", rangedFee(List.of(range("0", null, "1")), null));
+		Long readVersion = fee.getVersion();
+
+		feeService.updateFee(fee.getId(), "stale-tenant", rangedUpdate(List.of(range("0", null, "2")), null, readVersion));
+
+		ResponseEntity<ApiResponse<FeeResponse>> response = feeController.updateFee(fee.getId(), "stale-tenant",
+				rangedUpdate(List.of(range("0", null, "3")), null, readVersion));
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+		assertThat(feeRangeRepository.findByFeeId(fee.getId()))
+				.singleElement()
+				.satisfies(range -> assertThat(range.getAmount()).isEqualByComparingTo("2"));
+		assertThat(feeRepository.findById(fee.getId()).orElseThrow().getVersion()).isGreaterThan(readVersion);
+	}
+
+	private Map<Integer, FeeRange> rangesByMin(Long feeId) {
+		return feeRangeRepository.findByFeeId(feeId).stream()
+				.collect(Collectors.toMap(range -> range.getMinAmount().intValueExact(), Function.identity()));
+	}
+
+	private Map<String, FeeSharer> sharersById(Long feeId) {
+		return feeSharerRepository.findByFeeId(feeId).stream()
+				.collect(Collectors.toMap(FeeSharer::getSharerId, Function.identity()));
+	}
+
+	private static CreateFeeRequest rangedFee(List<FeeRangeRequest> ranges, List<FeeSharerRequest> sharers) {
+		return CreateFeeRequest.builder()
+				.feeType(FeeType.DEFAULT)
+				.calculationType(FeeCalculationType.RANGED)
+				.name("ranged")
+				.transactionType("TRANSFER")
+				.channels(List.of("WEB"))
+				.feeRanges(ranges)
+				.isShared(sharers != null)
+				.feeSharers(sharers)
+				.build();
+	}
+
+	private static UpdateFeeRequest rangedUpdate(List<FeeRangeRequest> ranges, List<FeeSharerRequest> sharers,
+												 Long version) {
+		return UpdateFeeRequest.builder()
+				.name("ranged")
+				.transactionType("TRANSFER")
+				.channels(List.of("WEB"))
+				.feeRanges(ranges)
+				.isShared(sharers != null)
+				.feeSharers(sharers)
+				.version(version)
+				.build();
+	}
+
+	private static FeeRangeRequest range(String min, String max, String amount) {
+		return FeeRangeRequest.builder()
+				.minAmount(new BigDecimal(min))
+				.maxAmount(max == null ? null : new BigDecimal(max))
+				.amount(new BigDecimal(amount))
+				.build();
+	}
+
+	private static FeeSharerRequest sharer(String sharerId, String percentage, boolean primary) {
+		return FeeSharerRequest.builder()
+				.sharerType(primary ? "PRIMARY" : "PARTNER")
+				.sharerId(sharerId)
+				.percentage(new BigDecimal(percentage))
+				.isPrimary(primary)
+				.build();
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.fee.fee;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StartupTimeTests {
+
+	// Generous default for slow CI hosts; tighten with -Dstartup.budget.millis when comparing JVM, CDS and native runs
+	private static final long STARTUP_BUDGET_MILLIS = Long.getLong("startup.budget.millis", 60_000);
+
+	@Test
+	void startsAgainstH2AndReportsReadyWithinBudget() {
+		long startedAt = System.nanoTime();
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FeeApplication.class)
+				.profiles("test")
+				.run("--server.port=0")) {
+			long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+			ApplicationAvailability availability = context.getBean(ApplicationAvailability.class);
+			assertThat(availability.getReadinessState()).isEqualTo(ReadinessState.ACCEPTING_TRAFFIC);
+			assertThat(elapsedMillis).isLessThan(STARTUP_BUDGET_MILLIS);
+		}
+	}
+
+}
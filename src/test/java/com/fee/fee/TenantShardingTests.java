@@ -0,0 +1,157 @@
+package com.fee.fee;
+
+import com.fee.fee.Util.TenantShardContext;
+import com.fee.fee.domain.Channel;
+import com.fee.fee.domain.TransactionType;
+import com.fee.fee.dto.CreateFeeRequest;
+import com.fee.fee.dto.FeeCalculationRequest;
+import com.fee.fee.dto.FeeCalculationResult;
+import com.fee.fee.dto.TenantShardMoveStatus;
+import com.fee.fee.enumeration.FeeCalculationType;
+import com.fee.fee.enumeration.FeeType;
+import com.fee.fee.enumeration.TenantShardMovePhase;
+import com.fee.fee.repository.ChannelRepository;
+import com.fee.fee.repository.TransactionTypeRepository;
+import com.fee.fee.service.FeeService;
+import com.fee.fee.service.ShardReferenceDataReplicator;
+import com.fee.fee.service.TenantShardMover;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+		"app.sharding.enabled=true",
+		"app.sharding.directory-refresh-millis=100",
+		"app.sharding.shards.shard-a.url=jdbc:h2:mem:shard-a-${random.uuid};DB_CLOSE_DELAY=-1",
+		"app.sharding.shards.shard-a.username=sa",
+		"app.sharding.shards.shard-b.url=jdbc:h2:mem:shard-b-${random.uuid};DB_CLOSE_DELAY=-1",
+		"app.sharding.shards.shard-b.username=sa",
+		"app.sharding.tenants.big-tenant=shard-a",
+		"app.warmup.enabled=false"
+})
+@ActiveProfiles("test")
+class TenantShardingTests {
+
+	private static final String COUNT_TENANT_FEES =
+			"SELECT COUNT(*) FROM fees f JOIN tenant t ON f.tenant_id = t.id WHERE t.tenant_id = ?";
+
+	@Autowired
+	private FeeService feeService;
+
+	@Autowired
+	private TenantShardMover tenantShardMover;
+
+	@Autowired
+	private ShardReferenceDataReplicator shardReferenceDataReplicator;
+
+	@Autowired
+	private TransactionTypeRepository transactionTypeRepository;
+
+	@Autowired
+	private ChannelRepository channelRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void createReferenceData() {
+		if (!transactionTypeRepository.existsByCode("TRF")) {
+			transactionTypeRepository.save(TransactionType.builder().name("TRANSFER").code("TRF").build());
+		}
+		if (!channelRepository.existsByCode("WEB")) {
+			channelRepository.save(Channel.builder().name("WEB").code("WEB").build());
+		}
+		shardReferenceDataReplicator.replicate();
+	}
+
+	@AfterEach
+	void clearShard() {
+		TenantShardContext.clear();
+	}
+
+	@Test
+	void routesEachTenantsFeesToItsShard() {
+		feeService.createFee("big-tenant", fixedFee("big"));
+		feeService.createFee("small-tenant", fixedFee("small"));
+		TenantShardContext.clear();
+
+		assertThat(countFees("shard-a", "big-tenant")).isEqualTo(1);
+		assertThat(countFees("primary", "big-tenant")).isZero();
+		assertThat(countFees("primary", "small-tenant")).isEqualTo(1);
+		assertThat(countFees("shard-a", "small-tenant")).isZero();
+
+		FeeCalculationResult result = feeService.calculateFee(calculation("big-tenant"));
+		assertThat(result.getCalculatedAmount()).isEqualByComparingTo("5.00");
+	}
+
+	@Test
+	void movesTenantBetweenShardsOnline() throws InterruptedException {
+		feeService.createFee("moving-tenant", fixedFee("moving"));
+		TenantShardContext.clear();
+		assertThat(countFees("primary", "moving-tenant")).isEqualTo(1);
+
+		TenantShardMoveStatus move = tenantShardMover.startMove("moving-tenant", "shard-b");
+		assertThatThrownBy(() -> tenantShardMover.startMove("moving-tenant", "shard-a"))
+				.isInstanceOf(IllegalArgumentException.class);
+
+		TenantShardMoveStatus status = awaitMove(move.getMoveId());
+		assertThat(status.getPhase()).isEqualTo(TenantShardMovePhase.COMPLETED);
+		assertThat(status.getFeesCopied()).isEqualTo(1);
+
+		assertThat(countFees("shard-b", "moving-tenant")).isEqualTo(1);
+		assertThat(countFees("primary", "moving-tenant")).isZero();
+
+		FeeCalculationResult result = feeService.calculateFee(calculation("moving-tenant"));
+		assertThat(result.getCalculatedAmount()).isEqualByComparingTo("5.00");
+	}
+
+	private TenantShardMoveStatus awaitMove(String moveId) throws InterruptedException {
+		for (int i = 0; i < 100; i++) {
+			TenantShardMoveStatus status = tenantShardMover.getMove(moveId).orElseThrow();
+			if (status.getPhase() == TenantShardMovePhase.COMPLETED || status.getPhase() == TenantShardMovePhase.FAILED) {
+				return status;
+			}
+			Thread.sleep(100);
+		}
+		throw new AssertionError("Move did not finish: " + moveId);
+	}
+
+	private int countFees(String shard, String tenantId) {
+		return TenantShardContext.callWithShard(shard,
+				() -> jdbcTemplate.queryForObject(COUNT_TENANT_FEES, Integer.class, tenantId));
+	}
+
+	private CreateFeeRequest fixedFee(String name) {
+		return CreateFeeRequest.builder()
+				.feeType(FeeType.DEFAULT)
+				.calculationType(FeeCalculationType.FIXED)
+				.name(name)
+				.transactionType("TRANSFER")
+				.channels(List.of("WEB"))
+				.fixedAmount(new BigDecimal("5.00"))
+				.isShared(false)
+				.build();
+	}
+
+	private FeeCalculationRequest calculation(String tenantId) {
+		return FeeCalculationRequest.builder()
+				.tenantId(tenantId)
+				.feeType(FeeType.DEFAULT)
+				.transactionType("TRANSFER")
+				.channel("WEB")
+				.amount(new BigDecimal("100.00"))
+				.applySharing(true)
+				.build();
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.fee.fee.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketTests {
+
+	private static final long INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	@Test
+	void admitsTheBurstBackToBackThenReportsTheWait() {
+		TokenBucket bucket = new TokenBucket(1, 5);
+
+		for (int i = 0; i < 5; i++) {
+			assertThat(bucket.tryAcquire()).isZero();
+		}
+		assertThat(bucket.tryAcquire()).isPositive().isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(1));
+	}
+
+	@Test
+	void refillsAtTheRate() throws InterruptedException {
+		TokenBucket bucket = new TokenBucket(100, 1);
+
+		assertThat(bucket.tryAcquire()).isZero();
+		assertThat(bucket.tryAcquire()).isPositive().isLessThanOrEqualTo(INTERVAL_NANOS);
+
+		Thread.sleep(15);
+		assertThat(bucket.tryAcquire()).isZero();
+	}
+
+	@Test
+	void idleTimeDoesNotBankMoreThanTheBurst() throws InterruptedException {
+		TokenBucket bucket = new TokenBucket(100, 2);
+
+		Thread.sleep(50);
+
+		assertThat(bucket.tryAcquire()).isZero();
+		assertThat(bucket.tryAcquire()).isZero();
+		assertThat(bucket.tryAcquire()).isPositive().isLessThanOrEqualTo(INTERVAL_NANOS);
+	}
+
+	@Test
+	void rejectsAnUnusableLimit() {
+		assertThatThrownBy(() -> new TokenBucket(0, 10)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new TokenBucket(10, 0)).isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,190 @@
+package com.fee.fee.service;
+
+import com.fee.fee.Util.TenantShardContext;
+import com.fee.fee.config.ApplicationProperties;
+import com.fee.fee.dto.FeeCalculationRequest;
+import com.fee.fee.dto.FeeCalculationResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CalculationBatcherTests {
+
+	private final ApplicationProperties properties = new ApplicationProperties();
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final FeeService feeService = mock(FeeService.class);
+	private final TenantShardDirectory tenantShardDirectory = mock(TenantShardDirectory.class);
+	// One entry per calculateFees call: the tenants of its requests and the shard it ran on
+	private final Queue<Call> calls = new ConcurrentLinkedQueue<>();
+	private final CountDownLatch slowTenantReleased = new CountDownLatch(1);
+	private final ExecutorService callers = Executors.newFixedThreadPool(16);
+	private CalculationBatcher batcher;
+
+	@BeforeEach
+	void stubFeeService() {
+		properties.getBatching().setEnabled(true);
+		properties.getBatching().setParallelism(4);
+		when(tenantShardDirectory.resolve(anyString())).thenAnswer(invocation -> "shard-" + invocation.getArgument(0));
+
+		// Negative amounts fail on their own; the "slow" tenant waits until released
+		when(feeService.calculateFees(anyList(), anyList())).thenAnswer(invocation -> {
+			List<FeeCalculationRequest> requests = invocation.getArgument(0);
+			calls.add(new Call(requests.stream().map(FeeCalculationRequest::getTenantId).collect(Collectors.toSet()),
+					TenantShardContext.getShard()));
+			if (requests.stream().anyMatch(request -> "slow".equals(request.getTenantId()))) {
+				slowTenantReleased.await();
+			}
+			List<CalculationOutcome> outcomes = new ArrayList<>();
+			for (FeeCalculationRequest request : requests) {
+				outcomes.add(request.getAmount().signum() < 0
+						? new CalculationOutcome(null, new IllegalArgumentException("Amount must be positive"))
+						: new CalculationOutcome(result(request), null));
+			}
+			return outcomes;
+		});
+		when(feeService.calculateFee(any(FeeCalculationRequest.class)))
+				.thenAnswer(invocation -> result(invocation.getArgument(0)));
+	}
+
+	@AfterEach
+	void stopBatcher() throws InterruptedException {
+		slowTenantReleased.countDown();
+		callers.shutdownNow();
+		if (batcher != null) {
+			batcher.stop();
+		}
+	}
+
+	@Test
+	void failsOnlyTheRequestsThatFailWithinABatch() throws Exception {
+		startBatcher();
+
+		List<CompletableFuture<FeeCalculationResult>> results = new ArrayList<>();
+		for (int i = 1; i <= 200; i++) {
+			results.add(calculate("tenant", i % 5 == 0 ? -i : i));
+		}
+
+		for (int i = 1; i <= 200; i++) {
+			CompletableFuture<FeeCalculationResult> result = results.get(i - 1);
+			if (i % 5 == 0) {
+				assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+						.isInstanceOf(ExecutionException.class)
+						.hasCauseInstanceOf(IllegalArgumentException.class);
+			} else {
+				assertThat(result.get(5, TimeUnit.SECONDS).getCalculatedAmount()).isEqualByComparingTo(BigDecimal.valueOf(i));
+			}
+		}
+		verify(feeService, never()).calculateFee(any(FeeCalculationRequest.class));
+	}
+
+	@Test
+	void calculatesEachTenantOnItsOwnShardWithoutWaitingForOthers() throws Exception {
+		startBatcher();
+
+		CompletableFuture<FeeCalculationResult> slow = calculate("slow", 1);
+		List<CompletableFuture<FeeCalculationResult>> fast = new ArrayList<>();
+		for (int i = 1; i <= 100; i++) {
+			fast.add(calculate(i % 2 == 0 ? "even" : "odd", i));
+		}
+
+		// The slow tenant's calculation is still held, yet everyone else's completes
+		CompletableFuture.allOf(fast.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+		assertThat(slow).isNotDone();
+		slowTenantReleased.countDown();
+		assertThat(slow.get(5, TimeUnit.SECONDS).getCalculatedAmount()).isEqualByComparingTo("1");
+
+		assertThat(calls).allSatisfy(call -> {
+			assertThat(call.tenants()).hasSize(1);
+			assertThat(call.shard()).isEqualTo("shard-" + call.tenants().iterator().next());
+		});
+	}
+
+	@Test
+	void calculatesOnTheCallersThreadWhenTheQueueIsFull() throws Exception {
+		properties.getBatching().setQueueCapacity(1);
+		startBatcher();
+
+		List<CompletableFuture<FeeCalculationResult>> results = new ArrayList<>();
+		for (int i = 1; i <= 5_000; i++) {
+			results.add(calculate("tenant", i));
+		}
+		for (int i = 1; i <= 5_000; i++) {
+			assertThat(results.get(i - 1).get(5, TimeUnit.SECONDS).getCalculatedAmount())
+					.isEqualByComparingTo(BigDecimal.valueOf(i));
+		}
+
+		double bypassed = registry.get("fee.batching.bypassed").functionCounter().count();
+		double batched = registry.get("fee.batching.requests").functionCounter().count();
+		assertThat(bypassed).isPositive();
+		assertThat(bypassed + batched).isEqualTo(5_000);
+	}
+
+	@Test
+	void calculatesDirectlyOnceStopped() throws Exception {
+		startBatcher();
+		assertThat(calculate("tenant", 1).get(5, TimeUnit.SECONDS).getCalculatedAmount()).isEqualByComparingTo("1");
+
+		batcher.stop();
+
+		FeeCalculationResult result = assertTimeoutPreemptively(Duration.ofSeconds(5),
+				() -> batcher.calculate(request("tenant", 2)));
+		assertThat(result.getCalculatedAmount()).isEqualByComparingTo("2");
+		verify(feeService, times(1)).calculateFee(any(FeeCalculationRequest.class));
+	}
+
+	private void startBatcher() {
+		batcher = new CalculationBatcher(feeService, tenantShardDirectory, properties, registry);
+		batcher.start();
+	}
+
+	private CompletableFuture<FeeCalculationResult> calculate(String tenantId, long amount) {
+		return CompletableFuture.supplyAsync(() -> batcher.calculate(request(tenantId, amount)), callers);
+	}
+
+	private static FeeCalculationRequest request(String tenantId, long amount) {
+		return FeeCalculationRequest.builder()
+				.tenantId(tenantId)
+				.transactionType("TRANSFER")
+				.channel("WEB")
+				.amount(BigDecimal.valueOf(amount))
+				.build();
+	}
+
+	private static FeeCalculationResult result(FeeCalculationRequest request) {
+		return FeeCalculationResult.builder()
+				.calculatedAmount(request.getAmount())
+				.sharerCalculations(List.of())
+				.build();
+	}
+
+	private record Call(Set<String> tenants, String shard) {
+	}
+}
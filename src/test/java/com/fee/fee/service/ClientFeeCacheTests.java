@@ -0,0 +1,120 @@
+package com.fee.fee.service;
+
+import com.fee.fee.config.ApplicationProperties;
+import com.fee.fee.domain.Tenant;
+import com.fee.fee.repository.ClientTemplateAssignmentRepository;
+import com.fee.fee.repository.FeeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ClientFeeCacheTests {
+
+	private static final long BUDGET_BYTES = 100_000;
+	private static final String TENANT_ID = "cached-tenant";
+
+	// The repositories return no fees and no assignment, so an entry weighs ENTRY_BYTES plus its id; the
+	// ids are padded to the entry size the frequency sketch is dimensioned for
+	private static final String PADDING = "-".repeat(300);
+
+	private final Tenant tenant = Tenant.builder().tenantId(TENANT_ID).name(TENANT_ID).build();
+	private SimpleMeterRegistry registry;
+	private SharerAllocationService sharerAllocationService;
+	private ClientFeeCache cache;
+
+	@BeforeEach
+	void createCache() {
+		ApplicationProperties properties = new ApplicationProperties();
+		properties.getCache().setClientFeeBudgetBytes(BUDGET_BYTES);
+		registry = new SimpleMeterRegistry();
+		sharerAllocationService = new SharerAllocationService(properties);
+		cache = new ClientFeeCache(mock(FeeRepository.class), mock(ClientTemplateAssignmentRepository.class),
+				sharerAllocationService, properties, registry);
+	}
+
+	@Test
+	void neverHoldsMoreThanTheBudget() {
+		TenantCatalogue catalogue = catalogue();
+		Random random = new Random(48);
+		for (int i = 0; i < 20_000; i++) {
+			// Skewed towards low ids, with ids of varying length so entries differ in weight
+			int client = (int) Math.abs(random.nextGaussian() * 400);
+			cache.get(catalogue, "client-" + client + PADDING.substring(client % 50));
+
+			assertThat(gauge("fee.cache.client.bytes")).isLessThanOrEqualTo(BUDGET_BYTES);
+		}
+		assertThat(counter("fee.cache.client.evictions")).isPositive();
+	}
+
+	@Test
+	void keepsFrequentlyHitClientsThroughAScanOfOneOffClients() {
+		TenantCatalogue catalogue = catalogue();
+		List<String> hotClients = clients("hot-", 50);
+		for (int round = 0; round < 10; round++) {
+			hotClients.forEach(client -> cache.get(catalogue, client));
+		}
+
+		// Several times what the cache can hold, each client seen once
+		clients("scan-", 1_000).forEach(client -> cache.get(catalogue, client));
+
+		assertThat(hotClients).allSatisfy(client -> assertThat(cache.peek(catalogue, client)).isNotNull());
+		assertThat(counter("fee.cache.client.evictions")).isPositive();
+	}
+
+	@Test
+	void servesButDoesNotCacheAnEntryLargerThanTheCache() {
+		TenantCatalogue catalogue = catalogue();
+		String hugeClient = "c".repeat((int) BUDGET_BYTES / 2);
+
+		TenantCatalogue fees = cache.get(catalogue, hugeClient);
+
+		assertThat(fees).isNotNull();
+		assertThat(fees.getActiveFees()).isEmpty();
+		assertThat(cache.peek(catalogue, hugeClient)).isNull();
+		assertThat(counter("fee.cache.client.rejected")).isEqualTo(1);
+		assertThat(gauge("fee.cache.client.bytes")).isZero();
+	}
+
+	@Test
+	void doesNotServeAnEntryLoadedUnderAnOlderCatalogue() {
+		TenantCatalogue older = catalogue();
+		cache.get(older, "client-1");
+		cache.get(older, "client-1");
+		assertThat(counter("fee.cache.client.hits")).isEqualTo(1);
+
+		TenantCatalogue reloaded = catalogue();
+		assertThat(cache.peek(reloaded, "client-1")).isNull();
+		cache.get(reloaded, "client-1");
+		assertThat(counter("fee.cache.client.misses")).isEqualTo(2);
+
+		// The entry now belongs to the newer catalogue, and a late load under the older one cannot replace it
+		assertThat(cache.peek(older, "client-1")).isNull();
+		cache.get(older, "client-1");
+		assertThat(cache.peek(reloaded, "client-1")).isNotNull();
+		assertThat(gauge("fee.cache.client.entries")).isEqualTo(1);
+	}
+
+	private TenantCatalogue catalogue() {
+		return new TenantCatalogue(tenant, List.of(), Map.of(), System.currentTimeMillis(), sharerAllocationService);
+	}
+
+	private static List<String> clients(String prefix, int count) {
+		return IntStream.range(0, count).mapToObj(i -> prefix + i + PADDING).toList();
+	}
+
+	private long gauge(String name) {
+		return (long) registry.get(name).tag("tenant", TENANT_ID).gauge().value();
+	}
+
+	private long counter(String name) {
+		return (long) registry.get(name).tag("tenant", TENANT_ID).functionCounter().count();
+	}
+}
@@ -0,0 +1,73 @@
+package com.fee.fee.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientKeyFilterTests {
+
+	private static final int BITS_PER_KEY = 16;
+
+	@Test
+	void holdsEveryKeyItWasBuiltWithAndEveryWrittenOne() {
+		ClientKeyFilter filter = new ClientKeyFilter(2000, BITS_PER_KEY, 5);
+		for (int i = 0; i < 1000; i++) {
+			filter.add(ClientKeyFilter.feeKey("client-" + i, i % 7, i % 3));
+			filter.add(ClientKeyFilter.clientKey("assigned-" + i));
+		}
+
+		filter.addWritten(new long[]{ClientKeyFilter.feeKey("new-client", 2, 9)}, 6);
+		filter.addWritten(ClientKeyFilter.keysOfClients(List.of("new-assigned")), 7);
+
+		assertThat(filter.covers(7)).isTrue();
+		for (int i = 0; i < 1000; i++) {
+			assertThat(filter.mightHold("client-" + i, i % 7, i % 3)).isTrue();
+			// A template assignment matches whatever the transaction type and channel
+			assertThat(filter.mightHold("assigned-" + i, 1, 1)).isTrue();
+		}
+		assertThat(filter.mightHold("new-client", 2, 9)).isTrue();
+		assertThat(filter.mightHold("new-assigned", 4, 4)).isTrue();
+	}
+
+	@Test
+	void missedWriteStopsCoveringNewVersions() {
+		ClientKeyFilter filter = new ClientKeyFilter(10, BITS_PER_KEY, 5);
+
+		filter.addWritten(new long[]{ClientKeyFilter.clientKey("a")}, 7);
+
+		assertThat(filter.covers(5)).isTrue();
+		assertThat(filter.covers(7)).isFalse();
+		assertThat(filter.mightHold("a", 0, 0)).isTrue();
+	}
+
+	@Test
+	void writesBeyondCapacityLeaveTheFilterToBeRebuilt() {
+		ClientKeyFilter filter = new ClientKeyFilter(0, BITS_PER_KEY, 1);
+		long[] keys = IntStream.range(0, 1024).mapToLong(i -> ClientKeyFilter.clientKey("c" + i)).toArray();
+
+		filter.addWritten(keys, 2);
+		assertThat(filter.covers(2)).isTrue();
+
+		filter.addWritten(new long[]{ClientKeyFilter.clientKey("one-too-many")}, 3);
+		assertThat(filter.covers(3)).isFalse();
+		assertThat(filter.mightHold("one-too-many", 0, 0)).isTrue();
+	}
+
+	@Test
+	void rarelyAdmitsAbsentClientsWhenFull() {
+		int keys = 50_000;
+		ClientKeyFilter filter = new ClientKeyFilter(keys / 2, BITS_PER_KEY, 1);
+		for (int i = 0; i < keys; i++) {
+			filter.add(ClientKeyFilter.feeKey("client-" + i, 1, 1));
+		}
+
+		long falsePositives = IntStream.range(0, 100_000)
+				.filter(i -> filter.mightHold("absent-" + i, 1, 1))
+				.count();
+
+		assertThat(falsePositives).isLessThan(5_000);
+	}
+}
@@ -0,0 +1,68 @@
+package com.fee.fee.service;
+
+import com.fee.fee.domain.Fee;
+import com.fee.fee.domain.FeeRange;
+import com.fee.fee.enumeration.FeeCalculationType;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+/**
+ * Range-based fees for the RANGED and TIERED evaluator tests.
+ */
+final class FeeRangeFixtures {
+
+	private FeeRangeFixtures() {
+	}
+
+	static Fee fee(FeeCalculationType calculationType, FeeRange... ranges) {
+		Fee fee = Fee.builder().id(1L).calculationType(calculationType).build();
+		for (FeeRange range : ranges) {
+			fee.addFeeRange(range);
+		}
+		return fee;
+	}
+
+	/**
+	 * @param max  null for an open band
+	 * @param rate percentage of the amount within the band; null for none
+	 */
+	static FeeRange range(String min, String max, String amount, String rate) {
+		return FeeRange.builder()
+				.minAmount(new BigDecimal(min))
+				.maxAmount(max == null ? null : new BigDecimal(max))
+				.amount(new BigDecimal(amount))
+				.rate(rate == null ? null : new BigDecimal(rate))
+				.build();
+	}
+
+	/**
+	 * One to five bands, the last one open half the time. TIERED bands are as validation allows them:
+	 * from zero, contiguous, each with a rate. RANGED bands start anywhere, leave occasional gaps that
+	 * only an open last band covers, and may have no rate or a zero one.
+	 */
+	static Fee randomFee(Random random, FeeCalculationType calculationType) {
+		boolean tiered = calculationType == FeeCalculationType.TIERED;
+		int bands = 1 + random.nextInt(5);
+		Fee fee = Fee.builder().id((long) bands).calculationType(calculationType).build();
+		long lower = tiered ? 0 : random.nextInt(1000);
+		for (int i = 0; i < bands; i++) {
+			long upper = lower + 1 + random.nextInt(tiered ? 1_000_000 : 500_000);
+			boolean last = i == bands - 1;
+			String rate;
+			if (tiered) {
+				rate = BigDecimal.valueOf(random.nextInt(500), random.nextInt(3)).toPlainString();
+			} else {
+				rate = switch (random.nextInt(4)) {
+					case 0 -> null;
+					case 1 -> "0";
+					default -> BigDecimal.valueOf(random.nextInt(5000), random.nextInt(4)).toPlainString();
+				};
+			}
+			fee.addFeeRange(range(Long.toString(lower), last && random.nextBoolean() ? null : Long.toString(upper),
+					BigDecimal.valueOf(random.nextInt(tiered ? 1000 : 10_000), 2).toPlainString(), rate));
+			lower = upper + (!tiered && random.nextInt(3) == 0 ? random.nextInt(1000) : 0);
+		}
+		return fee;
+	}
+}
@@ -0,0 +1,103 @@
+package com.fee.fee.service;
+
+import com.fee.fee.domain.Fee;
+import com.fee.fee.domain.FeeRange;
+import com.fee.fee.enumeration.FeeCalculationType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static com.fee.fee.service.FeeRangeFixtures.fee;
+import static com.fee.fee.service.FeeRangeFixtures.randomFee;
+import static com.fee.fee.service.FeeRangeFixtures.range;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RangedFeeEvaluatorTests {
+
+	@Test
+	void matchesTheUncompiledCalculationInValueAndScale() {
+		Random random = new Random(42);
+
+		for (int run = 0; run < 500; run++) {
+			Fee fee = randomFee(random, FeeCalculationType.RANGED);
+			FeeEvaluator evaluator = FeeEvaluator.compile(fee);
+
+			for (int i = 0; i < 40; i++) {
+				BigDecimal amount = BigDecimal.valueOf(random.nextInt(2_000_000), random.nextInt(4));
+				BigDecimal expected;
+				try {
+					expected = baseline(fee, amount);
+				} catch (IllegalArgumentException e) {
+					assertThatThrownBy(() -> evaluator.evaluate(amount)).isInstanceOf(IllegalArgumentException.class);
+					continue;
+				}
+				assertThat(evaluator.evaluate(amount)).as("fee %s, amount %s", fee.getFeeRanges(), amount)
+						.isEqualTo(expected);
+			}
+		}
+	}
+
+	@Test
+	void amountOutsideEveryBandFallsBackToAnOpenLastBand() {
+		Fee fee = fee(FeeCalculationType.RANGED, range("100", "200", "5", null), range("300", null, "0", "1.5"));
+		FeeEvaluator evaluator = FeeEvaluator.compile(fee);
+
+		assertThat(evaluator.evaluate(new BigDecimal("50"))).isEqualTo(baseline(fee, new BigDecimal("50")));
+		assertThat(evaluator.evaluate(new BigDecimal("250.00"))).isEqualByComparingTo("3.75");
+		assertThat(evaluator.evaluate(new BigDecimal("150"))).isEqualByComparingTo("5");
+	}
+
+	@Test
+	void amountOutsideClosedBandsIsRejected() {
+		FeeEvaluator evaluator = FeeEvaluator.compile(fee(FeeCalculationType.RANGED, range("100", "200", "5", null)));
+
+		assertThatThrownBy(() -> evaluator.evaluate(new BigDecimal("200"))).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> evaluator.evaluate(new BigDecimal("99.99"))).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void zeroRateChargesTheFlatAmount() {
+		FeeEvaluator evaluator = FeeEvaluator.compile(fee(FeeCalculationType.RANGED, range("0", null, "7.25", "0.000")));
+
+		assertThat(evaluator.evaluate(new BigDecimal("1000"))).isEqualTo(new BigDecimal("7.25"));
+	}
+
+	@Test
+	void percentageToFractionKeepsTheScaleOfDividingByOneHundred() {
+		for (String rate : List.of("1.5", "0.25", "100", "12.3400", "0.001", "250", "3E+2", "0", "0.00", "7")) {
+			BigDecimal value = new BigDecimal(rate);
+
+			assertThat(FeeEvaluator.percentageToFraction(value)).as(rate)
+					.isEqualTo(value.divide(new BigDecimal("100")));
+		}
+	}
+
+	// The calculation the evaluator replaced, as it was in FeeService
+	private static BigDecimal baseline(Fee fee, BigDecimal amount) {
+		List<FeeRange> sortedRanges = fee.getFeeRanges().stream()
+				.sorted(Comparator.comparing(FeeRange::getMinAmount))
+				.toList();
+		for (FeeRange range : sortedRanges) {
+			if (amount.compareTo(range.getMinAmount()) >= 0
+					&& (range.getMaxAmount() == null || amount.compareTo(range.getMaxAmount()) < 0)) {
+				return charge(range, amount);
+			}
+		}
+		FeeRange lastRange = sortedRanges.get(sortedRanges.size() - 1);
+		if (lastRange.getMaxAmount() == null) {
+			return charge(lastRange, amount);
+		}
+		throw new IllegalArgumentException("No applicable range found for amount: " + amount);
+	}
+
+	private static BigDecimal charge(FeeRange range, BigDecimal amount) {
+		if (range.getRate() != null && range.getRate().compareTo(BigDecimal.ZERO) > 0) {
+			return amount.multiply(range.getRate().divide(new BigDecimal("100")));
+		}
+		return range.getAmount();
+	}
+}
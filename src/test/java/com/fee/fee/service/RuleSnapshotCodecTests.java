@@ -0,0 +1,126 @@
+package com.fee.fee.service;
+
+import com.fee.fee.domain.Channel;
+import com.fee.fee.domain.Fee;
+import com.fee.fee.domain.FeeRange;
+import com.fee.fee.domain.FeeSharer;
+import com.fee.fee.domain.Tenant;
+import com.fee.fee.domain.TransactionType;
+import com.fee.fee.enumeration.FeeCalculationType;
+import com.fee.fee.enumeration.FeeType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RuleSnapshotCodecTests {
+
+	private static final LocalDateTime CREATED = LocalDateTime.of(2026, 3, 1, 12, 30, 15, 123_456_789);
+
+	@Test
+	void decodesWhatItEncoded() {
+		RuleSnapshot snapshot = snapshot();
+
+		ByteBuffer encoded = RuleSnapshotCodec.encode(snapshot);
+		RuleSnapshot decoded = RuleSnapshotCodec.decode(encoded);
+
+		assertThat(decoded.writtenAtMillis()).isEqualTo(snapshot.writtenAtMillis());
+		assertThat(decoded.transactionTypes()).extracting(TransactionType::getCode).containsExactly("TRF");
+		assertThat(decoded.channels()).extracting(Channel::getCode).containsExactly("WEB");
+
+		RuleSnapshot.TenantRules tenant = decoded.tenants().get(0);
+		assertThat(tenant.tenant().getTenantId()).isEqualTo("acme");
+		assertThat(tenant.ruleVersion()).isEqualTo(17);
+		assertThat(tenant.clientFeesIncluded()).isTrue();
+		assertThat(tenant.templateAssignments()).isEqualTo(Map.of("c1", "gold"));
+
+		List<Fee> fees = snapshot.tenants().get(0).fees();
+		assertThat(tenant.fees()).hasSameSizeAs(fees);
+		for (int i = 0; i < fees.size(); i++) {
+			assertThat(RuleSnapshotCodec.sameFee(tenant.fees().get(i), fees.get(i))).isTrue();
+		}
+		Fee ranged = tenant.fees().get(1);
+		assertThat(ranged.getFeeRanges().get(1).getMaxAmount()).isNull();
+		assertThat(ranged.getFeeRanges().get(0).getRate()).isEqualTo(new BigDecimal("1.250"));
+		assertThat(ranged.getChannels()).extracting(Channel::getCode).containsExactly("MOB");
+		assertThat(ranged.getCreatedAt()).isEqualTo(CREATED);
+
+		assertThat(RuleSnapshotCodec.encode(decoded)).isEqualTo(RuleSnapshotCodec.encode(snapshot));
+	}
+
+	@Test
+	void rejectsACorruptedPayload() {
+		ByteBuffer encoded = RuleSnapshotCodec.encode(snapshot());
+		int last = encoded.capacity() - 1;
+		encoded.put(last, (byte) (encoded.get(last) ^ 1));
+
+		assertThatThrownBy(() -> RuleSnapshotCodec.decode(encoded))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("checksum");
+	}
+
+	@Test
+	void rejectsATruncatedOrForeignFile() {
+		ByteBuffer encoded = RuleSnapshotCodec.encode(snapshot());
+
+		assertThatThrownBy(() -> RuleSnapshotCodec.decode(encoded.slice(0, encoded.capacity() - 8)))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("Truncated");
+		assertThatThrownBy(() -> RuleSnapshotCodec.decode(ByteBuffer.allocate(64)))
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+	private static RuleSnapshot snapshot() {
+		TransactionType transfer = TransactionType.builder().id(1L).name("TRANSFER").code("TRF").isActive(true)
+				.createdAt(CREATED).build();
+		Channel web = Channel.builder().id(1L).name("WEB").code("WEB").isActive(true).createdAt(CREATED).build();
+		// Referenced by a fee only, not cached as reference data
+		Channel mobile = Channel.builder().id(2L).name("MOBILE").code("MOB").description("App").isActive(true).build();
+		Tenant tenant = Tenant.builder().id(3L).tenantId("acme").name("Acme").ruleVersion(17L).build();
+
+		Fee shared = Fee.builder()
+				.id(10L)
+				.tenant(tenant)
+				.feeType(FeeType.CLIENT)
+				.calculationType(FeeCalculationType.PERCENTAGE)
+				.name("client")
+				.transactionType(transfer)
+				.percentageRate(new BigDecimal("1.5"))
+				.isShared(true)
+				.clientId("c9")
+				.validFrom(CREATED)
+				.version(4L)
+				.build();
+		shared.addChannel(web);
+		shared.addFeeSharer(FeeSharer.builder().id(1L).sharerType("PRIMARY").sharerId("us")
+				.percentage(new BigDecimal("70")).isPrimary(true).build());
+		shared.addFeeSharer(FeeSharer.builder().id(2L).sharerType("PARTNER").sharerId("p1").sharerName("Partner")
+				.percentage(new BigDecimal("30.00")).build());
+
+		Fee ranged = Fee.builder()
+				.id(11L)
+				.tenant(tenant)
+				.feeType(FeeType.DEFAULT)
+				.calculationType(FeeCalculationType.RANGED)
+				.name("default")
+				.description("Bands")
+				.transactionType(transfer)
+				.createdAt(CREATED)
+				.version(0L)
+				.build();
+		ranged.addChannel(mobile);
+		ranged.addFeeRange(FeeRange.builder().id(1L).minAmount(BigDecimal.ZERO).maxAmount(new BigDecimal("1000"))
+				.amount(BigDecimal.ONE).rate(new BigDecimal("1.250")).build());
+		ranged.addFeeRange(FeeRange.builder().id(2L).minAmount(new BigDecimal("1000")).amount(new BigDecimal("12.5"))
+				.build());
+
+		return new RuleSnapshot(1_700_000_000_000L, List.of(transfer), List.of(web), List.of(
+				new RuleSnapshot.TenantRules(tenant, 17, true, List.of(shared, ranged), Map.of("c1", "gold"))));
+	}
+}
@@ -0,0 +1,93 @@
+package com.fee.fee.service;
+
+import com.fee.fee.domain.FeeSharer;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SharerSplitTests {
+
+	private static final int MINOR_UNIT_SCALE = 2;
+
+	@Test
+	void partsAreWholeMinorUnitsSummingToTheRoundedAmount() {
+		SharerSplit split = split(false, "33.33", "33.33", "33.34");
+
+		BigDecimal[] parts = split.distributeAmount(new BigDecimal("7.50125"), MINOR_UNIT_SCALE);
+
+		assertThat(parts).extracting(BigDecimal::scale).containsOnly(MINOR_UNIT_SCALE);
+		assertThat(sum(parts)).isEqualByComparingTo("7.50");
+		assertThat(parts).containsExactly(new BigDecimal("2.50"), new BigDecimal("2.50"), new BigDecimal("2.50"));
+	}
+
+	@Test
+	void leftoverUnitsGoToTheLargestRemaindersAndThePrimaryWinsTies() {
+		SharerSplit split = split(true, "50", "50");
+
+		BigDecimal[] parts = split.distributeAmount(new BigDecimal("0.01"), MINOR_UNIT_SCALE);
+
+		assertThat(parts).containsExactly(new BigDecimal("0.01"), new BigDecimal("0.00"));
+
+		SharerSplit primaryLast = split(false, "50", "50");
+		long[] shares = new long[2];
+		primaryLast.allocate(1, shares);
+		assertThat(shares).containsExactly(0, 1);
+	}
+
+	@Test
+	void negativeAmountsSplitExactly() {
+		SharerSplit split = split(false, "33.33", "33.33", "33.34");
+
+		for (long units = -1; units >= -1000; units -= 7) {
+			long[] shares = new long[3];
+			split.allocate(units, shares);
+			assertThat(Arrays.stream(shares).sum()).isEqualTo(units);
+		}
+	}
+
+	@Test
+	void amountsBeyondALongOfMinorUnitsSplitExactly() {
+		SharerSplit split = split(false, "33.33", "33.33", "33.34");
+		BigDecimal amount = new BigDecimal("123456789012345678901.234567");
+
+		BigDecimal[] parts = split.distributeAmount(amount, MINOR_UNIT_SCALE);
+
+		assertThat(sum(parts)).isEqualByComparingTo("123456789012345678901.23");
+		assertThat(sum(split.distributeAmount(amount.negate(), MINOR_UNIT_SCALE)))
+				.isEqualByComparingTo("-123456789012345678901.23");
+	}
+
+	@Test
+	void everyAllocationSumsToItsUnits() {
+		SharerSplit split = split(false, "12.5", "0.5", "40", "47");
+
+		for (long units = 0; units < 5000; units++) {
+			long[] shares = new long[4];
+			split.allocate(units, shares);
+			assertThat(Arrays.stream(shares).sum()).isEqualTo(units);
+		}
+	}
+
+	private static SharerSplit split(boolean primaryFirst, String... percentages) {
+		List<FeeSharer> sharers = new ArrayList<>();
+		for (int i = 0; i < percentages.length; i++) {
+			sharers.add(FeeSharer.builder()
+					.sharerType(i == 0 ? "PRIMARY" : "PARTNER")
+					.sharerId("s" + i)
+					.percentage(new BigDecimal(percentages[i]))
+					.isPrimary(primaryFirst ? i == 0 : i == percentages.length - 1)
+					.build());
+		}
+		return new SharerSplit(sharers, LongBuffer.wrap(SharerSplit.weightsOf(sharers)), null, MINOR_UNIT_SCALE);
+	}
+
+	private static BigDecimal sum(BigDecimal[] parts) {
+		return Arrays.stream(parts).reduce(BigDecimal.ZERO, BigDecimal::add);
+	}
+}
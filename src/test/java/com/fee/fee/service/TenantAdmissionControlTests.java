@@ -0,0 +1,52 @@
+package com.fee.fee.service;
+
+import com.fee.fee.config.ApplicationProperties;
+import com.fee.fee.exception.TenantThrottledException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TenantAdmissionControlTests {
+
+	@Test
+	void isOffAndUnlimitedByDefault() {
+		ApplicationProperties properties = new ApplicationProperties();
+
+		assertThat(properties.getAdmission().isEnabled()).isFalse();
+
+		properties.getAdmission().setEnabled(true);
+		TenantAdmissionControl admissionControl = new TenantAdmissionControl(properties, new SimpleMeterRegistry());
+		for (int i = 0; i < 10_000; i++) {
+			admissionControl.admit("busy-tenant");
+		}
+	}
+
+	@Test
+	void tagsMetersOnlyForConfiguredAndDefaultTenants() {
+		ApplicationProperties properties = new ApplicationProperties();
+		properties.getAdmission().setEnabled(true);
+		ApplicationProperties.TenantLimit limit = new ApplicationProperties.TenantLimit();
+		limit.setRequestsPerSecond(1);
+		limit.setBurst(1);
+		properties.getAdmission().getTenants().put("limited", limit);
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		TenantAdmissionControl admissionControl = new TenantAdmissionControl(properties, registry);
+
+		admissionControl.admit("limited");
+		assertThatThrownBy(() -> admissionControl.admit("limited")).isInstanceOf(TenantThrottledException.class);
+		admissionControl.admit(properties.getTenant().getDefaultTenantId());
+		for (int i = 0; i < 100; i++) {
+			admissionControl.admit("tenant-" + i);
+		}
+
+		assertThat(registry.find("fee.admission.admitted").functionCounters())
+				.extracting(counter -> counter.getId().getTag("tenant"))
+				.containsExactlyInAnyOrder("limited", properties.getTenant().getDefaultTenantId(), "_overflow");
+		assertThat(registry.get("fee.admission.admitted").tag("tenant", "_overflow").functionCounter().count())
+				.isEqualTo(100);
+		assertThat(registry.get("fee.admission.shed").tag("tenant", "limited").functionCounter().count())
+				.isEqualTo(1);
+	}
+}
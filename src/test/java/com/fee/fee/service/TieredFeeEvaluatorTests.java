@@ -0,0 +1,69 @@
+package com.fee.fee.service;
+
+import com.fee.fee.domain.Fee;
+import com.fee.fee.domain.FeeRange;
+import com.fee.fee.enumeration.FeeCalculationType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static com.fee.fee.service.FeeRangeFixtures.fee;
+import static com.fee.fee.service.FeeRangeFixtures.randomFee;
+import static com.fee.fee.service.FeeRangeFixtures.range;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TieredFeeEvaluatorTests {
+
+	@Test
+	void chargesEverySliceAtItsBandsRate() {
+		FeeEvaluator evaluator = FeeEvaluator.compile(fee(FeeCalculationType.TIERED,
+				range("0", "1000", "0", "2"),
+				range("1000", "5000", "5", "1"),
+				range("5000", null, "0", "0.5")));
+
+		assertThat(evaluator.evaluate(new BigDecimal("500"))).isEqualByComparingTo("10");
+		// 20 for the first band, then the second band's flat 5 and 1% of 1500
+		assertThat(evaluator.evaluate(new BigDecimal("2500"))).isEqualByComparingTo("40");
+		assertThat(evaluator.evaluate(new BigDecimal("10000"))).isEqualByComparingTo("90");
+	}
+
+	@Test
+	void stopsChargingAboveAClosedTopBand() {
+		FeeEvaluator evaluator = FeeEvaluator.compile(fee(FeeCalculationType.TIERED,
+				range("0", "100", "1", "10"),
+				range("100", "200", "0", "5")));
+
+		assertThat(evaluator.evaluate(new BigDecimal("200"))).isEqualByComparingTo("16");
+		assertThat(evaluator.evaluate(new BigDecimal("1000000"))).isEqualByComparingTo("16");
+	}
+
+	@Test
+	void matchesSliceBySliceSummationOnRandomBands() {
+		Random random = new Random(7);
+
+		for (int run = 0; run < 500; run++) {
+			Fee fee = randomFee(random, FeeCalculationType.TIERED);
+			FeeEvaluator evaluator = FeeEvaluator.compile(fee);
+
+			for (int i = 0; i < 40; i++) {
+				BigDecimal amount = BigDecimal.valueOf(random.nextInt(3_000_000), random.nextInt(3));
+				assertThat(evaluator.evaluate(amount)).as("fee %s, amount %s", fee.getFeeRanges(), amount)
+						.isEqualByComparingTo(sliceBySlice(fee, amount));
+			}
+		}
+	}
+
+	private static BigDecimal sliceBySlice(Fee fee, BigDecimal amount) {
+		BigDecimal total = BigDecimal.ZERO;
+		for (FeeRange range : fee.getFeeRanges()) {
+			if (amount.compareTo(range.getMinAmount()) < 0) {
+				continue;
+			}
+			BigDecimal top = range.getMaxAmount() == null ? amount : amount.min(range.getMaxAmount());
+			total = total.add(range.getAmount())
+					.add(top.subtract(range.getMinAmount()).multiply(range.getRate()).movePointLeft(2));
+		}
+		return total;
+	}
+}